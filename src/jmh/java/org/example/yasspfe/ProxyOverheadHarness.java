@@ -0,0 +1,452 @@
+package org.example.yasspfe;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.Histogram;
+import org.example.yasspfe.appscenrios.ApplicationProxy;
+import org.example.yasspfe.scenarios.MySQLProxy;
+import org.example.yasspfe.scenarios.MySQLStubServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the chaos proxies cost with every scenario disabled. JDBC traffic runs against
+ * a {@link MySQLStubServer} directly and through {@link MySQLProxy}; HTTP traffic runs against a
+ * JDK HTTP server directly and through {@link ApplicationProxy}. For each concurrency level the
+ * harness reports throughput and p50/p99 latency, then the latency the proxy adds.
+ * <p>
+ * A single run swings with JIT, GC and scheduler noise by more than the proxies cost, so every
+ * measurement is repeated {@code overhead.repeats} times (default 5) after {@code overhead.discardRuns}
+ * (default 1) warm-up rounds whose results are dropped, and the report keeps the median of the runs.
+ * Within a round, direct and proxy alternate which goes first so drift over the run hits both alike.
+ * A baseline is only written when it is plausible (the proxy no faster than the direct path beyond the
+ * tolerance) and records the machine and JDK it was measured on.
+ * <p>
+ * Results are compared against the checked-in baseline using proxy/direct ratios, so the check
+ * holds across machines of different speed. Any ratio worse than the baseline by more than the
+ * tolerance fails the run with a non-zero exit code.
+ * <p>
+ * System properties: {@code overhead.warmupSeconds}, {@code overhead.durationSeconds},
+ * {@code overhead.concurrency} (comma separated), {@code overhead.repeats}, {@code overhead.discardRuns},
+ * {@code overhead.baseline}, {@code overhead.output}, {@code overhead.tolerance} (fraction),
+ * {@code overhead.updateBaseline}.
+ */
+public class ProxyOverheadHarness {
+
+    private static final String QUERY = "SELECT * FROM orders";
+    // Below this many microseconds of extra p99, differences are treated as scheduling noise
+    private static final long P99_NOISE_FLOOR_MICROS = 200;
+
+    private final int warmupSeconds = Integer.getInteger("overhead.warmupSeconds", 2);
+    private final int durationSeconds = Integer.getInteger("overhead.durationSeconds", 5);
+    private final int repeats = Math.max(1, Integer.getInteger("overhead.repeats", 5));
+    private final int discardRuns = Math.max(0, Integer.getInteger("overhead.discardRuns", 1));
+    private final double tolerance = Double.parseDouble(System.getProperty("overhead.tolerance", "0.25"));
+    private final PrintStream console = System.out;
+
+    interface Client extends AutoCloseable {
+        void call() throws Exception;
+
+        @Override
+        default void close() throws Exception {
+        }
+    }
+
+    interface ClientFactory {
+        Client open() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] levels = parseLevels(System.getProperty("overhead.concurrency", "1,8,32"));
+        File baseline = new File(System.getProperty("overhead.baseline", "benchmarks/proxy-overhead-baseline.json"));
+        File output = new File(System.getProperty("overhead.output", "target/proxy-overhead.json"));
+        boolean updateBaseline = Boolean.getBoolean("overhead.updateBaseline");
+
+        int exitCode = new ProxyOverheadHarness().run(levels, baseline, output, updateBaseline);
+        System.exit(exitCode);
+    }
+
+    int run(int[] levels, File baselineFile, File outputFile, boolean updateBaseline) throws Exception {
+        // The proxies log every connection and query; keep the formatting cost, drop the console I/O
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        try (MySQLStubServer stub = new MySQLStubServer(0)) {
+            int stubPort = stub.start();
+            ServerSocket mysqlProxySocket = new ServerSocket(0, 1024);
+            MySQLProxy.setTargetConnectionInfo("127.0.0.1", stubPort);
+            startDaemon("mysql-proxy-accept", () -> MySQLProxy.serve(mysqlProxySocket));
+
+            HttpServer backend = startHttpBackend();
+            ServerSocket appProxySocket = new ServerSocket(0, 1024);
+            ApplicationProxy.setTargetConfig("127.0.0.1", backend.getAddress().getPort());
+            startDaemon("app-proxy-accept", () -> ApplicationProxy.serve(appProxySocket));
+
+            try {
+                for (int concurrency : levels) {
+                    Map<String, ClientFactory> mysql = new LinkedHashMap<>();
+                    mysql.put("direct", jdbc(stubPort));
+                    mysql.put("proxy", jdbc(mysqlProxySocket.getLocalPort()));
+                    Map<String, ClientFactory> http = new LinkedHashMap<>();
+                    http.put("direct", http(backend.getAddress().getPort(), concurrency));
+                    http.put("proxy", http(appProxySocket.getLocalPort(), concurrency));
+                    results.addAll(repeat("mysql", concurrency, mysql));
+                    results.addAll(repeat("http", concurrency, http));
+                }
+            } finally {
+                mysqlProxySocket.close();
+                appProxySocket.close();
+                backend.stop(0);
+            }
+        }
+
+        List<Map<String, Object>> overhead = overhead(results);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("environment", environment());
+        report.put("warmupSeconds", warmupSeconds);
+        report.put("durationSeconds", durationSeconds);
+        report.put("repeats", repeats);
+        report.put("discardRuns", discardRuns);
+        report.put("results", results);
+        report.put("overhead", overhead);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        outputFile.getAbsoluteFile().getParentFile().mkdirs();
+        mapper.writeValue(outputFile, report);
+        console.println("[ProxyOverhead] Results written to " + outputFile);
+
+        if (updateBaseline || !baselineFile.exists()) {
+            List<String> implausible = implausible(overhead);
+            if (!implausible.isEmpty()) {
+                console.println("[ProxyOverhead] Not writing the baseline, the proxy measured faster than the direct path for " +
+                        implausible + "; rerun on a quiet machine or with more repeats");
+                return 2;
+            }
+            baselineFile.getAbsoluteFile().getParentFile().mkdirs();
+            mapper.writeValue(baselineFile, report);
+            console.println("[ProxyOverhead] Baseline written to " + baselineFile);
+            return 0;
+        }
+        return compare(mapper.readTree(baselineFile), mapper.valueToTree(report));
+    }
+
+    /**
+     * Measures every path of a target {@code discardRuns + repeats} times and returns the median of the kept runs
+     * for each path.
+     */
+    private List<Map<String, Object>> repeat(String target, int concurrency, Map<String, ClientFactory> paths) throws Exception {
+        Map<String, List<Map<String, Object>>> runs = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(paths.keySet());
+        for (String path : names) {
+            runs.put(path, new ArrayList<>());
+        }
+        for (int round = 0; round < discardRuns + repeats; round++) {
+            boolean kept = round >= discardRuns;
+            String label = kept ? "run " + (round - discardRuns + 1) + "/" + repeats : "warm-up";
+            for (int i = 0; i < names.size(); i++) {
+                String path = names.get((i + round) % names.size());
+                Map<String, Object> result = measure(target, path, concurrency, paths.get(path), label);
+                if (kept) runs.get(path).add(result);
+            }
+        }
+
+        List<Map<String, Object>> medians = new ArrayList<>();
+        for (String path : names) {
+            List<Map<String, Object>> kept = runs.get(path);
+            double[] p99 = values(kept, "p99Micros");
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("target", target);
+            result.put("path", path);
+            result.put("concurrency", concurrency);
+            result.put("runs", kept.size());
+            result.put("throughput", median(values(kept, "throughput")));
+            result.put("p50Micros", median(values(kept, "p50Micros")));
+            result.put("p99Micros", median(p99));
+            result.put("p99MinMicros", p99[0]);
+            result.put("p99MaxMicros", p99[p99.length - 1]);
+            result.put("maxMicros", values(kept, "maxMicros")[kept.size() - 1]);
+            console.printf("[ProxyOverhead] %-5s %-6s c=%-3d median of %d: %10.0f ops/s  p50=%8.1fus  p99=%8.1fus (%.1f-%.1f)%n",
+                    target, path, concurrency, kept.size(), result.get("throughput"), result.get("p50Micros"),
+                    result.get("p99Micros"), result.get("p99MinMicros"), result.get("p99MaxMicros"));
+            medians.add(result);
+        }
+        return medians;
+    }
+
+    // The values of one field of the runs, sorted
+    private static double[] values(List<Map<String, Object>> runs, String field) {
+        double[] values = new double[runs.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ((Number) runs.get(i).get(field)).doubleValue();
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private static double median(double[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private Map<String, Object> measure(String target, String path, int concurrency, ClientFactory factory,
+                                        String label) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        CountDownLatch ready = new CountDownLatch(concurrency);
+        CountDownLatch go = new CountDownLatch(1);
+        // [warmup end, measurement end], fixed once every client has connected
+        long[] window = new long[2];
+
+        List<Future<Histogram>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(pool.submit(() -> {
+                Histogram histogram = new Histogram(TimeUnit.SECONDS.toNanos(60), 3);
+                try (Client client = factory.open()) {
+                    ready.countDown();
+                    go.await();
+                    long warmupEnd = window[0];
+                    long end = window[1];
+                    long now = System.nanoTime();
+                    while (now < end) {
+                        client.call();
+                        long after = System.nanoTime();
+                        if (now >= warmupEnd) {
+                            histogram.recordValue(after - now);
+                        }
+                        now = after;
+                    }
+                }
+                return histogram;
+            }));
+        }
+
+        Histogram merged = new Histogram(TimeUnit.SECONDS.toNanos(60), 3);
+        try {
+            if (!ready.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Clients for " + target + "/" + path + " did not connect in time");
+            }
+            window[0] = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            window[1] = window[0] + TimeUnit.SECONDS.toNanos(durationSeconds);
+            go.countDown();
+            for (Future<Histogram> future : futures) {
+                merged.add(future.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("target", target);
+        result.put("path", path);
+        result.put("concurrency", concurrency);
+        result.put("operations", merged.getTotalCount());
+        result.put("throughput", merged.getTotalCount() / (double) durationSeconds);
+        result.put("p50Micros", merged.getValueAtPercentile(50) / 1000.0);
+        result.put("p99Micros", merged.getValueAtPercentile(99) / 1000.0);
+        result.put("maxMicros", merged.getMaxValue() / 1000.0);
+        console.printf("[ProxyOverhead] %-5s %-6s c=%-3d %-9s %10.0f ops/s  p50=%8.1fus  p99=%8.1fus%n",
+                target, path, concurrency, label, result.get("throughput"), result.get("p50Micros"), result.get("p99Micros"));
+        return result;
+    }
+
+    // A proxy cannot beat the path it forwards to; if it measures faster, the run was too noisy to trust
+    private List<String> implausible(List<Map<String, Object>> overhead) {
+        List<String> implausible = new ArrayList<>();
+        for (Map<String, Object> entry : overhead) {
+            if ((double) entry.get("throughputRatio") > 1 + tolerance || (double) entry.get("p50Ratio") < 1 - tolerance) {
+                implausible.add(entry.get("target") + " c=" + entry.get("concurrency"));
+            }
+        }
+        return implausible;
+    }
+
+    // What the numbers were measured on; ratios hold across machines, but not across every kind of machine
+    private static Map<String, Object> environment() {
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version") + " " +
+                System.getProperty("os.arch"));
+        environment.put("cpu", cpuModel());
+        environment.put("cores", Runtime.getRuntime().availableProcessors());
+        environment.put("maxHeapMegabytes", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        environment.put("jdk", System.getProperty("java.vm.vendor") + " " + System.getProperty("java.vm.name") + " " +
+                System.getProperty("java.runtime.version"));
+        return environment;
+    }
+
+    private static String cpuModel() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/cpuinfo"))) {
+                if (line.startsWith("model name")) {
+                    return line.substring(line.indexOf(':') + 1).trim();
+                }
+            }
+        } catch (IOException e) {
+            // Not Linux; the architecture above is all there is
+        }
+        return "unknown";
+    }
+
+    private static List<Map<String, Object>> overhead(List<Map<String, Object>> results) {
+        List<Map<String, Object>> overhead = new ArrayList<>();
+        for (Map<String, Object> direct : results) {
+            if (!"direct".equals(direct.get("path"))) continue;
+            for (Map<String, Object> proxy : results) {
+                if (!"proxy".equals(proxy.get("path"))
+                        || !proxy.get("target").equals(direct.get("target"))
+                        || !proxy.get("concurrency").equals(direct.get("concurrency"))) continue;
+                double directP50 = (double) direct.get("p50Micros");
+                double proxyP50 = (double) proxy.get("p50Micros");
+                double directP99 = (double) direct.get("p99Micros");
+                double proxyP99 = (double) proxy.get("p99Micros");
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("target", direct.get("target"));
+                entry.put("concurrency", direct.get("concurrency"));
+                entry.put("addedP50Micros", proxyP50 - directP50);
+                entry.put("addedP99Micros", proxyP99 - directP99);
+                entry.put("p50Ratio", directP50 > 0 ? proxyP50 / directP50 : 0);
+                entry.put("p99Ratio", directP99 > 0 ? proxyP99 / directP99 : 0);
+                entry.put("throughputRatio", (double) proxy.get("throughput") / Math.max(1e-9, (double) direct.get("throughput")));
+                overhead.add(entry);
+            }
+        }
+        return overhead;
+    }
+
+    private int compare(JsonNode baseline, JsonNode current) {
+        int regressions = 0;
+        for (JsonNode now : current.get("overhead")) {
+            JsonNode before = null;
+            for (JsonNode candidate : baseline.path("overhead")) {
+                if (candidate.get("target").asText().equals(now.get("target").asText())
+                        && candidate.get("concurrency").asInt() == now.get("concurrency").asInt()) {
+                    before = candidate;
+                }
+            }
+            String label = now.get("target").asText() + " c=" + now.get("concurrency").asInt();
+            if (before == null) {
+                console.println("[ProxyOverhead] " + label + ": no baseline entry, skipping");
+                continue;
+            }
+
+            double throughputFloor = before.get("throughputRatio").asDouble() * (1 - tolerance);
+            double p99Ceiling = before.get("p99Ratio").asDouble() * (1 + tolerance);
+            double addedP99 = now.get("addedP99Micros").asDouble();
+            boolean throughputRegressed = now.get("throughputRatio").asDouble() < throughputFloor;
+            boolean latencyRegressed = now.get("p99Ratio").asDouble() > p99Ceiling
+                    && addedP99 - before.get("addedP99Micros").asDouble() > P99_NOISE_FLOOR_MICROS;
+
+            console.printf("[ProxyOverhead] %-12s throughput ratio %.3f (baseline %.3f)  p99 ratio %.3f (baseline %.3f)  added p99 %.1fus %s%n",
+                    label, now.get("throughputRatio").asDouble(), before.get("throughputRatio").asDouble(),
+                    now.get("p99Ratio").asDouble(), before.get("p99Ratio").asDouble(), addedP99,
+                    throughputRegressed || latencyRegressed ? "REGRESSION" : "ok");
+            if (throughputRegressed || latencyRegressed) regressions++;
+        }
+
+        if (regressions > 0) {
+            console.println("[ProxyOverhead] " + regressions + " regression(s) beyond " + (int) (tolerance * 100) + "% of baseline");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static ClientFactory jdbc(int port) {
+        String url = "jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED";
+        return () -> {
+            Connection connection = DriverManager.getConnection(url, "root", "root");
+            Statement statement = connection.createStatement();
+            return new Client() {
+                @Override
+                public void call() throws Exception {
+                    try (ResultSet rs = statement.executeQuery(QUERY)) {
+                        while (rs.next()) {
+                            rs.getString(1);
+                        }
+                    }
+                }
+
+                @Override
+                public void close() throws Exception {
+                    connection.close();
+                }
+            };
+        };
+    }
+
+    private static ClientFactory http(int port, int concurrency) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(Math.max(2, concurrency)))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/users/42")).GET().build();
+        return () -> () -> {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IOException("Unexpected status " + response.statusCode());
+            }
+        };
+    }
+
+    private static HttpServer startHttpBackend() throws IOException {
+        byte[] body = "{\"id\":42,\"name\":\"Jane Doe\",\"email\":\"jane.doe@example.com\",\"active\":true}"
+                .getBytes(StandardCharsets.UTF_8);
+        // Headers and body are written separately; without this the backend itself stalls on Nagle
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static void startDaemon(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static int[] parseLevels(String value) {
+        String[] parts = value.split(",");
+        int[] levels = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            levels[i] = Integer.parseInt(parts[i].trim());
+        }
+        return levels;
+    }
+}
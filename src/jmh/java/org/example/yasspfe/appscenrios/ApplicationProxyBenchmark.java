@@ -0,0 +1,91 @@
+package org.example.yasspfe.appscenrios;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request parsing in {@link ApplicationProxy} and payload generation in {@link HighLoadScenario}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ApplicationProxyBenchmark {
+
+    private static final String[] REQUESTS = {
+            "GET /api/users/1842/details HTTP/1.1\r\n" +
+                    "Host: shop.internal:8080\r\n" +
+                    "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36\r\n" +
+                    "Accept: application/json\r\n" +
+                    "Accept-Encoding: gzip, deflate, br\r\n" +
+                    "Cookie: SESSION=5f0e7a3c-1c2b-4f7e-9d35-0a8b3c1e2f44; theme=dark\r\n" +
+                    "Connection: keep-alive\r\n\r\n",
+            "POST /api/process HTTP/1.1\r\n" +
+                    "Host: shop.internal:8080\r\n" +
+                    "Content-Type: application/json\r\n" +
+                    "Content-Length: 87\r\n" +
+                    "X-Request-ID: 0b6f8a52-3f0e-4f4e-8a7e-2c1d9b7a6e55\r\n\r\n" +
+                    "{\"orderId\":98213,\"items\":[{\"sku\":\"SKU-100245\",\"qty\":2},{\"sku\":\"SKU-100931\",\"qty\":1}]}",
+            "GET /assets/images/large-7.jpg HTTP/1.1\r\nHost: cdn.internal\r\nAccept: image/avif,image/webp,*/*\r\n\r\n",
+            "GET /api/data?id=4f1c&timestamp=1718000000000&fields=all,nested,complex,detailed,expanded&format=full HTTP/1.1\r\n" +
+                    "Host: shop.internal:8080\r\n\r\n"
+    };
+
+    private byte[][] buffers;
+    private int[] lengths;
+    private int cursor;
+
+    @State(Scope.Thread)
+    public static class Payload {
+        @Param({"10", "2000"})
+        public int items;
+
+        HighLoadScenario scenario;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            scenario = new HighLoadScenario("localhost", 8080);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // The proxy parses whatever a single 4KB read returned
+        buffers = new byte[REQUESTS.length][];
+        lengths = new int[REQUESTS.length];
+        for (int i = 0; i < REQUESTS.length; i++) {
+            byte[] bytes = REQUESTS[i].getBytes(StandardCharsets.ISO_8859_1);
+            buffers[i] = new byte[4096];
+            lengths[i] = Math.min(bytes.length, buffers[i].length);
+            System.arraycopy(bytes, 0, buffers[i], 0, lengths[i]);
+        }
+    }
+
+    @Benchmark
+    public String extractPathFromHttp() {
+        int i = cursor;
+        cursor = i + 1 == buffers.length ? 0 : i + 1;
+        return ApplicationProxy.extractPathFromHttp(buffers[i], lengths[i]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String generateLargeJsonPayload(Payload payload) {
+        return payload.scenario.generateLargeJsonPayload(payload.items);
+    }
+}
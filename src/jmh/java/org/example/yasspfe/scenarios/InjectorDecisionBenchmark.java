@@ -0,0 +1,94 @@
+package org.example.yasspfe.scenarios;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-query decisions the fault injectors make on the proxy data plane, both in the
+ * common disabled state and with the scenario switched on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InjectorDecisionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private final ConnectionKillInjector connectionKill = new ConnectionKillInjector();
+    private final DiskFaultInjector diskFault = new DiskFaultInjector();
+    private final PacketLossInjector packetLoss = new PacketLossInjector(0.1);
+    private QueryBlackholeInjector[] blackholes;
+    private String[] queries;
+    private boolean faultLogEnabled;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Injectors log through ProxyLog.FAULTS when they fire. With the channel off a firing only checks its
+        // flag, so the decision itself is measured rather than logback and the console
+        faultLogEnabled = ProxyLog.FAULTS.isEnabled();
+        ProxyLog.FAULTS.configure(false, null, null);
+
+        queries = PacketCorpus.QUERIES;
+        connectionKill.setEnabled(enabled);
+        diskFault.setEnabled(enabled);
+        packetLoss.setEnabled(enabled);
+
+        // The blackhole decides on the last query it saw; prime one injector per query
+        blackholes = new QueryBlackholeInjector[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            QueryBlackholeInjector injector = new QueryBlackholeInjector();
+            injector.updateLastQuery(queries[i], null);
+            injector.setEnabled(enabled);
+            blackholes[i] = injector;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ProxyLog.FAULTS.configure(faultLogEnabled, null, null);
+    }
+
+    @Benchmark
+    public boolean connectionKillShouldKill() {
+        return connectionKill.shouldKill(queries[next()]);
+    }
+
+    @Benchmark
+    public boolean diskFaultShouldInjectError() {
+        return diskFault.shouldInjectError(queries[next()], true);
+    }
+
+    @Benchmark
+    public boolean packetLossShouldSuppress() {
+        return packetLoss.shouldSuppressResponseAfterDb();
+    }
+
+    @Benchmark
+    public boolean queryBlackholeShouldDrop() {
+        return blackholes[next()].shouldDropResponse();
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = i + 1 == queries.length ? 0 : i + 1;
+        return i;
+    }
+}
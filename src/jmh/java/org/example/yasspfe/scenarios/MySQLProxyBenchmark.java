@@ -0,0 +1,94 @@
+package org.example.yasspfe.scenarios;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packet framing and query classification as done for every packet relayed by {@link MySQLProxy}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MySQLProxyBenchmark {
+
+    /**
+     * queries: client COM_QUERY traffic, resultset: a 20 row x 8 column server response,
+     * large: one 16MB+ payload split across two frames.
+     */
+    @Param({"queries", "resultset", "large"})
+    public String corpus;
+
+    private byte[] stream;
+    private ByteArrayInputStream in;
+    private List<byte[]> queryPackets;
+    private String[] queries;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        switch (corpus) {
+            case "queries" -> PacketCorpus.comQueries().forEach(out::writeBytes);
+            case "resultset" -> out.writeBytes(PacketCorpus.resultSetStream(8, 20, 24));
+            case "large" -> out.writeBytes(PacketCorpus.multiFramePacket(4096));
+            default -> throw new IllegalArgumentException("Unknown corpus: " + corpus);
+        }
+        stream = out.toByteArray();
+        in = new ByteArrayInputStream(stream);
+        queryPackets = PacketCorpus.comQueries();
+        queries = PacketCorpus.QUERIES;
+    }
+
+    @Benchmark
+    public byte[] readPacket() throws IOException {
+        if (in.available() == 0) {
+            in.reset();
+        }
+        return MySQLProxy.readPacket(in);
+    }
+
+    @Benchmark
+    public void extractAndClassifyQuery(Blackhole bh) {
+        byte[] packet = queryPackets.get(next(queryPackets.size()));
+        if (MySQLProxy.isComQuery(packet)) {
+            String query = MySQLProxy.extractQuery(packet);
+            bh.consume(MySQLProxy.getQueryType(query));
+        }
+    }
+
+    @Benchmark
+    public String proxyQueryType() {
+        return MySQLProxy.getQueryType(queries[next(queries.length)]);
+    }
+
+    @Benchmark
+    public String latencyInjectorQueryType() {
+        return LatencyInjector.getQueryType(queries[next(queries.length)]);
+    }
+
+    private int next(int size) {
+        int i = cursor;
+        cursor = i + 1 == size ? 0 : i + 1;
+        return i;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire-format MySQL packets shaped like the traffic the proxy sees in practice:
+ * short OLTP statements, long multi-row inserts, transaction control and result-set streams.
+ */
+final class PacketCorpus {
+
+    static final String[] QUERIES = {
+            "SELECT * FROM users WHERE id = 42",
+            "SELECT id, email, created_at FROM users WHERE email = 'jane.doe@example.com' LIMIT 1",
+            "select o.id, o.total, c.name from orders o join customers c on c.id = o.customer_id where o.status = 'OPEN' order by o.created_at desc limit 50",
+            "SELECT status, COUNT(*) FROM orders GROUP BY status",
+            "  SHOW VARIABLES LIKE 'max_connections'",
+            "INSERT INTO audit_log (user_id, action, payload) VALUES (7, 'login', '{\"ip\":\"10.0.0.12\"}')",
+            "UPDATE accounts SET balance = balance - 25.00 WHERE id = 1001",
+            "DELETE FROM sessions WHERE expires_at < NOW()",
+            "BEGIN",
+            "START TRANSACTION",
+            "COMMIT",
+            "ROLLBACK",
+            "SET autocommit=1",
+            "CREATE TABLE IF NOT EXISTS tmp_report (id INT PRIMARY KEY, body LONGTEXT)",
+            multiRowInsert(40),
+            "/* mysql-connector-j-9.1.0 */SELECT @@session.auto_increment_increment AS auto_increment_increment, "
+                    + "@@character_set_client AS character_set_client, @@character_set_connection AS character_set_connection"
+    };
+
+    private PacketCorpus() {
+    }
+
+    static byte[] packet(int sequenceId, byte[] payload) {
+        byte[] packet = new byte[4 + payload.length];
+        packet[0] = (byte) (payload.length & 0xFF);
+        packet[1] = (byte) ((payload.length >> 8) & 0xFF);
+        packet[2] = (byte) ((payload.length >> 16) & 0xFF);
+        packet[3] = (byte) sequenceId;
+        System.arraycopy(payload, 0, packet, 4, payload.length);
+        return packet;
+    }
+
+    static byte[] comQuery(String sql) {
+        byte[] text = sql.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[text.length + 1];
+        payload[0] = 0x03;
+        System.arraycopy(text, 0, payload, 1, text.length);
+        return packet(0, payload);
+    }
+
+    static List<byte[]> comQueries() {
+        List<byte[]> packets = new ArrayList<>();
+        for (String query : QUERIES) {
+            packets.add(comQuery(query));
+        }
+        return packets;
+    }
+
+    /**
+     * A complete text-protocol result set: column count, definitions, EOF, rows, EOF.
+     */
+    static byte[] resultSetStream(int columns, int rows, int cellWidth) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int seq = 1;
+        out.writeBytes(packet(seq++, new byte[]{(byte) columns}));
+        for (int c = 0; c < columns; c++) {
+            ByteArrayOutputStream def = new ByteArrayOutputStream();
+            writeLenenc(def, "def");
+            writeLenenc(def, "proxybase");
+            writeLenenc(def, "orders");
+            writeLenenc(def, "orders");
+            writeLenenc(def, "col" + c);
+            writeLenenc(def, "col" + c);
+            def.write(0x0C);
+            def.writeBytes(new byte[]{(byte) 0xFF, 0x00, 0x00, 0x01, 0x00, 0x00, (byte) 0xFD, 0x00, 0x00, 0x00, 0x00, 0x00});
+            out.writeBytes(packet(seq++, def.toByteArray()));
+        }
+        out.writeBytes(packet(seq++, eofPayload()));
+        String cell = "x".repeat(cellWidth);
+        for (int r = 0; r < rows; r++) {
+            ByteArrayOutputStream row = new ByteArrayOutputStream();
+            for (int c = 0; c < columns; c++) {
+                writeLenenc(row, cell);
+            }
+            out.writeBytes(packet(seq++ & 0xFF, row.toByteArray()));
+        }
+        out.writeBytes(packet(seq & 0xFF, eofPayload()));
+        return out.toByteArray();
+    }
+
+    static byte[] okPacket() {
+        return packet(1, new byte[]{0x00, 0x01, 0x00, 0x02, 0x00, 0x00, 0x00});
+    }
+
+    /**
+     * A payload larger than 16MB, split into a max-size frame and a continuation frame.
+     */
+    static byte[] multiFramePacket(int extraBytes) {
+        int max = 0xFFFFFF;
+        byte[] first = new byte[max];
+        first[0] = 0x03;
+        byte[] second = new byte[extraBytes];
+        ByteArrayOutputStream out = new ByteArrayOutputStream(max + extraBytes + 8);
+        out.writeBytes(packet(0, first));
+        out.writeBytes(packet(1, second));
+        return out.toByteArray();
+    }
+
+    private static byte[] eofPayload() {
+        return new byte[]{(byte) 0xFE, 0x00, 0x00, 0x02, 0x00};
+    }
+
+    private static void writeLenenc(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 251) {
+            out.write(bytes.length);
+        } else {
+            out.write(0xFC);
+            out.write(bytes.length & 0xFF);
+            out.write((bytes.length >> 8) & 0xFF);
+        }
+        out.writeBytes(bytes);
+    }
+
+    private static String multiRowInsert(int rows) {
+        StringBuilder sb = new StringBuilder("INSERT INTO order_items (order_id, sku, quantity, unit_price) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('(').append(5000 + i).append(", 'SKU-").append(100000 + i * 7).append("', ")
+                    .append(1 + i % 5).append(", ").append(9.99 + i).append(')');
+        }
+        return sb.toString();
+    }
+}
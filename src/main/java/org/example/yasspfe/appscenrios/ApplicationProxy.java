@@ -1,5 +1,11 @@
 package org.example.yasspfe.appscenrios;
 
+import org.example.yasspfe.scenarios.AdmissionController;
+import org.example.yasspfe.scenarios.ProxyLog;
+import org.example.yasspfe.scenarios.ProxySockets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.*;
 import java.net.*;
 import java.sql.*;
@@ -14,6 +20,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class ApplicationProxy {
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationProxy.class);
 
     private static final String DB_URL = "jdbc:mysql://localhost:3306/proxybase";
     private static final String DB_USER = "root";
@@ -28,6 +35,13 @@ public class ApplicationProxy {
     // Scenarios instances
     private static HighLoadScenario highLoadScenario;
 
+    // Connection limits and accept-rate limiting, configured with appproxy.admission.* system properties
+    private static final AdmissionController admission = AdmissionController.fromProperties("app-proxy", "appproxy.admission");
+
+    static {
+        admission.bind(ApplicationProxy::startSession, ApplicationProxy::rejectClient);
+    }
+
     public static void main(String[] args) {
         try {
             setupDatabase();
@@ -98,27 +112,69 @@ public class ApplicationProxy {
                 }
             }).start();
 
-            ServerSocket serverSocket = new ServerSocket(proxyPort);
-            System.out.println("[ApplicationProxy] Listening on port " + proxyPort);
+            // appproxy.acceptors / appproxy.backlog: several SO_REUSEPORT acceptors on the same port
+            ProxySockets.listen("app-proxy", "appproxy", proxyPort, ApplicationProxy::serve);
+        } catch (Exception e) {
+            System.err.println("[ApplicationProxy] Critical error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            while (true) {
-                try {
-                    final Socket clientSocket = serverSocket.accept();
-                    new Thread(() -> handleConnection(clientSocket)).start();
-                } catch (Exception e) {
+    /**
+     * Accepts clients until the server socket is closed, relaying each one on its own threads.
+     */
+    public static void serve(ServerSocket serverSocket) {
+        while (!serverSocket.isClosed()) {
+            try {
+                admission.submit(ProxySockets.tune(serverSocket.accept()));
+            } catch (Exception e) {
+                if (!serverSocket.isClosed()) {
                     System.err.println("[ApplicationProxy] Error handling connection: " + e.getMessage());
                 }
             }
-        } catch (Exception e) {
-            System.err.println("[ApplicationProxy] Critical error: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
+    private static void startSession(AdmissionController.Permit permit) {
+        new Thread(() -> {
+            try {
+                handleConnection(permit.socket());
+            } finally {
+                permit.release();
+            }
+        }).start();
+    }
+
+    private static void rejectClient(Socket clientSocket, String reason) throws IOException {
+        // Discard whatever part of the request already arrived, so closing the socket does not reset the connection
+        InputStream in = clientSocket.getInputStream();
+        in.skip(in.available());
+        String body = "{\"error\":\"Proxy overloaded\",\"reason\":\"" + reason + "\"}";
+        String response = "HTTP/1.1 503 Service Unavailable\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Content-Length: " + body.length() + "\r\n" +
+                "Retry-After: 1\r\n" +
+                "Connection: close\r\n" +
+                "\r\n" +
+                body;
+        OutputStream out = clientSocket.getOutputStream();
+        out.write(response.getBytes());
+        out.flush();
+    }
+
+    public static Map<String, Object> getAdmissionStats() {
+        return admission.snapshot();
+    }
+
+    public static void setTargetConfig(String host, int port) {
+        targetHost = host;
+        targetPort = port;
+    }
+
     private static void handleConnection(final Socket clientSocket) {
         // First check if service down scenario is active - if so, handle it accordingly
         if (ServiceDownScenario.isServiceDown()) {
-            System.out.println("[ApplicationProxy] Service down scenario active - sending 503 response");
+            ProxyLog.FAULTS.info("[ApplicationProxy] Service down scenario active - sending 503 response");
             ServiceDownScenario.handleServiceDowntime(clientSocket);
             return; // Important: exit early to prevent forwarding the request
         }
@@ -127,16 +183,16 @@ public class ApplicationProxy {
         try {
             // Handle DB downtime scenario before establishing connection
             if (DatabaseDownScenario.isDbDown()) {
-                System.out.println("[ApplicationProxy] Database down scenario active");
+                ProxyLog.FAULTS.info("[ApplicationProxy] Database down scenario active");
                 DatabaseDownScenario.handleDbDowntime();
             }
 
-            targetSocket = new Socket(targetHost, targetPort);
+            targetSocket = ProxySockets.connect(targetHost, targetPort);
             final Socket finalTargetSocket = targetSocket;
             final AtomicReference<ConnectionState> state = new AtomicReference<>(new ConnectionState());
 
-            // Force immediate update of scenarios before processing the request
-            updateScenarios();
+            // Scenario flags are kept current by the background refresher; querying the
+            // control database here would add a round trip to every proxied connection.
 
             // Start the threads for handling the proxy connection
             Thread clientToServerThread = new Thread(() -> forwardClientToServer(clientSocket, finalTargetSocket, state));
@@ -149,7 +205,7 @@ public class ApplicationProxy {
             serverToClientThread.join();
 
         } catch (Exception e) {
-            System.err.println("[handleConnection] Error: " + e.getMessage());
+            ProxyLog.CONNECTIONS.warn("[handleConnection] Error: {}", e.getMessage());
             try {
                 // Send a proper error response back to the client if connection to target fails
                 if (clientSocket != null && !clientSocket.isClosed()) {
@@ -243,10 +299,16 @@ public class ApplicationProxy {
 
             ResultSet rs = stmt.executeQuery("SELECT host, port, proxy_port FROM application_proxy_config ORDER BY id DESC LIMIT 1");
             if (rs.next()) {
-                targetHost = rs.getString("host");
-                targetPort = rs.getInt("port");
-                proxyPort = rs.getInt("proxy_port");
-                System.out.println("[ApplicationProxy] Updated target to " + targetHost + ":" + targetPort + " with proxy on port " + proxyPort);
+                String host = rs.getString("host");
+                int port = rs.getInt("port");
+                int listenPort = rs.getInt("proxy_port");
+                // Polled every second; only a change is worth an INFO line
+                if (!host.equals(targetHost) || port != targetPort || listenPort != proxyPort) {
+                    logger.info("[ApplicationProxy] Updated target to {}:{} with proxy on port {}", host, port, listenPort);
+                }
+                targetHost = host;
+                targetPort = port;
+                proxyPort = listenPort;
 
                 // Update HighLoadScenario with new target if it exists
                 if (highLoadScenario != null) {
@@ -268,7 +330,7 @@ public class ApplicationProxy {
 
     private static synchronized void updateScenarios() {
         if (DatabaseDownScenario.isDbDown()) {
-            System.out.println("[ApplicationProxy] Database is down, skipping scenario update");
+            logger.debug("[ApplicationProxy] Database is down, skipping scenario update");
             return;
         }
 
@@ -280,11 +342,12 @@ public class ApplicationProxy {
             while (rs.next()) {
                 newScenarios.put(rs.getString("name"), rs.getBoolean("enabled"));
             }
+            if (!newScenarios.equals(scenarios)) {
+                logger.info("[ApplicationProxy] Updated scenarios: {}", newScenarios);
+            }
             scenarios.clear();
             scenarios.putAll(newScenarios);
 
-            System.out.println("[ApplicationProxy] Updated scenarios: " + scenarios);
-
         } catch (SQLException e) {
             System.err.println("[updateScenarios] Error loading scenarios: " + e.getMessage());
         }
@@ -316,7 +379,7 @@ public class ApplicationProxy {
                 targetOut.flush();
             }
         } catch (IOException e) {
-            System.err.println("[forwardClientToServer] Client to server error: " + e.getMessage());
+            ProxyLog.CONNECTIONS.warn("[forwardClientToServer] Client to server error: {}", e.getMessage());
         }
     }
 
@@ -333,11 +396,11 @@ public class ApplicationProxy {
                 clientOut.flush();
             }
         } catch (IOException e) {
-            System.err.println("[forwardServerToClient] Server to client error: " + e.getMessage());
+            ProxyLog.CONNECTIONS.warn("[forwardServerToClient] Server to client error: {}", e.getMessage());
         }
     }
 
-    private static String extractPathFromHttp(byte[] buffer, int length) {
+    static String extractPathFromHttp(byte[] buffer, int length) {
         String request = new String(buffer, 0, length);
         String[] lines = request.split("\\r?\\n");
         if (lines.length > 0) {
@@ -279,7 +279,7 @@ public class HighLoadScenario {
     /**
      * Generate a large JSON payload for high load testing
      */
-    private String generateLargeJsonPayload(int items) {
+    String generateLargeJsonPayload(int items) {
         StringBuilder json = new StringBuilder();
         json.append("{\"items\":[");
 
@@ -1,5 +1,6 @@
 package org.example.yasspfe.controllers;
 
+import org.example.yasspfe.appscenrios.ApplicationProxy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -160,6 +161,12 @@ public class ApplicationProxyController {
     }
 
 
+    // Connection admission counters of the application proxy
+    @GetMapping(value = "/app-proxy/admission", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getAppProxyAdmissionStats() {
+        return ResponseEntity.ok(ApplicationProxy.getAdmissionStats());
+    }
+
     // Stop application proxy
     @PostMapping(value = "/stop-app-proxy", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> stopAppProxy() {
@@ -1,18 +1,26 @@
 package org.example.yasspfe.controllers;
 
 import org.example.yasspfe.entities.DatabaseConfig;
+import org.example.yasspfe.entities.WorkloadProfile;
+import org.example.yasspfe.reposotories.WorkloadProfileRepository;
 import org.example.yasspfe.scenarios.DatabaseStressTester;
+import org.example.yasspfe.scenarios.DistributedProfile;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.example.yasspfe.scenarios.MySQLProxy;
+import org.example.yasspfe.scenarios.SeedProfile;
+import org.example.yasspfe.scenarios.StressRunHistory;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/config")
@@ -20,10 +28,12 @@ import java.util.Map;
 public class DatabaseConfigController {
 
     private final DatabaseStressTester stressTester;
+    private final WorkloadProfileRepository workloadProfileRepository;
 
     @Autowired
-    public DatabaseConfigController(DatabaseStressTester stressTester) {
+    public DatabaseConfigController(DatabaseStressTester stressTester, WorkloadProfileRepository workloadProfileRepository) {
         this.stressTester = stressTester;
+        this.workloadProfileRepository = workloadProfileRepository;
     }
 
     @PostMapping("/stress-test")
@@ -34,15 +44,186 @@ public class DatabaseConfigController {
         System.out.println("[BACKEND] Username: " + config.getUsername());
         System.out.println("[BACKEND] Password set: " + (config.getPassword() != null));
 
+        System.out.println("[BACKEND] Load mode: " + config.getLoadMode() + ", target QPS: " + config.getTargetQps());
+        System.out.println("[BACKEND] Engine: " + config.getEngine() + ", sessions: " + config.getSessions() + ", pool size: " + config.getPoolSize());
+
+        // A run keeps the settings it started with; they can change once it stops
+        if (MySQLProxy.getStressTester().isRunning()) {
+            return settingsInUse();
+        }
+        try {
+            if (!MySQLProxy.getStressTester().configure(config, resolveWorkload(config))) {
+                return settingsInUse();
+            }
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Invalid stress test configuration: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
         MySQLProxy.setStressTesterConnectionInfo(config.getJdbcUrl(), config.getUsername(), config.getPassword());
         System.out.println("[BACKEND] Stress test configuration received and stored (via /stress-test).");
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Stress test configuration stored successfully.");
         response.put("frontendConfigured", MySQLProxy.isFrontendConfigured());
+        response.put("loadMode", MySQLProxy.getStressTester().getLoadMode().name());
+        response.put("targetQps", MySQLProxy.getStressTester().getTargetQps());
+        WorkloadProfile workload = MySQLProxy.getStressTester().getWorkloadProfile();
+        response.put("workloadProfile", workload != null ? workload.getName() : "builtin");
+        response.put("engine", MySQLProxy.getStressTester().getEngine().name());
+        response.put("sessions", MySQLProxy.getStressTester().getSessionCount());
+        response.put("poolSize", MySQLProxy.getStressTester().getPoolSize());
+        response.put("loadPlan", MySQLProxy.getStressTester().getLoadPlan());
+        response.put("bulkWrite", MySQLProxy.getStressTester().getBulkWriteProfile());
+        response.put("adaptiveConcurrency", MySQLProxy.getStressTester().getAdaptiveConcurrency());
+        response.put("contention", MySQLProxy.getStressTester().getContentionProfile());
+        response.put("streaming", MySQLProxy.getStressTester().getStreamingProfile());
+        response.put("replay", MySQLProxy.getStressTester().getReplayProfile());
+        response.put("churn", MySQLProxy.getStressTester().getChurnProfile());
+        response.put("runLabel", MySQLProxy.getStressTester().getRunLabel());
         return ResponseEntity.ok(response);
     }
 
+    private ResponseEntity<?> settingsInUse() {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "A stress test is running; stop it before changing its configuration.");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    @GetMapping("/workload-profiles")
+    public ResponseEntity<List<WorkloadProfile>> getWorkloadProfiles() {
+        return ResponseEntity.ok(workloadProfileRepository.findAll());
+    }
+
+    @PostMapping("/workload-profiles")
+    public ResponseEntity<?> saveWorkloadProfile(@RequestBody WorkloadProfile profile) {
+        String problem = profile.validate();
+        if (problem != null) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Invalid workload profile: " + problem);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        return ResponseEntity.ok(storeWorkloadProfile(profile));
+    }
+
+    // An inline profile is stored (replacing one with the same name); a name is looked up in the stored
+    // profiles and then in the YCSB presets. No profile means the built-in query mix.
+    private WorkloadProfile resolveWorkload(DatabaseConfig config) {
+        WorkloadProfile inline = config.getWorkload();
+        if (inline != null) {
+            String problem = inline.validate();
+            if (problem != null) {
+                throw new IllegalArgumentException(problem);
+            }
+            return storeWorkloadProfile(inline);
+        }
+
+        String name = config.getWorkloadProfile();
+        if (name == null || name.isBlank() || "builtin".equalsIgnoreCase(name)) {
+            return null;
+        }
+        return workloadProfileRepository.findByName(name)
+                .or(() -> Optional.ofNullable(WorkloadProfile.preset(name)))
+                .orElseThrow(() -> new IllegalArgumentException("unknown workload profile " + name));
+    }
+
+    private WorkloadProfile storeWorkloadProfile(WorkloadProfile profile) {
+        workloadProfileRepository.findByName(profile.getName()).ifPresent(existing -> profile.setId(existing.getId()));
+        WorkloadProfile saved = workloadProfileRepository.save(profile);
+        System.out.println("[BACKEND] Workload profile stored: " + saved);
+        return saved;
+    }
+
+    @GetMapping("/stress-test/stats")
+    public ResponseEntity<Map<String, Object>> getStressTestStats() {
+        return ResponseEntity.ok(MySQLProxy.getStressTester().getLoadReport());
+    }
+
+    @GetMapping("/stress-test/operations")
+    public ResponseEntity<Map<String, Object>> getStressTestOperations() {
+        return ResponseEntity.ok(MySQLProxy.getStressTester().getOperationStats());
+    }
+
+    @GetMapping("/stress-test/runs")
+    public ResponseEntity<?> getStressRuns() {
+        try {
+            return ResponseEntity.ok(MySQLProxy.getStressTester().getHistory().list());
+        } catch (IOException e) {
+            return historyError(e);
+        }
+    }
+
+    @GetMapping("/stress-test/runs/{id}")
+    public ResponseEntity<?> getStressRun(@PathVariable long id) {
+        try {
+            StressRunHistory.Run run = MySQLProxy.getStressTester().getHistory().load(id);
+            if (run == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(run.toMap());
+        } catch (IOException e) {
+            return historyError(e);
+        }
+    }
+
+    @GetMapping("/stress-test/runs/compare")
+    public ResponseEntity<?> compareStressRuns(@RequestParam long baseline, @RequestParam long candidate) {
+        try {
+            StressRunHistory history = MySQLProxy.getStressTester().getHistory();
+            StressRunHistory.Run base = history.load(baseline);
+            StressRunHistory.Run other = history.load(candidate);
+            if (base == null || other == null) {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "Unknown stress run " + (base == null ? baseline : candidate));
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            return ResponseEntity.ok(StressRunHistory.compare(base, other));
+        } catch (IOException e) {
+            return historyError(e);
+        }
+    }
+
+    private ResponseEntity<?> historyError(IOException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Could not read the stress run history: " + e.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    @PostMapping("/stress-test/distributed")
+    public ResponseEntity<?> startDistributedTest(@RequestBody DistributedProfile profile) {
+        System.out.println("[BACKEND] Distributed stress test requested: " + profile);
+
+        Map<String, Object> response = new HashMap<>();
+        boolean started;
+        try {
+            started = MySQLProxy.getStressTester().startDistributedTest(profile);
+        } catch (IllegalArgumentException e) {
+            response.put("message", "Invalid distributed profile: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        if (!started) {
+            response.put("message", "Distributed test could not start (another test or seeding is running, the connection is not configured, or the coordinator port is taken).");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        response.put("message", "Distributed test started.");
+        // Remote workers join with --token; the status endpoint does not repeat it
+        response.put("runToken", MySQLProxy.getStressTester().getDistributedRunToken());
+        response.put("status", MySQLProxy.getStressTester().getDistributedReport());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/stress-test/distributed")
+    public ResponseEntity<Map<String, Object>> getDistributedTest() {
+        return ResponseEntity.ok(MySQLProxy.getStressTester().getDistributedReport());
+    }
+
+    @PostMapping("/stress-test/distributed/stop")
+    public ResponseEntity<Map<String, Object>> stopDistributedTest() {
+        System.out.println("[BACKEND] Stop distributed stress test request received");
+        MySQLProxy.getStressTester().stopDistributedTest();
+        return ResponseEntity.ok(MySQLProxy.getStressTester().getDistributedReport());
+    }
+
     @PostMapping("/stop-stress-test")
     public ResponseEntity<String> stopStressTest() {
         System.out.println("[BACKEND] Stop stress test request received");
@@ -58,6 +239,40 @@ public class DatabaseConfigController {
         }
     }
 
+    @PostMapping("/seed")
+    public ResponseEntity<?> startSeeding(@RequestBody DatabaseConfig config) {
+        System.out.println("[BACKEND] Seed request received for " + config.getJdbcUrl() + ": " + config.getSeed());
+
+        Map<String, Object> response = new HashMap<>();
+        SeedProfile profile = config.getSeed() != null ? config.getSeed() : new SeedProfile();
+        boolean started;
+        try {
+            started = MySQLProxy.getStressTester().startSeeding(config, profile);
+        } catch (IllegalArgumentException e) {
+            response.put("message", "Invalid seed profile: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        if (!started) {
+            response.put("message", "Seeding could not start (a stress test or seeding run is going on, or the schema could not be read).");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        response.put("message", "Seeding started.");
+        response.put("seed", profile);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/seed/status")
+    public ResponseEntity<Map<String, Object>> getSeedStatus() {
+        return ResponseEntity.ok(MySQLProxy.getStressTester().getSeedReport());
+    }
+
+    @PostMapping("/stop-seed")
+    public ResponseEntity<String> stopSeeding() {
+        System.out.println("[BACKEND] Stop seed request received");
+        boolean stopped = MySQLProxy.getStressTester().stopSeeding();
+        return ResponseEntity.ok(stopped ? "Seeding stop initiated." : "Seeding is not currently running.");
+    }
+
     @PostMapping("/test-connection")
     public ResponseEntity<?> testConnection(@RequestBody DatabaseConfig config) {
         System.out.println("[BACKEND] Testing connection with:");
@@ -1,6 +1,10 @@
 package org.example.yasspfe.controllers;
 
 import org.example.yasspfe.entities.MySQLProxyConfig;
+import org.example.yasspfe.scenarios.BackendPool;
+import org.example.yasspfe.scenarios.MySQLProxy;
+import org.example.yasspfe.scenarios.ProxyLog;
+import org.example.yasspfe.scenarios.TargetHealthProbe;
 import org.example.yasspfe.services.MySQLProxyService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -8,6 +12,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -102,6 +110,113 @@ public class MySQLProxyController {
         );
     }
 
+    @GetMapping("/pool")
+    public ResponseEntity<?> getBackendPoolStats() {
+        BackendPool pool = MySQLProxy.getBackendPool();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", MySQLProxy.isPoolingEnabled());
+        if (pool != null) {
+            stats.putAll(pool.snapshot());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    // Backend response times per statement type and the digests with the most total time
+    @GetMapping("/queries")
+    public ResponseEntity<?> getQueryTimings(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(MySQLProxy.getQueryTimings().snapshot(Math.max(0, limit)));
+    }
+
+    @GetMapping("/queries/slow")
+    public ResponseEntity<?> getSlowQueries() {
+        return ResponseEntity.ok(MySQLProxy.getQueryTimings().slowQueries());
+    }
+
+    @PostMapping("/queries/slow/threshold")
+    public ResponseEntity<?> setSlowQueryThreshold(@RequestParam long millis) {
+        if (millis < 0) {
+            return ResponseEntity.badRequest().body("Threshold must not be negative");
+        }
+        MySQLProxy.getQueryTimings().setSlowThresholdMillis(millis);
+        return ResponseEntity.ok(Map.of("slowThresholdMillis", millis));
+    }
+
+    @PostMapping("/queries/reset")
+    public ResponseEntity<?> resetQueryTimings() {
+        MySQLProxy.getQueryTimings().reset();
+        return ResponseEntity.ok(Map.of("message", "Query timings reset"));
+    }
+
+    // Capture of proxied queries to a file, replayable by the stress tester
+    @GetMapping("/capture")
+    public ResponseEntity<?> getCapture() {
+        return ResponseEntity.ok(MySQLProxy.getQueryCapture().snapshot());
+    }
+
+    @PostMapping("/capture/start")
+    public ResponseEntity<?> startCapture(@RequestParam String path) {
+        try {
+            MySQLProxy.getQueryCapture().start(Path.of(path));
+        } catch (IOException | InvalidPathException e) {
+            return ResponseEntity.badRequest().body("Cannot capture to " + path + ": " + e.getMessage());
+        }
+        return ResponseEntity.ok(MySQLProxy.getQueryCapture().snapshot());
+    }
+
+    @PostMapping("/capture/stop")
+    public ResponseEntity<?> stopCapture() {
+        MySQLProxy.getQueryCapture().stop();
+        return ResponseEntity.ok(MySQLProxy.getQueryCapture().snapshot());
+    }
+
+    // Hot-path log channels (query, connection, fault) with their sampling, rate limits and counters
+    @GetMapping("/logging")
+    public ResponseEntity<?> getLogging() {
+        return ResponseEntity.ok(ProxyLog.snapshot());
+    }
+
+    // e.g. POST /api/proxy/logging/query?enabled=false turns per-query logging off
+    @PostMapping("/logging/{channel}")
+    public ResponseEntity<?> configureLogging(@PathVariable String channel,
+                                              @RequestParam(required = false) Boolean enabled,
+                                              @RequestParam(required = false) Integer sampleEvery,
+                                              @RequestParam(required = false) Integer maxPerSecond) {
+        ProxyLog log = ProxyLog.channel(channel);
+        if (log == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown log channel: " + channel);
+        }
+        log.configure(enabled, sampleEvery, maxPerSecond);
+        return ResponseEntity.ok(ProxyLog.snapshot().get(channel));
+    }
+
+    // Connection admission counters: active/queued sessions and rejections by reason
+    @GetMapping("/admission")
+    public ResponseEntity<?> getAdmissionStats() {
+        return ResponseEntity.ok(MySQLProxy.getAdmissionStats());
+    }
+
+    @GetMapping("/target")
+    public ResponseEntity<?> getTargetStatus() {
+        return ResponseEntity.ok(MySQLProxy.getTargetStatus());
+    }
+
+    // Hot-swap the database target without waiting for the proxy_config poll
+    @PostMapping("/target/switch")
+    public ResponseEntity<?> switchTarget(@RequestBody MySQLProxyConfig target) {
+        if (target.getPort() < 1 || target.getPort() > 65535) {
+            return ResponseEntity.badRequest().body("Port must be between 1 and 65535");
+        }
+        if (target.getHost() == null || target.getHost().trim().isEmpty()) {
+            return ResponseEntity.badRequest().body("Host cannot be empty");
+        }
+        boolean switched = MySQLProxy.switchTarget(target.getHost().trim(), target.getPort());
+        if (!switched) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Target " + target.getHost() + ":" + target.getPort() + " failed the health probe");
+        }
+        return ResponseEntity.ok(MySQLProxy.getTargetStatus());
+    }
+
     // Accept any JSON object with host and port fields
     @PostMapping(value = "/test-connection", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.TEXT_PLAIN_VALUE)
     public ResponseEntity<String> testConnection(@RequestBody String requestBody) {
@@ -141,12 +256,12 @@ public class MySQLProxyController {
                 return ResponseEntity.badRequest().body("Host cannot be empty");
             }
 
-            boolean reachable = proxyService.isDatabaseReachable(host, port);
-            if (reachable) {
+            TargetHealthProbe.Result probe = proxyService.probeDatabase(host, port);
+            if (probe.reachable()) {
                 return ResponseEntity.ok("Connection successful to " + host + ":" + port);
             } else {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body("Connection failed to " + host + ":" + port + ". Database is not reachable.");
+                        .body("Connection failed to " + host + ":" + port + ". Database is not reachable: " + probe.error());
             }
         } catch (Exception e) {
             System.err.println("Error testing connection: " + e.getMessage());
@@ -4,6 +4,15 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Transient;
+import org.example.yasspfe.scenarios.AdaptiveConcurrency;
+import org.example.yasspfe.scenarios.BulkWriteProfile;
+import org.example.yasspfe.scenarios.ChurnProfile;
+import org.example.yasspfe.scenarios.ContentionProfile;
+import org.example.yasspfe.scenarios.LoadPlan;
+import org.example.yasspfe.scenarios.ReplayProfile;
+import org.example.yasspfe.scenarios.SeedProfile;
+import org.example.yasspfe.scenarios.StreamingProfile;
 
 @Entity
 public class DatabaseConfig {
@@ -23,6 +32,56 @@ public class DatabaseConfig {
     private String username;
     private String password;
 
+    // Load generation: CLOSED (each worker waits for its previous query) or OPEN (constant arrival rate)
+    private String loadMode;
+    private Integer targetQps;
+
+    // Name of a stored WorkloadProfile (e.g. "ycsb-a"), or a profile posted inline with the configuration
+    private String workloadProfile;
+    @Transient
+    private WorkloadProfile workload;
+
+    // Session engine: PLATFORM or VIRTUAL threads, how many simulated sessions, and the connection pool they share
+    private String engine;
+    private Integer sessions;
+    private Integer poolSize;
+
+    // Staged warm-up and steps with SLO/plateau auto-stop, posted with the configuration
+    @Transient
+    private LoadPlan loadPlan;
+
+    // Adaptive in-flight limit that keeps p99 under a target, posted with the configuration
+    @Transient
+    private AdaptiveConcurrency adaptiveConcurrency;
+
+    // Write-heavy batched workload settings; replaces the read mix when set
+    @Transient
+    private BulkWriteProfile bulkWrite;
+
+    // Hot-row lock contention settings; replaces the read mix when set
+    @Transient
+    private ContentionProfile contention;
+
+    // Large streaming scans (server-side cursors or row streaming); replaces the read mix when set
+    @Transient
+    private StreamingProfile streaming;
+
+    // Query-log replay (general log, slow log, proxy capture or chaos_blackhole_log); replaces the generated workloads when set
+    @Transient
+    private ReplayProfile replay;
+
+    // Connection storm (open, authenticate, query, close) without the pool; replaces the generated workloads when set
+    @Transient
+    private ChurnProfile churn;
+
+    // Label the run is stored under in the run history (e.g. a release), posted with the configuration
+    @Transient
+    private String runLabel;
+
+    // Data seeding settings, used by the seed endpoint
+    @Transient
+    private SeedProfile seed;
+
     // ✅ Default constructor
     public DatabaseConfig() {}
 
@@ -62,6 +121,15 @@ public class DatabaseConfig {
                 "useCustomUrl=" + useCustomUrl +
                 ", jdbcUrl='" + getJdbcUrl() + '\'' +
                 ", username='" + username + '\'' +
+                ", loadMode='" + loadMode + '\'' +
+                ", targetQps=" + targetQps +
+                ", workloadProfile='" + workloadProfile + '\'' +
+                ", engine='" + engine + '\'' +
+                ", sessions=" + sessions +
+                ", poolSize=" + poolSize +
+                ", loadPlan=" + loadPlan +
+                ", bulkWrite=" + bulkWrite +
+                ", seed=" + seed +
                 '}';
     }
 
@@ -131,6 +199,134 @@ public class DatabaseConfig {
         this.password = password;
     }
 
+    public String getLoadMode() {
+        return loadMode;
+    }
+
+    public void setLoadMode(String loadMode) {
+        this.loadMode = loadMode;
+    }
+
+    public Integer getTargetQps() {
+        return targetQps;
+    }
+
+    public void setTargetQps(Integer targetQps) {
+        this.targetQps = targetQps;
+    }
+
+    public String getWorkloadProfile() {
+        return workloadProfile;
+    }
+
+    public void setWorkloadProfile(String workloadProfile) {
+        this.workloadProfile = workloadProfile;
+    }
+
+    public WorkloadProfile getWorkload() {
+        return workload;
+    }
+
+    public void setWorkload(WorkloadProfile workload) {
+        this.workload = workload;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    public Integer getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(Integer sessions) {
+        this.sessions = sessions;
+    }
+
+    public Integer getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(Integer poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public LoadPlan getLoadPlan() {
+        return loadPlan;
+    }
+
+    public void setLoadPlan(LoadPlan loadPlan) {
+        this.loadPlan = loadPlan;
+    }
+
+    public AdaptiveConcurrency getAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public void setAdaptiveConcurrency(AdaptiveConcurrency adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    public BulkWriteProfile getBulkWrite() {
+        return bulkWrite;
+    }
+
+    public void setBulkWrite(BulkWriteProfile bulkWrite) {
+        this.bulkWrite = bulkWrite;
+    }
+
+    public ContentionProfile getContention() {
+        return contention;
+    }
+
+    public void setContention(ContentionProfile contention) {
+        this.contention = contention;
+    }
+
+    public StreamingProfile getStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(StreamingProfile streaming) {
+        this.streaming = streaming;
+    }
+
+    public ReplayProfile getReplay() {
+        return replay;
+    }
+
+    public void setReplay(ReplayProfile replay) {
+        this.replay = replay;
+    }
+
+    public ChurnProfile getChurn() {
+        return churn;
+    }
+
+    public void setChurn(ChurnProfile churn) {
+        this.churn = churn;
+    }
+
+    public String getRunLabel() {
+        return runLabel;
+    }
+
+    public void setRunLabel(String runLabel) {
+        this.runLabel = runLabel;
+    }
+
+    public SeedProfile getSeed() {
+        return seed;
+    }
+
+    public void setSeed(SeedProfile seed) {
+        this.seed = seed;
+    }
+
     public Long getId() {
         return id;
     }
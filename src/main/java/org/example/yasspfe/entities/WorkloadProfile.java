@@ -0,0 +1,276 @@
+package org.example.yasspfe.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stress test workload: the operation mix, how keys are chosen, the size of written values and how many
+ * sessions work on each table. Operations follow YCSB: read (point lookup by primary key), update, insert,
+ * scan (a primary key range) and read-modify-write. Key distributions are "uniform", "zipfian" (hot keys
+ * scattered over the key space), "latest" (skewed towards the most recently inserted keys) and "hotspot"
+ * ({@code hotOpnFraction} of the operations go to the first {@code hotsetFraction} of the keys).
+ */
+@Entity
+@Table(name = "workload_profiles")
+public class WorkloadProfile {
+
+    public static final List<String> DISTRIBUTIONS = List.of("uniform", "zipfian", "latest", "hotspot");
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true, nullable = false)
+    private String name;
+
+    private String description;
+
+    // Operation mix; weights are relative and need not add up to 1
+    private double readWeight;
+    private double updateWeight;
+    private double insertWeight;
+    private double scanWeight;
+    private double readModifyWriteWeight;
+
+    private String keyDistribution = "zipfian";
+    private double hotsetFraction = 0.2;
+    private double hotOpnFraction = 0.8;
+
+    private int maxScanLength = 100;
+
+    // Bytes written into each text column by updates and inserts (capped by the column's length)
+    private int rowSize = 100;
+
+    // Sessions per table, and optional per-table overrides such as "orders=12,users=2"
+    private int threadsPerTable = 6;
+    private String tableConcurrency;
+
+    public WorkloadProfile() {
+    }
+
+    public WorkloadProfile(String name, String description, double readWeight, double updateWeight,
+                           double insertWeight, double scanWeight, double readModifyWriteWeight,
+                           String keyDistribution) {
+        this.name = name;
+        this.description = description;
+        this.readWeight = readWeight;
+        this.updateWeight = updateWeight;
+        this.insertWeight = insertWeight;
+        this.scanWeight = scanWeight;
+        this.readModifyWriteWeight = readModifyWriteWeight;
+        this.keyDistribution = keyDistribution;
+    }
+
+    /**
+     * The YCSB core workloads A-F.
+     */
+    public static List<WorkloadProfile> presets() {
+        return List.of(
+                new WorkloadProfile("ycsb-a", "Update heavy: 50% reads, 50% updates (session store)",
+                        0.5, 0.5, 0, 0, 0, "zipfian"),
+                new WorkloadProfile("ycsb-b", "Read mostly: 95% reads, 5% updates (photo tagging)",
+                        0.95, 0.05, 0, 0, 0, "zipfian"),
+                new WorkloadProfile("ycsb-c", "Read only (user profile cache)",
+                        1, 0, 0, 0, 0, "zipfian"),
+                new WorkloadProfile("ycsb-d", "Read latest: 95% reads of recent rows, 5% inserts (status updates)",
+                        0.95, 0, 0.05, 0, 0, "latest"),
+                new WorkloadProfile("ycsb-e", "Short ranges: 95% scans, 5% inserts (threaded conversations)",
+                        0, 0, 0.05, 0.95, 0, "zipfian"),
+                new WorkloadProfile("ycsb-f", "Read-modify-write: 50% reads, 50% read-modify-writes (user database)",
+                        0.5, 0, 0, 0, 0.5, "zipfian"));
+    }
+
+    public static WorkloadProfile preset(String name) {
+        for (WorkloadProfile preset : presets()) {
+            if (preset.getName().equalsIgnoreCase(name)) return preset;
+        }
+        return null;
+    }
+
+    /**
+     * Checks the profile and returns a description of the first problem, or null if it is usable.
+     */
+    public String validate() {
+        if (name == null || name.isBlank()) return "name is required";
+        if (readWeight < 0 || updateWeight < 0 || insertWeight < 0 || scanWeight < 0 || readModifyWriteWeight < 0) {
+            return "operation weights cannot be negative";
+        }
+        if (readWeight + updateWeight + insertWeight + scanWeight + readModifyWriteWeight <= 0) {
+            return "at least one operation weight must be positive";
+        }
+        if (keyDistribution == null || !DISTRIBUTIONS.contains(keyDistribution)) {
+            return "keyDistribution must be one of " + DISTRIBUTIONS;
+        }
+        if (hotsetFraction <= 0 || hotsetFraction >= 1 || hotOpnFraction < 0 || hotOpnFraction > 1) {
+            return "hotsetFraction must be in (0, 1) and hotOpnFraction in [0, 1]";
+        }
+        if (maxScanLength < 1 || rowSize < 1 || threadsPerTable < 0) {
+            return "maxScanLength and rowSize must be positive and threadsPerTable not negative";
+        }
+        try {
+            parseTableConcurrency();
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Number of sessions to run against {@code table}.
+     */
+    public int concurrencyFor(String table) {
+        return parseTableConcurrency().getOrDefault(table, threadsPerTable);
+    }
+
+    private Map<String, Integer> parseTableConcurrency() {
+        Map<String, Integer> overrides = new LinkedHashMap<>();
+        if (tableConcurrency == null || tableConcurrency.isBlank()) return overrides;
+        for (String entry : tableConcurrency.split(",")) {
+            String[] parts = entry.split("=");
+            try {
+                if (parts.length != 2) throw new NumberFormatException();
+                int sessions = Integer.parseInt(parts[1].trim());
+                if (sessions < 0) throw new NumberFormatException();
+                overrides.put(parts[0].trim(), sessions);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("tableConcurrency entries must look like table=sessions: " + entry);
+            }
+        }
+        return overrides;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public double getReadWeight() {
+        return readWeight;
+    }
+
+    public void setReadWeight(double readWeight) {
+        this.readWeight = readWeight;
+    }
+
+    public double getUpdateWeight() {
+        return updateWeight;
+    }
+
+    public void setUpdateWeight(double updateWeight) {
+        this.updateWeight = updateWeight;
+    }
+
+    public double getInsertWeight() {
+        return insertWeight;
+    }
+
+    public void setInsertWeight(double insertWeight) {
+        this.insertWeight = insertWeight;
+    }
+
+    public double getScanWeight() {
+        return scanWeight;
+    }
+
+    public void setScanWeight(double scanWeight) {
+        this.scanWeight = scanWeight;
+    }
+
+    public double getReadModifyWriteWeight() {
+        return readModifyWriteWeight;
+    }
+
+    public void setReadModifyWriteWeight(double readModifyWriteWeight) {
+        this.readModifyWriteWeight = readModifyWriteWeight;
+    }
+
+    public String getKeyDistribution() {
+        return keyDistribution;
+    }
+
+    public void setKeyDistribution(String keyDistribution) {
+        this.keyDistribution = keyDistribution;
+    }
+
+    public double getHotsetFraction() {
+        return hotsetFraction;
+    }
+
+    public void setHotsetFraction(double hotsetFraction) {
+        this.hotsetFraction = hotsetFraction;
+    }
+
+    public double getHotOpnFraction() {
+        return hotOpnFraction;
+    }
+
+    public void setHotOpnFraction(double hotOpnFraction) {
+        this.hotOpnFraction = hotOpnFraction;
+    }
+
+    public int getMaxScanLength() {
+        return maxScanLength;
+    }
+
+    public void setMaxScanLength(int maxScanLength) {
+        this.maxScanLength = maxScanLength;
+    }
+
+    public int getRowSize() {
+        return rowSize;
+    }
+
+    public void setRowSize(int rowSize) {
+        this.rowSize = rowSize;
+    }
+
+    public int getThreadsPerTable() {
+        return threadsPerTable;
+    }
+
+    public void setThreadsPerTable(int threadsPerTable) {
+        this.threadsPerTable = threadsPerTable;
+    }
+
+    public String getTableConcurrency() {
+        return tableConcurrency;
+    }
+
+    public void setTableConcurrency(String tableConcurrency) {
+        this.tableConcurrency = tableConcurrency;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadProfile{name='" + name + "', read=" + readWeight + ", update=" + updateWeight +
+                ", insert=" + insertWeight + ", scan=" + scanWeight + ", readModifyWrite=" + readModifyWriteWeight +
+                ", keyDistribution='" + keyDistribution + "', threadsPerTable=" + threadsPerTable + '}';
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.yasspfe.entities;
+
+import org.example.yasspfe.reposotories.WorkloadProfileRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+@Component
+public class WorkloadProfileInitializer implements CommandLineRunner {
+    private final WorkloadProfileRepository repository;
+
+    public WorkloadProfileInitializer(WorkloadProfileRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void run(String... args) {
+        // Seed the YCSB presets; edits made to them later are kept
+        for (WorkloadProfile preset : WorkloadProfile.presets()) {
+            if (repository.findByName(preset.getName()).isEmpty()) {
+                repository.save(preset);
+            }
+        }
+    }
+}
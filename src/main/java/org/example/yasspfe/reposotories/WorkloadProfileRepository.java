@@ -0,0 +1,12 @@
+package org.example.yasspfe.reposotories;
+
+import org.example.yasspfe.entities.WorkloadProfile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface WorkloadProfileRepository extends JpaRepository<WorkloadProfile, Long> {
+    Optional<WorkloadProfile> findByName(String name);
+}
@@ -0,0 +1,135 @@
+package org.example.yasspfe.scenarios;
+
+/**
+ * Settings of the adaptive concurrency mode (see {@link ConcurrencyLimiter}): the p99 to stay under, the
+ * range the in-flight limit moves in and how it moves.
+ * <ul>
+ *     <li>AIMD: every interval the limit grows by {@code increase} if it was reached and p99 met the target,
+ *     and is multiplied by {@code backoffRatio} if p99 did not;</li>
+ *     <li>GRADIENT: the limit follows the ratio of the lowest median latency of the last 30 intervals (the
+ *     latency without queueing) to the current median, allowing {@code tolerance} times the former before backing off, plus
+ *     a square-root headroom to probe with; it moves {@code smoothing} of the way each interval and backs off
+ *     at least by one whenever p99 misses the target.</li>
+ * </ul>
+ * The limit starts at {@code initialLimit} (default 4, within the range). {@code maxLimit} defaults to, and is
+ * capped by, the run's session count. Adaptive concurrency runs in closed-loop mode, without a load plan.
+ */
+public class AdaptiveConcurrency {
+
+    public enum Algorithm { AIMD, GRADIENT }
+
+    private Algorithm algorithm = Algorithm.GRADIENT;
+    private Double targetP99Millis;
+    private int minLimit = 1;
+    private Integer maxLimit;
+    private Integer initialLimit;
+    private int intervalMillis = 1000;
+    private int increase = 1;
+    private double backoffRatio = 0.9;
+    private double tolerance = 1.5;
+    private double smoothing = 0.2;
+
+    /**
+     * Returns what is wrong with the settings, or null if they can run.
+     */
+    public String validate() {
+        if (algorithm == null) return "algorithm must be AIMD or GRADIENT";
+        if (targetP99Millis == null || targetP99Millis <= 0) return "targetP99Millis must be positive";
+        if (minLimit <= 0) return "minLimit must be positive";
+        if (maxLimit != null && maxLimit < minLimit) return "maxLimit must not be below minLimit";
+        if (initialLimit != null && initialLimit <= 0) return "initialLimit must be positive";
+        if (intervalMillis < 100) return "intervalMillis must be at least 100";
+        if (increase <= 0) return "increase must be positive";
+        if (backoffRatio <= 0 || backoffRatio >= 1) return "backoffRatio must be between 0 and 1";
+        if (tolerance < 1) return "tolerance must be at least 1";
+        if (smoothing <= 0 || smoothing > 1) return "smoothing must be between 0 and 1";
+        return null;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public Double getTargetP99Millis() {
+        return targetP99Millis;
+    }
+
+    public void setTargetP99Millis(Double targetP99Millis) {
+        this.targetP99Millis = targetP99Millis;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public Integer getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(Integer maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public Integer getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(Integer initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public void setIntervalMillis(int intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    public int getIncrease() {
+        return increase;
+    }
+
+    public void setIncrease(int increase) {
+        this.increase = increase;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveConcurrency{algorithm=" + algorithm + ", targetP99Millis=" + targetP99Millis +
+                ", minLimit=" + minLimit + ", maxLimit=" + maxLimit + ", initialLimit=" + initialLimit +
+                ", intervalMillis=" + intervalMillis + '}';
+    }
+}
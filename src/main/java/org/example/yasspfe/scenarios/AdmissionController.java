@@ -0,0 +1,337 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Admission control for a proxy's accept loop. Every accepted socket is either admitted (handed to the
+ * proxy's session starter), parked in a bounded wait queue until a slot frees up, or rejected right away
+ * through the proxy's rejecter, which answers in the proxy's own protocol (MySQL ERR 1040, HTTP 503).
+ * Rejecting early keeps a connection storm from turning into an unbounded number of session threads and
+ * backend connections.
+ * <p>
+ * Limits, all read from system properties under the controller's prefix:
+ * {@code maxConnections} (admitted sessions, default 1000), {@code maxConnectionsPerClient} (admitted plus
+ * queued connections per client IP, default 500), {@code queueSize} (default 500), {@code queueTimeoutMs}
+ * (default 2000), {@code acceptRate} (new connections per second, 0 for no limit) and {@code acceptBurst}
+ * (token bucket size, default one second's worth of {@code acceptRate}).
+ */
+public class AdmissionController {
+
+    /**
+     * Answers a connection the proxy will not serve. The controller closes the socket afterwards.
+     */
+    public interface Rejecter {
+        void reject(Socket socket, String reason) throws IOException;
+    }
+
+    /**
+     * An admitted connection. The session must call {@link #release()} when it ends.
+     */
+    public final class Permit {
+        private final Socket socket;
+        private final InetAddress client;
+        private boolean released;
+
+        private Permit(Socket socket, InetAddress client) {
+            this.socket = socket;
+            this.client = client;
+        }
+
+        public Socket socket() {
+            return socket;
+        }
+
+        public void release() {
+            AdmissionController.this.release(this);
+        }
+    }
+
+    private record Waiting(Socket socket, InetAddress client, long enqueuedAt) {
+    }
+
+    public static final String RATE_LIMITED = "rateLimited";
+    public static final String CLIENT_LIMIT = "clientLimit";
+    public static final String QUEUE_FULL = "queueFull";
+    public static final String QUEUE_TIMEOUT = "queueTimeout";
+
+    private final String name;
+    private final int maxConnections;
+    private final int maxConnectionsPerClient;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final double acceptRate;
+    private final double acceptBurst;
+
+    private Consumer<Permit> starter;
+    private Rejecter rejecter;
+
+    private final ArrayDeque<Waiting> queue = new ArrayDeque<>();
+    private final Map<InetAddress, Integer> perClient = new HashMap<>();
+    private int active;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    private long accepted;
+    private long admitted;
+    private long admittedAfterWait;
+    private long queueWaitNanos;
+    private long maxQueueWaitNanos;
+    private int peakActive;
+    private int peakQueued;
+    private long rejectedTotal;
+    private final Map<String, Long> rejected = new LinkedHashMap<>();
+
+    private ScheduledExecutorService sweeper;
+
+    public AdmissionController(String name, int maxConnections, int maxConnectionsPerClient, int queueSize,
+                               long queueTimeoutMillis, double acceptRate, double acceptBurst) {
+        this.name = name;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerClient = maxConnectionsPerClient;
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.acceptRate = acceptRate;
+        this.acceptBurst = Math.max(1, acceptBurst);
+        this.tokens = this.acceptBurst;
+        for (String reason : List.of(RATE_LIMITED, CLIENT_LIMIT, QUEUE_FULL, QUEUE_TIMEOUT)) {
+            rejected.put(reason, 0L);
+        }
+    }
+
+    /**
+     * A controller configured from {@code <prefix>.maxConnections}, {@code <prefix>.queueSize} and so on.
+     */
+    public static AdmissionController fromProperties(String name, String prefix) {
+        double rate = Double.parseDouble(System.getProperty(prefix + ".acceptRate", "0"));
+        return new AdmissionController(name,
+                Integer.getInteger(prefix + ".maxConnections", 1000),
+                Integer.getInteger(prefix + ".maxConnectionsPerClient", 500),
+                Integer.getInteger(prefix + ".queueSize", 500),
+                Long.getLong(prefix + ".queueTimeoutMs", 2000),
+                rate,
+                Double.parseDouble(System.getProperty(prefix + ".acceptBurst", String.valueOf(rate))));
+    }
+
+    /**
+     * Wires the controller to its proxy. Admitted connections are passed to {@code starter} on the calling
+     * thread, which must not block; rejected ones to {@code rejecter}.
+     */
+    public synchronized void bind(Consumer<Permit> starter, Rejecter rejecter) {
+        this.starter = starter;
+        this.rejecter = rejecter;
+        if (sweeper == null && queueSize > 0) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, name + "-admission-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(10, TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos) / 4);
+            sweeper.scheduleAtFixedRate(this::expireWaiting, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Decides what happens to a freshly accepted socket. Called from the accept loop; never blocks on the
+     * limits themselves.
+     */
+    public void submit(Socket socket) {
+        InetAddress client = clientOf(socket);
+        Permit permit = null;
+        String rejection = null;
+        synchronized (this) {
+            accepted++;
+            if (!takeToken()) {
+                rejection = RATE_LIMITED;
+            } else if (perClient.getOrDefault(client, 0) >= maxConnectionsPerClient) {
+                rejection = CLIENT_LIMIT;
+            } else if (active < maxConnections && queue.isEmpty()) {
+                perClient.merge(client, 1, Integer::sum);
+                permit = admitLocked(socket, client);
+            } else if (queue.size() < queueSize) {
+                perClient.merge(client, 1, Integer::sum);
+                queue.addLast(new Waiting(socket, client, System.nanoTime()));
+                peakQueued = Math.max(peakQueued, queue.size());
+            } else {
+                rejection = QUEUE_FULL;
+            }
+            if (rejection != null) {
+                countRejection(rejection);
+            }
+        }
+        if (permit != null) {
+            start(permit);
+        } else if (rejection != null) {
+            reject(socket, rejection);
+        }
+    }
+
+    private boolean takeToken() {
+        if (acceptRate <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(acceptBurst, tokens + (now - lastRefill) / 1e9 * acceptRate);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private Permit admitLocked(Socket socket, InetAddress client) {
+        active++;
+        admitted++;
+        peakActive = Math.max(peakActive, active);
+        return new Permit(socket, client);
+    }
+
+    private void release(Permit permit) {
+        List<Permit> toStart = new ArrayList<>();
+        List<Waiting> expired = new ArrayList<>();
+        synchronized (this) {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            active--;
+            forgetClient(permit.client);
+            // Hand the freed slot to the oldest waiter that has not given up yet
+            long now = System.nanoTime();
+            while (active < maxConnections && !queue.isEmpty()) {
+                Waiting waiting = queue.pollFirst();
+                long waited = now - waiting.enqueuedAt();
+                if (waited >= queueTimeoutNanos) {
+                    expireLocked(waiting, expired);
+                    continue;
+                }
+                admittedAfterWait++;
+                queueWaitNanos += waited;
+                maxQueueWaitNanos = Math.max(maxQueueWaitNanos, waited);
+                toStart.add(admitLocked(waiting.socket(), waiting.client()));
+            }
+        }
+        expired.forEach(waiting -> reject(waiting.socket(), QUEUE_TIMEOUT));
+        toStart.forEach(this::start);
+    }
+
+    private void expireWaiting() {
+        List<Waiting> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            while (!queue.isEmpty() && now - queue.peekFirst().enqueuedAt() >= queueTimeoutNanos) {
+                expireLocked(queue.pollFirst(), expired);
+            }
+        }
+        expired.forEach(waiting -> reject(waiting.socket(), QUEUE_TIMEOUT));
+    }
+
+    private void expireLocked(Waiting waiting, List<Waiting> expired) {
+        forgetClient(waiting.client());
+        countRejection(QUEUE_TIMEOUT);
+        expired.add(waiting);
+    }
+
+    private void countRejection(String reason) {
+        rejected.merge(reason, 1L, Long::sum);
+        rejectedTotal++;
+    }
+
+    private void forgetClient(InetAddress client) {
+        perClient.computeIfPresent(client, (address, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void start(Permit permit) {
+        try {
+            starter.accept(permit);
+        } catch (RuntimeException | Error e) {
+            // e.g. OutOfMemoryError: unable to create native thread
+            ProxyLog.CONNECTIONS.warn("[AdmissionController] {} could not start a session: {}", name, e.toString());
+            closeQuietly(permit.socket());
+            permit.release();
+        }
+    }
+
+    private void reject(Socket socket, String reason) {
+        long total;
+        synchronized (this) {
+            total = rejectedTotal;
+        }
+        if (total == 1 || total % 1000 == 0) {
+            ProxyLog.CONNECTIONS.warn("🚧 [AdmissionController] {} rejected {} ({}), {} rejection(s) so far",
+                    name, socket.getRemoteSocketAddress(), reason, total);
+        }
+        try {
+            // The answer is a single small write that fits the socket buffer, so it does not stall the accept loop
+            rejecter.reject(socket, reason);
+        } catch (IOException e) {
+            // The client is gone already
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private static InetAddress clientOf(Socket socket) {
+        SocketAddress address = socket.getRemoteSocketAddress();
+        return address instanceof InetSocketAddress inet ? inet.getAddress() : socket.getInetAddress();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    public synchronized long getRejected(String reason) {
+        return rejected.getOrDefault(reason, 0L);
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> limits = new LinkedHashMap<>();
+        limits.put("maxConnections", maxConnections);
+        limits.put("maxConnectionsPerClient", maxConnectionsPerClient);
+        limits.put("queueSize", queueSize);
+        limits.put("queueTimeoutMillis", TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos));
+        limits.put("acceptRate", acceptRate);
+        limits.put("acceptBurst", acceptBurst);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limits", limits);
+        stats.put("active", active);
+        stats.put("queued", queue.size());
+        stats.put("clients", perClient.size());
+        stats.put("peakActive", peakActive);
+        stats.put("peakQueued", peakQueued);
+        stats.put("accepted", accepted);
+        stats.put("admitted", admitted);
+        stats.put("admittedAfterWait", admittedAfterWait);
+        stats.put("avgQueueWaitMillis", admittedAfterWait == 0 ? 0.0 : queueWaitNanos / 1_000_000.0 / admittedAfterWait);
+        stats.put("maxQueueWaitMillis", maxQueueWaitNanos / 1_000_000.0);
+        stats.put("rejected", new LinkedHashMap<>(rejected));
+        return stats;
+    }
+}
@@ -0,0 +1,286 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An authenticated connection from the proxy to the target MySQL server, owned by {@link BackendPool}
+ * and lent to one client session at a time. It remembers the session state applied to it (schema and
+ * tracked session variables) so the pool can hand it to a client that needs the same state.
+ */
+public class BackendConnection {
+
+    private final BackendPool.Key key;
+    private final String host;
+    private final int port;
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final long connectionId;
+    private final String serverVersion;
+    private final long createdAt = System.currentTimeMillis();
+    private final Map<String, String> variables = new LinkedHashMap<>();
+    private String schema;
+    private long lastUsedAt = createdAt;
+    private boolean broken;
+
+    private BackendConnection(BackendPool.Key key, String host, int port, Socket socket,
+                              long connectionId, String serverVersion) throws IOException {
+        this.key = key;
+        this.host = host;
+        this.port = port;
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        this.connectionId = connectionId;
+        this.serverVersion = serverVersion;
+        this.schema = key.schema();
+    }
+
+    /**
+     * Connects and authenticates with mysql_native_password or caching_sha2_password. Without TLS the
+     * caching_sha2 full authentication falls back to the server's RSA public key.
+     */
+    static BackendConnection open(BackendPool.Key key, String password, String host, int port,
+                                  int connectTimeoutMillis) throws IOException {
+        return authenticate(connect(host, port, connectTimeoutMillis), key, password, host, port, connectTimeoutMillis);
+    }
+
+    /**
+     * The TCP part of {@link #open}: a connected socket the server is about to greet on.
+     */
+    static Socket connect(String host, int port, int connectTimeoutMillis) throws IOException {
+        Socket socket = ProxySockets.tune(new Socket());
+        try {
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+            return socket;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The MySQL part of {@link #open}: reads the greeting on a connected socket and authenticates. The socket
+     * is closed if that fails.
+     */
+    static BackendConnection authenticate(Socket socket, BackendPool.Key key, String password, String host, int port,
+                                          int timeoutMillis) throws IOException {
+        try {
+            socket.setSoTimeout(timeoutMillis);
+            InputStream rawIn = socket.getInputStream();
+            OutputStream rawOut = socket.getOutputStream();
+
+            byte[] greeting = MySQLProxy.readPacket(rawIn);
+            if (greeting == null) throw new IOException("Backend closed the connection during the handshake");
+            byte[] greetingPayload = payload(greeting);
+            if (MySQLProtocol.isErr(greetingPayload)) {
+                throw new IOException("Backend refused connection: " + MySQLProtocol.errorMessage(greetingPayload));
+            }
+            MySQLProtocol.Handshake handshake = MySQLProtocol.parseHandshake(greetingPayload);
+
+            String plugin = handshake.authPlugin != null ? handshake.authPlugin : MySQLProtocol.NATIVE_PASSWORD;
+            byte[] scramble = handshake.scramble;
+            int capabilities = (key.capabilities() & handshake.capabilities & MySQLProtocol.SERVER_CAPABILITIES)
+                    | MySQLProtocol.CLIENT_PROTOCOL_41 | MySQLProtocol.CLIENT_SECURE_CONNECTION
+                    | MySQLProtocol.CLIENT_PLUGIN_AUTH | MySQLProtocol.CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA;
+            int sequenceId = sequenceId(greeting) + 1;
+            write(rawOut, sequenceId, MySQLProtocol.handshakeResponsePayload(capabilities, key.charset(), key.user(),
+                    token(plugin, password, scramble), key.schema(), plugin));
+
+            while (true) {
+                byte[] reply = MySQLProxy.readPacket(rawIn);
+                if (reply == null) throw new IOException("Backend closed the connection during authentication");
+                sequenceId = sequenceId(reply) + 1;
+                byte[] payload = payload(reply);
+                int type = payload.length > 0 ? payload[0] & 0xFF : -1;
+
+                if (type == 0x00) {
+                    socket.setSoTimeout(0);
+                    return new BackendConnection(key, host, port, socket, handshake.connectionId, handshake.serverVersion);
+                } else if (type == 0xFF) {
+                    throw new IOException("Backend authentication failed for '" + key.user() + "': "
+                            + MySQLProtocol.errorMessage(payload));
+                } else if (type == 0xFE) {
+                    // Auth switch: plugin name, NUL, new scramble (optionally NUL terminated)
+                    int nameEnd = 1;
+                    while (nameEnd < payload.length && payload[nameEnd] != 0) nameEnd++;
+                    plugin = new String(payload, 1, nameEnd - 1, StandardCharsets.UTF_8);
+                    int dataEnd = payload.length > nameEnd + 1 && payload[payload.length - 1] == 0 ? payload.length - 1 : payload.length;
+                    scramble = Arrays.copyOfRange(payload, Math.min(nameEnd + 1, dataEnd), dataEnd);
+                    write(rawOut, sequenceId, token(plugin, password, scramble));
+                } else if (type == 0x01 && payload.length == 2 && payload[1] == 0x03) {
+                    // caching_sha2 fast authentication succeeded, the OK packet follows
+                } else if (type == 0x01 && payload.length == 2 && payload[1] == 0x04) {
+                    // caching_sha2 full authentication: ask for the public key
+                    write(rawOut, sequenceId, new byte[]{0x02});
+                } else if (type == 0x01) {
+                    String pem = new String(payload, 1, payload.length - 1, StandardCharsets.US_ASCII);
+                    write(rawOut, sequenceId, MySQLProtocol.cachingSha2RsaPassword(password, scramble, pem));
+                } else {
+                    throw new IOException("Unexpected packet 0x" + Integer.toHexString(type) + " during backend authentication");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private static byte[] token(String plugin, String password, byte[] scramble) {
+        return MySQLProtocol.CACHING_SHA2_PASSWORD.equals(plugin)
+                ? MySQLProtocol.cachingSha2Token(password, scramble)
+                : MySQLProtocol.nativePasswordToken(password, scramble);
+    }
+
+    private static void write(OutputStream out, int sequenceId, byte[] payload) throws IOException {
+        out.write(MySQLProtocol.packet(sequenceId, payload));
+        out.flush();
+    }
+
+    private static int sequenceId(byte[] packet) {
+        return packet[3] & 0xFF;
+    }
+
+    private static byte[] payload(byte[] packet) {
+        return Arrays.copyOfRange(packet, 4, packet.length);
+    }
+
+    /**
+     * Sends one complete client packet (header included).
+     */
+    public void send(byte[] packet) throws IOException {
+        out.write(packet);
+        out.flush();
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    public byte[] readPacket() throws IOException {
+        byte[] packet = MySQLProxy.readPacket(in);
+        if (packet == null) throw new IOException("Backend connection " + connectionId + " closed");
+        return packet;
+    }
+
+    /**
+     * Runs a statement on behalf of the proxy (state replay) and discards the result.
+     * Returns the ERR payload if the server rejected it, null on success.
+     */
+    byte[] execute(int command, String argument) throws IOException {
+        byte[] body = argument.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[body.length + 1];
+        payload[0] = (byte) command;
+        System.arraycopy(body, 0, payload, 1, body.length);
+        send(MySQLProtocol.packet(0, payload));
+
+        ResponseTracker tracker = new ResponseTracker();
+        tracker.begin(command);
+        byte[] error = null;
+        boolean complete = false;
+        while (!complete) {
+            byte[] packet = readPacket();
+            if (packet.length > 4 && (packet[4] & 0xFF) == 0xFF) error = payload(packet);
+            complete = tracker.onServerPacket(packet);
+        }
+        return error;
+    }
+
+    /**
+     * COM_RESET_CONNECTION: rolls back, drops temporary tables, prepared statements and user variables and
+     * restores session variables to their global values. The current schema is kept.
+     */
+    boolean reset() {
+        try {
+            byte[] error = execute(MySQLProtocol.COM_RESET_CONNECTION, "");
+            if (error != null) {
+                ProxyLog.CONNECTIONS.warn("[BackendPool] Reset of backend {} failed: {}", connectionId, MySQLProtocol.errorMessage(error));
+                return false;
+            }
+            variables.clear();
+            return true;
+        } catch (IOException e) {
+            broken = true;
+            return false;
+        }
+    }
+
+    void close() {
+        try {
+            if (!socket.isClosed()) {
+                out.write(MySQLProtocol.packet(0, new byte[]{MySQLProtocol.COM_QUIT}));
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            ProxyLog.CONNECTIONS.warn("[BackendPool] Error closing backend socket: {}", e.getMessage());
+        }
+    }
+
+    public BackendPool.Key currentKey() {
+        return new BackendPool.Key(key.user(), schema, key.charset(), key.capabilities());
+    }
+
+    public boolean isTarget(String host, int port) {
+        return this.port == port && this.host.equals(host);
+    }
+
+    public boolean isUsable() {
+        return !broken && !socket.isClosed();
+    }
+
+    void setReadTimeout(int timeoutMillis) throws IOException {
+        socket.setSoTimeout(timeoutMillis);
+    }
+
+    void markBroken() {
+        broken = true;
+    }
+
+    Map<String, String> getVariables() {
+        return variables;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    void setSchema(String schema) {
+        this.schema = schema;
+    }
+
+    public long getConnectionId() {
+        return connectionId;
+    }
+
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+}
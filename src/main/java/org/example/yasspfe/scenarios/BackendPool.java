@@ -0,0 +1,297 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of authenticated backend connections for the proxy's transaction pooling mode. Idle connections
+ * are kept per {@link Key} (user, schema, charset, capability flags) and handed out LIFO, so a busy key
+ * keeps reusing its warmest connections while rarely used ones age out.
+ * <p>
+ * Configured with system properties: {@code proxy.pool.maxSize} (total backend connections, default 200),
+ * {@code proxy.pool.acquireTimeoutMs} (default 5000), {@code proxy.pool.idleTimeoutMs} (default 60000),
+ * {@code proxy.pool.connectTimeoutMs} (default 5000) and {@code proxy.pool.users}, a comma separated list of
+ * {@code user:password} pairs the proxy accepts from clients and uses towards MySQL (default {@code root:root}).
+ */
+public class BackendPool {
+
+    /**
+     * Backend connections are only interchangeable when all of these match.
+     */
+    public record Key(String user, String schema, int charset, int capabilities) {
+    }
+
+    // Client capabilities that change how the server talks on the connection
+    static final int KEY_CAPABILITIES = MySQLProtocol.CLIENT_FOUND_ROWS | MySQLProtocol.CLIENT_MULTI_STATEMENTS
+            | MySQLProtocol.CLIENT_MULTI_RESULTS | MySQLProtocol.CLIENT_LONG_FLAG | MySQLProtocol.CLIENT_TRANSACTIONS;
+
+    private final int maxSize = Integer.getInteger("proxy.pool.maxSize", 200);
+    private final long acquireTimeoutMillis = Long.getLong("proxy.pool.acquireTimeoutMs", 5000);
+    private final long idleTimeoutMillis = Long.getLong("proxy.pool.idleTimeoutMs", 60000);
+    private final int connectTimeoutMillis = Integer.getInteger("proxy.pool.connectTimeoutMs", 5000);
+    private final Map<String, String> credentials = parseCredentials(System.getProperty("proxy.pool.users", "root:root"));
+
+    private final Map<Key, ArrayDeque<BackendConnection>> idle = new HashMap<>();
+    private int open;
+    private int borrowed;
+    private volatile String serverVersion = "8.0.36";
+    private volatile String targetHost;
+    private volatile int targetPort;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong connectNanos = new AtomicLong();
+
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "backend-pool-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BackendPool() {
+        long period = Math.max(1000, idleTimeoutMillis / 4);
+        reaper.scheduleAtFixedRate(this::closeIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static Map<String, String> parseCredentials(String value) {
+        Map<String, String> result = new HashMap<>();
+        for (String entry : value.split(",")) {
+            String[] pair = entry.trim().split(":", 2);
+            if (!pair[0].isEmpty()) {
+                result.put(pair[0], pair.length > 1 ? pair[1] : "");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Password the proxy expects from (and forwards for) {@code user}, or null if the user is unknown.
+     */
+    public String passwordFor(String user) {
+        return credentials.get(user);
+    }
+
+    /**
+     * Borrows a connection for {@code key} on the given target, reusing an idle one when possible.
+     * When the pool is full, an idle connection of another key is closed to make room; otherwise the
+     * caller waits up to the acquire timeout.
+     */
+    public BackendConnection acquire(Key key, String host, int port) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        boolean waited = false;
+        while (true) {
+            BackendConnection victim = null;
+            synchronized (this) {
+                BackendConnection connection = pollIdle(key, host, port);
+                if (connection != null) {
+                    borrowed++;
+                    reused.incrementAndGet();
+                    return connection;
+                }
+                if (open < maxSize) {
+                    open++;
+                    borrowed++;
+                } else {
+                    victim = pollAnyIdle();
+                    if (victim == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            timeouts.incrementAndGet();
+                            throw new IOException("Timed out after " + acquireTimeoutMillis
+                                    + " ms waiting for a backend connection (pool size " + maxSize + ")");
+                        }
+                        if (!waited) {
+                            waits.incrementAndGet();
+                            waited = true;
+                        }
+                        try {
+                            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted while waiting for a backend connection", e);
+                        }
+                        continue;
+                    }
+                }
+            }
+
+            if (victim != null) {
+                // Its slot is handed straight to this caller: open stays the same
+                victim.close();
+                closed.incrementAndGet();
+                synchronized (this) {
+                    borrowed++;
+                }
+            }
+            return connect(key, host, port);
+        }
+    }
+
+    private BackendConnection connect(Key key, String host, int port) throws IOException {
+        long start = System.nanoTime();
+        try {
+            BackendConnection connection = BackendConnection.open(key, passwordFor(key.user()), host, port, connectTimeoutMillis);
+            long elapsed = System.nanoTime() - start;
+            connectNanos.addAndGet(elapsed);
+            created.incrementAndGet();
+            MySQLProxy.getSwitchover().recordBackendConnect(host, port, elapsed, true);
+            serverVersion = connection.getServerVersion();
+            return connection;
+        } catch (IOException e) {
+            MySQLProxy.getSwitchover().recordBackendConnect(host, port, System.nanoTime() - start, false);
+            synchronized (this) {
+                open--;
+                borrowed--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private BackendConnection pollIdle(Key key, String host, int port) {
+        ArrayDeque<BackendConnection> deque = idle.get(key);
+        while (deque != null && !deque.isEmpty()) {
+            BackendConnection connection = deque.pollFirst();
+            if (connection.isUsable() && connection.isTarget(host, port)) {
+                return connection;
+            }
+            discardLocked(connection);
+        }
+        return null;
+    }
+
+    private BackendConnection pollAnyIdle() {
+        for (ArrayDeque<BackendConnection> deque : idle.values()) {
+            // The coldest connection of any key
+            BackendConnection connection = deque.pollLast();
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a borrowed connection. Connections that carry session state the next borrower cannot
+     * undo cheaply ({@code dirty}) are reset first; broken ones are closed.
+     */
+    public void release(BackendConnection connection, boolean dirty) {
+        String host = targetHost;
+        // Connections to a previous target are retired as soon as their borrower is done with them
+        boolean reusable = connection.isUsable() && (host == null || connection.isTarget(host, targetPort));
+        if (reusable && dirty) {
+            resets.incrementAndGet();
+            reusable = connection.reset();
+        }
+        synchronized (this) {
+            borrowed--;
+            if (reusable) {
+                idle.computeIfAbsent(connection.currentKey(), k -> new ArrayDeque<>()).addFirst(connection);
+            } else {
+                discardLocked(connection);
+            }
+            notifyAll();
+        }
+    }
+
+    private void discardLocked(BackendConnection connection) {
+        connection.close();
+        open--;
+        closed.incrementAndGet();
+    }
+
+    /**
+     * Points the pool at a new target: idle connections to the old one are closed now, borrowed ones
+     * when they are released.
+     */
+    public void retarget(String host, int port) {
+        targetPort = port;
+        targetHost = host;
+        closeIdleConnectionsNotTargeting(host, port);
+    }
+
+    /**
+     * Closes every idle connection that does not point at the given target.
+     */
+    public synchronized void closeIdleConnectionsNotTargeting(String host, int port) {
+        for (ArrayDeque<BackendConnection> deque : idle.values()) {
+            deque.removeIf(connection -> {
+                if (connection.isTarget(host, port)) return false;
+                discardLocked(connection);
+                return true;
+            });
+        }
+        notifyAll();
+    }
+
+    private void closeIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<BackendConnection> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<ArrayDeque<BackendConnection>> it = idle.values().iterator(); it.hasNext(); ) {
+                ArrayDeque<BackendConnection> deque = it.next();
+                while (!deque.isEmpty() && deque.peekLast().getLastUsedAt() < cutoff) {
+                    expired.add(deque.pollLast());
+                    open--;
+                }
+                if (deque.isEmpty()) it.remove();
+            }
+            if (!expired.isEmpty()) notifyAll();
+        }
+        for (BackendConnection connection : expired) {
+            connection.close();
+            closed.incrementAndGet();
+        }
+    }
+
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        int idleCount = 0;
+        for (ArrayDeque<BackendConnection> deque : idle.values()) {
+            idleCount += deque.size();
+        }
+        long createdCount = created.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxSize", maxSize);
+        stats.put("open", open);
+        stats.put("borrowed", borrowed);
+        stats.put("idle", idleCount);
+        stats.put("keys", idle.size());
+        stats.put("created", createdCount);
+        stats.put("reused", reused.get());
+        stats.put("closed", closed.get());
+        stats.put("resets", resets.get());
+        stats.put("waits", waits.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("avgConnectMillis", createdCount == 0 ? 0.0 : connectNanos.get() / 1_000_000.0 / createdCount);
+        return stats;
+    }
+
+    public void shutdown() {
+        reaper.shutdownNow();
+        List<BackendConnection> all = new ArrayList<>();
+        synchronized (this) {
+            idle.values().forEach(all::addAll);
+            open -= all.size();
+            idle.clear();
+        }
+        all.forEach(BackendConnection::close);
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.yasspfe.scenarios;
+
+/**
+ * Settings of the write-heavy workload (see {@link BulkWriteWorkload}): how many rows go into each batch, how
+ * many batches make up a transaction, and the mix of batch kinds. Weights are relative, like those of a
+ * workload profile.
+ * <ul>
+ *     <li>insert: a prepared single-row INSERT, {@code batchSize} times addBatch, then executeBatch (with
+ *     {@code rewriteBatchedStatements} the driver sends it as multi-row INSERTs);</li>
+ *     <li>multiRowInsert: one INSERT ... VALUES (...), (...) statement of {@code batchSize} rows;</li>
+ *     <li>upsert: a batch of INSERT ... ON DUPLICATE KEY UPDATE, half of them on keys this run inserted;</li>
+ *     <li>delete: a batch of DELETE by primary key of rows this run inserted.</li>
+ * </ul>
+ */
+public class BulkWriteProfile {
+
+    // MySQL's limit on placeholders in one prepared statement
+    static final int MAX_PLACEHOLDERS = 65_535;
+
+    private int batchSize = 100;
+    private int batchesPerCommit = 1;
+    private double insertWeight = 0.5;
+    private double multiRowInsertWeight = 0.3;
+    private double upsertWeight = 0.1;
+    private double deleteWeight = 0.1;
+    private int sessionsPerTable = 4;
+    private int rowSize = 100;
+    private boolean rewriteBatchedStatements = true;
+
+    /**
+     * Returns what is wrong with the settings, or null if they can run.
+     */
+    public String validate() {
+        if (batchSize <= 0 || batchSize > MAX_PLACEHOLDERS) return "batchSize must be between 1 and " + MAX_PLACEHOLDERS;
+        if (batchesPerCommit <= 0) return "batchesPerCommit must be positive";
+        if (insertWeight < 0 || multiRowInsertWeight < 0 || upsertWeight < 0 || deleteWeight < 0) {
+            return "weights must not be negative";
+        }
+        if (insertWeight + multiRowInsertWeight + upsertWeight + deleteWeight <= 0) return "at least one weight must be positive";
+        if (sessionsPerTable <= 0) return "sessionsPerTable must be positive";
+        if (rowSize <= 0) return "rowSize must be positive";
+        return null;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchesPerCommit() {
+        return batchesPerCommit;
+    }
+
+    public void setBatchesPerCommit(int batchesPerCommit) {
+        this.batchesPerCommit = batchesPerCommit;
+    }
+
+    public double getInsertWeight() {
+        return insertWeight;
+    }
+
+    public void setInsertWeight(double insertWeight) {
+        this.insertWeight = insertWeight;
+    }
+
+    public double getMultiRowInsertWeight() {
+        return multiRowInsertWeight;
+    }
+
+    public void setMultiRowInsertWeight(double multiRowInsertWeight) {
+        this.multiRowInsertWeight = multiRowInsertWeight;
+    }
+
+    public double getUpsertWeight() {
+        return upsertWeight;
+    }
+
+    public void setUpsertWeight(double upsertWeight) {
+        this.upsertWeight = upsertWeight;
+    }
+
+    public double getDeleteWeight() {
+        return deleteWeight;
+    }
+
+    public void setDeleteWeight(double deleteWeight) {
+        this.deleteWeight = deleteWeight;
+    }
+
+    public int getSessionsPerTable() {
+        return sessionsPerTable;
+    }
+
+    public void setSessionsPerTable(int sessionsPerTable) {
+        this.sessionsPerTable = sessionsPerTable;
+    }
+
+    public int getRowSize() {
+        return rowSize;
+    }
+
+    public void setRowSize(int rowSize) {
+        this.rowSize = rowSize;
+    }
+
+    public boolean isRewriteBatchedStatements() {
+        return rewriteBatchedStatements;
+    }
+
+    public void setRewriteBatchedStatements(boolean rewriteBatchedStatements) {
+        this.rewriteBatchedStatements = rewriteBatchedStatements;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkWriteProfile{batchSize=" + batchSize + ", batchesPerCommit=" + batchesPerCommit +
+                ", insert=" + insertWeight + ", multiRowInsert=" + multiRowInsertWeight + ", upsert=" + upsertWeight +
+                ", delete=" + deleteWeight + ", sessionsPerTable=" + sessionsPerTable + ", rowSize=" + rowSize +
+                ", rewriteBatchedStatements=" + rewriteBatchedStatements + '}';
+    }
+}
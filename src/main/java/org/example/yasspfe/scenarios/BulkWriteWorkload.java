@@ -0,0 +1,362 @@
+package org.example.yasspfe.scenarios;
+
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+import org.example.yasspfe.scenarios.TableMetadata.Column;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link BulkWriteProfile} bound to the tables of a stress test run. Rows are synthetic (see
+ * {@link RowGenerator}) and always carry an explicit primary key: the next integer after the table's MAX for
+ * integer keys, random text or bytes for others. Tables without a single-column integer, text or binary primary
+ * key are left out.
+ * <p>
+ * The keys of inserted rows are remembered (up to {@code stress.bulk.keptKeys}, default 100000, per table), so
+ * deletes and the updating half of the upserts only touch keys the run itself wrote. A {@link Transaction}
+ * collects the keys its batches insert and delete: inserted keys are remembered once it commits, and keys it
+ * took for deleting go back to the table if it rolls back.
+ */
+public class BulkWriteWorkload {
+
+    private static final int KEPT_KEYS = Integer.getInteger("stress.bulk.keptKeys", 100_000);
+
+    private final BulkWriteProfile profile;
+    private final Operation[] operations;
+    private final double[] cumulativeWeights;
+    private final List<Table> tables = new ArrayList<>();
+
+    private BulkWriteWorkload(BulkWriteProfile profile) {
+        this.profile = profile;
+        this.operations = new Operation[]{Operation.BATCH_INSERT, Operation.MULTI_ROW_INSERT, Operation.UPSERT,
+                Operation.DELETE};
+        double[] weights = {profile.getInsertWeight(), profile.getMultiRowInsertWeight(), profile.getUpsertWeight(),
+                profile.getDeleteWeight()};
+        double total = 0;
+        for (double weight : weights) total += weight;
+        cumulativeWeights = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i] / total;
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    /**
+     * Reads the highest integer key of every table the workload can write to.
+     */
+    public static BulkWriteWorkload prepare(BulkWriteProfile profile, DataSource dataSource,
+                                            Map<String, TableMetadata> metadata) throws SQLException {
+        BulkWriteWorkload workload = new BulkWriteWorkload(profile);
+        try (Connection connection = dataSource.getConnection()) {
+            for (TableMetadata table : metadata.values()) {
+                Column key = table.getPrimaryKey();
+                if (key == null || !(key.isIntegral() || key.isText() || key.getType().contains("binary"))) {
+                    System.err.println("⚠ Table " + table.getTable() + " has no single-column integer, text or binary primary key, left out of bulk writes");
+                    continue;
+                }
+                workload.tables.add(new Table(connection, table, key, profile));
+            }
+        }
+        return workload;
+    }
+
+    public BulkWriteProfile getProfile() {
+        return profile;
+    }
+
+    public Collection<Table> getTables() {
+        return tables;
+    }
+
+    public Operation nextOperation(Random random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < cumulativeWeights.length - 1; i++) {
+            if (r < cumulativeWeights[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * The batches of one transaction on a table: the rows they wrote and the keys they inserted and deleted.
+     * Belongs to the session running the transaction.
+     */
+    public static final class Transaction {
+        private final Table table;
+        private final List<Object> inserted = new ArrayList<>();
+        private final List<Object> deleted = new ArrayList<>();
+        private long rows;
+
+        private Transaction(Table table) {
+            this.table = table;
+        }
+
+        /**
+         * Runs one batch (see {@link Table#execute}) and returns the number of rows it wrote.
+         */
+        public int execute(StatementCache statements, Operation operation, Random random) throws SQLException {
+            int written = table.execute(statements, operation, random, this);
+            rows += written;
+            return written;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Call once the connection committed: the inserted keys become keys to delete and upsert.
+         */
+        public void committed() {
+            table.remember(inserted);
+            inserted.clear();
+            deleted.clear();
+        }
+
+        /**
+         * Call once the connection rolled back: the rows the transaction deleted are back, its inserts are gone.
+         */
+        public void rolledBack() {
+            table.restore(deleted);
+            inserted.clear();
+            deleted.clear();
+            rows = 0;
+        }
+    }
+
+    public static final class Table {
+        private final TableMetadata metadata;
+        private final Column key;
+        private final boolean integralKey;
+        private final int batchSize;
+        private final int rowSize;
+
+        private final AtomicLong nextKey = new AtomicLong();
+        private final long firstKey;
+        private final ConcurrentLinkedDeque<Object> insertedKeys = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger keptKeys = new AtomicInteger();
+
+        private final List<Column> columns = new ArrayList<>();
+        private final String insertSql;
+        private final String upsertSql;
+        private final String deleteSql;
+        private final String multiRowSql;
+        private final int rowsPerStatement;
+
+        private Table(Connection connection, TableMetadata metadata, Column key, BulkWriteProfile profile) throws SQLException {
+            this.metadata = metadata;
+            this.key = key;
+            this.integralKey = key.isIntegral();
+            this.batchSize = profile.getBatchSize();
+            this.rowSize = profile.getRowSize();
+
+            String table = TableMetadata.quote(metadata.getTable());
+            String keyName = TableMetadata.quote(key.getName());
+            if (integralKey) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("SELECT MAX(" + keyName + ") FROM " + table)) {
+                    nextKey.set(rs.next() ? rs.getLong(1) : 0);
+                }
+                firstKey = nextKey.get() + 1;
+            } else {
+                firstKey = 0;
+            }
+
+            // The key, then every column that needs a value or takes text
+            columns.add(key);
+            for (Column column : metadata.getColumns()) {
+                if (column == key || column.isAutoIncrement()) continue;
+                if (column.isText() || (!column.isNullable() && !column.hasDefault())) {
+                    columns.add(column);
+                }
+            }
+
+            StringBuilder names = new StringBuilder();
+            StringBuilder row = new StringBuilder("(");
+            StringBuilder updates = new StringBuilder();
+            for (int i = 0; i < columns.size(); i++) {
+                String name = TableMetadata.quote(columns.get(i).getName());
+                if (i > 0) {
+                    names.append(", ");
+                    row.append(", ");
+                }
+                names.append(name);
+                row.append('?');
+                if (i > 0) {
+                    if (updates.length() > 0) updates.append(", ");
+                    updates.append(name).append(" = VALUES(").append(name).append(')');
+                }
+            }
+            row.append(')');
+            if (updates.length() == 0) {
+                updates.append(keyName).append(" = ").append(keyName);
+            }
+
+            insertSql = "INSERT INTO " + table + " (" + names + ") VALUES " + row;
+            upsertSql = insertSql + " ON DUPLICATE KEY UPDATE " + updates;
+            deleteSql = "DELETE FROM " + table + " WHERE " + keyName + " = ?";
+
+            rowsPerStatement = Math.max(1, Math.min(batchSize, BulkWriteProfile.MAX_PLACEHOLDERS / columns.size()));
+            StringBuilder multiRow = new StringBuilder("INSERT INTO " + table + " (" + names + ") VALUES ");
+            for (int i = 0; i < rowsPerStatement; i++) {
+                if (i > 0) multiRow.append(", ");
+                multiRow.append(row);
+            }
+            multiRowSql = multiRow.toString();
+        }
+
+        public String getName() {
+            return metadata.getTable();
+        }
+
+        /**
+         * Starts collecting the batches of a transaction the caller opens on its connection.
+         */
+        public Transaction begin() {
+            return new Transaction(this);
+        }
+
+        /**
+         * The keys of committed inserts that deletes and upserts can pick from.
+         */
+        public int getKeptKeys() {
+            return keptKeys.get();
+        }
+
+        /**
+         * Runs one batch in the connection's current transaction and returns the number of rows it wrote.
+         * A delete with no inserted rows left to remove inserts a batch instead.
+         */
+        private int execute(StatementCache statements, Operation operation, Random random, Transaction transaction)
+                throws SQLException {
+            switch (operation) {
+                case BATCH_INSERT:
+                    return batchInsert(statements, random, transaction);
+                case MULTI_ROW_INSERT:
+                    return multiRowInsert(statements, random, transaction);
+                case UPSERT:
+                    return upsert(statements, random, transaction);
+                case DELETE:
+                    return insertedKeys.isEmpty() ? batchInsert(statements, random, transaction)
+                            : delete(statements, transaction);
+                default:
+                    throw new IllegalArgumentException("Not a bulk write operation: " + operation);
+            }
+        }
+
+        private int batchInsert(StatementCache statements, Random random, Transaction transaction) throws SQLException {
+            PreparedStatement statement = statements.prepare(insertSql);
+            List<Object> keys = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                keys.add(bindRow(statement, 0, newKey(random), random));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            transaction.inserted.addAll(keys);
+            return batchSize;
+        }
+
+        private int multiRowInsert(StatementCache statements, Random random, Transaction transaction) throws SQLException {
+            PreparedStatement statement = statements.prepare(multiRowSql);
+            List<Object> keys = new ArrayList<>(rowsPerStatement);
+            for (int i = 0; i < rowsPerStatement; i++) {
+                keys.add(bindRow(statement, i * columns.size(), newKey(random), random));
+            }
+            statement.executeUpdate();
+            transaction.inserted.addAll(keys);
+            return rowsPerStatement;
+        }
+
+        private int upsert(StatementCache statements, Random random, Transaction transaction) throws SQLException {
+            PreparedStatement statement = statements.prepare(upsertSql);
+            List<Object> keys = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                Object existing = random.nextBoolean() ? insertedKey(random) : null;
+                Object keyValue = bindRow(statement, 0, existing != null ? existing : newKey(random), random);
+                if (existing == null) keys.add(keyValue);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            transaction.inserted.addAll(keys);
+            return batchSize;
+        }
+
+        // Takes the keys off the table first, so no other session deletes them too
+        private int delete(StatementCache statements, Transaction transaction) throws SQLException {
+            PreparedStatement statement = statements.prepare(deleteSql);
+            int rows = 0;
+            Object keyValue;
+            while (rows < batchSize && (keyValue = insertedKeys.pollFirst()) != null) {
+                keptKeys.decrementAndGet();
+                transaction.deleted.add(keyValue);
+                statement.setObject(1, keyValue);
+                statement.addBatch();
+                rows++;
+            }
+            statement.executeBatch();
+            return rows;
+        }
+
+        // Binds one row from parameter offset + 1 on and returns its key
+        private Object bindRow(PreparedStatement statement, int offset, Object keyValue, Random random) throws SQLException {
+            statement.setObject(offset + 1, keyValue);
+            for (int i = 1; i < columns.size(); i++) {
+                statement.setObject(offset + i + 1, RowGenerator.value(columns.get(i), random, rowSize));
+            }
+            return keyValue;
+        }
+
+        // A key this run inserted: any of the range for integer keys, otherwise the latest
+        private Object insertedKey(Random random) {
+            if (integralKey) {
+                long inserted = nextKey.get() - firstKey + 1;
+                return inserted > 0 ? firstKey + (long) (random.nextDouble() * inserted) : null;
+            }
+            return insertedKeys.peekLast();
+        }
+
+        private Object newKey(Random random) {
+            if (integralKey) {
+                return nextKey.incrementAndGet();
+            }
+            // Long enough not to collide, short enough for the column
+            return RowGenerator.value(key, random, 32);
+        }
+
+        private void remember(List<Object> keys) {
+            for (Object keyValue : keys) {
+                insertedKeys.addLast(keyValue);
+                if (keptKeys.incrementAndGet() > KEPT_KEYS && insertedKeys.pollFirst() != null) {
+                    keptKeys.decrementAndGet();
+                }
+            }
+        }
+
+        // Keys a rolled back delete had taken; they go back first in line, where they came from
+        private void restore(List<Object> keys) {
+            for (int i = keys.size() - 1; i >= 0; i--) {
+                insertedKeys.addFirst(keys.get(i));
+                keptKeys.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        List<String> names = new ArrayList<>();
+        for (Table table : tables) names.add(table.getName());
+        return "bulk writes on " + names;
+    }
+}
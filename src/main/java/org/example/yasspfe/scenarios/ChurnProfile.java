@@ -0,0 +1,74 @@
+package org.example.yasspfe.scenarios;
+
+/**
+ * Settings of a connection churn run (see {@link ConnectionChurn}): {@code concurrency} workers each open a raw
+ * connection to the server of the JDBC URL, authenticate, run {@code query} {@code queriesPerConnection} times
+ * and close it, over and over. {@code rate} caps the connections opened per second across all workers; 0 opens
+ * the next one as soon as a worker is free. With 0 queries per connection only the handshake is exercised.
+ */
+public class ChurnProfile {
+
+    private double rate;
+    private int concurrency = 16;
+    private int queriesPerConnection = 1;
+    private String query = "SELECT 1";
+    private int connectTimeoutMillis = 5000;
+
+    /**
+     * Returns what is wrong with the settings, or null if they can run.
+     */
+    public String validate() {
+        if (rate < 0) return "rate must not be negative";
+        if (concurrency <= 0) return "concurrency must be positive";
+        if (queriesPerConnection < 0) return "queriesPerConnection must not be negative";
+        if (queriesPerConnection > 0 && (query == null || query.isBlank())) return "query must be set";
+        if (connectTimeoutMillis <= 0) return "connectTimeoutMillis must be positive";
+        return null;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getQueriesPerConnection() {
+        return queriesPerConnection;
+    }
+
+    public void setQueriesPerConnection(int queriesPerConnection) {
+        this.queriesPerConnection = queriesPerConnection;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ChurnProfile{rate=" + rate + ", concurrency=" + concurrency + ", queriesPerConnection=" +
+                queriesPerConnection + ", query=" + query + '}';
+    }
+}
@@ -0,0 +1,336 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the number of operations in flight in a closed-loop run and moves the cap to the highest level that keeps
+ * p99 under the target (see {@link AdaptiveConcurrency}).
+ * <p>
+ * A session takes a slot with {@link #acquire} before an operation and gives it back with {@link #release},
+ * which records the operation's latency, including any wait for a pooled connection. The controller thread calls
+ * {@link #adjust} once per interval; each call is kept as a {@link Decision}, so the run's report shows how the
+ * limit moved and why. The sustainable limit is the highest limit that was reached during an interval whose p99
+ * met the target: the concurrency the database takes before queueing shows in the tail.
+ */
+public class ConcurrencyLimiter {
+
+    private static final int HISTORY = 3600;
+    // Intervals the gradient algorithm takes the lowest median latency over, so it follows a change of baseline
+    private static final int BASELINE_INTERVALS = 30;
+    private static final int DEFAULT_INITIAL_LIMIT = 4;
+
+    private final AdaptiveConcurrency settings;
+    private final int minLimit;
+    private final int maxLimit;
+
+    // Latencies in microseconds
+    private final Recorder latencies = new Recorder(3);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFree = lock.newCondition();
+    // Guarded by lock
+    private int limit;
+    private int inFlight;
+    private int peakInFlight;
+    private boolean closed;
+
+    // Used by the controller thread only
+    private double estimate;
+    private final Deque<Double> medians = new ArrayDeque<>();
+    private final long startNanos = System.nanoTime();
+    private long lastAdjustNanos = startNanos;
+
+    // Guarded by itself
+    private final Deque<Decision> decisions = new ArrayDeque<>();
+    private volatile Decision sustainable;
+
+    public ConcurrencyLimiter(AdaptiveConcurrency settings, int sessions) {
+        this.settings = settings;
+        int max = settings.getMaxLimit() != null ? Math.min(settings.getMaxLimit(), sessions) : sessions;
+        this.maxLimit = Math.max(1, max);
+        this.minLimit = Math.min(settings.getMinLimit(), maxLimit);
+        int initial = settings.getInitialLimit() != null ? settings.getInitialLimit() : DEFAULT_INITIAL_LIMIT;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initial));
+        this.estimate = limit;
+    }
+
+    /**
+     * Waits for a slot. Returns the time the operation was admitted, to hand back to {@link #release}. Once the
+     * limiter is closed every caller is admitted at once.
+     */
+    public long acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!closed && inFlight >= limit) {
+                slotFree.await();
+            }
+            inFlight++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+        } finally {
+            lock.unlock();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Gives back the slot of an operation admitted at {@code admittedNanos} and records its latency.
+     */
+    public void release(long admittedNanos) {
+        latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - admittedNanos)));
+        lock.lock();
+        try {
+            inFlight--;
+            slotFree.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets every waiting and future caller through; called when the test stops.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            slotFree.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Looks at the latencies since the previous call and sets the next limit. An interval without completed
+     * operations leaves the limit as it is.
+     */
+    public Decision adjust() {
+        long now = System.nanoTime();
+        Histogram interval = latencies.getIntervalHistogram();
+        double seconds = (now - lastAdjustNanos) / 1e9;
+        lastAdjustNanos = now;
+
+        int current;
+        int peak;
+        lock.lock();
+        try {
+            current = limit;
+            peak = peakInFlight;
+            peakInFlight = inFlight;
+        } finally {
+            lock.unlock();
+        }
+
+        long operations = interval.getTotalCount();
+        double p50 = interval.getValueAtPercentile(50) / 1000.0;
+        double p99 = interval.getValueAtPercentile(99) / 1000.0;
+        boolean withinTarget = operations > 0 && p99 <= settings.getTargetP99Millis();
+        boolean limitReached = peak >= current;
+
+        int next = current;
+        if (operations > 0) {
+            next = settings.getAlgorithm() == AdaptiveConcurrency.Algorithm.AIMD
+                    ? aimd(current, withinTarget, limitReached)
+                    : gradient(current, p50, withinTarget, limitReached);
+        }
+        setLimit(next);
+
+        String action = next > current ? "increase" : next < current ? "backoff" : "hold";
+        Decision decision = new Decision((now - startNanos) / 1e9, current, peak, operations,
+                seconds > 0 ? operations / seconds : 0.0, p50, p99, withinTarget, next, action);
+        synchronized (decisions) {
+            decisions.addLast(decision);
+            if (decisions.size() > HISTORY) {
+                decisions.removeFirst();
+            }
+        }
+        Decision best = sustainable;
+        if (withinTarget && limitReached && (best == null || current >= best.limit)) {
+            sustainable = decision;
+        }
+        return decision;
+    }
+
+    private int aimd(int current, boolean withinTarget, boolean limitReached) {
+        int next = current;
+        if (!withinTarget) {
+            next = Math.min(current - 1, (int) (current * settings.getBackoffRatio()));
+        } else if (limitReached) {
+            next = current + settings.getIncrease();
+        }
+        next = clamp(next);
+        estimate = next;
+        return next;
+    }
+
+    private int gradient(int current, double p50, boolean withinTarget, boolean limitReached) {
+        medians.addLast(p50);
+        if (medians.size() > BASELINE_INTERVALS) {
+            medians.removeFirst();
+        }
+        double baseline = Double.MAX_VALUE;
+        for (double median : medians) {
+            baseline = Math.min(baseline, median);
+        }
+
+        // Below 1 once the median grows past tolerance times the latency without queueing
+        double gradient = p50 > 0 ? Math.max(0.5, Math.min(1.0, settings.getTolerance() * baseline / p50)) : 1.0;
+        double wanted = estimate * gradient + Math.sqrt(estimate);
+        if (!limitReached && wanted > estimate) {
+            // The sessions did not use the limit they had, so there is nothing to learn from growing it
+            wanted = estimate;
+        }
+        estimate = estimate * (1 - settings.getSmoothing()) + wanted * settings.getSmoothing();
+        if (!withinTarget) {
+            estimate = Math.min(estimate, current - 1);
+        }
+        estimate = Math.max(minLimit, Math.min(maxLimit, estimate));
+        return clamp((int) estimate);
+    }
+
+    private int clamp(int value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    private void setLimit(int next) {
+        lock.lock();
+        try {
+            boolean grew = next > limit;
+            limit = next;
+            if (grew) {
+                slotFree.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Decision> getDecisions() {
+        synchronized (decisions) {
+            return new ArrayList<>(decisions);
+        }
+    }
+
+    /**
+     * The interval at the highest limit that was reached with p99 within the target, or null if none was.
+     */
+    public Decision getSustainable() {
+        return sustainable;
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings);
+        lock.lock();
+        try {
+            report.put("limit", limit);
+            report.put("inFlight", inFlight);
+        } finally {
+            lock.unlock();
+        }
+        report.put("minLimit", minLimit);
+        report.put("maxLimit", maxLimit);
+        Decision best = sustainable;
+        report.put("sustainable", best != null ? best.toMap() : null);
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (Decision decision : getDecisions()) {
+            series.add(decision.toMap());
+        }
+        report.put("decisions", series);
+        return report;
+    }
+
+    public String summary() {
+        Decision best = sustainable;
+        Decision last;
+        synchronized (decisions) {
+            last = decisions.peekLast();
+        }
+        return "limit " + getLimit() + " (" + settings.getAlgorithm().name().toLowerCase() + ", p99 target " +
+                settings.getTargetP99Millis() + "ms)" + (last != null ? " | last: " + last : "") +
+                " | sustainable: " + (best != null ? best.limit + " at " + String.format("%.2f", best.throughput) + " ops/sec" : "none yet");
+    }
+
+    public static final class Decision {
+        private final double elapsedSeconds;
+        private final int limit;
+        private final int peakInFlight;
+        private final long operations;
+        private final double throughput;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final boolean withinTarget;
+        private final int nextLimit;
+        private final String action;
+
+        public Decision(double elapsedSeconds, int limit, int peakInFlight, long operations, double throughput,
+                        double p50Millis, double p99Millis, boolean withinTarget, int nextLimit, String action) {
+            this.elapsedSeconds = elapsedSeconds;
+            this.limit = limit;
+            this.peakInFlight = peakInFlight;
+            this.operations = operations;
+            this.throughput = throughput;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.withinTarget = withinTarget;
+            this.nextLimit = nextLimit;
+            this.action = action;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getNextLimit() {
+            return nextLimit;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("elapsedSeconds", elapsedSeconds);
+            map.put("limit", limit);
+            map.put("peakInFlight", peakInFlight);
+            map.put("operations", operations);
+            map.put("throughput", throughput);
+            map.put("p50Millis", p50Millis);
+            map.put("p99Millis", p99Millis);
+            map.put("withinTarget", withinTarget);
+            map.put("nextLimit", nextLimit);
+            map.put("action", action);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return action + " " + limit + " -> " + nextLimit + " (peak " + peakInFlight + " in flight, " +
+                    String.format("%.2f", throughput) + " ops/sec, p50=" + p50Millis + "ms p99=" + p99Millis + "ms)";
+        }
+    }
+}
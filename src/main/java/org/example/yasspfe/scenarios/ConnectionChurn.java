@@ -0,0 +1,344 @@
+package org.example.yasspfe.scenarios;
+
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A connection storm: workers that open a connection, authenticate, run a few queries and close it, over and
+ * over, without a pool (see {@link ChurnProfile}). Connections are opened with the proxy's own client side
+ * ({@link BackendConnection}), so the TCP connect, the authentication (greeting to OK) and the first query are
+ * timed apart and recorded as the connect, auth and firstQuery operations; later queries are churnQuery and
+ * sending COM_QUIT and closing is disconnect.
+ * <p>
+ * Failures are counted by phase: connect (the TCP connect failed or timed out), refused (the server answered
+ * the connection with an error, like Too many connections or a blocked host), auth and query. The server's
+ * connection counters (Threads_connected, Aborted_connects and others) are sampled over a connection of the
+ * caller's with {@link #sampleStatus}, and reported as their change since the first sample.
+ */
+public class ConnectionChurn {
+
+    // Server counters read by sampleStatus
+    static final List<String> STATUS = List.of("Threads_connected", "Threads_running", "Threads_created",
+            "Threads_cached", "Connections", "Aborted_connects", "Aborted_clients", "Max_used_connections",
+            "Connection_errors_max_connections");
+    // How far behind its rate a worker may fall before it skips slots instead of opening them all at once
+    private static final long MAX_BEHIND_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Longest a worker parks before checking whether the test stopped
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Where a JDBC URL points: the first host, its port, and the database (empty when there is none).
+     */
+    record Target(String host, int port, String schema) {
+
+        static Target parse(String jdbcUrl) {
+            int scheme = jdbcUrl == null ? -1 : jdbcUrl.indexOf("://");
+            if (scheme < 0) {
+                throw new IllegalArgumentException("Not a MySQL JDBC URL: " + jdbcUrl);
+            }
+            String rest = jdbcUrl.substring(scheme + 3);
+            int slash = rest.indexOf('/');
+            int question = rest.indexOf('?');
+            int hostsEnd = slash >= 0 ? slash : question >= 0 ? question : rest.length();
+            String host = rest.substring(0, hostsEnd);
+            int comma = host.indexOf(',');
+            if (comma >= 0) {
+                host = host.substring(0, comma);
+            }
+            int at = host.lastIndexOf('@');
+            if (at >= 0) {
+                host = host.substring(at + 1);
+            }
+            int port = 3306;
+            int portStart = host.startsWith("[") ? host.indexOf("]:") + 1 : host.lastIndexOf(':');
+            if (portStart > 0) {
+                port = Integer.parseInt(host.substring(portStart + 1));
+                host = host.substring(0, portStart);
+            }
+            if (host.startsWith("[") && host.endsWith("]")) {
+                host = host.substring(1, host.length() - 1);
+            }
+            String schema = "";
+            if (slash >= 0 && (question < 0 || slash < question)) {
+                schema = rest.substring(slash + 1, question > slash ? question : rest.length());
+            }
+            return new Target(host.isEmpty() ? "localhost" : host, port, schema);
+        }
+    }
+
+    private final ChurnProfile profile;
+    private final Target target;
+    private final BackendPool.Key key;
+    private final String password;
+    private final AtomicInteger totalQueries;
+    private final long intervalNanos;
+    private final AtomicLong nextDue = new AtomicLong();
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong connectFailures = new AtomicLong();
+    private final AtomicLong refusals = new AtomicLong();
+    private final AtomicLong authFailures = new AtomicLong();
+    private final AtomicLong queryFailures = new AtomicLong();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger peakOpen = new AtomicInteger();
+    private volatile String lastError;
+    private volatile long startNanos;
+
+    // Server counters: the first sample, the last one and the highest value seen
+    private final Object statusLock = new Object();
+    private final Map<String, Long> statusStart = new LinkedHashMap<>();
+    private final Map<String, Long> statusLast = new LinkedHashMap<>();
+    private final Map<String, Long> statusPeak = new LinkedHashMap<>();
+    private volatile String statusError;
+
+    public ConnectionChurn(ChurnProfile profile, Target target, String user, String password, AtomicInteger totalQueries) {
+        this.profile = profile;
+        this.target = target;
+        this.key = new BackendPool.Key(user, target.schema(), MySQLProtocol.UTF8MB4_GENERAL_CI, BackendPool.KEY_CAPABILITIES);
+        this.password = password == null ? "" : password;
+        this.totalQueries = totalQueries;
+        this.intervalNanos = profile.getRate() > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / profile.getRate()) : 0;
+    }
+
+    public ChurnProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Marks the start of the run, from which the rate is paced.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        nextDue.set(startNanos);
+    }
+
+    /**
+     * One worker: opens, uses and closes connections until the test stops.
+     */
+    public void runWorker(StressSessions.Session session, StressMetrics.Worker recorder, BooleanSupplier running) {
+        session.start();
+        try (session) {
+            while (running.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+                session.pause();
+                boolean due = awaitSlot(running);
+                session.resume();
+                if (!due) {
+                    continue;
+                }
+                if (cycle(recorder)) {
+                    session.progress();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("⚠ Error in churn worker " + session.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // Waits for the next connection slot; false if the slot was skipped or the test stopped
+    private boolean awaitSlot(BooleanSupplier running) {
+        if (intervalNanos == 0) {
+            return true;
+        }
+        long due = nextDue.getAndAdd(intervalNanos);
+        if (System.nanoTime() - due > MAX_BEHIND_NANOS) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            if (!running.getAsBoolean()) return false;
+            LockSupport.parkNanos(Math.min(wait, MAX_PARK_NANOS));
+        }
+        return running.getAsBoolean();
+    }
+
+    /**
+     * Opens one connection, runs the profile's queries on it and closes it; false if any of it failed.
+     */
+    boolean cycle(StressMetrics.Worker recorder) {
+        int timeout = profile.getConnectTimeoutMillis();
+        long began = System.nanoTime();
+        Socket socket;
+        try {
+            socket = BackendConnection.connect(target.host(), target.port(), timeout);
+        } catch (IOException e) {
+            connectFailures.incrementAndGet();
+            fail(recorder, Operation.CONNECT, e.getMessage(), "08001", 0);
+            return false;
+        }
+        long connected = System.nanoTime();
+        recorder.record(Operation.CONNECT, null, connected - began);
+
+        BackendConnection connection;
+        try {
+            connection = BackendConnection.authenticate(socket, key, password, target.host(), target.port(), timeout);
+        } catch (IOException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            if (message.startsWith("Backend refused connection")) {
+                refusals.incrementAndGet();
+                fail(recorder, Operation.AUTHENTICATE, message, "08004", 0);
+            } else {
+                authFailures.incrementAndGet();
+                fail(recorder, Operation.AUTHENTICATE, message, "28000", 0);
+            }
+            return false;
+        }
+        long authenticated = System.nanoTime();
+        recorder.record(Operation.AUTHENTICATE, null, authenticated - connected);
+        opened.incrementAndGet();
+        peakOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+
+        boolean ok = true;
+        try {
+            for (int i = 0; i < profile.getQueriesPerConnection(); i++) {
+                Operation operation = i == 0 ? Operation.FIRST_QUERY : Operation.CHURN_QUERY;
+                long queryBegan = System.nanoTime();
+                byte[] error = connection.execute(MySQLProtocol.COM_QUERY, profile.getQuery());
+                if (error != null) {
+                    queryFailures.incrementAndGet();
+                    fail(recorder, operation, MySQLProtocol.errorMessage(error), sqlState(error), MySQLProtocol.errorCode(error));
+                    ok = false;
+                    continue;
+                }
+                recorder.record(operation, null, System.nanoTime() - queryBegan);
+                queries.incrementAndGet();
+                totalQueries.incrementAndGet();
+            }
+        } catch (IOException e) {
+            queryFailures.incrementAndGet();
+            fail(recorder, Operation.CHURN_QUERY, e.getMessage(), "08S01", 0);
+            ok = false;
+        } finally {
+            long closing = System.nanoTime();
+            connection.close();
+            recorder.record(Operation.DISCONNECT, null, System.nanoTime() - closing);
+            open.decrementAndGet();
+            closed.incrementAndGet();
+        }
+        return ok;
+    }
+
+    private void fail(StressMetrics.Worker recorder, Operation operation, String message, String sqlState, int code) {
+        lastError = operation.getLabel() + ": " + message;
+        recorder.error(operation, null, new SQLException(message, sqlState, code));
+    }
+
+    private static String sqlState(byte[] error) {
+        return error.length >= 9 && error[3] == '#' ? new String(error, 4, 5, StandardCharsets.US_ASCII) : "HY000";
+    }
+
+    /**
+     * Reads the server's connection counters over {@code control}; the first sample is the baseline.
+     */
+    public void sampleStatus(Connection control) {
+        Map<String, Long> sample = new LinkedHashMap<>();
+        try (Statement statement = control.createStatement();
+             ResultSet rows = statement.executeQuery("SHOW GLOBAL STATUS WHERE Variable_name IN ('" +
+                     String.join("', '", STATUS) + "')")) {
+            while (rows.next()) {
+                try {
+                    sample.put(rows.getString(1), Long.parseLong(rows.getString(2)));
+                } catch (NumberFormatException e) {
+                    // Not a counter
+                }
+            }
+            statusError = null;
+        } catch (SQLException e) {
+            statusError = e.getMessage();
+            return;
+        }
+        synchronized (statusLock) {
+            sample.forEach((name, value) -> {
+                statusStart.putIfAbsent(name, value);
+                statusLast.put(name, value);
+                statusPeak.merge(name, value, Math::max);
+            });
+        }
+    }
+
+    private Map<String, Object> statusReport() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (statusLock) {
+            for (String name : STATUS) {
+                Long last = statusLast.get(name);
+                if (last == null) continue;
+                Map<String, Object> counter = new LinkedHashMap<>();
+                counter.put("start", statusStart.get(name));
+                counter.put("last", last);
+                counter.put("delta", last - statusStart.get(name));
+                counter.put("peak", statusPeak.get(name));
+                status.put(name, counter);
+            }
+        }
+        if (statusError != null) {
+            status.put("error", statusError);
+        }
+        return status;
+    }
+
+    private Long statusDelta(String name) {
+        synchronized (statusLock) {
+            Long last = statusLast.get(name);
+            return last == null ? null : last - statusStart.get(name);
+        }
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("profile", profile);
+        report.put("target", target.host() + ":" + target.port());
+        long started = startNanos;
+        double seconds = started == 0 ? 0 : (System.nanoTime() - started) / 1e9;
+        report.put("elapsedSeconds", seconds);
+        report.put("opened", opened.get());
+        report.put("openedPerSecond", seconds > 0 ? opened.get() / seconds : 0.0);
+        report.put("closed", closed.get());
+        report.put("open", open.get());
+        report.put("peakOpen", peakOpen.get());
+        report.put("queries", queries.get());
+        report.put("skippedSlots", skipped.get());
+        Map<String, Object> failures = new LinkedHashMap<>();
+        failures.put("connect", connectFailures.get());
+        failures.put("refused", refusals.get());
+        failures.put("auth", authFailures.get());
+        failures.put("query", queryFailures.get());
+        report.put("failures", failures);
+        report.put("lastError", lastError);
+        report.put("serverStatus", statusReport());
+        return report;
+    }
+
+    public String summary() {
+        long started = startNanos;
+        double seconds = started == 0 ? 0 : (System.nanoTime() - started) / 1e9;
+        Long threads = statusDelta("Threads_connected");
+        Long aborted = statusDelta("Aborted_connects");
+        return opened.get() + " opened (" + String.format("%.1f", seconds > 0 ? opened.get() / seconds : 0.0) +
+                "/s), " + open.get() + " open | failures: connect " + connectFailures.get() + ", refused " +
+                refusals.get() + ", auth " + authFailures.get() + ", query " + queryFailures.get() +
+                (threads != null ? " | Threads_connected " + signed(threads) : "") +
+                (aborted != null ? " | Aborted_connects " + signed(aborted) : "");
+    }
+
+    private static String signed(long delta) {
+        return delta > 0 ? "+" + delta : String.valueOf(delta);
+    }
+}
@@ -51,14 +51,14 @@ public class ConnectionKillInjector {
      */
     public void killConnection(Socket dbSocket) {
         try {
-            System.out.println("💣 [DB Resilience Test] Forcibly closing database socket connection.");
+            ProxyLog.FAULTS.info("💣 [DB Resilience Test] Forcibly closing database socket connection.");
             failedConnections.incrementAndGet();
             dbSocket.close();
 
             // Test database connection pool limits
             if (connectionAttempts.get() > CONNECTION_LIMIT_THRESHOLD) {
-                System.out.println("🔍 [DB Resilience Test] Testing database connection pool limits: " +
-                        failedConnections.get() + "/" + connectionAttempts.get() + " connections terminated.");
+                ProxyLog.FAULTS.info("🔍 [DB Resilience Test] Testing database connection pool limits: {}/{} connections terminated.",
+                        failedConnections.get(), connectionAttempts.get());
             }
         } catch (Exception e) {
             System.err.println("❌ [DB Resilience Test] Failed to close database socket: " + e.getMessage());
@@ -0,0 +1,141 @@
+package org.example.yasspfe.scenarios;
+
+/**
+ * Settings of the lock contention workload (see {@link ContentionWorkload}): sessions run explicit
+ * transactions on a small hot set of rows, the first {@code hotRows} keys of {@code table}, and hold their locks
+ * for {@code holdMillis} (plus up to {@code holdJitterMillis}) before committing. Transaction kinds, with
+ * relative weights:
+ * <ul>
+ *     <li>update: {@code rowsPerTransaction} single-row UPDATEs on hot rows in random order, so sessions that
+ *     lock the same rows in a different order deadlock;</li>
+ *     <li>lockingRead: the same rows read with SELECT ... FOR UPDATE first, then updated;</li>
+ *     <li>gapLock: SELECT ... FOR UPDATE of a key past the end of the table, which takes a gap lock, then an
+ *     INSERT of that key (deleted again before the commit), the pattern behind insert-intention deadlocks.</li>
+ * </ul>
+ * A {@code lockWaitTimeoutSeconds} sets the sessions' innodb_lock_wait_timeout; null keeps the server's.
+ * {@code sampleMillis} is how often performance_schema.data_lock_waits is counted, 0 never.
+ */
+public class ContentionProfile {
+
+    private String table;
+    private int hotRows = 10;
+    private int rowsPerTransaction = 2;
+    private long holdMillis = 5;
+    private long holdJitterMillis;
+    private double updateWeight = 1.0;
+    private double lockingReadWeight;
+    private double gapLockWeight;
+    private int sessions = 16;
+    private Integer lockWaitTimeoutSeconds;
+    private long sampleMillis = 1000;
+
+    /**
+     * Returns what is wrong with the settings, or null if they can run.
+     */
+    public String validate() {
+        if (hotRows <= 0) return "hotRows must be positive";
+        if (rowsPerTransaction <= 0 || rowsPerTransaction > hotRows) return "rowsPerTransaction must be between 1 and hotRows";
+        if (holdMillis < 0 || holdJitterMillis < 0) return "hold times must not be negative";
+        if (updateWeight < 0 || lockingReadWeight < 0 || gapLockWeight < 0) return "weights must not be negative";
+        if (updateWeight + lockingReadWeight + gapLockWeight <= 0) return "at least one weight must be positive";
+        if (sessions <= 0) return "sessions must be positive";
+        if (lockWaitTimeoutSeconds != null && lockWaitTimeoutSeconds <= 0) return "lockWaitTimeoutSeconds must be positive";
+        if (sampleMillis < 0) return "sampleMillis must not be negative";
+        return null;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public int getHotRows() {
+        return hotRows;
+    }
+
+    public void setHotRows(int hotRows) {
+        this.hotRows = hotRows;
+    }
+
+    public int getRowsPerTransaction() {
+        return rowsPerTransaction;
+    }
+
+    public void setRowsPerTransaction(int rowsPerTransaction) {
+        this.rowsPerTransaction = rowsPerTransaction;
+    }
+
+    public long getHoldMillis() {
+        return holdMillis;
+    }
+
+    public void setHoldMillis(long holdMillis) {
+        this.holdMillis = holdMillis;
+    }
+
+    public long getHoldJitterMillis() {
+        return holdJitterMillis;
+    }
+
+    public void setHoldJitterMillis(long holdJitterMillis) {
+        this.holdJitterMillis = holdJitterMillis;
+    }
+
+    public double getUpdateWeight() {
+        return updateWeight;
+    }
+
+    public void setUpdateWeight(double updateWeight) {
+        this.updateWeight = updateWeight;
+    }
+
+    public double getLockingReadWeight() {
+        return lockingReadWeight;
+    }
+
+    public void setLockingReadWeight(double lockingReadWeight) {
+        this.lockingReadWeight = lockingReadWeight;
+    }
+
+    public double getGapLockWeight() {
+        return gapLockWeight;
+    }
+
+    public void setGapLockWeight(double gapLockWeight) {
+        this.gapLockWeight = gapLockWeight;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(int sessions) {
+        this.sessions = sessions;
+    }
+
+    public Integer getLockWaitTimeoutSeconds() {
+        return lockWaitTimeoutSeconds;
+    }
+
+    public void setLockWaitTimeoutSeconds(Integer lockWaitTimeoutSeconds) {
+        this.lockWaitTimeoutSeconds = lockWaitTimeoutSeconds;
+    }
+
+    public long getSampleMillis() {
+        return sampleMillis;
+    }
+
+    public void setSampleMillis(long sampleMillis) {
+        this.sampleMillis = sampleMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ContentionProfile{table=" + table + ", hotRows=" + hotRows + ", rowsPerTransaction=" + rowsPerTransaction +
+                ", holdMillis=" + holdMillis + ", holdJitterMillis=" + holdJitterMillis + ", updateWeight=" + updateWeight +
+                ", lockingReadWeight=" + lockingReadWeight + ", gapLockWeight=" + gapLockWeight + ", sessions=" + sessions + '}';
+    }
+}
@@ -0,0 +1,522 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+import org.example.yasspfe.scenarios.TableMetadata.Column;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A {@link ContentionProfile} bound to one table of a stress test run, which needs a single-column integer
+ * primary key. An update writes the first text column that is not part of a key (reversing it, so two updates
+ * put it back) or, without one, sets the key to itself, which locks the row all the same.
+ * <p>
+ * Time in the statements that take row locks is counted as lock wait, per transaction kind and per hot row;
+ * on a hot set the statements themselves take microseconds, so it is mostly time spent queued behind another
+ * transaction's locks. Together with the hold time and the rest of the transaction it shows where the time
+ * of a transaction goes. Deadlocks (1213, SQLState 40001) and lock wait timeouts (1205) are counted per kind.
+ * <p>
+ * A sampler counts the waits in performance_schema.data_lock_waits (information_schema.innodb_lock_waits
+ * before MySQL 8.0) every {@code sampleMillis} with one aggregate query. Its connection is one the run's pool
+ * has on top of the sessions' share, taken before the sessions start, so the sampler neither takes a connection
+ * from the contending sessions nor waits behind them for one.
+ */
+public class ContentionWorkload {
+
+    private static final String DATA_LOCK_WAITS =
+            "SELECT COUNT(*), COUNT(DISTINCT BLOCKING_ENGINE_TRANSACTION_ID) FROM performance_schema.data_lock_waits";
+    private static final String INNODB_LOCK_WAITS =
+            "SELECT COUNT(*), COUNT(DISTINCT blocking_trx_id) FROM information_schema.innodb_lock_waits";
+    // How many of the rows with the most lock wait are reported
+    private static final int HOTTEST_ROWS = 5;
+
+    enum Outcome { DEADLOCK, LOCK_WAIT_TIMEOUT, ERROR }
+
+    // One transaction kind's counts and times
+    private static final class Kind {
+        private final Operation operation;
+        private final double weight;
+        private final LongAdder committed = new LongAdder();
+        private final LongAdder deadlocks = new LongAdder();
+        private final LongAdder lockWaitTimeouts = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder transactionNanos = new LongAdder();
+        private final LongAdder lockWaitNanos = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+        // Lock wait per transaction, in microseconds
+        private final Recorder lockWaits = new Recorder(3);
+        private final Histogram lockWaitTotal = new Histogram(3);
+
+        private Kind(Operation operation, double weight) {
+            this.operation = operation;
+            this.weight = weight;
+        }
+    }
+
+    private final ContentionProfile profile;
+    private final String table;
+    private final long[] hotKeys;
+    private final long maxKey;
+    private final List<Column> insertColumns;
+    private final String updateSql;
+    private final String lockingReadSql;
+    private final String insertSql;
+    private final String deleteSql;
+    private final Kind[] kinds;
+    private final double totalWeight;
+    private final AtomicInteger totalQueries;
+
+    // Lock wait per hot row, and on the gap past the end of the table
+    private final AtomicLongArray rowWaitMicros;
+    private final AtomicLongArray rowWaits;
+    private final AtomicLong gapWaitMicros = new AtomicLong();
+    private final AtomicLong gapWaits = new AtomicLong();
+
+    // performance_schema.data_lock_waits samples
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong samplesWithWaits = new AtomicLong();
+    private final AtomicLong sampledWaits = new AtomicLong();
+    private volatile long lastWaits;
+    private volatile long peakWaits;
+    private volatile long peakBlockers;
+    private volatile String samplerState = "not started";
+
+    private ContentionWorkload(ContentionProfile profile, TableMetadata metadata, Column key, Column updated,
+                               long[] hotKeys, long maxKey, AtomicInteger totalQueries) {
+        this.profile = profile;
+        this.table = metadata.getTable();
+        this.hotKeys = hotKeys;
+        this.maxKey = maxKey;
+        this.totalQueries = totalQueries;
+        this.rowWaitMicros = new AtomicLongArray(hotKeys.length);
+        this.rowWaits = new AtomicLongArray(hotKeys.length);
+
+        String quotedTable = TableMetadata.quote(table);
+        String keyName = TableMetadata.quote(key.getName());
+        String set = updated != null
+                ? TableMetadata.quote(updated.getName()) + " = REVERSE(" + TableMetadata.quote(updated.getName()) + ")"
+                : keyName + " = " + keyName;
+        updateSql = "UPDATE " + quotedTable + " SET " + set + " WHERE " + keyName + " = ?";
+        lockingReadSql = "SELECT " + keyName + " FROM " + quotedTable + " WHERE " + keyName + " = ? FOR UPDATE";
+        deleteSql = "DELETE FROM " + quotedTable + " WHERE " + keyName + " = ?";
+
+        // The key, then every column that needs a value
+        insertColumns = new ArrayList<>();
+        insertColumns.add(key);
+        for (Column column : metadata.getColumns()) {
+            if (column != key && !column.isAutoIncrement() && !column.isNullable() && !column.hasDefault()) {
+                insertColumns.add(column);
+            }
+        }
+        StringBuilder names = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < insertColumns.size(); i++) {
+            if (i > 0) {
+                names.append(", ");
+                values.append(", ");
+            }
+            names.append(TableMetadata.quote(insertColumns.get(i).getName()));
+            values.append('?');
+        }
+        insertSql = "INSERT INTO " + quotedTable + " (" + names + ") VALUES (" + values + ")";
+
+        kinds = new Kind[]{new Kind(Operation.HOT_UPDATE, profile.getUpdateWeight()),
+                new Kind(Operation.LOCKING_READ, profile.getLockingReadWeight()),
+                new Kind(Operation.GAP_LOCK, profile.getGapLockWeight())};
+        double total = 0;
+        for (Kind kind : kinds) total += kind.weight;
+        totalWeight = total;
+    }
+
+    /**
+     * Picks the table and reads its hot rows; null, with the reason printed, if no table fits.
+     */
+    public static ContentionWorkload prepare(ContentionProfile profile, DataSource dataSource,
+                                             Map<String, TableMetadata> metadata, AtomicInteger totalQueries) throws SQLException {
+        TableMetadata chosen = null;
+        for (TableMetadata candidate : metadata.values()) {
+            if (profile.getTable() != null && !profile.getTable().equals(candidate.getTable())) continue;
+            Column key = candidate.getPrimaryKey();
+            if (key != null && key.isIntegral()) {
+                chosen = candidate;
+                break;
+            }
+        }
+        if (chosen == null) {
+            System.err.println("❌ Lock contention needs " + (profile.getTable() != null ? "table " + profile.getTable() + " with" : "a table with") +
+                    " a single-column integer primary key");
+            return null;
+        }
+        Column key = chosen.getPrimaryKey();
+        Column updated = null;
+        for (Column column : chosen.getColumns()) {
+            if (column.isText() && !column.isIndexed()) {
+                updated = column;
+                break;
+            }
+        }
+
+        String quotedTable = TableMetadata.quote(chosen.getTable());
+        String keyName = TableMetadata.quote(key.getName());
+        List<Long> keys = new ArrayList<>();
+        long maxKey;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT " + keyName + " FROM " + quotedTable +
+                    " ORDER BY " + keyName + " LIMIT " + profile.getHotRows())) {
+                while (rs.next()) keys.add(rs.getLong(1));
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT MAX(" + keyName + ") FROM " + quotedTable)) {
+                maxKey = rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+        if (keys.size() < profile.getRowsPerTransaction()) {
+            System.err.println("❌ Table " + chosen.getTable() + " has " + keys.size() + " rows, lock contention needs at least " +
+                    profile.getRowsPerTransaction() + " (seed it first)");
+            return null;
+        }
+        long[] hotKeys = new long[keys.size()];
+        for (int i = 0; i < hotKeys.length; i++) hotKeys[i] = keys.get(i);
+        return new ContentionWorkload(profile, chosen, key, updated, hotKeys, maxKey, totalQueries);
+    }
+
+    public ContentionProfile getProfile() {
+        return profile;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    private Kind nextKind(Random random) {
+        double r = random.nextDouble() * totalWeight;
+        for (Kind kind : kinds) {
+            if (kind.weight > 0 && (r -= kind.weight) < 0) return kind;
+        }
+        for (int i = kinds.length - 1; i >= 0; i--) {
+            if (kinds[i].weight > 0) return kinds[i];
+        }
+        return kinds[0];
+    }
+
+    /**
+     * {@code count} distinct indexes of hot rows, in random order.
+     */
+    static int[] pickRows(int hotRows, int count, Random random) {
+        int[] all = new int[hotRows];
+        for (int i = 0; i < hotRows; i++) all[i] = i;
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(hotRows - i);
+            int swap = all[i];
+            all[i] = all[j];
+            all[j] = swap;
+        }
+        int[] picked = new int[count];
+        System.arraycopy(all, 0, picked, 0, count);
+        return picked;
+    }
+
+    static Outcome classify(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql) {
+                if (sql.getErrorCode() == 1213 || (sql.getErrorCode() == 0 && "40001".equals(sql.getSQLState()))) {
+                    return Outcome.DEADLOCK;
+                }
+                if (sql.getErrorCode() == 1205) {
+                    return Outcome.LOCK_WAIT_TIMEOUT;
+                }
+            }
+        }
+        return Outcome.ERROR;
+    }
+
+    /**
+     * One contention session: transactions of the profile's kinds until the test stops.
+     */
+    public void runSession(StressSessions.Session session, StressMetrics.Worker recorder, BooleanSupplier running) {
+        session.start();
+        Random random = ThreadLocalRandom.current();
+        long errors = 0;
+        try (session) {
+            while (running.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+                Kind kind = nextKind(random);
+                long began = System.nanoTime();
+                long[] lockWait = new long[1];
+                try {
+                    StatementCache statements = session.acquire();
+                    Connection connection = statements.getConnection();
+                    try {
+                        connection.setAutoCommit(false);
+                        int executed = runTransaction(kind, statements, random, lockWait);
+                        long hold = hold(session, random);
+                        connection.commit();
+                        long elapsed = System.nanoTime() - began;
+                        kind.committed.increment();
+                        kind.holdNanos.add(hold);
+                        kind.transactionNanos.add(elapsed);
+                        recorder.record(kind.operation, table, elapsed);
+                        totalQueries.addAndGet(executed);
+                    } catch (SQLException | InterruptedException e) {
+                        try {
+                            connection.rollback();
+                        } catch (SQLException e2) {
+                            System.err.println("⚠ Rollback error: " + e2.getMessage());
+                        }
+                        kind.transactionNanos.add(System.nanoTime() - began);
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(true);
+                        session.release();
+                    }
+                    session.progress();
+                } catch (SQLException e) {
+                    switch (classify(e)) {
+                        case DEADLOCK -> kind.deadlocks.increment();
+                        case LOCK_WAIT_TIMEOUT -> kind.lockWaitTimeouts.increment();
+                        default -> {
+                            kind.errors.increment();
+                            if (running.getAsBoolean() && errors++ % 1000 == 0) {
+                                System.err.println("⚠ SQL Error on " + kind.operation.getLabel() + " of table " + table + " (" + errors + " errors): " + e.getMessage());
+                            }
+                        }
+                    }
+                    recorder.error(kind.operation, table, e);
+                } finally {
+                    kind.lockWaitNanos.add(lockWait[0]);
+                    kind.lockWaits.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(lockWait[0])));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("⚠ Error in contention session " + session.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // Runs the transaction's statements, adding the time of those that take locks to lockWait[0]; returns how many ran
+    private int runTransaction(Kind kind, StatementCache statements, Random random, long[] lockWait) throws SQLException {
+        if (kind.operation == Operation.GAP_LOCK) {
+            long gapKey = maxKey + 1 + random.nextInt(hotKeys.length);
+            PreparedStatement read = statements.prepare(lockingReadSql);
+            read.setLong(1, gapKey);
+            long began = System.nanoTime();
+            try {
+                try (ResultSet rs = read.executeQuery()) {
+                    while (rs.next()) {
+                        // Another session's row, deleted before it commits; locked all the same
+                    }
+                }
+                PreparedStatement insert = statements.prepare(insertSql);
+                insert.setLong(1, gapKey);
+                for (int i = 1; i < insertColumns.size(); i++) {
+                    insert.setObject(i + 1, RowGenerator.value(insertColumns.get(i), random, 16));
+                }
+                insert.executeUpdate();
+            } finally {
+                long waited = System.nanoTime() - began;
+                lockWait[0] += waited;
+                gapWaitMicros.addAndGet(TimeUnit.NANOSECONDS.toMicros(waited));
+                gapWaits.incrementAndGet();
+            }
+            // The gap stays empty for the next transaction
+            PreparedStatement delete = statements.prepare(deleteSql);
+            delete.setLong(1, gapKey);
+            delete.executeUpdate();
+            return 3;
+        }
+
+        int executed = 0;
+        for (int row : pickRows(hotKeys.length, profile.getRowsPerTransaction(), random)) {
+            long began = System.nanoTime();
+            try {
+                if (kind.operation == Operation.LOCKING_READ) {
+                    PreparedStatement read = statements.prepare(lockingReadSql);
+                    read.setLong(1, hotKeys[row]);
+                    try (ResultSet rs = read.executeQuery()) {
+                        while (rs.next()) {
+                            // The row is locked until the commit
+                        }
+                    }
+                    executed++;
+                }
+                PreparedStatement update = statements.prepare(updateSql);
+                update.setLong(1, hotKeys[row]);
+                update.executeUpdate();
+                executed++;
+            } finally {
+                long waited = System.nanoTime() - began;
+                lockWait[0] += waited;
+                rowWaitMicros.addAndGet(row, TimeUnit.NANOSECONDS.toMicros(waited));
+                rowWaits.incrementAndGet(row);
+            }
+        }
+        return executed;
+    }
+
+    // Keeps the locks for the hold time; the session waits by design meanwhile
+    private long hold(StressSessions.Session session, Random random) throws InterruptedException {
+        long millis = profile.getHoldMillis();
+        if (profile.getHoldJitterMillis() > 0) {
+            millis += (long) (random.nextDouble() * profile.getHoldJitterMillis());
+        }
+        if (millis == 0) {
+            return 0;
+        }
+        long began = System.nanoTime();
+        session.pause();
+        try {
+            Thread.sleep(millis);
+        } finally {
+            session.resume();
+        }
+        return System.nanoTime() - began;
+    }
+
+    /**
+     * Counts the lock waits the server reports, every {@code sampleMillis}, until the test stops, on
+     * {@code connection}, which it closes; null when sampling is off or no connection could be had.
+     */
+    public void sampleLockWaits(Connection connection, BooleanSupplier running) {
+        Thread.currentThread().setName("stress-lock-waits");
+        if (connection == null) {
+            samplerState = profile.getSampleMillis() == 0 ? "off" : "failed: no connection";
+            return;
+        }
+        try (connection;
+             Statement statement = connection.createStatement()) {
+            String query = DATA_LOCK_WAITS;
+            samplerState = "performance_schema.data_lock_waits";
+            try {
+                statement.executeQuery(query).close();
+            } catch (SQLException e) {
+                query = INNODB_LOCK_WAITS;
+                samplerState = "information_schema.innodb_lock_waits";
+            }
+            while (running.getAsBoolean()) {
+                Thread.sleep(profile.getSampleMillis());
+                try (ResultSet rs = statement.executeQuery(query)) {
+                    if (rs.next()) {
+                        long waits = rs.getLong(1);
+                        long blockers = rs.getLong(2);
+                        samples.incrementAndGet();
+                        sampledWaits.addAndGet(waits);
+                        if (waits > 0) samplesWithWaits.incrementAndGet();
+                        lastWaits = waits;
+                        peakWaits = Math.max(peakWaits, waits);
+                        peakBlockers = Math.max(peakBlockers, blockers);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            samplerState = "failed: " + e.getMessage();
+            if (running.getAsBoolean()) {
+                System.err.println("⚠ Lock wait sampling stopped: " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("profile", profile);
+        report.put("table", table);
+        report.put("hotKeys", hotKeys.length);
+
+        Map<String, Object> byKind = new LinkedHashMap<>();
+        for (Kind kind : kinds) {
+            if (kind.weight <= 0) continue;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("committed", kind.committed.sum());
+            stats.put("deadlocks", kind.deadlocks.sum());
+            stats.put("lockWaitTimeouts", kind.lockWaitTimeouts.sum());
+            stats.put("errors", kind.errors.sum());
+            synchronized (kind.lockWaitTotal) {
+                kind.lockWaitTotal.add(kind.lockWaits.getIntervalHistogram());
+                stats.put("lockWaitP50Millis", kind.lockWaitTotal.getValueAtPercentile(50) / 1000.0);
+                stats.put("lockWaitP99Millis", kind.lockWaitTotal.getValueAtPercentile(99) / 1000.0);
+                stats.put("lockWaitMaxMillis", kind.lockWaitTotal.getMaxValue() / 1000.0);
+            }
+            double total = kind.transactionNanos.sum();
+            // Where the time of the transactions went
+            stats.put("lockWaitShare", total > 0 ? kind.lockWaitNanos.sum() / total : 0.0);
+            stats.put("holdShare", total > 0 ? kind.holdNanos.sum() / total : 0.0);
+            byKind.put(kind.operation.getLabel(), stats);
+        }
+        report.put("transactions", byKind);
+        report.put("hottestRows", hottestRows());
+        if (gapWaits.get() > 0) {
+            report.put("gapLockWaitMillis", gapWaitMicros.get() / 1000.0);
+        }
+
+        Map<String, Object> lockWaits = new LinkedHashMap<>();
+        lockWaits.put("source", samplerState);
+        lockWaits.put("samples", samples.get());
+        lockWaits.put("samplesWithWaits", samplesWithWaits.get());
+        lockWaits.put("meanWaits", samples.get() > 0 ? (double) sampledWaits.get() / samples.get() : 0.0);
+        lockWaits.put("lastWaits", lastWaits);
+        lockWaits.put("peakWaits", peakWaits);
+        lockWaits.put("peakBlockingTransactions", peakBlockers);
+        report.put("serverLockWaits", lockWaits);
+        return report;
+    }
+
+    // The hot rows with the most lock wait, with their total wait and lock count
+    private List<Map<String, Object>> hottestRows() {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < hotKeys.length; i++) {
+            if (rowWaits.get(i) > 0) rows.add(i);
+        }
+        rows.sort((a, b) -> Long.compare(rowWaitMicros.get(b), rowWaitMicros.get(a)));
+        List<Map<String, Object>> hottest = new ArrayList<>();
+        for (int row : rows.subList(0, Math.min(HOTTEST_ROWS, rows.size()))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", hotKeys[row]);
+            entry.put("lockWaitMillis", rowWaitMicros.get(row) / 1000.0);
+            entry.put("locks", rowWaits.get(row));
+            hottest.add(entry);
+        }
+        return hottest;
+    }
+
+    public String summary() {
+        long committed = 0;
+        long deadlocks = 0;
+        long timeouts = 0;
+        long lockWait = 0;
+        long total = 0;
+        for (Kind kind : kinds) {
+            committed += kind.committed.sum();
+            deadlocks += kind.deadlocks.sum();
+            timeouts += kind.lockWaitTimeouts.sum();
+            lockWait += kind.lockWaitNanos.sum();
+            total += kind.transactionNanos.sum();
+        }
+        return committed + " committed | deadlocks: " + deadlocks + " | lock wait timeouts: " + timeouts +
+                " | lock wait " + String.format("%.0f", total > 0 ? 100.0 * lockWait / total : 0.0) +
+                "% of transaction time | server lock waits now " + lastWaits + ", peak " + peakWaits;
+    }
+
+    @Override
+    public String toString() {
+        return "lock contention on " + table + " (" + hotKeys.length + " hot rows)";
+    }
+}
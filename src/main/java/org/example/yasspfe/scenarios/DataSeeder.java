@@ -0,0 +1,563 @@
+package org.example.yasspfe.scenarios;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import org.example.yasspfe.scenarios.TableMetadata.Column;
+import org.example.yasspfe.scenarios.TableMetadata.ForeignKey;
+import org.example.yasspfe.scenarios.TableMetadata.Index;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the tables of a schema with synthetic rows (see {@link SeedProfile}) so the stress test reads more
+ * than the buffer pool holds. Rows are generated while they are sent: each table is loaded with a series of
+ * {@code LOAD DATA LOCAL INFILE} statements whose file is an InputStream producing tab-separated rows on
+ * demand, so memory stays flat however many rows are loaded.
+ * <p>
+ * Tables are loaded parents first: a table waits for the tables its foreign keys reference, and tables in a
+ * cycle load together. Up to {@code loaders} tables load at once, each on its own connection with foreign key
+ * and unique checks off. Values follow the column types (see {@link RowGenerator}), single-column integer
+ * primary and unique keys count up from the column's MAX, text ones get a per-run prefix and a row number,
+ * and foreign key columns take keys of the referenced table: the range this run loads into it, or a sample of
+ * up to {@code stress.seed.keySample} (default 10000) of its existing keys.
+ * <p>
+ * A table that fails to load does not stop the others, but the tables referencing it from later levels are
+ * skipped rather than given keys it does not have, and the run ends "completedWithErrors".
+ */
+public class DataSeeder {
+
+    private static final int KEY_SAMPLE = Integer.getInteger("stress.seed.keySample", 10_000);
+    // Rows are rendered into the stream's buffer this many bytes at a time
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final SeedProfile profile;
+    private final DataSource dataSource;
+    private final Map<String, TableMetadata> metadata;
+    private final List<List<String>> levels;
+    // Set once every table's load is planned
+    private volatile Map<String, TableLoad> loads = Map.of();
+    // Prefix of the unique text keys of this run
+    private final String salt = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong rowsLoaded = new AtomicLong();
+    private final AtomicLong bytesStreamed = new AtomicLong();
+    private volatile boolean stopped;
+    private volatile String state = "pending";
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public DataSeeder(SeedProfile profile, DataSource dataSource, Map<String, TableMetadata> metadata) {
+        this.profile = profile;
+        this.dataSource = dataSource;
+        this.metadata = metadata;
+        this.levels = levels(metadata);
+    }
+
+    /**
+     * Groups the tables into load order: every table comes after the tables it references, except within a
+     * cycle of references, whose tables share the last level. References to tables not in {@code metadata}
+     * and to the table itself are left out of the ordering.
+     */
+    public static List<List<String>> levels(Map<String, TableMetadata> metadata) {
+        Map<String, Set<String>> parents = new LinkedHashMap<>();
+        for (TableMetadata table : metadata.values()) {
+            Set<String> referenced = new LinkedHashSet<>();
+            for (ForeignKey foreignKey : table.getForeignKeys()) {
+                String parent = foreignKey.getReferencedTable();
+                if (metadata.containsKey(parent) && !parent.equals(table.getTable())) {
+                    referenced.add(parent);
+                }
+            }
+            parents.put(table.getTable(), referenced);
+        }
+
+        List<List<String>> levels = new ArrayList<>();
+        Set<String> placed = new LinkedHashSet<>();
+        while (placed.size() < parents.size()) {
+            List<String> level = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> entry : parents.entrySet()) {
+                if (!placed.contains(entry.getKey()) && placed.containsAll(entry.getValue())) {
+                    level.add(entry.getKey());
+                }
+            }
+            if (level.isEmpty()) {
+                // Only cycles are left
+                for (String table : parents.keySet()) {
+                    if (!placed.contains(table)) level.add(table);
+                }
+            }
+            placed.addAll(level);
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    /**
+     * Loads every table and returns when all are done, one failed to start or {@link #stop} was called.
+     */
+    public void run() {
+        startNanos = System.nanoTime();
+        state = "running";
+        System.out.println("🌱 [DataSeeder] Seeding " + metadata.size() + " tables in " + levels.size() + " levels with " + profile);
+
+        try {
+            try (Connection connection = dataSource.getConnection()) {
+                Map<String, Long> existing = estimateRows(connection);
+                Map<String, TableLoad> planned = new LinkedHashMap<>();
+                for (List<String> level : levels) {
+                    for (String table : level) {
+                        planned.put(table, new TableLoad(connection, metadata.get(table), levels.indexOf(level),
+                                existing.getOrDefault(table, 0L)));
+                    }
+                }
+                loads = planned;
+            }
+
+            AtomicInteger threads = new AtomicInteger();
+            ExecutorService loaders = Executors.newFixedThreadPool(profile.getLoaders(), r -> {
+                Thread thread = new Thread(r, "stress-seed-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                for (List<String> level : levels) {
+                    if (stopped) break;
+                    List<Future<?>> running = new ArrayList<>();
+                    for (String table : level) {
+                        running.add(loaders.submit(loads.get(table)::load));
+                    }
+                    for (Future<?> future : running) {
+                        future.get();
+                    }
+                }
+            } finally {
+                loaders.shutdownNow();
+            }
+            long failed = loads.values().stream().filter(load -> load.failed).count();
+            state = stopped ? "stopped" : failed > 0 ? "completedWithErrors" : "completed";
+        } catch (SQLException | ExecutionException e) {
+            state = "failed: " + e.getMessage();
+            System.err.println("❌ [DataSeeder] Seeding failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            state = "stopped";
+            Thread.currentThread().interrupt();
+        } finally {
+            endNanos = System.nanoTime();
+        }
+        System.out.println("🌱 [DataSeeder] Seeding " + state + ": " + rowsLoaded.get() + " rows, " +
+                String.format("%.1f", bytesStreamed.get() / 1e6) + " MB in " + String.format("%.1f", elapsedSeconds()) + "s");
+    }
+
+    /**
+     * Ends the load after the rows already streamed; every table keeps what it was sent.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isDone() {
+        return endNanos != 0;
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        double seconds = elapsedSeconds();
+        report.put("state", state);
+        report.put("profile", profile);
+        report.put("elapsedSeconds", seconds);
+        report.put("rowsLoaded", rowsLoaded.get());
+        report.put("failedTables", loads.values().stream().filter(load -> load.failed).count());
+        report.put("bytesStreamed", bytesStreamed.get());
+        report.put("rowsPerSecond", seconds > 0 ? rowsLoaded.get() / seconds : 0.0);
+        report.put("megabytesPerSecond", seconds > 0 ? bytesStreamed.get() / 1e6 / seconds : 0.0);
+        report.put("levels", levels);
+        List<Map<String, Object>> tables = new ArrayList<>();
+        for (TableLoad load : loads.values()) {
+            tables.add(load.report());
+        }
+        report.put("tables", tables);
+        return report;
+    }
+
+    private double elapsedSeconds() {
+        if (startNanos == 0) return 0;
+        return ((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos) / 1e9;
+    }
+
+    private Map<String, Long> estimateRows(Connection connection) {
+        Map<String, Long> rows = new HashMap<>();
+        if (!profile.isTopUp()) return rows;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT TABLE_NAME, TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = DATABASE()")) {
+            while (rs.next()) {
+                rows.put(rs.getString(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠ [DataSeeder] Row estimates not available, loading every table in full: " + e.getMessage());
+        }
+        return rows;
+    }
+
+    /**
+     * Where a foreign key's values come from: returns the referenced columns' values for row {@code row}, or
+     * null to generate them like any other column.
+     */
+    private interface KeySource {
+        Object[] pick(Random random, long row);
+    }
+
+    private final class TableLoad {
+        private final TableMetadata table;
+        private final int level;
+        private final long existing;
+        private final long rows;
+        private final List<Column> columns;
+        private final String loadSql;
+
+        // Per column: the base of an integer key counting up, or whether it is a text key taking the row number
+        private final long[] sequenceBase;
+        private final boolean[] sequential;
+        private final boolean[] uniqueText;
+        private final boolean[] hex;
+        private final List<int[]> foreignKeyColumns = new ArrayList<>();
+        private final List<KeySource> keySources = new ArrayList<>();
+
+        private final AtomicLong loaded = new AtomicLong();
+        private volatile String tableState = "pending";
+        // Failed, or skipped because a table it references failed
+        private volatile boolean failed;
+
+        TableLoad(Connection connection, TableMetadata table, int level, long existing) throws SQLException {
+            this.table = table;
+            this.level = level;
+            this.existing = existing;
+            this.rows = Math.max(0, profile.rowsFor(table.getTable()) - existing);
+            this.columns = table.getColumns();
+
+            int count = columns.size();
+            sequenceBase = new long[count];
+            sequential = new boolean[count];
+            uniqueText = new boolean[count];
+            hex = new boolean[count];
+
+            for (Index index : table.getIndexes()) {
+                if (!index.isUnique() || index.getColumns().size() != 1) continue;
+                int i = columnIndex(index.getColumns().get(0));
+                if (i < 0) continue;
+                Column column = columns.get(i);
+                if (column.isIntegral()) {
+                    sequential[i] = true;
+                    sequenceBase[i] = rows > 0 ? max(connection, column) : 0;
+                } else if (column.isText()) {
+                    uniqueText[i] = true;
+                }
+            }
+
+            StringBuilder sql = new StringBuilder("LOAD DATA LOCAL INFILE 'seed-").append(table.getTable())
+                    .append(".tsv' INTO TABLE ").append(TableMetadata.quote(table.getTable()))
+                    .append(" CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' (");
+            StringBuilder conversions = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                Column column = columns.get(i);
+                String name = TableMetadata.quote(column.getName());
+                if (i > 0) sql.append(", ");
+                boolean binary = column.getType().contains("binary") || column.getType().contains("blob");
+                boolean bit = column.getType().startsWith("bit");
+                if (binary || bit) {
+                    // Bytes travel as hex, bits as numbers; both need converting on the way in
+                    hex[i] = binary;
+                    sql.append("@v").append(i);
+                    conversions.append(conversions.length() == 0 ? " SET " : ", ").append(name)
+                            .append(binary ? " = UNHEX(@v" + i + ")" : " = CAST(@v" + i + " AS UNSIGNED)");
+                } else {
+                    sql.append(name);
+                }
+            }
+            loadSql = sql.append(')').append(conversions).toString();
+        }
+
+        private int columnIndex(String name) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).getName().equals(name)) return i;
+            }
+            return -1;
+        }
+
+        private long max(Connection connection, Column column) throws SQLException {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT MAX(" + TableMetadata.quote(column.getName()) +
+                         ") FROM " + TableMetadata.quote(table.getTable()))) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+
+        void load() {
+            if (rows == 0 || stopped) {
+                tableState = stopped ? "stopped" : "skipped";
+                return;
+            }
+            String failedParent = failedParent();
+            if (failedParent != null) {
+                failed = true;
+                tableState = "skipped: " + failedParent + " failed";
+                System.err.println("⚠ [DataSeeder] Skipping " + table.getTable() + ": " + failedParent + " failed to load");
+                return;
+            }
+            tableState = "loading";
+            System.out.println("🌱 [DataSeeder] Loading " + rows + " rows into " + table.getTable() +
+                    (existing > 0 ? " (about " + existing + " already there)" : ""));
+            try (Connection connection = dataSource.getConnection()) {
+                resolveForeignKeys(connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET SESSION foreign_key_checks = 0, unique_checks = 0");
+                    JdbcStatement infile = statement.unwrap(JdbcStatement.class);
+                    try {
+                        long next = 1;
+                        while (next <= rows && !stopped) {
+                            long count = Math.min(profile.getRowsPerLoad(), rows - next + 1);
+                            RowStream stream = new RowStream(this, next, count);
+                            infile.setLocalInfileInputStream(stream);
+                            statement.execute(loadSql);
+                            loaded.addAndGet(stream.rowsSent);
+                            rowsLoaded.addAndGet(stream.rowsSent);
+                            next += count;
+                        }
+                    } finally {
+                        infile.setLocalInfileInputStream(null);
+                        statement.execute("SET SESSION foreign_key_checks = 1, unique_checks = 1");
+                    }
+                }
+                tableState = stopped && loaded.get() < rows ? "stopped" : "loaded";
+            } catch (SQLException e) {
+                failed = true;
+                tableState = "failed: " + e.getMessage();
+                System.err.println("❌ [DataSeeder] Loading " + table.getTable() + " failed: " + e.getMessage() +
+                        (e.getMessage() != null && e.getMessage().toLowerCase(Locale.ROOT).contains("local")
+                                ? " (the server needs local_infile=ON)" : ""));
+            }
+        }
+
+        // A referenced table of an earlier level that failed; tables of the same cycle load together and do not wait
+        private String failedParent() {
+            for (ForeignKey foreignKey : table.getForeignKeys()) {
+                TableLoad parent = loads.get(foreignKey.getReferencedTable());
+                if (parent != null && parent.level < level && parent.failed) {
+                    return parent.table.getTable();
+                }
+            }
+            return null;
+        }
+
+        // Run when the table starts loading, so the referenced tables of earlier levels are done
+        private void resolveForeignKeys(Connection connection) throws SQLException {
+            for (ForeignKey foreignKey : table.getForeignKeys()) {
+                int[] indexes = new int[foreignKey.getColumns().size()];
+                boolean nullable = true;
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = columnIndex(foreignKey.getColumns().get(i));
+                    if (indexes[i] < 0) return;
+                    nullable &= columns.get(indexes[i]).isNullable();
+                }
+                KeySource source = rangeSource(foreignKey);
+                if (source == null) {
+                    List<Object[]> sample = sampleKeys(connection, foreignKey);
+                    if (!sample.isEmpty()) {
+                        source = (random, row) -> sample.get(random.nextInt(sample.size()));
+                    } else if (nullable) {
+                        Object[] nulls = new Object[indexes.length];
+                        source = (random, row) -> nulls;
+                    } else {
+                        System.err.println("⚠ [DataSeeder] " + table.getTable() + "." + foreignKey.getName() +
+                                ": no rows in " + foreignKey.getReferencedTable() + " to reference, values are made up");
+                        continue;
+                    }
+                }
+                foreignKeyColumns.add(indexes);
+                keySources.add(source);
+            }
+        }
+
+        // The keys this run loads into the referenced table, if the key references a column counting up
+        private KeySource rangeSource(ForeignKey foreignKey) {
+            if (foreignKey.getColumns().size() != 1) return null;
+            TableLoad parent = loads.get(foreignKey.getReferencedTable());
+            if (parent == null || parent.rows == 0) return null;
+            int referenced = parent.columnIndex(foreignKey.getReferencedColumns().get(0));
+            if (referenced < 0 || !parent.sequential[referenced]) return null;
+            long base = parent.sequenceBase[referenced];
+            if (parent == this) {
+                // Rows reference rows loaded before them (or themselves)
+                return (random, row) -> new Object[]{base + 1 + random.nextLong(row)};
+            }
+            long range = parent.rows;
+            return (random, row) -> new Object[]{base + 1 + random.nextLong(range)};
+        }
+
+        private List<Object[]> sampleKeys(Connection connection, ForeignKey foreignKey) throws SQLException {
+            StringBuilder names = new StringBuilder();
+            for (String column : foreignKey.getReferencedColumns()) {
+                if (names.length() > 0) names.append(", ");
+                names.append(TableMetadata.quote(column));
+            }
+            List<Object[]> sample = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT DISTINCT " + names + " FROM " +
+                    TableMetadata.quote(foreignKey.getReferencedTable()) + " LIMIT ?")) {
+                statement.setInt(1, KEY_SAMPLE);
+                try (ResultSet rs = statement.executeQuery()) {
+                    int width = foreignKey.getReferencedColumns().size();
+                    while (rs.next()) {
+                        Object[] key = new Object[width];
+                        for (int i = 0; i < width; i++) key[i] = rs.getObject(i + 1);
+                        sample.add(key);
+                    }
+                }
+            }
+            return sample;
+        }
+
+        /**
+         * Appends row {@code row} (counting from 1) as a line of tab-separated fields.
+         */
+        void appendRow(StringBuilder line, long row, Random random, Object[] values, boolean[] assigned) {
+            Arrays.fill(assigned, false);
+            for (int k = 0; k < keySources.size(); k++) {
+                Object[] key = keySources.get(k).pick(random, row);
+                int[] indexes = foreignKeyColumns.get(k);
+                for (int i = 0; i < indexes.length; i++) {
+                    values[indexes[i]] = key[i];
+                    assigned[indexes[i]] = true;
+                }
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (assigned[i]) continue;
+                Column column = columns.get(i);
+                if (sequential[i]) {
+                    values[i] = sequenceBase[i] + row;
+                } else if (uniqueText[i]) {
+                    String text = salt + Long.toString(row, 36);
+                    int length = column.getLength();
+                    values[i] = length > 0 && text.length() > length ? text.substring(text.length() - length) : text;
+                } else {
+                    values[i] = RowGenerator.value(column, random, profile.getRowSize());
+                }
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) line.append('\t');
+                appendField(line, values[i], hex[i]);
+            }
+            line.append('\n');
+        }
+
+        Map<String, Object> report() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("table", table.getTable());
+            report.put("level", level);
+            report.put("state", tableState);
+            report.put("existingRows", existing);
+            report.put("rowsToLoad", rows);
+            report.put("rowsLoaded", loaded.get());
+            return report;
+        }
+    }
+
+    static void appendField(StringBuilder line, Object value, boolean hex) {
+        if (value == null) {
+            line.append("\\N");
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            line.append(hex ? HexFormat.of().formatHex(bytes) : new String(bytes, StandardCharsets.ISO_8859_1));
+        } else if (value instanceof Boolean) {
+            line.append((Boolean) value ? '1' : '0');
+        } else {
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '\t': line.append("\\t"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\\': line.append("\\\\"); break;
+                    default: line.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * The "file" of one LOAD DATA statement: {@code count} rows from row {@code first} on, rendered a chunk at a
+     * time as the driver reads. Ends early once the seeder is stopped.
+     */
+    private final class RowStream extends InputStream {
+        private final TableLoad load;
+        private final long end;
+        private final Random random = ThreadLocalRandom.current();
+        private final StringBuilder chunk = new StringBuilder(CHUNK_BYTES + 1024);
+        private final Object[] values;
+        private final boolean[] assigned;
+        private long next;
+        private long rowsSent;
+        private byte[] buffer = new byte[0];
+        private int position;
+
+        RowStream(TableLoad load, long first, long count) {
+            this.load = load;
+            this.next = first;
+            this.end = first + count;
+            this.values = new Object[load.columns.size()];
+            this.assigned = new boolean[values.length];
+        }
+
+        private boolean fill() {
+            if (position < buffer.length) return true;
+            if (next >= end || stopped) return false;
+            chunk.setLength(0);
+            while (next < end && chunk.length() < CHUNK_BYTES) {
+                load.appendRow(chunk, next++, random, values, assigned);
+                rowsSent++;
+            }
+            buffer = chunk.toString().getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            bytesStreamed.addAndGet(buffer.length);
+            return true;
+        }
+
+        @Override
+        public int read() {
+            return fill() ? buffer[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int n = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
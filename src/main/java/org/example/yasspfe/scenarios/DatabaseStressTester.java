@@ -3,25 +3,40 @@ package org.example.yasspfe.scenarios;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import net.ttddyy.dsproxy.QueryCountHolder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 import org.example.yasspfe.entities.DatabaseConfig;
+import org.example.yasspfe.entities.WorkloadProfile;
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
 
 @Component
 public class DatabaseStressTester {
@@ -29,7 +44,6 @@ public class DatabaseStressTester {
     private String username;
     private String password;
 
-    private static final int THREAD_MULTIPLIER = 4;
     private static final int REPORT_INTERVAL = 1000;
     private static final Random RANDOM = new Random();
 
@@ -37,7 +51,132 @@ public class DatabaseStressTester {
     private final AtomicBoolean running = new AtomicBoolean(false);
     private volatile HikariDataSource dataSource;
     private volatile ExecutorService executor;
-    private final Map<String, List<String>> tableColumns = new HashMap<>();
+    private final Map<String, TableMetadata> tableMetadata = new LinkedHashMap<>();
+    private final Map<String, TableQueries> tableQueries = new HashMap<>();
+    private volatile StressMetrics metrics = new StressMetrics(List.of());
+
+    /**
+     * CLOSED: every query thread runs its next query as soon as the previous one returns, so a slow database
+     * lowers the offered load and hides its own latency (coordinated omission). OPEN: queries are issued at
+     * {@code targetQps} on a fixed schedule whatever the database does, and latency is measured from each
+     * query's intended start, so time spent waiting behind a slow query counts against the database.
+     */
+    public enum LoadMode { CLOSED, OPEN }
+
+    // Sessions the open-loop schedule is spread over, unless a session count is set
+    private static final int OPEN_LOOP_CONNECTIONS = Integer.getInteger("stress.openLoop.connections", 64);
+    // Sessions a query-log replay is spread over, unless a session count is set
+    private static final int REPLAY_SESSIONS = Integer.getInteger("stress.replay.sessions", 32);
+    private static final int DEFAULT_POOL_SIZE = 250;
+    private static final int DEFAULT_TARGET_QPS = 100;
+    // How often the server's status is sampled during a run (see ServerStatusSampler); 0 turns it off
+    private static final long SERVER_STATUS_MILLIS = Long.getLong("stress.serverStatus.intervalMillis", 5000);
+    // Longest an open-loop worker parks before checking for a new schedule
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // Session engine (see StressSessions). A null session count keeps each mode's own layout: 6 readers, a
+    // writer and a complex-query session per table, the profile's per-table concurrency, or the open-loop default
+    private volatile StressSessions.Engine engine = StressSessions.Engine.PLATFORM;
+    private volatile Integer sessionCount;
+    private volatile int poolSize = DEFAULT_POOL_SIZE;
+    private volatile StressSessions sessions;
+
+    // Adds session i of the run's layout; set by the mode's start method so a load plan can add sessions
+    private volatile IntConsumer sessionFactory;
+    private final Object sessionLock = new Object();
+    private int startedSessions;
+
+    // Staged load (see LoadPlan): the plan for the next start, and the steps measured in the current or last run
+    private volatile LoadPlan loadPlan;
+    private volatile LoadPlan runPlan;
+    private final List<LoadPlan.StepResult> planResults = new CopyOnWriteArrayList<>();
+    private volatile String planState;
+
+    // Adaptive concurrency (see ConcurrencyLimiter): the settings for the next start, and the current or last run's limiter
+    private volatile AdaptiveConcurrency adaptiveConcurrency;
+    private volatile ConcurrencyLimiter limiter;
+
+    // Settings for the next start; a run reads its mode and rate from runMode and runQps, fixed when it starts
+    // (a load plan moves runQps), so what is configured after it does not change what it does or reports
+    private volatile LoadMode loadMode = LoadMode.CLOSED;
+    private volatile int targetQps = DEFAULT_TARGET_QPS;
+    private volatile LoadMode runMode = LoadMode.CLOSED;
+    private volatile int runQps;
+
+    // When set, replaces the built-in query mix (see ProfileWorkload)
+    private volatile WorkloadProfile workloadProfile;
+
+    // When set, runs the write-heavy workload instead (see BulkWriteWorkload)
+    private volatile BulkWriteProfile bulkWriteProfile;
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private volatile long bulkStartNanos;
+
+    // When set, runs the lock contention workload instead (see ContentionWorkload)
+    private volatile ContentionProfile contentionProfile;
+    private volatile ContentionWorkload contention;
+
+    // When set, runs large streaming scans instead (see StreamingWorkload)
+    private volatile StreamingProfile streamingProfile;
+    private volatile StreamingWorkload streaming;
+
+    // When set, replays a captured workload instead (see QueryReplay)
+    private volatile ReplayProfile replayProfile;
+    private volatile QueryReplay replay;
+
+    // When set, runs a connection storm instead (see ConnectionChurn)
+    private volatile ChurnProfile churnProfile;
+    private volatile ConnectionChurn churn;
+
+    // Server-side status of the current or last run, read on a connection of its own
+    private volatile ServerStatusSampler serverStatus;
+
+    // Finished runs on disk, and what the current run will be stored with when it stops
+    private final StressRunHistory history;
+    private volatile String runLabel;
+    private volatile boolean historyEnabled;
+    private volatile boolean recordRun;
+    private volatile long runStartedMillis;
+    private volatile int runStartQueries;
+    private volatile Map<String, Object> runSettings;
+    private volatile List<String> runScenarios = List.of();
+    private volatile StressRunHistory.Series runSeries = new StressRunHistory.Series(StressRunHistory.COLUMNS);
+
+    // The current or last distributed run (see LoadCoordinator); the workers run testers of their own
+    private volatile LoadCoordinator coordinator;
+
+    // The current or last data seeding run (see DataSeeder); it has its own pool and does not overlap a test
+    private volatile DataSeeder seeder;
+
+    // Open-loop latencies in microseconds: from the intended start (response time) and the actual start (service time)
+    private final Recorder responseTimes = new Recorder(3);
+    private final Recorder serviceTimes = new Recorder(3);
+    private final Object reportLock = new Object();
+    private Histogram responseTotal = new Histogram(3);
+    private Histogram serviceTotal = new Histogram(3);
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lateStarts = new AtomicLong();
+    private volatile long loadStartNanos;
+    private volatile Schedule schedule;
+    private volatile long loadEndNanos;
+    private volatile long lastHarvestNanos;
+    private volatile double lastIntervalQps;
+
+    /**
+     * A tester that stores finished runs under {@code stress.history.dir} (default ./stress-history).
+     */
+    public DatabaseStressTester() {
+        this(new StressRunHistory(Path.of(System.getProperty("stress.history.dir", "stress-history"))));
+    }
+
+    /**
+     * @param history where finished runs are stored; null stores none (distributed workers)
+     */
+    public DatabaseStressTester(StressRunHistory history) {
+        this.history = history;
+        this.historyEnabled = history != null;
+    }
 
     public String getJdbcUrl() {
         return jdbcUrl;
@@ -63,6 +202,271 @@ public class DatabaseStressTester {
         this.password = password;
     }
 
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    public int getTargetQps() {
+        return targetQps;
+    }
+
+    /**
+     * Sets the load mode ("closed" or "open") and the open-loop target rate; null leaves a setting unchanged.
+     * Takes effect on the next start.
+     *
+     * @throws IllegalStateException while a test is running
+     */
+    public synchronized void setLoadProfile(String mode, Integer qps) {
+        requireIdle();
+        if (mode != null && !mode.isBlank()) {
+            this.loadMode = LoadMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        }
+        if (qps != null) {
+            if (qps <= 0) {
+                throw new IllegalArgumentException("targetQps must be positive");
+            }
+            this.targetQps = qps;
+        }
+    }
+
+    public StressSessions.Engine getEngine() {
+        return engine;
+    }
+
+    public Integer getSessionCount() {
+        return sessionCount;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Sets the session engine ("platform" or "virtual"), the number of simulated sessions and the connection
+     * pool size; null leaves a setting unchanged, a session count of 0 goes back to each mode's default
+     * layout. Takes effect on the next start.
+     *
+     * @throws IllegalStateException while a test is running
+     */
+    public synchronized void setSessionProfile(String engine, Integer sessions, Integer poolSize) {
+        requireIdle();
+        if (engine != null && !engine.isBlank()) {
+            this.engine = StressSessions.Engine.valueOf(engine.trim().toUpperCase(Locale.ROOT));
+        }
+        if (sessions != null) {
+            if (sessions < 0) {
+                throw new IllegalArgumentException("sessions must not be negative");
+            }
+            this.sessionCount = sessions == 0 ? null : sessions;
+        }
+        if (poolSize != null) {
+            if (poolSize <= 0) {
+                throw new IllegalArgumentException("poolSize must be positive");
+            }
+            this.poolSize = poolSize;
+        }
+    }
+
+    public BulkWriteProfile getBulkWriteProfile() {
+        return bulkWriteProfile;
+    }
+
+    /**
+     * Sets the bulk write workload for the next start; null goes back to the read mix.
+     */
+    public synchronized void setBulkWriteProfile(BulkWriteProfile bulkWriteProfile) {
+        requireIdle();
+        requireValid(bulkWriteProfile != null ? bulkWriteProfile.validate() : null);
+        this.bulkWriteProfile = bulkWriteProfile;
+    }
+
+    public LoadPlan getLoadPlan() {
+        return loadPlan;
+    }
+
+    /**
+     * Sets the load plan for the next start; null runs at a flat level.
+     */
+    public synchronized void setLoadPlan(LoadPlan loadPlan) {
+        requireIdle();
+        requireValid(loadPlan != null ? loadPlan.validate() : null);
+        this.loadPlan = loadPlan;
+    }
+
+    public AdaptiveConcurrency getAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * Sets the adaptive concurrency mode for the next start; null runs every session without a limit.
+     */
+    public synchronized void setAdaptiveConcurrency(AdaptiveConcurrency adaptiveConcurrency) {
+        requireIdle();
+        requireValid(adaptiveConcurrency != null ? adaptiveConcurrency.validate() : null);
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    public ContentionProfile getContentionProfile() {
+        return contentionProfile;
+    }
+
+    /**
+     * Sets the lock contention workload for the next start; null goes back to the built-in query mix.
+     */
+    public synchronized void setContentionProfile(ContentionProfile contentionProfile) {
+        requireIdle();
+        requireValid(contentionProfile != null ? contentionProfile.validate() : null);
+        this.contentionProfile = contentionProfile;
+    }
+
+    public StreamingProfile getStreamingProfile() {
+        return streamingProfile;
+    }
+
+    /**
+     * Sets the streaming large-result read workload for the next start; null goes back to the built-in query mix.
+     */
+    public synchronized void setStreamingProfile(StreamingProfile streamingProfile) {
+        requireIdle();
+        requireValid(streamingProfile != null ? streamingProfile.validate() : null);
+        this.streamingProfile = streamingProfile;
+    }
+
+    public ReplayProfile getReplayProfile() {
+        return replayProfile;
+    }
+
+    /**
+     * Sets the query-log replay for the next start; null goes back to the generated workloads.
+     */
+    public synchronized void setReplayProfile(ReplayProfile replayProfile) {
+        requireIdle();
+        requireValid(replayProfile != null ? replayProfile.validate() : null);
+        this.replayProfile = replayProfile;
+    }
+
+    public ChurnProfile getChurnProfile() {
+        return churnProfile;
+    }
+
+    /**
+     * Sets the connection churn for the next start; null goes back to the pooled workloads.
+     */
+    public synchronized void setChurnProfile(ChurnProfile churnProfile) {
+        requireIdle();
+        requireValid(churnProfile != null ? churnProfile.validate() : null);
+        this.churnProfile = churnProfile;
+    }
+
+    public String getRunLabel() {
+        return runLabel;
+    }
+
+    /**
+     * Sets the label the next runs are stored under in the run history, e.g. a release or a change being
+     * measured; null for none.
+     */
+    public synchronized void setRunLabel(String runLabel) {
+        requireIdle();
+        this.runLabel = runLabel;
+    }
+
+    /**
+     * The run history, or null for a tester that keeps none.
+     */
+    public StressRunHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Turns storing finished runs in the run history on or off; distributed workers leave it to the coordinator.
+     */
+    public void setHistoryEnabled(boolean historyEnabled) {
+        this.historyEnabled = historyEnabled && history != null;
+    }
+
+    StressMetrics getMetrics() {
+        return metrics;
+    }
+
+    public WorkloadProfile getWorkloadProfile() {
+        return workloadProfile;
+    }
+
+    /**
+     * Sets the workload profile for the next start; null goes back to the built-in query mix.
+     */
+    public synchronized void setWorkloadProfile(WorkloadProfile workloadProfile) {
+        requireIdle();
+        this.workloadProfile = workloadProfile;
+    }
+
+    /**
+     * Replaces every setting for the next start with those of {@code config}, as one change: what it leaves out
+     * goes back to its default (closed loop at 100 qps, platform threads, each mode's own session layout, a pool
+     * of 250, no profiles, no label), and {@code workload} replaces the workload profile. If a setting is
+     * invalid nothing changes.
+     *
+     * @return false, changing nothing, while a test is running: a run keeps the settings it started with
+     */
+    public synchronized boolean configure(DatabaseConfig config, WorkloadProfile workload) {
+        if (running.get()) {
+            return false;
+        }
+        LoadMode mode = config.getLoadMode() == null || config.getLoadMode().isBlank() ? LoadMode.CLOSED
+                : LoadMode.valueOf(config.getLoadMode().trim().toUpperCase(Locale.ROOT));
+        StressSessions.Engine sessionEngine = config.getEngine() == null || config.getEngine().isBlank()
+                ? StressSessions.Engine.PLATFORM
+                : StressSessions.Engine.valueOf(config.getEngine().trim().toUpperCase(Locale.ROOT));
+        int qps = config.getTargetQps() != null ? config.getTargetQps() : DEFAULT_TARGET_QPS;
+        int pool = config.getPoolSize() != null ? config.getPoolSize() : DEFAULT_POOL_SIZE;
+        Integer sessions = config.getSessions();
+        if (qps <= 0) {
+            throw new IllegalArgumentException("targetQps must be positive");
+        }
+        if (sessions != null && sessions < 0) {
+            throw new IllegalArgumentException("sessions must not be negative");
+        }
+        if (pool <= 0) {
+            throw new IllegalArgumentException("poolSize must be positive");
+        }
+        requireValid(config.getLoadPlan() != null ? config.getLoadPlan().validate() : null);
+        requireValid(config.getAdaptiveConcurrency() != null ? config.getAdaptiveConcurrency().validate() : null);
+        requireValid(config.getBulkWrite() != null ? config.getBulkWrite().validate() : null);
+        requireValid(config.getContention() != null ? config.getContention().validate() : null);
+        requireValid(config.getStreaming() != null ? config.getStreaming().validate() : null);
+        requireValid(config.getReplay() != null ? config.getReplay().validate() : null);
+        requireValid(config.getChurn() != null ? config.getChurn().validate() : null);
+
+        loadMode = mode;
+        targetQps = qps;
+        engine = sessionEngine;
+        sessionCount = sessions == null || sessions == 0 ? null : sessions;
+        poolSize = pool;
+        workloadProfile = workload;
+        loadPlan = config.getLoadPlan();
+        adaptiveConcurrency = config.getAdaptiveConcurrency();
+        bulkWriteProfile = config.getBulkWrite();
+        contentionProfile = config.getContention();
+        streamingProfile = config.getStreaming();
+        replayProfile = config.getReplay();
+        churnProfile = config.getChurn();
+        runLabel = config.getRunLabel();
+        return true;
+    }
+
+    private void requireIdle() {
+        if (running.get()) {
+            throw new IllegalStateException("the settings cannot change while a stress test is running");
+        }
+    }
+
+    private static void requireValid(String problem) {
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
+        }
+    }
+
     // Added overloaded method for main() usage
     public boolean startStressTest() {
         // Use configured values if they're set
@@ -78,56 +482,186 @@ public class DatabaseStressTester {
     public boolean startStressTest(DatabaseConfig config) {
         System.out.println("🔍 Proxy triggered startStressTest with config: " + config);
 
-        if (running.compareAndSet(false, true)) {
-            System.out.println("🔴 Starting Database Stress Test with dynamic config...");
+        BulkWriteProfile bulk;
+        ContentionProfile contending;
+        StreamingProfile streamingReads;
+        ReplayProfile replaying;
+        ChurnProfile churning;
+        WorkloadProfile profile;
+        LoadMode mode;
+        // Checking and claiming under the lock the setters take: the settings are fixed from here to the end of the run
+        synchronized (this) {
+            if (running.get()) {
+                System.out.println("⚠ Stress test is already running!");
+                return true;
+            }
 
             try {
-                initializeDataSource(config);
-                List<String> tables = getTables();
+                setLoadProfile(config.getLoadMode(), config.getTargetQps());
+                setSessionProfile(config.getEngine(), config.getSessions(), config.getPoolSize());
+            } catch (IllegalArgumentException e) {
+                System.err.println("❌ Invalid load profile: " + e.getMessage());
+                return false;
+            }
+
+            bulk = bulkWriteProfile;
+            if (bulk != null && (loadMode == LoadMode.OPEN || workloadProfile != null)) {
+                System.err.println("❌ Bulk writes run in closed-loop mode, without a workload profile");
+                return false;
+            }
+
+            contending = contentionProfile;
+            if (contending != null && (loadMode == LoadMode.OPEN || workloadProfile != null || bulk != null)) {
+                System.err.println("❌ Lock contention runs in closed-loop mode, without a workload profile or bulk writes");
+                return false;
+            }
+
+            streamingReads = streamingProfile;
+            if (streamingReads != null && (loadMode == LoadMode.OPEN || workloadProfile != null || bulk != null || contending != null)) {
+                System.err.println("❌ Streaming reads run in closed-loop mode, without a workload profile, bulk writes or lock contention");
+                return false;
+            }
+
+            replaying = replayProfile;
+            if (replaying != null && (loadMode == LoadMode.OPEN || workloadProfile != null || bulk != null || contending != null ||
+                    streamingReads != null || loadPlan != null || adaptiveConcurrency != null)) {
+                System.err.println("❌ Query replay keeps the captured timing: it runs in closed-loop mode, without a workload " +
+                        "profile, bulk writes, lock contention, streaming reads, a load plan or adaptive concurrency");
+                return false;
+            }
+
+            churning = churnProfile;
+            if (churning != null && (loadMode == LoadMode.OPEN || workloadProfile != null || bulk != null || contending != null ||
+                    streamingReads != null || replaying != null || loadPlan != null || adaptiveConcurrency != null)) {
+                System.err.println("❌ Connection churn paces itself with its own rate: it runs in closed-loop mode, without a " +
+                        "workload profile, bulk writes, lock contention, streaming reads, a replay, a load plan or adaptive concurrency");
+                return false;
+            }
+
+            if (adaptiveConcurrency != null && (loadMode == LoadMode.OPEN || loadPlan != null)) {
+                System.err.println("❌ Adaptive concurrency runs in closed-loop mode, without a load plan");
+                return false;
+            }
+            profile = workloadProfile;
+            mode = loadMode;
+
+            if (isSeeding()) {
+                System.err.println("❌ Cannot start stress test while data seeding is running");
+                return false;
+            }
+
+            if (isDistributedRunning()) {
+                System.err.println("❌ Cannot start stress test while a distributed test is running");
+                return false;
+            }
+
+            running.set(true);
+            runMode = mode;
+            runQps = targetQps;
+            beginRun(config);
+        }
+
+        System.out.println("🔴 Starting Database Stress Test with dynamic config...");
+
+        try {
+            initializeDataSource(config);
+            List<String> tables = loadTables();
+
+            // Connection churn runs no table queries, so it can run against an empty database
+            if (tables.isEmpty() && churning == null) {
+                System.err.println("❌ No tables found in the database!");
+                shutdownResources();
+                return false;
+            }
+
+            System.out.println("✅ Tables detected: " + tables);
+            metrics = new StressMetrics(tables);
 
-                if (tables.isEmpty()) {
-                    System.err.println("❌ No tables found in the database!");
+            ProfileWorkload workload = null;
+            if (profile != null) {
+                workload = prepareWorkload(profile);
+                if (workload == null) {
                     shutdownResources();
                     return false;
                 }
-
-                for (String table : tables) {
-                    tableColumns.put(table, getTableColumns(table));
+            }
+            BulkWriteWorkload bulkWrites = null;
+            if (bulk != null) {
+                bulkWrites = BulkWriteWorkload.prepare(bulk, dataSource, tableMetadata);
+                if (bulkWrites.getTables().isEmpty()) {
+                    System.err.println("❌ Bulk writes have no table to write to (tables need a single-column primary key)");
+                    shutdownResources();
+                    return false;
                 }
+            }
 
-                System.out.println("✅ Tables detected: " + tables);
-                int threadCount = THREAD_MULTIPLIER * Runtime.getRuntime().availableProcessors();
-                executor = Executors.newFixedThreadPool(threadCount);
-
-                // Start monitoring thread
-                executor.execute(this::monitorPerformance);
+            ContentionWorkload contentionWorkload = null;
+            if (contending != null) {
+                contentionWorkload = ContentionWorkload.prepare(contending, dataSource, tableMetadata, totalQueries);
+                if (contentionWorkload == null) {
+                    shutdownResources();
+                    return false;
+                }
+            }
 
-                // Start query threads - multiple threads per table
-                for (String table : tables) {
-                    // More threads per table
-                    for (int i = 0; i < 6; i++) {
-                        executor.execute(() -> runQueriesIndefinitely(table));
-                    }
+            StreamingWorkload streamingWorkload = null;
+            if (streamingReads != null) {
+                streamingWorkload = StreamingWorkload.prepare(streamingReads, tableMetadata, totalQueries);
+                if (streamingWorkload == null) {
+                    shutdownResources();
+                    return false;
+                }
+            }
 
-                    if (tableColumns.get(table).size() > 1) {
-                        executor.execute(() -> runWriteOperations(table));
-                    }
+            LoadPlan plan = loadPlan;
+            runPlan = plan;
+            planResults.clear();
+            bulkStartNanos = 0;
+            planState = plan != null ? "starting" : null;
+            limiter = null;
+            replay = null;
+            churn = null;
+            contention = null;
+            streaming = null;
+            if (plan != null && mode == LoadMode.OPEN) {
+                runQps = plan.levelAt(0);
+            }
 
-                    // Add index operations for stress
-                    executor.execute(() -> runComplexQueries(table));
+            if (replaying != null) {
+                if (!startReplay(replaying)) {
+                    shutdownResources();
+                    return false;
                 }
+            } else if (churning != null) {
+                if (!startChurn(churning)) {
+                    shutdownResources();
+                    return false;
+                }
+            } else if (mode == LoadMode.OPEN) {
+                startOpenLoop(tables, workload);
+            } else if (bulkWrites != null) {
+                startBulkWrites(bulkWrites, plan);
+            } else if (contentionWorkload != null) {
+                startContention(contentionWorkload, plan);
+            } else if (streamingWorkload != null) {
+                startStreaming(streamingWorkload, plan);
+            } else if (workload != null) {
+                startProfileWorkload(workload, plan);
+            } else {
+                startBuiltinSessions(tables, plan);
+            }
 
-                System.out.println("⏳ Stress test running with " + threadCount + " threads");
-                return true;
-            } catch (Exception e) {
-                System.err.println("❌ Error starting stress test: " + e.getMessage());
-                e.printStackTrace();
-                shutdownResources();
-                return false;
+            if (plan != null) {
+                IntConsumer setLevel = mode == LoadMode.OPEN ? this::setRate : this::growSessions;
+                executor.execute(() -> runLoadPlan(plan, setLevel));
             }
-        } else {
-            System.out.println("⚠ Stress test is already running!");
+            recordRun = true;
             return true;
+        } catch (Exception e) {
+            System.err.println("❌ Error starting stress test: " + e.getMessage());
+            e.printStackTrace();
+            shutdownResources();
+            return false;
         }
     }
 
@@ -141,6 +675,7 @@ public class DatabaseStressTester {
 
         // Set running to false first to signal all threads to stop
         running.set(false);
+        loadEndNanos = System.nanoTime();
         System.out.println("🛑 Stopping stress test... running flag set to: " + running.get());
 
         return shutdownResources();
@@ -149,6 +684,12 @@ public class DatabaseStressTester {
     private boolean shutdownResources() {
         boolean success = true;
 
+        // Sessions waiting for a concurrency slot see the test is stopping
+        ConcurrencyLimiter currentLimiter = limiter;
+        if (currentLimiter != null) {
+            currentLimiter.close();
+        }
+
         // Shutdown the executor service
         if (executor != null && !executor.isShutdown()) {
             try {
@@ -174,6 +715,12 @@ public class DatabaseStressTester {
             }
         }
 
+        // The server's connection counters once every churn connection is closed
+        ConnectionChurn currentChurn = churn;
+        if (currentChurn != null) {
+            sampleChurnStatus(currentChurn);
+        }
+
         if (dataSource != null && !dataSource.isClosed()) {
             try {
                 dataSource.close();
@@ -186,7 +733,16 @@ public class DatabaseStressTester {
 
         executor = null;
         dataSource = null;
-        tableColumns.clear();
+        tableMetadata.clear();
+        tableQueries.clear();
+        harvest();
+        metrics.harvest();
+        if (recordRun) {
+            recordRun = false;
+            if (historyEnabled) {
+                saveRun();
+            }
+        }
 
         // Make sure running is set to false
         running.set(false);
@@ -207,55 +763,103 @@ public class DatabaseStressTester {
         this.password = config.getPassword();
 
 
-        hikariConfig.setMinimumIdle(20);
+        // The sessions' connections, and one for each helper that holds a pooled connection for the whole run
+        int helpers = helperConnections();
+        hikariConfig.setMinimumIdle(Math.min(20, poolSize + helpers));
         hikariConfig.setIdleTimeout(30000);
         hikariConfig.setMaxLifetime(1800000);
         hikariConfig.setConnectionTimeout(10000);
-        hikariConfig.setMaximumPoolSize(250);
+        hikariConfig.setMaximumPoolSize(poolSize + helpers);
         hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
         hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
         hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+        BulkWriteProfile bulk = bulkWriteProfile;
+        if (bulk != null && bulk.isRewriteBatchedStatements()) {
+            // Lets the driver send a batch of single-row INSERTs as multi-row INSERTs
+            hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
+        ContentionProfile contending = contentionProfile;
+        if (contending != null && contending.getLockWaitTimeoutSeconds() != null) {
+            hikariConfig.setConnectionInitSql("SET SESSION innodb_lock_wait_timeout = " + contending.getLockWaitTimeoutSeconds());
+        }
+        StreamingProfile streamingReads = streamingProfile;
+        if (streamingReads != null) {
+            if (streamingReads.getMode() == StreamingProfile.FetchMode.CURSOR) {
+                // Server-side cursors: prepared statements with a fetch size read that many rows per round trip
+                hikariConfig.addDataSourceProperty("useCursorFetch", "true");
+            }
+            if (streamingReads.isViaProxy()) {
+                hikariConfig.setJdbcUrl(StreamingWorkload.route(config.getJdbcUrl(), streamingReads.getProxyAddress()));
+            }
+        }
+        if (churnProfile != null) {
+            // Connection churn only reads the schema and the server's counters over the pool
+            hikariConfig.setMinimumIdle(1);
+            hikariConfig.setMaximumPoolSize(2);
+        }
 
         dataSource = new HikariDataSource(hikariConfig);
     }
 
-    private List<String> getTables() {
-        List<String> tables = new ArrayList<>();
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet rs = statement.executeQuery("SHOW TABLES")) {
+    // Pooled connections held by something other than a session while the run lasts: the lock wait sampler
+    private int helperConnections() {
+        ContentionProfile contending = contentionProfile;
+        return contending != null && contending.getSampleMillis() > 0 ? 1 : 0;
+    }
 
-            while (rs.next()) {
-                tables.add(rs.getString(1));
+    /**
+     * Reads the schema with one INFORMATION_SCHEMA query (SHOW TABLES and DESCRIBE where that is not
+     * answered) and samples the indexed columns the queries bind their parameters from.
+     */
+    private List<String> loadTables() {
+        try (Connection connection = dataSource.getConnection()) {
+            Map<String, TableMetadata> metadata;
+            try {
+                metadata = TableMetadata.load(connection);
+            } catch (SQLException e) {
+                System.err.println("⚠ INFORMATION_SCHEMA not available (" + e.getMessage() + "), using SHOW TABLES and DESCRIBE");
+                metadata = describeTables(connection);
+            }
+            for (TableMetadata table : metadata.values()) {
+                tableMetadata.put(table.getTable(), table);
+                tableQueries.put(table.getTable(), TableQueries.prepare(connection, table));
             }
         } catch (SQLException e) {
             System.err.println("⚠ Error retrieving tables: " + e.getMessage());
         }
-        return tables;
+        return new ArrayList<>(tableMetadata.keySet());
     }
 
-    private List<String> getTableColumns(String table) {
-        List<String> columns = new ArrayList<>();
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet rs = statement.executeQuery("DESCRIBE " + table)) {
-
+    private Map<String, TableMetadata> describeTables(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW TABLES")) {
             while (rs.next()) {
-                String columnName = rs.getString("Field");
-                columns.add(columnName);
+                tables.add(rs.getString(1));
+            }
+        }
+
+        Map<String, TableMetadata> metadata = new LinkedHashMap<>();
+        for (String table : tables) {
+            try {
+                metadata.put(table, TableMetadata.describe(connection, table));
+            } catch (SQLException e) {
+                System.err.println("⚠ Error retrieving columns for table " + table + ": " + e.getMessage());
+                metadata.put(table, new TableMetadata(table, List.of(), List.of()));
             }
-        } catch (SQLException e) {
-            System.err.println("⚠ Error retrieving columns for table " + table + ": " + e.getMessage());
         }
-        return columns;
+        return metadata;
     }
 
     private void monitorPerformance() {
+        Thread.currentThread().setName("stress-monitor");
         String threadName = Thread.currentThread().getName();
         System.out.println("🔍 Performance monitor started on thread: " + threadName);
 
         int lastCount = 0;
+        long lastRows = 0;
+        long lastErrors = 0;
         long lastTime = System.currentTimeMillis();
 
         try {
@@ -276,6 +880,65 @@ public class DatabaseStressTester {
                 lastCount = currentCount;
                 lastTime = currentTime;
 
+                if (runMode == LoadMode.OPEN) {
+                    reportOpenLoop();
+                }
+
+                metrics.harvest();
+                Histogram interval = metrics.intervalLatencies();
+                long errors = metrics.errorCount();
+                runSeries.add((currentTime - runStartedMillis) / 1000.0, qps, millis(interval.getValueAtPercentile(50)),
+                        millis(interval.getValueAtPercentile(99)), millis(interval.getMaxValue()), errors - lastErrors);
+                lastErrors = errors;
+                String operations = metrics.summary();
+                if (!operations.isEmpty()) {
+                    System.out.println("📈 OPERATIONS: " + operations);
+                }
+
+                if (bulkStartNanos != 0) {
+                    long rows = rowsWritten.get();
+                    System.out.println("🧱 BULK WRITES: " + String.format("%.2f", (rows - lastRows) / timeElapsed) +
+                            " rows/sec | Total rows: " + rows);
+                    lastRows = rows;
+                }
+
+                ConcurrencyLimiter currentLimiter = limiter;
+                if (currentLimiter != null) {
+                    System.out.println("🎚 CONCURRENCY: " + currentLimiter.summary());
+                }
+
+                QueryReplay currentReplay = replay;
+                if (currentReplay != null) {
+                    System.out.println("🔁 REPLAY: " + currentReplay.summary());
+                }
+
+                ContentionWorkload currentContention = contention;
+                if (currentContention != null) {
+                    System.out.println("🔒 CONTENTION: " + currentContention.summary());
+                }
+
+                StreamingWorkload currentStreaming = streaming;
+                if (currentStreaming != null) {
+                    System.out.println("🌊 STREAMING: " + currentStreaming.summary());
+                }
+
+                ConnectionChurn currentChurn = churn;
+                if (currentChurn != null) {
+                    sampleChurnStatus(currentChurn);
+                    System.out.println("🔗 CHURN: " + currentChurn.summary());
+                }
+
+                ServerStatusSampler sampler = serverStatus;
+                if (sampler != null) {
+                    System.out.println("🖥 SERVER: " + sampler.summary());
+                }
+
+                StressSessions current = sessions;
+                if (current != null) {
+                    current.checkStarvation();
+                    System.out.println("🧵 SESSIONS: " + current.summary());
+                }
+
                 if (dataSource != null && !dataSource.isClosed()) {
                     System.out.println("🔌 CONNECTIONS: Active=" + dataSource.getHikariPoolMXBean().getActiveConnections() +
                             " | Idle=" + dataSource.getHikariPoolMXBean().getIdleConnections() +
@@ -292,63 +955,197 @@ public class DatabaseStressTester {
         System.out.println("🔍 Performance monitor terminated");
     }
 
-    private void runQueriesIndefinitely(String table) {
-        String threadName = Thread.currentThread().getName();
+    // What the run is stored with: the settings it started with and the chaos scenarios active at the start
+    private void beginRun(DatabaseConfig config) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("jdbcUrl", config.getJdbcUrl());
+        settings.put("username", config.getUsername());
+        settings.put("loadMode", loadMode.name());
+        settings.put("targetQps", targetQps);
+        settings.put("engine", engine.name());
+        settings.put("sessions", sessionCount);
+        settings.put("poolSize", poolSize);
+        settings.put("workloadProfile", workloadProfile);
+        settings.put("loadPlan", loadPlan);
+        settings.put("adaptiveConcurrency", adaptiveConcurrency);
+        settings.put("bulkWrite", bulkWriteProfile);
+        settings.put("contention", contentionProfile);
+        settings.put("streaming", streamingProfile);
+        settings.put("replay", replayProfile);
+        settings.put("churn", churnProfile);
+        runSettings = settings;
+        runScenarios = historyEnabled ? MySQLProxy.getActiveScenarios() : List.of();
+        runSeries = new StressRunHistory.Series(StressRunHistory.COLUMNS);
+        runStartQueries = totalQueries.get();
+        runStartedMillis = System.currentTimeMillis();
+        recordRun = false;
+    }
+
+    // Stores the finished run with its time series and final histograms in the run history
+    private void saveRun() {
+        long ended = System.currentTimeMillis();
+        double seconds = Math.max(0.001, (ended - runStartedMillis) / 1000.0);
+        int queries = totalQueries.get() - runStartQueries;
+
+        Map<String, Histogram> totals = metrics.totals();
+        Histogram all = new Histogram(3);
+        totals.values().forEach(all::add);
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        histograms.put(StressRunHistory.ALL, all);
+        if (runMode == LoadMode.OPEN) {
+            synchronized (reportLock) {
+                histograms.put(StressRunHistory.RESPONSE, responseTotal.copy());
+            }
+        }
+        histograms.putAll(totals);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("queries", queries);
+        summary.put("qps", queries / seconds);
+        summary.put("errors", metrics.errorCount());
+        summary.put("latency", percentiles(runMode == LoadMode.OPEN ? histograms.get(StressRunHistory.RESPONSE) : all));
+
+        Map<String, Object> report = getLoadReport();
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("label", runLabel);
+        run.put("startedAt", Instant.ofEpochMilli(runStartedMillis).toString());
+        run.put("endedAt", Instant.ofEpochMilli(ended).toString());
+        run.put("durationSeconds", seconds);
+        run.put("workload", report.get("workload"));
+        run.put("settings", runSettings);
+        run.put("activeScenarios", runScenarios);
+        run.put("summary", summary);
+        report.put("operations", metrics.snapshot());
+        run.put("report", report);
+        try {
+            long id = history.save(run, runSeries, histograms);
+            System.out.println("💾 Stress run " + id + " saved: " + queries + " queries in " +
+                    String.format("%.1f", seconds) + "s (" + String.format("%.2f", queries / seconds) + " qps)");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠ Could not save the stress run: " + e.getMessage());
+        }
+    }
+
+    // Creates the run's sessions and the executor they run on, and starts the monitor and the server sampler there
+    private void startSessions(int count) {
+        sessions = new StressSessions(engine, dataSource, poolSize, helperConnections(), count);
+        executor = sessions.getExecutor();
+        executor.execute(this::monitorPerformance);
+        serverStatus = null;
+        if (SERVER_STATUS_MILLIS > 0) {
+            ServerStatusSampler sampler = new ServerStatusSampler(jdbcUrl, username, password, SERVER_STATUS_MILLIS, totalQueries::get);
+            serverStatus = sampler;
+            executor.execute(() -> sampler.run(running::get));
+        }
+    }
+
+    // Starts the first sessions of a closed-loop run; a load plan starts at its first level and grows to its last.
+    // In adaptive concurrency mode every session starts, and the limiter decides how many have an operation in flight
+    private void startClosedLoop(int count, LoadPlan plan, IntConsumer factory) {
+        synchronized (sessionLock) {
+            startedSessions = 0;
+        }
+        sessionFactory = factory;
+        startSessions(plan != null ? Math.max(count, plan.maxLevel()) : count);
+        AdaptiveConcurrency adaptive = adaptiveConcurrency;
+        if (adaptive != null) {
+            ConcurrencyLimiter current = new ConcurrencyLimiter(adaptive, count);
+            limiter = current;
+            sessions.setLimiter(current);
+            executor.execute(() -> runConcurrencyControl(current, adaptive.getIntervalMillis()));
+        }
+        growSessions(plan != null ? plan.levelAt(0) : count);
+    }
+
+    /**
+     * Runs the adaptive concurrency controller on its own thread: once per interval the limiter looks at the
+     * latencies of the interval and moves the in-flight limit.
+     */
+    private void runConcurrencyControl(ConcurrencyLimiter current, int intervalMillis) {
+        Thread.currentThread().setName("stress-concurrency");
+        System.out.println("🎚 Adaptive concurrency: " + adaptiveConcurrency + ", starting at " + current.getLimit());
+        try {
+            while (running.get() && !Thread.currentThread().isInterrupted()) {
+                Thread.sleep(intervalMillis);
+                if (running.get()) {
+                    current.adjust();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ConcurrencyLimiter.Decision sustainable = current.getSustainable();
+        System.out.println("🎚 Adaptive concurrency finished at limit " + current.getLimit() + ". Sustainable limit: " +
+                (sustainable != null ? sustainable.getLimit() + " at " + String.format("%.2f", sustainable.getThroughput()) + " ops/sec"
+                        : "none, no interval met the p99 target"));
+    }
+
+    // Starts sessions until {@code count} are running; a closed-loop load plan's level setter
+    private void growSessions(int count) {
+        synchronized (sessionLock) {
+            try {
+                while (startedSessions < count && running.get()) {
+                    sessionFactory.accept(startedSessions++);
+                }
+            } catch (RejectedExecutionException e) {
+                // The test is stopping
+            }
+        }
+    }
+
+    /**
+     * The built-in query mix. By default each table gets 6 reader sessions, a writer and a complex-query
+     * session; with a session count set, that many sessions are dealt round-robin over the tables in the same
+     * proportions. A table without an updatable column gets a reader in place of the writer.
+     */
+    private void startBuiltinSessions(List<String> tables, LoadPlan plan) {
+        int count = sessionCount != null ? sessionCount : 8 * tables.size();
+        startClosedLoop(count, plan, i -> {
+            String table = tables.get(i % tables.size());
+            int round = i / tables.size();
+            int role = round % 8;
+            if (role == 6 && tableQueries.get(table).canWrite()) {
+                StressSessions.Session session = sessions.newSession("write-" + table + "-" + (round + 1));
+                executor.execute(() -> runWriteOperations(table, session));
+            } else if (role == 7) {
+                StressSessions.Session session = sessions.newSession("complex-" + table + "-" + (round + 1));
+                executor.execute(() -> runComplexQueries(table, session));
+            } else {
+                StressSessions.Session session = sessions.newSession("read-" + table + "-" + (round + 1));
+                executor.execute(() -> runQueriesIndefinitely(table, session));
+            }
+        });
+
+        System.out.println("⏳ Stress test running with " + startedSessions + " sessions on " + sessions.getEngine().name().toLowerCase() + " threads");
+    }
+
+    private void runQueriesIndefinitely(String table, StressSessions.Session session) {
+        session.start();
+        String threadName = session.getName();
         System.out.println("🟢 Running queries on table: " + table + " in thread: " + threadName);
 
-        List<String> columns = tableColumns.get(table);
-        if (columns == null || columns.isEmpty()) {
+        TableQueries queries = tableQueries.get(table);
+        if (queries == null || queries.getColumnCount() == 0) {
             System.err.println("⚠ No columns found for table " + table + ", skipping query thread");
+            session.close();
             return;
         }
 
-        try (Connection connection = dataSource.getConnection()) {
+        StressMetrics.Worker recorder = metrics.worker();
+        try (session) {
             // Main query loop
             while (running.get() && !Thread.currentThread().isInterrupted()) {
+                Operation operation = randomReadOperation();
                 try {
-                    // Choose a random query type from multiple options
-                    int queryType = RANDOM.nextInt(4);
-                    switch (queryType) {
-                        case 0: // Simple count
-                            try (Statement stmt = connection.createStatement();
-                                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
-                                rs.next(); // Actually read the result
-                            }
-                            break;
-
-                        case 1: // Select with limit - forces more work and less caching
-                            try (Statement stmt = connection.createStatement();
-                                 ResultSet rs = stmt.executeQuery("SELECT * FROM " + table +
-                                         " LIMIT " + RANDOM.nextInt(100) + ", 20")) {
-                                while (rs.next()) { /* Read all results */ }
-                            }
-                            break;
-
-                        case 2: // Select with random sorting if we have columns
-                            if (!columns.isEmpty()) {
-                                String column = columns.get(RANDOM.nextInt(columns.size()));
-                                String order = RANDOM.nextBoolean() ? "ASC" : "DESC";
-                                try (Statement stmt = connection.createStatement();
-                                     ResultSet rs = stmt.executeQuery("SELECT * FROM " + table +
-                                             " ORDER BY " + column + " " + order +
-                                             " LIMIT 50")) {
-                                    while (rs.next()) { /* Read all results */ }
-                                }
-                            }
-                            break;
-
-                        case 3: // Conditional select if we have columns
-                            if (columns.size() > 1) {
-                                String column = columns.get(RANDOM.nextInt(columns.size()));
-                                try (Statement stmt = connection.createStatement();
-                                     ResultSet rs = stmt.executeQuery("SELECT * FROM " + table +
-                                             " WHERE " + column + " IS NOT NULL " +
-                                             " LIMIT 30")) {
-                                    while (rs.next()) { /* Read all results */ }
-                                }
-                            }
-                            break;
+                    StatementCache statements = session.acquire();
+                    try {
+                        long began = System.nanoTime();
+                        queries.run(statements, operation, RANDOM);
+                        recorder.record(operation, table, System.nanoTime() - began);
+                    } finally {
+                        session.release();
                     }
+                    session.progress();
 
                     int count = totalQueries.incrementAndGet();
                     if (count % REPORT_INTERVAL == 0) {
@@ -362,6 +1159,7 @@ public class DatabaseStressTester {
                     }
 
                 } catch (SQLException e) {
+                    recorder.error(operation, table, e);
                     if (running.get()) {
                         System.err.println("⚠ SQL Error on table " + table + ": " + e.getMessage());
                         Thread.sleep(100); // Pause before retry on error
@@ -384,69 +1182,669 @@ public class DatabaseStressTester {
         System.out.println("🔴 Query thread TERMINATED for table: " + table);
     }
 
-    private void runComplexQueries(String table) {
-        String threadName = Thread.currentThread().getName();
+    // Choose a random query type from multiple options
+    private static Operation randomReadOperation() {
+        switch (RANDOM.nextInt(4)) {
+            case 0: return Operation.COUNT;
+            case 1: return Operation.PAGE;
+            case 2: return Operation.ORDERED;
+            default: return Operation.FILTERED;
+        }
+    }
+
+    private ProfileWorkload prepareWorkload(WorkloadProfile profile) throws SQLException {
+        ProfileWorkload workload = ProfileWorkload.prepare(profile, dataSource, tableMetadata);
+        if (workload.getTables().isEmpty()) {
+            System.err.println("❌ Workload " + profile.getName() + " has no table to run on (tables need a single-column primary key)");
+            return null;
+        }
+        System.out.println("✅ Workload prepared: " + workload);
+        return workload;
+    }
+
+    /**
+     * Runs the profile with its per-table concurrency, or with a session count set, that many sessions spread
+     * over the tables in proportion to it.
+     */
+    private void startProfileWorkload(ProfileWorkload workload, LoadPlan plan) {
+        WorkloadProfile profile = workload.getProfile();
+        List<ProfileWorkload.Table> layout = new ArrayList<>();
+        for (ProfileWorkload.Table table : workload.getTables()) {
+            for (int i = 0; i < profile.concurrencyFor(table.getName()); i++) {
+                layout.add(table);
+            }
+        }
+        int count = sessionCount != null ? sessionCount : layout.size();
+        startClosedLoop(count, plan, i -> {
+            ProfileWorkload.Table table = layout.get(i % layout.size());
+            StressSessions.Session session = sessions.newSession("workload-" + table.getName() + "-" + (i + 1));
+            executor.execute(() -> runProfileOperations(workload, table, session));
+        });
+        System.out.println("⏳ Workload " + profile.getName() + " running with " + startedSessions + " sessions");
+    }
+
+    private void startBulkWrites(BulkWriteWorkload workload, LoadPlan plan) {
+        BulkWriteProfile profile = workload.getProfile();
+        List<BulkWriteWorkload.Table> layout = new ArrayList<>();
+        for (BulkWriteWorkload.Table table : workload.getTables()) {
+            for (int i = 0; i < profile.getSessionsPerTable(); i++) {
+                layout.add(table);
+            }
+        }
+        rowsWritten.set(0);
+        bulkStartNanos = System.nanoTime();
+        int count = sessionCount != null ? sessionCount : layout.size();
+        startClosedLoop(count, plan, i -> {
+            BulkWriteWorkload.Table table = layout.get(i % layout.size());
+            StressSessions.Session session = sessions.newSession("bulk-" + table.getName() + "-" + (i + 1));
+            executor.execute(() -> runBulkWrites(workload, table, session));
+        });
+        System.out.println("⏳ Bulk writes running with " + startedSessions + " sessions: " + profile);
+    }
+
+    /**
+     * One bulk write session: transactions of {@code batchesPerCommit} batches, each timed on its own, and the
+     * commit timed as an operation of its own.
+     */
+    private void runBulkWrites(BulkWriteWorkload workload, BulkWriteWorkload.Table table, StressSessions.Session session) {
+        session.start();
+        String name = table.getName();
+        int batchesPerCommit = workload.getProfile().getBatchesPerCommit();
+        StressMetrics.Worker recorder = metrics.worker();
+        Random random = ThreadLocalRandom.current();
+        long errors = 0;
+
+        try (session) {
+            while (running.get() && !Thread.currentThread().isInterrupted()) {
+                Operation operation = Operation.COMMIT;
+                try {
+                    StatementCache statements = session.acquire();
+                    Connection connection = statements.getConnection();
+                    BulkWriteWorkload.Transaction transaction = table.begin();
+                    try {
+                        connection.setAutoCommit(false);
+                        for (int i = 0; i < batchesPerCommit; i++) {
+                            operation = workload.nextOperation(random);
+                            long began = System.nanoTime();
+                            transaction.execute(statements, operation, random);
+                            recorder.record(operation, name, System.nanoTime() - began);
+                            totalQueries.incrementAndGet();
+                        }
+                        operation = Operation.COMMIT;
+                        long began = System.nanoTime();
+                        connection.commit();
+                        recorder.record(Operation.COMMIT, name, System.nanoTime() - began);
+                        transaction.committed();
+                        rowsWritten.addAndGet(transaction.getRows());
+                    } catch (SQLException e) {
+                        try {
+                            connection.rollback();
+                        } catch (SQLException e2) {
+                            System.err.println("⚠ Rollback error: " + e2.getMessage());
+                        }
+                        transaction.rolledBack();
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(true);
+                        session.release();
+                    }
+                    session.progress();
+                } catch (SQLException e) {
+                    recorder.error(operation, name, e);
+                    if (running.get() && errors++ % REPORT_INTERVAL == 0) {
+                        System.err.println("⚠ SQL Error on " + operation.getLabel() + " of table " + name + " (" + errors + " errors): " + e.getMessage());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("⚠ Error in bulk write thread for table " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the lock contention sessions, and the sampler of the server's lock waits beside them.
+     */
+    private void startContention(ContentionWorkload workload, LoadPlan plan) {
+        contention = workload;
+        int count = sessionCount != null ? sessionCount : workload.getProfile().getSessions();
+        // The sampler's connection is the one the pool has for it (see helperConnections), taken before any session
+        // can borrow it
+        Connection samplerConnection = null;
+        if (helperConnections() > 0) {
+            try {
+                samplerConnection = dataSource.getConnection();
+            } catch (SQLException e) {
+                System.err.println("⚠ Lock wait sampling unavailable: " + e.getMessage());
+            }
+        }
+        startClosedLoop(count, plan, i -> {
+            StressSessions.Session session = sessions.newSession("contention-" + (i + 1));
+            executor.execute(() -> workload.runSession(session, metrics.worker(), running::get));
+        });
+        Connection sampling = samplerConnection;
+        executor.execute(() -> workload.sampleLockWaits(sampling, running::get));
+        System.out.println("⏳ Lock contention running with " + startedSessions + " sessions: " + workload.getProfile());
+    }
+
+    /**
+     * Runs the streaming read sessions, each holding a connection for a whole scan.
+     */
+    private void startStreaming(StreamingWorkload workload, LoadPlan plan) {
+        streaming = workload;
+        int count = sessionCount != null ? sessionCount : workload.getProfile().getSessions();
+        startClosedLoop(count, plan, i -> {
+            StressSessions.Session session = sessions.newSession("streaming-" + (i + 1));
+            executor.execute(() -> workload.runSession(session, metrics.worker(), running::get));
+        });
+        System.out.println("⏳ Streaming reads running with " + startedSessions + " sessions: " + workload.getProfile());
+    }
+
+    private void runProfileOperations(ProfileWorkload workload, ProfileWorkload.Table table, StressSessions.Session session) {
+        session.start();
+        String name = table.getName();
+        StressMetrics.Worker recorder = metrics.worker();
+        Random random = ThreadLocalRandom.current();
+        long errors = 0;
+
+        try (session) {
+            while (running.get() && !Thread.currentThread().isInterrupted()) {
+                Operation operation = workload.nextOperation(random);
+                try {
+                    StatementCache statements = session.acquire();
+                    try {
+                        long began = System.nanoTime();
+                        table.execute(statements, operation, random);
+                        recorder.record(operation, name, System.nanoTime() - began);
+                    } finally {
+                        session.release();
+                    }
+                    session.progress();
+                    totalQueries.incrementAndGet();
+                } catch (SQLException e) {
+                    recorder.error(operation, name, e);
+                    if (running.get() && errors++ % REPORT_INTERVAL == 0) {
+                        System.err.println("⚠ SQL Error on " + operation.getLabel() + " of table " + name + " (" + errors + " errors): " + e.getMessage());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("⚠ Error in workload thread for table " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the profile's log over the sessions (see {@link QueryReplay}); false if the log cannot be opened.
+     * The test stops at the end of the log unless the profile says otherwise.
+     */
+    private boolean startReplay(ReplayProfile profile) {
+        QueryReplay.LogSource source = () -> QueryLog.open(profile, jdbcUrl, username, password);
+        QueryLog first;
+        try {
+            first = source.open();
+        } catch (IOException e) {
+            System.err.println("❌ Cannot open the log to replay: " + e.getMessage());
+            return false;
+        }
+
+        int count = Math.max(1, sessionCount != null ? sessionCount : REPLAY_SESSIONS);
+        startSessions(count);
+        QueryReplay current = new QueryReplay(profile, count, totalQueries);
+        replay = current;
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            StressSessions.Session session = sessions.newSession("replay-" + (index + 1));
+            executor.execute(() -> current.runSession(index, session, metrics.worker(), running::get));
+        }
+        executor.execute(() -> current.dispatch(first, source, running::get, () -> {
+            if (profile.isStopWhenDone() && running.get()) {
+                // Not on this thread: stopping waits for the executor this thread belongs to
+                new Thread(this::stopStressTest, "stress-replay-stop").start();
+            }
+        }));
+        System.out.println("⏳ Replaying " + profile + " over " + count + " sessions");
+        return true;
+    }
+
+    /**
+     * Runs the connection storm (see {@link ConnectionChurn}) against the server of the JDBC URL, with one
+     * session per worker; false if the URL does not say where the server is.
+     */
+    private boolean startChurn(ChurnProfile profile) {
+        ConnectionChurn.Target target;
+        try {
+            target = ConnectionChurn.Target.parse(jdbcUrl);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Cannot churn connections: " + e.getMessage());
+            return false;
+        }
+
+        int count = profile.getConcurrency();
+        startSessions(count);
+        ConnectionChurn current = new ConnectionChurn(profile, target, username, password, totalQueries);
+        churn = current;
+        sampleChurnStatus(current);
+        current.start();
+        for (int i = 0; i < count; i++) {
+            StressSessions.Session session = sessions.newSession("churn-" + (i + 1));
+            executor.execute(() -> current.runWorker(session, metrics.worker(), running::get));
+        }
+        System.out.println("⏳ Churning connections to " + target.host() + ":" + target.port() + " with " + profile);
+        return true;
+    }
+
+    // Server connection counters are read over the pool, which churn runs keep at one or two connections
+    private void sampleChurnStatus(ConnectionChurn current) {
+        HikariDataSource pool = dataSource;
+        if (pool == null || pool.isClosed()) {
+            return;
+        }
+        try (Connection connection = pool.getConnection()) {
+            current.sampleStatus(connection);
+        } catch (SQLException e) {
+            System.err.println("⚠ Cannot read the server's connection counters: " + e.getMessage());
+        }
+    }
+
+    private void startOpenLoop(List<String> tables, ProfileWorkload workload) {
+        int workers = Math.max(1, sessionCount != null ? sessionCount : OPEN_LOOP_CONNECTIONS);
+        resetLoadStats();
+        startSessions(workers);
+
+        // The schedule starts once every worker is up (holding its connection, when sessions keep one), so
+        // pool warm-up is not measured as latency
+        CyclicBarrier ready = new CyclicBarrier(workers, () -> {
+            loadStartNanos = System.nanoTime();
+            lastHarvestNanos = loadStartNanos;
+            schedule = new Schedule(loadStartNanos, runQps);
+            System.out.println("⏳ Open-loop stress test running at " + runQps + " queries/sec over " + workers + " sessions");
+        });
+        for (int i = 0; i < workers; i++) {
+            int slot = i;
+            StressSessions.Session session = sessions.newSession("open-loop-" + (slot + 1));
+            executor.execute(() -> runOpenLoop(tables, workload, slot, workers, ready, session));
+        }
+    }
+
+    // The open-loop schedule: slot n is due at startNanos + n * intervalNanos
+    private static final class Schedule {
+        private final long startNanos;
+        private final double intervalNanos;
+
+        private Schedule(long startNanos, int qps) {
+            this.startNanos = startNanos;
+            this.intervalNanos = (double) TimeUnit.SECONDS.toNanos(1) / qps;
+        }
+    }
+
+    // Changes the open-loop rate: a new schedule starts now. A load plan's level setter in open-loop mode
+    private void setRate(int qps) {
+        runQps = qps;
+        if (schedule != null) {
+            schedule = new Schedule(System.nanoTime(), qps);
+        }
+    }
+
+    /**
+     * One open-loop worker. The schedule is start + n / targetQps for n = 0, 1, 2...; worker {@code slot} owns
+     * every {@code workers}-th slot of it. A worker that is behind starts its next query immediately, and its
+     * latency still counts from the slot's intended time, so a stall shows up in every query queued behind it.
+     * When the rate changes (a load plan step) every worker takes up the new schedule from its start.
+     */
+    private void runOpenLoop(List<String> tables, ProfileWorkload workload, int slot, int workers, CyclicBarrier ready,
+                             StressSessions.Session session) {
+        session.start();
+        List<ProfileWorkload.Table> workloadTables = workload == null ? List.of() : new ArrayList<>(workload.getTables());
+        Random random = ThreadLocalRandom.current();
+
+        boolean connected = true;
+        if (sessions.holdsConnections()) {
+            try {
+                session.acquire();
+            } catch (SQLException e) {
+                System.err.println("⚠ Open-loop worker " + slot + " could not get a connection: " + e.getMessage());
+                connected = false;
+            }
+        }
+        session.pause();
+        try {
+            ready.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (BrokenBarrierException e) {
+            // Another worker was interrupted while the test was stopping
+        }
+
+        StressMetrics.Worker recorder = metrics.worker();
+        try (session) {
+            if (!connected) {
+                return;
+            }
+            Schedule current = schedule;
+            long n = slot;
+            for (; running.get() && !Thread.currentThread().isInterrupted(); n += workers) {
+                if (schedule != current) {
+                    current = schedule;
+                    n = slot;
+                }
+                long intended = current.startNanos + (long) (n * current.intervalNanos);
+                long wait;
+                session.pause();
+                while ((wait = intended - System.nanoTime()) > 0 && running.get() && schedule == current) {
+                    LockSupport.parkNanos(Math.min(wait, MAX_PARK_NANOS));
+                }
+                session.resume();
+                if (!running.get() || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                if (schedule != current) {
+                    continue;
+                }
+
+                long began = System.nanoTime();
+                scheduled.incrementAndGet();
+                if (began - intended > current.intervalNanos * workers) {
+                    lateStarts.incrementAndGet();
+                }
+
+                ProfileWorkload.Table target = null;
+                String table;
+                Operation operation;
+                if (workload != null) {
+                    target = workloadTables.get((int) (n % workloadTables.size()));
+                    table = target.getName();
+                    operation = workload.nextOperation(random);
+                } else {
+                    table = tables.get((int) (n % tables.size()));
+                    operation = randomReadOperation();
+                }
+                try {
+                    StatementCache statements = session.acquire();
+                    try {
+                        if (target != null) {
+                            target.execute(statements, operation, random);
+                        } else {
+                            tableQueries.get(table).run(statements, operation, random);
+                        }
+                    } finally {
+                        session.release();
+                    }
+                    session.progress();
+                    completed.incrementAndGet();
+                    totalQueries.incrementAndGet();
+                } catch (SQLException e) {
+                    recorder.error(operation, table, e);
+                    failed.incrementAndGet();
+                    if (running.get() && failed.get() % REPORT_INTERVAL == 1) {
+                        System.err.println("⚠ SQL Error on table " + table + " (open loop, " + failed.get() + " errors): " + e.getMessage());
+                    }
+                }
+
+                long ended = System.nanoTime();
+                recorder.record(operation, table, ended - intended);
+                responseTimes.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(ended - intended)));
+                serviceTimes.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(ended - began)));
+            }
+        } catch (Exception e) {
+            System.err.println("⚠ Error in open-loop worker " + slot + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a load plan on its own thread: waits for the load to start, warms up, then holds each level for a
+     * step and measures it, until the plan says stop. The test is then stopped unless the plan says otherwise.
+     */
+    private void runLoadPlan(LoadPlan plan, IntConsumer setLevel) {
+        Thread.currentThread().setName("stress-plan");
+        System.out.println("📐 Load plan: " + plan);
+        String reason = "stopped";
+        try {
+            // The open-loop schedule starts once every worker is up
+            while (running.get() && runMode == LoadMode.OPEN && schedule == null) {
+                Thread.sleep(50);
+            }
+
+            planState = "warmup";
+            if (!holdWhileRunning(plan.getWarmupSeconds())) {
+                return;
+            }
+
+            for (int step = 0; ; step++) {
+                int level = plan.levelAt(step);
+                setLevel.accept(level);
+                planState = "step " + (step + 1) + "/" + plan.getMaxSteps() + " at " + level;
+                metrics.mark();
+                long errors = metrics.errorCount();
+                long began = System.nanoTime();
+
+                if (!holdWhileRunning(plan.getStepSeconds())) {
+                    return;
+                }
+
+                double seconds = (System.nanoTime() - began) / 1e9;
+                LoadPlan.StepResult result = plan.result(step + 1, level, seconds, metrics.mark(), metrics.errorCount() - errors);
+                planResults.add(result);
+                System.out.println("📐 LOAD PLAN " + result);
+
+                String stop = plan.stopReason(planResults);
+                if (stop != null) {
+                    reason = stop;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            planState = reason;
+        }
+
+        LoadPlan.StepResult knee = plan.knee(planResults);
+        System.out.println("📐 Load plan finished (" + reason + "). Knee point: " +
+                (knee != null ? knee : "none, no step met the SLO"));
+        if (plan.isStopWhenDone() && running.get()) {
+            // Not on this thread: stopping waits for the executor this thread belongs to
+            new Thread(this::stopStressTest, "stress-plan-stop").start();
+        }
+    }
+
+    // Sleeps while the test runs; false if it stopped first
+    private boolean holdWhileRunning(int seconds) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long left;
+        while (running.get() && (left = end - System.nanoTime()) > 0) {
+            Thread.sleep(Math.min(200, TimeUnit.NANOSECONDS.toMillis(left) + 1));
+        }
+        return running.get();
+    }
+
+    private void resetLoadStats() {
+        synchronized (reportLock) {
+            responseTimes.reset();
+            serviceTimes.reset();
+            responseTotal = new Histogram(3);
+            serviceTotal = new Histogram(3);
+            scheduled.set(0);
+            completed.set(0);
+            failed.set(0);
+            lateStarts.set(0);
+            lastIntervalQps = 0;
+            loadStartNanos = 0;
+            loadEndNanos = 0;
+            schedule = null;
+        }
+    }
+
+    // Folds the latencies recorded since the last call into the run totals
+    private void harvest() {
+        synchronized (reportLock) {
+            long now = System.nanoTime();
+            Histogram responses = responseTimes.getIntervalHistogram();
+            Histogram services = serviceTimes.getIntervalHistogram();
+            responseTotal.add(responses);
+            serviceTotal.add(services);
+            double seconds = (now - lastHarvestNanos) / 1e9;
+            if (seconds > 0) {
+                lastIntervalQps = responses.getTotalCount() / seconds;
+            }
+            lastHarvestNanos = now;
+        }
+    }
+
+    private void reportOpenLoop() {
+        harvest();
+        synchronized (reportLock) {
+            System.out.println("🎯 OPEN LOOP: target " + runQps + " qps | achieved " +
+                    String.format("%.2f", lastIntervalQps) + " qps | response p50=" +
+                    millis(responseTotal.getValueAtPercentile(50)) + "ms p99=" +
+                    millis(responseTotal.getValueAtPercentile(99)) + "ms max=" +
+                    millis(responseTotal.getMaxValue()) + "ms | service p99=" +
+                    millis(serviceTotal.getValueAtPercentile(99)) + "ms | late starts: " + lateStarts.get());
+        }
+    }
+
+    /**
+     * Rate and latency of the current (or last) run. In open-loop mode the response time percentiles are
+     * measured from each query's intended start and the achieved rate can be compared with the target.
+     */
+    public Map<String, Object> getLoadReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("running", running.get());
+        report.put("loadMode", runMode.name());
+        Map<String, Object> settings = runSettings;
+        WorkloadProfile profile = settings != null ? (WorkloadProfile) settings.get("workloadProfile") : null;
+        report.put("workload", contention != null ? "contention" : streaming != null ? "streaming" : churn != null ? "churn" : replay != null ? "replay" : profile != null ? profile.getName() : "builtin");
+        report.put("totalQueries", totalQueries.get());
+        StressSessions current = sessions;
+        if (current != null) {
+            report.put("sessions", current.report());
+        }
+        if (planState != null) {
+            report.put("plan", getPlanReport());
+        }
+        ConcurrencyLimiter currentLimiter = limiter;
+        if (currentLimiter != null) {
+            report.put("concurrency", currentLimiter.report());
+        }
+        QueryReplay currentReplay = replay;
+        if (currentReplay != null) {
+            report.put("replay", currentReplay.report());
+        }
+        ServerStatusSampler sampler = serverStatus;
+        if (sampler != null) {
+            report.put("server", sampler.report());
+        }
+        ContentionWorkload currentContention = contention;
+        if (currentContention != null) {
+            report.put("contention", currentContention.report());
+        }
+        StreamingWorkload currentStreaming = streaming;
+        if (currentStreaming != null) {
+            report.put("streaming", currentStreaming.report());
+        }
+        ConnectionChurn currentChurn = churn;
+        if (currentChurn != null) {
+            report.put("churn", currentChurn.report());
+        }
+        if (bulkStartNanos != 0) {
+            Map<String, Object> bulk = new LinkedHashMap<>();
+            long end = loadEndNanos != 0 && loadEndNanos > bulkStartNanos ? loadEndNanos : System.nanoTime();
+            double seconds = (end - bulkStartNanos) / 1e9;
+            bulk.put("profile", settings.get("bulkWrite"));
+            bulk.put("rowsWritten", rowsWritten.get());
+            bulk.put("rowsPerSecond", seconds > 0 ? rowsWritten.get() / seconds : 0.0);
+            report.put("bulkWrites", bulk);
+        }
+        if (runMode != LoadMode.OPEN) {
+            return report;
+        }
+
+        if (running.get()) {
+            harvest();
+        }
+        synchronized (reportLock) {
+            long end = loadEndNanos != 0 ? loadEndNanos : lastHarvestNanos;
+            double elapsed = loadStartNanos == 0 ? 0 : Math.max(0, end - loadStartNanos) / 1e9;
+            report.put("targetQps", runQps);
+            report.put("achievedQps", elapsed > 0 ? responseTotal.getTotalCount() / elapsed : 0.0);
+            report.put("lastIntervalQps", lastIntervalQps);
+            report.put("elapsedSeconds", elapsed);
+            report.put("scheduled", scheduled.get());
+            report.put("completed", completed.get());
+            report.put("errors", failed.get());
+            report.put("lateStarts", lateStarts.get());
+            report.put("responseTime", percentiles(responseTotal));
+            report.put("serviceTime", percentiles(serviceTotal));
+        }
+        return report;
+    }
+
+    private Map<String, Object> getPlanReport() {
+        Map<String, Object> plan = new LinkedHashMap<>();
+        plan.put("state", planState);
+        plan.put("plan", runPlan);
+        List<Map<String, Object>> steps = new ArrayList<>();
+        for (LoadPlan.StepResult result : planResults) {
+            steps.add(result.toMap());
+        }
+        plan.put("steps", steps);
+        LoadPlan.StepResult knee = runPlan != null ? runPlan.knee(planResults) : null;
+        plan.put("knee", knee != null ? knee.toMap() : null);
+        return plan;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", histogram.getTotalCount());
+        stats.put("meanMillis", histogram.getTotalCount() == 0 ? 0.0 : histogram.getMean() / 1000.0);
+        stats.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+        stats.put("p90Millis", millis(histogram.getValueAtPercentile(90)));
+        stats.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+        stats.put("p999Millis", millis(histogram.getValueAtPercentile(99.9)));
+        stats.put("maxMillis", millis(histogram.getMaxValue()));
+        return stats;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private void runComplexQueries(String table, StressSessions.Session session) {
+        session.start();
+        String threadName = session.getName();
         System.out.println("🟣 Running complex queries on table: " + table + " in thread: " + threadName);
 
-        List<String> columns = tableColumns.get(table);
-        if (columns == null || columns.isEmpty()) {
+        TableQueries queries = tableQueries.get(table);
+        if (queries == null || queries.getColumnCount() == 0) {
             System.err.println("⚠ No columns found for table " + table + ", skipping complex query thread");
+            session.close();
             return;
         }
 
-        try (Connection connection = dataSource.getConnection()) {
+        StressMetrics.Worker recorder = metrics.worker();
+        try (session) {
             // Main query loop
             while (running.get() && !Thread.currentThread().isInterrupted()) {
+                // Group by on an indexed column, an OR of two index lookups, or a prefix LIKE
+                int queryType = RANDOM.nextInt(3);
+                Operation operation = queryType == 0 ? Operation.GROUP_BY
+                        : queryType == 1 ? Operation.OR_FILTER : Operation.LIKE;
                 try {
-                    int queryType = RANDOM.nextInt(3);
-
-                    try (Statement stmt = connection.createStatement()) {
-                        switch (queryType) {
-                            case 0:
-                                // Group by query
-                                String groupColumn = columns.get(RANDOM.nextInt(columns.size()));
-                                try (ResultSet rs = stmt.executeQuery(
-                                        "SELECT " + groupColumn + ", COUNT(*) " +
-                                                "FROM " + table + " " +
-                                                "GROUP BY " + groupColumn + " " +
-                                                "LIMIT 50")) {
-                                    while (rs.next()) { /* Read all results */ }
-                                }
-                                break;
-
-                            case 1:
-                                // Full table scan with complex WHERE clause
-                                if (columns.size() > 1) {
-                                    String col1 = columns.get(RANDOM.nextInt(columns.size()));
-                                    String col2 = columns.get(RANDOM.nextInt(columns.size()));
-                                    try (ResultSet rs = stmt.executeQuery(
-                                            "SELECT * FROM " + table + " " +
-                                                    "WHERE " + col1 + " IS NOT NULL OR " + col2 + " IS NOT NULL " +
-                                                    "LIMIT 100")) {
-                                        while (rs.next()) { /* Read all results */ }
-                                    }
-                                }
-                                break;
-
-                            case 2:
-                                // LIKE query (expensive)
-                                String col = columns.get(RANDOM.nextInt(columns.size()));
-                                try (ResultSet rs = stmt.executeQuery(
-                                        "SELECT * FROM " + table + " " +
-                                                "WHERE " + col + " LIKE '%a%' " +
-                                                "LIMIT 100")) {
-                                    while (rs.next()) { /* Read all results */ }
-                                }
-                                break;
-                        }
-
-                        totalQueries.incrementAndGet();
+                    StatementCache statements = session.acquire();
+                    try {
+                        long began = System.nanoTime();
+                        queries.run(statements, operation, RANDOM);
+                        recorder.record(operation, table, System.nanoTime() - began);
+                    } finally {
+                        session.release();
                     }
+                    session.progress();
+                    totalQueries.incrementAndGet();
 
                     // Sleep a bit longer between complex queries
                     Thread.sleep(100);
 
                 } catch (SQLException e) {
+                    recorder.error(operation, table, e);
                     if (running.get()) {
                         System.err.println("⚠ SQL Error on complex query for table " + table + ": " + e.getMessage());
                         Thread.sleep(200);
@@ -468,81 +1866,29 @@ public class DatabaseStressTester {
         System.out.println("🔴 Complex query thread TERMINATED for table: " + table);
     }
 
-    private void runWriteOperations(String table) {
-        String threadName = Thread.currentThread().getName();
+    private void runWriteOperations(String table, StressSessions.Session session) {
+        session.start();
+        String threadName = session.getName();
         System.out.println("📝 Running write operations on table: " + table + " in thread: " + threadName);
 
-        List<String> columns = tableColumns.get(table);
-        if (columns == null || columns.size() <= 1) {
-            System.err.println("⚠ Not enough columns for write operations on table " + table + ", skipping write thread");
+        TableQueries queries = tableQueries.get(table);
+        if (queries == null || !queries.canWrite()) {
+            System.err.println("⚠ No updatable column for write operations on table " + table + ", skipping write thread");
+            session.close();
             return;
         }
 
-        try (Connection connection = dataSource.getConnection()) {
+        StressMetrics.Worker recorder = metrics.worker();
+        try (session) {
             while (running.get() && !Thread.currentThread().isInterrupted()) {
                 try {
-                    if (RANDOM.nextInt(20) == 0) { // 5% chance of write operation
-                        connection.setAutoCommit(false);
-                        try (Statement stmt = connection.createStatement()) {
-                            // First get count to see if we have rows
-                            try (ResultSet countRs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
-                                countRs.next();
-                                int count = countRs.getInt(1);
-
-                                if (count > 0) {
-                                    stmt.execute("BEGIN");
-
-                                    String updateColumn = null;
-                                    for (String col : columns) {
-                                        if (!col.equalsIgnoreCase("id") &&
-                                                !col.toLowerCase().contains("key") &&
-                                                !col.toLowerCase().contains("uuid")) {
-                                            updateColumn = col;
-                                            break;
-                                        }
-                                    }
-
-                                    if (updateColumn != null) {
-                                        int updated = stmt.executeUpdate(
-                                                "UPDATE " + table + " SET " + updateColumn + " = " + updateColumn +
-                                                        " LIMIT 1"
-                                        );
-
-                                        // Update successful - now perform some selects in the same transaction
-                                        try (ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " LIMIT 10")) {
-                                            while (rs.next()) { /* read results */ }
-                                        }
-
-                                        connection.commit();
-
-                                        // Only count as one operation since it's a transaction
-                                        totalQueries.incrementAndGet();
-                                    }
-                                }
-                            }
-                        } catch (SQLException e) {
-                            try {
-                                connection.rollback();
-                            } catch (SQLException e2) {
-                                System.err.println("⚠ Rollback error: " + e2.getMessage());
-                            }
-                            System.err.println("⚠ Write operation error on table " + table + ": " + e.getMessage());
-                        } finally {
-                            // Reset auto commit
-                            try {
-                                connection.setAutoCommit(true);
-                            } catch (SQLException e) {
-                                System.err.println("⚠ Error resetting autocommit: " + e.getMessage());
-                            }
-                        }
-                    } else {
-                        // Just do a simple select query
-                        try (Statement stmt = connection.createStatement();
-                             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " LIMIT 10")) {
-                            while (rs.next()) { /* read results */ }
-                            totalQueries.incrementAndGet();
-                        }
+                    StatementCache statements = session.acquire();
+                    try {
+                        writeOrRead(table, queries, statements, recorder);
+                    } finally {
+                        session.release();
                     }
+                    session.progress();
 
                     // Sleep a bit between write operations
                     Thread.sleep(500);
@@ -568,6 +1914,35 @@ public class DatabaseStressTester {
         System.out.println("🔴 Write thread TERMINATED for table: " + table);
     }
 
+    // One step of a write session: a write transaction 5% of the time, otherwise a page read
+    private void writeOrRead(String table, TableQueries queries, StatementCache statements,
+                             StressMetrics.Worker recorder) throws SQLException {
+        if (RANDOM.nextInt(20) == 0) { // 5% chance of write operation
+            long began = System.nanoTime();
+            try {
+                if (queries.writeTransaction(statements, RANDOM)) {
+                    recorder.record(Operation.WRITE_TRANSACTION, table, System.nanoTime() - began);
+                    // Only count as one operation since it's a transaction
+                    totalQueries.incrementAndGet();
+                }
+            } catch (SQLException e) {
+                recorder.error(Operation.WRITE_TRANSACTION, table, e);
+                System.err.println("⚠ Write operation error on table " + table + ": " + e.getMessage());
+            }
+        } else {
+            // Just do a simple select query
+            long began = System.nanoTime();
+            try {
+                queries.run(statements, Operation.PAGE, RANDOM);
+                totalQueries.incrementAndGet();
+            } catch (SQLException e) {
+                recorder.error(Operation.PAGE, table, e);
+                throw e;
+            }
+            recorder.record(Operation.PAGE, table, System.nanoTime() - began);
+        }
+    }
+
     public boolean isRunning() {
         return running.get();
     }
@@ -576,6 +1951,7 @@ public class DatabaseStressTester {
         System.out.println("💥 FORCE STOP REQUESTED!");
 
         running.set(false);
+        loadEndNanos = System.nanoTime();
 
         if (executor != null) {
             List<Runnable> tasks = executor.shutdownNow();
@@ -592,6 +1968,169 @@ public class DatabaseStressTester {
         System.out.println("💥 Force stop completed");
     }
 
+    /**
+     * Starts a distributed stress test with the configured connection and workload (see {@link LoadCoordinator}).
+     * Refused while a local test, a seeding run or another distributed test is going on.
+     */
+    public synchronized boolean startDistributedTest(DistributedProfile profile) {
+        String problem = profile.validate();
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
+        }
+        if (running.get() || isSeeding() || isDistributedRunning()) {
+            System.err.println("❌ Cannot start a distributed test while another test or seeding is running");
+            return false;
+        }
+        if (jdbcUrl == null || username == null || password == null) {
+            System.err.println("❌ Cannot start a distributed test: database connection details not configured");
+            return false;
+        }
+
+        DatabaseConfig plan = new DatabaseConfig(jdbcUrl, username, password);
+        plan.setLoadMode(loadMode.name());
+        plan.setTargetQps(targetQps);
+        plan.setEngine(engine.name());
+        plan.setSessions(sessionCount);
+        plan.setPoolSize(poolSize);
+        plan.setWorkload(workloadProfile);
+        plan.setLoadPlan(loadPlan);
+        plan.setAdaptiveConcurrency(adaptiveConcurrency);
+        plan.setBulkWrite(bulkWriteProfile);
+        plan.setContention(contentionProfile);
+        plan.setStreaming(streamingProfile);
+        plan.setReplay(replayProfile);
+        plan.setChurn(churnProfile);
+
+        LoadCoordinator next = new LoadCoordinator(profile, plan);
+        try {
+            next.start();
+        } catch (IOException e) {
+            System.err.println("❌ Coordinator could not listen on " + profile.getBindAddress() + ":" + profile.getPort() +
+                    ": " + e.getMessage());
+            return false;
+        }
+        coordinator = next;
+        return true;
+    }
+
+    public boolean stopDistributedTest() {
+        LoadCoordinator current = coordinator;
+        if (current == null || !current.isActive()) {
+            return false;
+        }
+        current.stop();
+        return true;
+    }
+
+    /**
+     * The token remote workers need to join the current distributed run, or null if there is none.
+     */
+    public String getDistributedRunToken() {
+        LoadCoordinator current = coordinator;
+        return current != null && current.isActive() ? current.getToken() : null;
+    }
+
+    public boolean isDistributedRunning() {
+        LoadCoordinator current = coordinator;
+        return current != null && current.isActive();
+    }
+
+    public Map<String, Object> getDistributedReport() {
+        LoadCoordinator current = coordinator;
+        if (current == null) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("state", "idle");
+            return report;
+        }
+        return current.report();
+    }
+
+    /**
+     * Starts seeding the configured database in the background (see {@link DataSeeder}). Refused while a
+     * stress test or another seeding run is going on.
+     */
+    public synchronized boolean startSeeding(DatabaseConfig config, SeedProfile profile) {
+        String problem = profile.validate();
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
+        }
+        if (running.get() || isSeeding() || isDistributedRunning()) {
+            System.err.println("❌ Cannot start seeding while a stress test or another seeding run is going on");
+            return false;
+        }
+
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(config.getJdbcUrl());
+        hikariConfig.setUsername(config.getUsername());
+        hikariConfig.setPassword(config.getPassword());
+        hikariConfig.setMaximumPoolSize(profile.getLoaders() + 1);
+        hikariConfig.setConnectionTimeout(10000);
+        // LOAD DATA LOCAL INFILE streams from an InputStream the seeder hands to the driver
+        hikariConfig.addDataSourceProperty("allowLoadLocalInfile", "true");
+        HikariDataSource seedSource = new HikariDataSource(hikariConfig);
+
+        Map<String, TableMetadata> metadata;
+        try (Connection connection = seedSource.getConnection()) {
+            metadata = TableMetadata.load(connection);
+        } catch (SQLException e) {
+            System.err.println("❌ Cannot read the schema to seed: " + e.getMessage());
+            seedSource.close();
+            return false;
+        }
+        if (metadata.isEmpty()) {
+            System.err.println("❌ No tables found in the database to seed!");
+            seedSource.close();
+            return false;
+        }
+
+        DataSeeder current = new DataSeeder(profile, seedSource, metadata);
+        seeder = current;
+        Thread thread = new Thread(() -> {
+            try {
+                current.run();
+            } finally {
+                seedSource.close();
+            }
+        }, "stress-seed");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public boolean stopSeeding() {
+        DataSeeder current = seeder;
+        if (current == null || current.isDone()) {
+            return false;
+        }
+        current.stop();
+        return true;
+    }
+
+    public boolean isSeeding() {
+        DataSeeder current = seeder;
+        return current != null && !current.isDone();
+    }
+
+    public Map<String, Object> getSeedReport() {
+        DataSeeder current = seeder;
+        return current != null ? current.report() : Map.of("state", "none");
+    }
+
+    /**
+     * Live per-operation and per-table latency percentiles and errors by SQLState of the current (or last) run.
+     */
+    public Map<String, Object> getOperationStats() {
+        StressMetrics current = metrics;
+        if (running.get()) {
+            current.harvest();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running.get());
+        stats.put("loadMode", runMode.name());
+        stats.putAll(current.snapshot());
+        return stats;
+    }
+
     public int getTotalQueries() {
         return totalQueries.get();
     }
@@ -103,7 +103,7 @@ public class DiskFaultInjector {
 
         System.arraycopy(messageBytes, 0, packet, 13, messageBytes.length);
 
-        System.out.println("🔍 [DB Resilience Test] Simulating disk error after DB execution: " + errorMessage);
+        ProxyLog.FAULTS.info("🔍 [DB Resilience Test] Simulating disk error after DB execution: {}", errorMessage);
         return packet;
     }
 
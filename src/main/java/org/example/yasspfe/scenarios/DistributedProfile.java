@@ -0,0 +1,106 @@
+package org.example.yasspfe.scenarios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Settings of a distributed stress test (see {@link LoadCoordinator}): {@code localWorkers} worker JVMs are
+ * launched on this machine and {@code remoteWorkers} more are expected to attach from other machines, started
+ * with {@code java ... LoadWorker --coordinator host:port} and the run token. The coordinator listens on
+ * {@code bindAddress}:{@code port} (0 picks a free port; bind 0.0.0.0 or a public address for remote workers) and
+ * gives up if not every worker has joined within {@code joinTimeoutMillis}. The link is not encrypted and the
+ * plan it carries holds the database credentials, so only bind beyond loopback on a network you trust.
+ * <p>
+ * {@code jvmOptions} are passed to the local workers and limited to heap, stack and garbage collector settings
+ * (-Xmx2g, -Xms512m, -Xss512k, -XX:+UseZGC, -XX:MaxRAMPercentage=75); anything else goes in the
+ * {@code stress.worker.jvmOptions} system property of the coordinator's JVM.
+ */
+public class DistributedProfile {
+
+    private static final Pattern ALLOWED_JVM_OPTION = Pattern.compile(
+            "-Xm[xs]\\d+[kKmMgG]?|-Xss\\d+[kKmM]?|-XX:[+-]Use\\w+GC|-XX:(?:Max|Min|Initial)RAMPercentage=\\d+(?:\\.\\d+)?");
+
+    private int localWorkers = 2;
+    private int remoteWorkers;
+    private String bindAddress = "127.0.0.1";
+    private int port;
+    private long joinTimeoutMillis = 30_000;
+    private List<String> jvmOptions = new ArrayList<>();
+
+    /**
+     * Returns what is wrong with the settings, or null if they can run.
+     */
+    public String validate() {
+        if (localWorkers < 0 || remoteWorkers < 0) return "worker counts must not be negative";
+        if (localWorkers + remoteWorkers == 0) return "at least one worker is needed";
+        if (bindAddress == null || bindAddress.isBlank()) return "bindAddress is required";
+        if (port < 0 || port > 65535) return "port must be between 0 and 65535";
+        if (joinTimeoutMillis <= 0) return "joinTimeoutMillis must be positive";
+        for (String option : jvmOptions) {
+            if (option == null || !ALLOWED_JVM_OPTION.matcher(option).matches()) {
+                return "jvmOption " + option + " is not allowed (heap, stack and GC settings only; set stress.worker.jvmOptions for others)";
+            }
+        }
+        return null;
+    }
+
+    public int getWorkers() {
+        return localWorkers + remoteWorkers;
+    }
+
+    public int getLocalWorkers() {
+        return localWorkers;
+    }
+
+    public void setLocalWorkers(int localWorkers) {
+        this.localWorkers = localWorkers;
+    }
+
+    public int getRemoteWorkers() {
+        return remoteWorkers;
+    }
+
+    public void setRemoteWorkers(int remoteWorkers) {
+        this.remoteWorkers = remoteWorkers;
+    }
+
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    public void setBindAddress(String bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public long getJoinTimeoutMillis() {
+        return joinTimeoutMillis;
+    }
+
+    public void setJoinTimeoutMillis(long joinTimeoutMillis) {
+        this.joinTimeoutMillis = joinTimeoutMillis;
+    }
+
+    public List<String> getJvmOptions() {
+        return jvmOptions;
+    }
+
+    public void setJvmOptions(List<String> jvmOptions) {
+        this.jvmOptions = jvmOptions != null ? jvmOptions : new ArrayList<>();
+    }
+
+    @Override
+    public String toString() {
+        return "DistributedProfile{localWorkers=" + localWorkers + ", remoteWorkers=" + remoteWorkers +
+                ", bindAddress=" + bindAddress + ", port=" + port + ", joinTimeoutMillis=" + joinTimeoutMillis +
+                ", jvmOptions=" + jvmOptions + '}';
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.yasspfe.scenarios;
+
+import java.util.Random;
+
+/**
+ * Picks which row of a table an operation touches, as an index into the table's key space of
+ * {@code itemCount} rows (the index is mapped to a primary key by the caller). The distributions are the
+ * YCSB ones:
+ * <ul>
+ *     <li>uniform: every row is equally likely;</li>
+ *     <li>zipfian: a few rows get most operations (Zipfian with constant 0.99, computed as in Gray et al.,
+ *     "Quickly Generating Billion-Record Synthetic Databases"), and the popular rows are scattered over the
+ *     key space by hashing rather than clustered at its start;</li>
+ *     <li>latest: Zipfian by recency, so the most recently inserted rows are the most popular;</li>
+ *     <li>hotspot: {@code hotOpnFraction} of the operations go uniformly to the first
+ *     {@code hotsetFraction} of the rows, the rest uniformly to the others.</li>
+ * </ul>
+ * The Zipfian constants are computed once for the item count at construction: the first
+ * {@value #ZETA_EXACT_ITEMS} terms of zeta are summed and the rest approximated, so a key space of any size costs
+ * the same. Rows inserted later are reached by "latest" (and by the others once the run is restarted).
+ */
+public final class KeyGenerator {
+
+    private static final double ZIPFIAN_CONSTANT = 0.99;
+    // Terms of zeta summed one by one before the Euler-Maclaurin approximation takes over
+    static final long ZETA_EXACT_ITEMS = 100_000;
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 1099511628211L;
+
+    private final String distribution;
+    private final long itemCount;
+    private final double hotsetFraction;
+    private final double hotOpnFraction;
+
+    // Zipfian over [0, itemCount)
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+    private final double halfPowTheta;
+
+    public KeyGenerator(String distribution, long itemCount, double hotsetFraction, double hotOpnFraction) {
+        this.distribution = distribution;
+        this.itemCount = Math.max(1, itemCount);
+        this.hotsetFraction = hotsetFraction;
+        this.hotOpnFraction = hotOpnFraction;
+
+        if ("zipfian".equals(distribution) || "latest".equals(distribution)) {
+            double theta = ZIPFIAN_CONSTANT;
+            double zeta2 = zeta(2, theta);
+            this.zetaN = zeta(this.itemCount, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / this.itemCount, 1 - theta)) / (1 - zeta2 / zetaN);
+            this.halfPowTheta = 1 + Math.pow(0.5, theta);
+        } else {
+            this.zetaN = 0;
+            this.alpha = 0;
+            this.eta = 0;
+            this.halfPowTheta = 0;
+        }
+    }
+
+    /**
+     * Returns an index in [0, currentCount). {@code currentCount} is the key space as it is now, including
+     * rows inserted since the generator was created.
+     */
+    public long next(Random random, long currentCount) {
+        long count = Math.max(1, currentCount);
+        switch (distribution) {
+            case "zipfian": {
+                long rank = zipfian(random);
+                return Long.remainderUnsigned(fnv(rank), Math.min(count, itemCount));
+            }
+            case "latest": {
+                return Math.max(0, count - 1 - zipfian(random));
+            }
+            case "hotspot": {
+                long hot = Math.max(1, (long) (count * hotsetFraction));
+                if (random.nextDouble() < hotOpnFraction || hot >= count) {
+                    return nextLong(random, hot);
+                }
+                return hot + nextLong(random, count - hot);
+            }
+            default:
+                return nextLong(random, count);
+        }
+    }
+
+    private long zipfian(Random random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) return 0;
+        if (uz < halfPowTheta) return 1;
+        return Math.min(itemCount - 1, (long) (itemCount * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    // Sum of 1/i^theta for i in [1, n]; past ZETA_EXACT_ITEMS the tail is the integral plus its first two
+    // Euler-Maclaurin corrections, which is exact to well below a part in a billion that far out
+    static double zeta(long n, double theta) {
+        long exact = Math.min(n, ZETA_EXACT_ITEMS);
+        double sum = 0;
+        for (long i = 1; i <= exact; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        if (n > exact) {
+            double from = exact;
+            double to = n;
+            sum += (Math.pow(to, 1 - theta) - Math.pow(from, 1 - theta)) / (1 - theta)
+                    + (Math.pow(to, -theta) - Math.pow(from, -theta)) / 2
+                    - theta * (Math.pow(to, -theta - 1) - Math.pow(from, -theta - 1)) / 12;
+        }
+        return sum;
+    }
+
+    private static long fnv(long value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < 8; i++) {
+            hash ^= value & 0xFF;
+            hash *= FNV_PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    private static long nextLong(Random random, long bound) {
+        return bound <= Integer.MAX_VALUE ? random.nextInt((int) bound) : (long) (random.nextDouble() * bound);
+    }
+}
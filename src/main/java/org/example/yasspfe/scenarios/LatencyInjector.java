@@ -83,16 +83,31 @@ public class LatencyInjector {
     public static long recordExecutionTiming(String query, Runnable dbExecution) {
         if (!enabled || query == null || dbExecution == null) return 0;
 
-        String queryType = getQueryType(query);
         long startTime = System.nanoTime();
         dbExecution.run();
         long duration = System.nanoTime() - startTime;
 
-        dbExecutionTimes.merge(queryType, duration, Long::sum);
-        dbExecutionCounts.merge(queryType, 1L, Long::sum);
+        recordExecutionTime(query, duration);
         return duration;
     }
 
+    /**
+     * Whether backend execution times are being collected, i.e. whether the scenario is enabled.
+     */
+    public static boolean isRecording() {
+        return enabled;
+    }
+
+    /**
+     * Records a backend execution time measured elsewhere, e.g. by the proxy between sending a command
+     * and receiving its terminal packet.
+     */
+    public static void recordExecutionTime(String query, long nanos) {
+        String queryType = getQueryType(query);
+        dbExecutionTimes.merge(queryType, nanos, Long::sum);
+        dbExecutionCounts.merge(queryType, 1L, Long::sum);
+    }
+
     public static boolean shouldSimulateTimeout() {
         return enabled && RANDOM.nextDouble() < timeoutProbability;
     }
@@ -119,7 +134,7 @@ public class LatencyInjector {
         return sb.toString();
     }
 
-    private static String getQueryType(String query) {
+    static String getQueryType(String query) {
         if (query == null || query.isBlank()) return "OTHER";
         return QUERY_PATTERNS.entrySet().stream()
                 .filter(e -> e.getKey().matcher(query).find())
@@ -0,0 +1,495 @@
+package org.example.yasspfe.scenarios;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.example.yasspfe.entities.DatabaseConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a stress test across several {@link LoadWorker} processes, on this machine and others, when one JVM runs
+ * out of client CPU before the database does. The coordinator listens on a socket, launches the local workers
+ * and waits for every worker to join, sends each its share of the plan (sessions, target rate and pool size
+ * are split between the workers; load plan levels apply to each worker), starts them together once all are
+ * ready, and merges their counters while they run and their histograms when they stop. Frames are described in
+ * {@link LoadProtocol}. Local workers log to {@code stress.worker.logDir} (default the temp directory).
+ * <p>
+ * Every run has a random token, and a worker whose HELLO does not carry it is turned away before it sees the
+ * plan, which holds the database credentials. Local workers get it in their environment ({@value #TOKEN_ENV});
+ * for remote workers the operator passes it on, from the coordinator's log or the start response, with
+ * {@code --token} or the same variable. The link itself is plain TCP: the token keeps strangers out of a run,
+ * but anyone who can watch the network between coordinator and workers can read the plan.
+ */
+public class LoadCoordinator {
+
+    private static final long READY_TIMEOUT_MILLIS = Long.getLong("stress.coordinator.readyTimeoutMillis", 60_000);
+    private static final long RESULT_TIMEOUT_MILLIS = Long.getLong("stress.coordinator.resultTimeoutMillis", 30_000);
+    private static final String WORKER_MAIN = LoadWorker.class.getName();
+    private static final String BOOT_LAUNCHER = "org.springframework.boot.loader.launch.PropertiesLauncher";
+    // How long a connection that has not said HELLO may hold up the others joining
+    private static final int HELLO_TIMEOUT_MILLIS = 5000;
+    static final String TOKEN_ENV = "STRESS_RUN_TOKEN";
+
+    private final DistributedProfile profile;
+    private final DatabaseConfig plan;
+    private final String token = newToken();
+    private final ObjectMapper mapper = new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+    private final List<Link> links = new CopyOnWriteArrayList<>();
+    private final List<Process> processes = new CopyOnWriteArrayList<>();
+    private volatile ServerSocket server;
+    private volatile Thread thread;
+    private volatile boolean stopRequested;
+    private volatile String state = "created";
+    private volatile String failure;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile Map<String, Histogram> merged = Map.of();
+
+    public LoadCoordinator(DistributedProfile profile, DatabaseConfig plan) {
+        this.profile = profile;
+        this.plan = plan;
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[24];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * The token workers must present to join this run.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    // One connected worker, and what it last reported
+    private final class Link {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private volatile String name = "?";
+        private volatile int cores;
+        private volatile String state = "joined";
+        private volatile LoadProtocol.Progress progress = new LoadProtocol.Progress(0, 0, false);
+        private volatile LoadProtocol.Result result;
+        private volatile String error;
+
+        private Link(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private synchronized void send(byte type, byte[] payload) throws IOException {
+            LoadProtocol.write(out, type, payload);
+        }
+
+        // Reads the worker's frames until its result, an error or the link closing
+        private void read() {
+            try {
+                while (true) {
+                    LoadProtocol.Frame frame = LoadProtocol.read(in);
+                    switch (frame.type()) {
+                        case LoadProtocol.READY -> state = "ready";
+                        case LoadProtocol.PROGRESS -> {
+                            progress = LoadProtocol.decodeProgress(frame.payload());
+                            if (!progress.running()) state = "finished";
+                        }
+                        case LoadProtocol.RESULT -> {
+                            result = LoadProtocol.decodeResult(frame.payload());
+                            progress = new LoadProtocol.Progress(result.queries(), result.errors(), false);
+                            state = "done";
+                            return;
+                        }
+                        case LoadProtocol.ERROR -> {
+                            error = new String(frame.payload(), StandardCharsets.UTF_8);
+                            state = "failed";
+                            return;
+                        }
+                        default -> throw new IOException("unexpected frame type " + frame.type());
+                    }
+                }
+            } catch (IOException e) {
+                if (result == null && error == null) {
+                    error = "link closed: " + e.getMessage();
+                    state = "failed";
+                }
+            }
+        }
+
+        private boolean failed() {
+            return error != null;
+        }
+
+        private Map<String, Object> report(double seconds) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("name", name);
+            report.put("address", socket.getRemoteSocketAddress().toString());
+            report.put("cores", cores);
+            report.put("state", state);
+            report.put("queries", progress.queries());
+            report.put("errors", progress.errors());
+            report.put("qps", seconds > 0 ? progress.queries() / seconds : 0.0);
+            if (error != null) report.put("error", error);
+            return report;
+        }
+    }
+
+    /**
+     * Binds the coordinator socket and starts the run in the background. Returns the port workers connect to.
+     */
+    public synchronized int start() throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(profile.getBindAddress(), profile.getPort()));
+        server = socket;
+        state = "joining";
+        Thread coordinator = new Thread(this::run, "stress-coordinator");
+        coordinator.setDaemon(true);
+        thread = coordinator;
+        coordinator.start();
+        System.out.println("🌐 Coordinator listening on " + profile.getBindAddress() + ":" + socket.getLocalPort() +
+                " for " + profile.getWorkers() + " workers");
+        if (profile.getRemoteWorkers() > 0) {
+            System.out.println("🌐 Remote workers join with --coordinator <this host>:" + socket.getLocalPort() + " --token " + token);
+        }
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Asks the workers to stop and waits for their results.
+     */
+    public void stop() {
+        stopRequested = true;
+        Thread current = thread;
+        if (current != null) {
+            try {
+                current.join(RESULT_TIMEOUT_MILLIS + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isActive() {
+        Thread current = thread;
+        return current != null && current.isAlive();
+    }
+
+    private void run() {
+        try {
+            launchLocalWorkers(server.getLocalPort());
+            if (!join()) return;
+            if (!plan()) return;
+
+            for (Link link : links) {
+                link.send(LoadProtocol.START, new byte[0]);
+            }
+            startNanos = System.nanoTime();
+            state = "running";
+            System.out.println("🌐 DISTRIBUTED: " + links.size() + " workers started");
+
+            long lastReport = System.nanoTime();
+            long lastQueries = 0;
+            while (!stopRequested && !links.stream().allMatch(link -> link.failed() || "finished".equals(link.state))) {
+                Thread.sleep(200);
+                long now = System.nanoTime();
+                if (now - lastReport >= TimeUnit.SECONDS.toNanos(5)) {
+                    long queries = queries();
+                    System.out.println("🌐 DISTRIBUTED: " + String.format("%.2f", (queries - lastQueries) / ((now - lastReport) / 1e9)) +
+                            " queries/sec | Total: " + queries + " | workers: " + summary());
+                    lastReport = now;
+                    lastQueries = queries;
+                }
+            }
+
+            state = "stopping";
+            endNanos = System.nanoTime();
+            for (Link link : links) {
+                if (!link.failed()) {
+                    try {
+                        link.send(LoadProtocol.STOP, new byte[0]);
+                    } catch (IOException e) {
+                        link.error = "stop failed: " + e.getMessage();
+                    }
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RESULT_TIMEOUT_MILLIS);
+            while (System.nanoTime() < deadline && links.stream().anyMatch(link -> link.result == null && !link.failed())) {
+                Thread.sleep(100);
+            }
+            merge();
+            state = links.stream().anyMatch(Link::failed) ? "finishedWithErrors" : "finished";
+            System.out.println("🌐 DISTRIBUTED: finished, " + queries() + " queries from " + links.size() + " workers");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail("interrupted");
+        } catch (IOException e) {
+            fail(e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    // Accepts workers until all of them have said hello, or the join timeout
+    private boolean join() throws IOException {
+        long deadline = System.currentTimeMillis() + profile.getJoinTimeoutMillis();
+        while (links.size() < profile.getWorkers()) {
+            long left = deadline - System.currentTimeMillis();
+            if (stopRequested || left <= 0) {
+                fail("only " + links.size() + " of " + profile.getWorkers() + " workers joined");
+                return false;
+            }
+            server.setSoTimeout((int) Math.min(left, 1000));
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketTimeoutException e) {
+                continue;
+            }
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) Math.max(1, Math.min(left, HELLO_TIMEOUT_MILLIS)));
+            Link link = new Link(socket);
+            try {
+                LoadProtocol.Frame hello = LoadProtocol.read(link.in);
+                if (hello.type() != LoadProtocol.HELLO) {
+                    throw new IOException("expected HELLO, got frame type " + hello.type());
+                }
+                @SuppressWarnings("unchecked")
+                Map<String, Object> details = mapper.readValue(hello.payload(), Map.class);
+                Object presented = details.get("token");
+                if (!(presented instanceof String value) || !MessageDigest.isEqual(
+                        value.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+                    try {
+                        link.send(LoadProtocol.ERROR, "wrong or missing run token".getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException ignored) {
+                        // closing anyway
+                    }
+                    throw new IOException("wrong or missing run token");
+                }
+                link.name = String.valueOf(details.getOrDefault("name", socket.getRemoteSocketAddress()));
+                link.cores = details.get("cores") instanceof Number number ? number.intValue() : 0;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("⚠ Rejected worker " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+                socket.close();
+                continue;
+            }
+            socket.setSoTimeout(0);
+            links.add(link);
+            Thread reader = new Thread(link::read, "stress-coordinator-" + link.name);
+            reader.setDaemon(true);
+            reader.start();
+            System.out.println("🌐 Worker " + link.name + " joined (" + links.size() + "/" + profile.getWorkers() + ")");
+        }
+        return true;
+    }
+
+    // Sends every worker its share of the plan and waits until all of them are ready
+    private boolean plan() throws IOException, InterruptedException {
+        Integer sessions = plan.getSessions();
+        Integer targetQps = plan.getTargetQps();
+        Integer poolSize = plan.getPoolSize();
+        int workers = links.size();
+        for (int i = 0; i < workers; i++) {
+            if (sessions != null) plan.setSessions(LoadProtocol.share(sessions, workers, i));
+            if (targetQps != null) plan.setTargetQps(LoadProtocol.share(targetQps, workers, i));
+            if (poolSize != null) plan.setPoolSize(LoadProtocol.share(poolSize, workers, i));
+            links.get(i).send(LoadProtocol.PLAN, mapper.writeValueAsBytes(plan));
+        }
+        plan.setSessions(sessions);
+        plan.setTargetQps(targetQps);
+        plan.setPoolSize(poolSize);
+        state = "planning";
+
+        long deadline = System.currentTimeMillis() + READY_TIMEOUT_MILLIS;
+        while (!links.stream().allMatch(link -> "ready".equals(link.state))) {
+            Link failed = links.stream().filter(Link::failed).findFirst().orElse(null);
+            if (failed != null) {
+                fail("worker " + failed.name + ": " + failed.error);
+                return false;
+            }
+            if (stopRequested || System.currentTimeMillis() > deadline) {
+                fail("not every worker became ready");
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    private void launchLocalWorkers(int port) throws IOException {
+        if (profile.getLocalWorkers() == 0) return;
+        String bind = profile.getBindAddress();
+        String address = InetAddress.getByName(bind).isAnyLocalAddress() ? "127.0.0.1" : bind;
+        Path logDir = Path.of(System.getProperty("stress.worker.logDir", System.getProperty("java.io.tmpdir")));
+        Files.createDirectories(logDir);
+        for (int i = 1; i <= profile.getLocalWorkers(); i++) {
+            String name = "local-" + i;
+            List<String> command = workerCommand(profile.getJvmOptions());
+            command.addAll(List.of("--coordinator", address + ":" + port, "--name", name));
+            File log = logDir.resolve("stress-worker-" + name + ".log").toFile();
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.to(log));
+            // In the environment rather than the command line, where every local user can read it
+            builder.environment().put(TOKEN_ENV, token);
+            Process process = builder.start();
+            processes.add(process);
+            System.out.println("🌐 Launched worker " + name + " (pid " + process.pid() + "), log: " + log);
+        }
+    }
+
+    /**
+     * The command that starts a worker JVM: {@code stress.worker.command} if set, otherwise this JVM's java and
+     * class path, going through Spring Boot's launcher when the class path is the packaged jar. The options in
+     * {@code stress.worker.jvmOptions} come first, then the profile's, which {@link DistributedProfile#validate}
+     * limits to heap, stack and GC settings.
+     */
+    static List<String> workerCommand(List<String> jvmOptions) {
+        List<String> command = new ArrayList<>();
+        String override = System.getProperty("stress.worker.command");
+        if (override != null && !override.isBlank()) {
+            command.addAll(Arrays.asList(override.trim().split("\\s+")));
+            return command;
+        }
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String configured = System.getProperty("stress.worker.jvmOptions");
+        if (configured != null && !configured.isBlank()) {
+            command.addAll(Arrays.asList(configured.trim().split("\\s+")));
+        }
+        command.addAll(jvmOptions);
+        String classPath = System.getProperty("java.class.path");
+        if (classPath.endsWith(".jar") && !classPath.contains(File.pathSeparator)) {
+            command.addAll(List.of("-Dloader.main=" + WORKER_MAIN, "-cp", classPath, BOOT_LAUNCHER));
+        } else {
+            command.addAll(List.of("-cp", classPath, WORKER_MAIN));
+        }
+        return command;
+    }
+
+    private void merge() {
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        Histogram all = new Histogram(3);
+        histograms.put(StressRunHistory.ALL, all);
+        for (Link link : links) {
+            LoadProtocol.Result result = link.result;
+            if (result == null) continue;
+            result.histograms().forEach((name, histogram) -> {
+                histograms.computeIfAbsent(name, k -> new Histogram(3)).add(histogram);
+                all.add(histogram);
+            });
+        }
+        merged = histograms;
+    }
+
+    private void fail(String message) {
+        failure = message;
+        state = "failed";
+        System.err.println("❌ Distributed stress test failed: " + message);
+    }
+
+    // Closes the links and the socket, and waits for the local workers to exit
+    private void close() {
+        if (endNanos == 0) endNanos = System.nanoTime();
+        for (Link link : links) {
+            try {
+                link.socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private long queries() {
+        long queries = 0;
+        for (Link link : links) queries += link.progress.queries();
+        return queries;
+    }
+
+    private String summary() {
+        StringBuilder line = new StringBuilder();
+        for (Link link : links) {
+            if (line.length() > 0) line.append(", ");
+            line.append(link.name).append('=').append(link.progress.queries()).append(" (").append(link.state).append(')');
+        }
+        return line.toString();
+    }
+
+    /**
+     * State, per-worker counters and merged totals; latency percentiles overall and per operation once the
+     * workers' histograms are in.
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("state", state);
+        if (failure != null) report.put("failure", failure);
+        report.put("profile", profile);
+        ServerSocket socket = server;
+        report.put("port", socket != null ? socket.getLocalPort() : null);
+
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        double seconds = startNanos == 0 ? 0 : (end - startNanos) / 1e9;
+        long errors = 0;
+        List<Map<String, Object>> workers = new ArrayList<>();
+        for (Link link : links) {
+            workers.add(link.report(seconds));
+            errors += link.progress.errors();
+        }
+        long queries = queries();
+        report.put("elapsedSeconds", seconds);
+        report.put("totalQueries", queries);
+        report.put("qps", seconds > 0 ? queries / seconds : 0.0);
+        report.put("errors", errors);
+        report.put("workers", workers);
+
+        Map<String, Histogram> histograms = merged;
+        if (!histograms.isEmpty()) {
+            report.put("latency", StressRunHistory.percentiles(histograms.get(StressRunHistory.ALL)));
+            Map<String, Object> operations = new LinkedHashMap<>();
+            histograms.forEach((name, histogram) -> {
+                if (!name.equals(StressRunHistory.ALL)) operations.put(name, StressRunHistory.percentiles(histogram));
+            });
+            report.put("operations", operations);
+        }
+        return report;
+    }
+}
@@ -0,0 +1,254 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A staged load plan: a warm-up at the starting level, then steps that raise the level by {@code increment},
+ * each held for {@code stepSeconds} and measured on its own. In open-loop mode the level is the target QPS, in
+ * closed-loop mode the number of sessions.
+ * <p>
+ * The plan stops early when a step's p99 goes over {@code sloP99Millis}, or when throughput grew by less than
+ * {@code plateauGain} (a fraction of the previous step's) for {@code plateauSteps} steps in a row; otherwise
+ * after {@code maxSteps} steps. The knee point is the maximum sustainable throughput: the lowest step that met
+ * the SLO with a throughput within {@code plateauGain} of the best one that did, so steps that only added
+ * latency past the plateau are not taken for it.
+ */
+public class LoadPlan {
+
+    private int warmupSeconds = 30;
+    private int stepSeconds = 60;
+    private Integer start;
+    private Integer increment;
+    private int maxSteps = 10;
+    private Double sloP99Millis;
+    private double plateauGain = 0.05;
+    private int plateauSteps = 2;
+    private boolean stopWhenDone = true;
+
+    public LoadPlan() {}
+
+    public LoadPlan(int start, int increment, int maxSteps) {
+        this.start = start;
+        this.increment = increment;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Returns what is wrong with the plan, or null if it can run.
+     */
+    public String validate() {
+        if (start == null || start <= 0) return "start must be positive";
+        if (increment == null || increment <= 0) return "increment must be positive";
+        if (maxSteps <= 0) return "maxSteps must be positive";
+        if (warmupSeconds < 0) return "warmupSeconds must not be negative";
+        if (stepSeconds <= 0) return "stepSeconds must be positive";
+        if (sloP99Millis != null && sloP99Millis <= 0) return "sloP99Millis must be positive";
+        if (plateauGain < 0) return "plateauGain must not be negative";
+        if (plateauSteps <= 0) return "plateauSteps must be positive";
+        return null;
+    }
+
+    /**
+     * The level of step {@code step}, counting from 0.
+     */
+    public int levelAt(int step) {
+        return start + step * increment;
+    }
+
+    public int maxLevel() {
+        return levelAt(maxSteps - 1);
+    }
+
+    public StepResult result(int step, int level, double seconds, Histogram latencies, long errors) {
+        double p99 = latencies.getValueAtPercentile(99) / 1000.0;
+        return new StepResult(step, level, seconds, latencies.getTotalCount(), errors,
+                seconds > 0 ? latencies.getTotalCount() / seconds : 0.0,
+                latencies.getValueAtPercentile(50) / 1000.0, p99, latencies.getMaxValue() / 1000.0,
+                sloP99Millis == null || p99 <= sloP99Millis);
+    }
+
+    /**
+     * Why the plan stops after the last of {@code results} ("slo", "plateau" or "completed"), or null to go on.
+     */
+    public String stopReason(List<StepResult> results) {
+        StepResult last = results.get(results.size() - 1);
+        if (!last.isWithinSlo()) {
+            return "slo";
+        }
+        if (results.size() > plateauSteps) {
+            boolean flat = true;
+            for (int i = results.size() - plateauSteps; i < results.size(); i++) {
+                if (results.get(i).getThroughput() >= results.get(i - 1).getThroughput() * (1 + plateauGain)) {
+                    flat = false;
+                }
+            }
+            if (flat) {
+                return "plateau";
+            }
+        }
+        return results.size() >= maxSteps ? "completed" : null;
+    }
+
+    /**
+     * The knee point of {@code results}, or null if no step met the SLO.
+     */
+    public StepResult knee(List<StepResult> results) {
+        double best = -1;
+        for (StepResult result : results) {
+            if (result.isWithinSlo()) best = Math.max(best, result.getThroughput());
+        }
+        for (StepResult result : results) {
+            if (result.isWithinSlo() && result.getThroughput() * (1 + plateauGain) >= best) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    public static final class StepResult {
+        private final int step;
+        private final int level;
+        private final double seconds;
+        private final long operations;
+        private final long errors;
+        private final double throughput;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+        private final boolean withinSlo;
+
+        public StepResult(int step, int level, double seconds, long operations, long errors, double throughput,
+                          double p50Millis, double p99Millis, double maxMillis, boolean withinSlo) {
+            this.step = step;
+            this.level = level;
+            this.seconds = seconds;
+            this.operations = operations;
+            this.errors = errors;
+            this.throughput = throughput;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+            this.withinSlo = withinSlo;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public boolean isWithinSlo() {
+            return withinSlo;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("step", step);
+            map.put("level", level);
+            map.put("seconds", seconds);
+            map.put("operations", operations);
+            map.put("errors", errors);
+            map.put("throughput", throughput);
+            map.put("p50Millis", p50Millis);
+            map.put("p99Millis", p99Millis);
+            map.put("maxMillis", maxMillis);
+            map.put("withinSlo", withinSlo);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return "step " + step + " at " + level + ": " + String.format("%.2f", throughput) + " ops/sec, p50=" +
+                    p50Millis + "ms p99=" + p99Millis + "ms, " + errors + " errors" + (withinSlo ? "" : " (over SLO)");
+        }
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    public int getStepSeconds() {
+        return stepSeconds;
+    }
+
+    public void setStepSeconds(int stepSeconds) {
+        this.stepSeconds = stepSeconds;
+    }
+
+    public Integer getStart() {
+        return start;
+    }
+
+    public void setStart(Integer start) {
+        this.start = start;
+    }
+
+    public Integer getIncrement() {
+        return increment;
+    }
+
+    public void setIncrement(Integer increment) {
+        this.increment = increment;
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    public void setMaxSteps(int maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    public Double getSloP99Millis() {
+        return sloP99Millis;
+    }
+
+    public void setSloP99Millis(Double sloP99Millis) {
+        this.sloP99Millis = sloP99Millis;
+    }
+
+    public double getPlateauGain() {
+        return plateauGain;
+    }
+
+    public void setPlateauGain(double plateauGain) {
+        this.plateauGain = plateauGain;
+    }
+
+    public int getPlateauSteps() {
+        return plateauSteps;
+    }
+
+    public void setPlateauSteps(int plateauSteps) {
+        this.plateauSteps = plateauSteps;
+    }
+
+    public boolean isStopWhenDone() {
+        return stopWhenDone;
+    }
+
+    public void setStopWhenDone(boolean stopWhenDone) {
+        this.stopWhenDone = stopWhenDone;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadPlan{start=" + start + ", increment=" + increment + ", maxSteps=" + maxSteps +
+                ", warmupSeconds=" + warmupSeconds + ", stepSeconds=" + stepSeconds +
+                ", sloP99Millis=" + sloP99Millis + ", plateauGain=" + plateauGain + ", plateauSteps=" + plateauSteps + '}';
+    }
+}
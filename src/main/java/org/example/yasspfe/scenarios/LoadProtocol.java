@@ -0,0 +1,144 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * Frames exchanged between the {@link LoadCoordinator} and its {@link LoadWorker}s. Each frame is a length, a
+ * type byte and a payload. A run goes:
+ * <pre>
+ * worker      HELLO (JSON: name, cores)
+ * coordinator PLAN  (JSON: the worker's DatabaseConfig)
+ * worker      READY, or ERROR (UTF-8 message)
+ * coordinator START, once every worker is ready
+ * worker      PROGRESS (queries, errors, running) every second
+ * coordinator STOP
+ * worker      RESULT (queries, errors, histograms by operation, JSON load report)
+ * </pre>
+ */
+final class LoadProtocol {
+
+    static final byte HELLO = 1;
+    static final byte PLAN = 2;
+    static final byte READY = 3;
+    static final byte START = 4;
+    static final byte PROGRESS = 5;
+    static final byte STOP = 6;
+    static final byte RESULT = 7;
+    static final byte ERROR = 8;
+
+    private static final int MAX_FRAME = 64 * 1024 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private LoadProtocol() {
+    }
+
+    record Frame(byte type, byte[] payload) {
+    }
+
+    /**
+     * A worker's counters at a PROGRESS frame.
+     */
+    record Progress(long queries, long errors, boolean running) {
+    }
+
+    /**
+     * A worker's final counters and latency histograms, and its load report as JSON.
+     */
+    record Result(long queries, long errors, Map<String, Histogram> histograms, byte[] report) {
+    }
+
+    static void write(DataOutputStream out, byte type, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.writeByte(type);
+        out.write(payload);
+        out.flush();
+    }
+
+    static void write(DataOutputStream out, byte type) throws IOException {
+        write(out, type, EMPTY);
+    }
+
+    static Frame read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME) {
+            throw new IOException("bad frame length " + length);
+        }
+        byte type = in.readByte();
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new Frame(type, payload);
+    }
+
+    static byte[] encode(Progress progress) {
+        ByteBuffer buffer = ByteBuffer.allocate(17);
+        buffer.putLong(progress.queries());
+        buffer.putLong(progress.errors());
+        buffer.put((byte) (progress.running() ? 1 : 0));
+        return buffer.array();
+    }
+
+    static Progress decodeProgress(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        return new Progress(buffer.getLong(), buffer.getLong(), buffer.get() != 0);
+    }
+
+    static byte[] encode(Result result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(result.queries());
+        out.writeLong(result.errors());
+        out.writeInt(result.histograms().size());
+        for (Map.Entry<String, Histogram> entry : result.histograms().entrySet()) {
+            Histogram histogram = entry.getValue();
+            ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            out.writeUTF(entry.getKey());
+            out.writeInt(length);
+            out.write(buffer.array(), 0, length);
+        }
+        out.writeInt(result.report().length);
+        out.write(result.report());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Result decodeResult(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long queries = in.readLong();
+        long errors = in.readLong();
+        int count = in.readInt();
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte[] encoded = new byte[in.readInt()];
+            in.readFully(encoded);
+            try {
+                histograms.put(name, Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), 0));
+            } catch (DataFormatException e) {
+                throw new IOException("corrupt histogram " + name, e);
+            }
+        }
+        byte[] report = new byte[in.readInt()];
+        in.readFully(report);
+        return new Result(queries, errors, histograms, report);
+    }
+
+    /**
+     * Worker {@code index}'s share of {@code total} when it is split over {@code workers}: the remainder goes to
+     * the first workers, and every worker gets at least one.
+     */
+    static int share(int total, int workers, int index) {
+        int share = total / workers + (index < total % workers ? 1 : 0);
+        return Math.max(1, share);
+    }
+}
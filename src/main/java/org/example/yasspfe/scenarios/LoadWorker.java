@@ -0,0 +1,252 @@
+package org.example.yasspfe.scenarios;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.yasspfe.entities.DatabaseConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A load generator process of a distributed stress test: connects to the {@link LoadCoordinator}, runs the plan
+ * it is sent on a {@link DatabaseStressTester} of its own, reports progress every second and sends its
+ * histograms back when told to stop. Runs without Spring:
+ * <pre>
+ * java -cp &lt;app classpath&gt; org.example.yasspfe.scenarios.LoadWorker --coordinator host:port --token &lt;run token&gt; [--name worker-1]
+ * </pre>
+ * The run token is printed by the coordinator when it starts; it can also be given in the
+ * {@code STRESS_RUN_TOKEN} environment variable, which keeps it out of the process list.
+ * With the packaged jar, run it through Spring Boot's launcher:
+ * {@code java -Dloader.main=org.example.yasspfe.scenarios.LoadWorker -cp app.jar org.springframework.boot.loader.launch.PropertiesLauncher ...}.
+ */
+public class LoadWorker {
+
+    private static final long CONNECT_RETRY_MILLIS = Long.getLong("stress.worker.connectRetryMillis", 30_000);
+    private static final long PROGRESS_MILLIS = Long.getLong("stress.worker.progressMillis", 1000);
+
+    private final String host;
+    private final int port;
+    private final String name;
+    private final String token;
+    private final DatabaseStressTester tester;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final Object sendLock = new Object();
+    private DataOutputStream out;
+
+    public LoadWorker(String host, int port, String name, String token, DatabaseStressTester tester) {
+        this.host = host;
+        this.port = port;
+        this.name = name;
+        this.token = token;
+        this.tester = tester;
+        // The coordinator keeps the run; workers do not store their share of it
+        tester.setHistoryEnabled(false);
+    }
+
+    public static void main(String[] args) {
+        String coordinator = null;
+        String name = null;
+        String token = System.getenv(LoadCoordinator.TOKEN_ENV);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--coordinator" -> coordinator = args[i + 1];
+                case "--name" -> name = args[i + 1];
+                case "--token" -> token = args[i + 1];
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        int colon = coordinator != null ? coordinator.lastIndexOf(':') : -1;
+        if (colon <= 0 || token == null || token.isBlank()) {
+            System.err.println("Usage: LoadWorker --coordinator host:port --token token [--name name]");
+            System.exit(2);
+        }
+        if (name == null) {
+            name = hostName() + "-" + ProcessHandle.current().pid();
+        }
+        LoadWorker worker = new LoadWorker(coordinator.substring(0, colon), Integer.parseInt(coordinator.substring(colon + 1)),
+                name, token, new DatabaseStressTester(null));
+        System.exit(worker.run() ? 0 : 1);
+    }
+
+    /**
+     * Serves one run. Returns false if the coordinator could not be reached or the run could not start.
+     */
+    public boolean run() {
+        Socket socket = connect();
+        if (socket == null) {
+            System.err.println("❌ [" + name + "] Coordinator " + host + ":" + port + " not reachable");
+            return false;
+        }
+        Thread progress = null;
+        boolean ok = true;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            Map<String, Object> hello = new LinkedHashMap<>();
+            hello.put("name", name);
+            hello.put("cores", Runtime.getRuntime().availableProcessors());
+            hello.put("token", token);
+            send(LoadProtocol.HELLO, mapper.writeValueAsBytes(hello));
+
+            DatabaseConfig plan = null;
+            while (true) {
+                LoadProtocol.Frame frame = LoadProtocol.read(in);
+                switch (frame.type()) {
+                    case LoadProtocol.PLAN -> {
+                        plan = mapper.readValue(frame.payload(), DatabaseConfig.class);
+                        String problem = apply(plan);
+                        if (problem != null) {
+                            error(problem);
+                            return false;
+                        }
+                        System.out.println("✅ [" + name + "] Plan received: " + plan);
+                        send(LoadProtocol.READY, new byte[0]);
+                    }
+                    case LoadProtocol.START -> {
+                        if (plan == null || !tester.startStressTest(plan)) {
+                            error("the stress test did not start, see the worker's log");
+                            return false;
+                        }
+                        progress = new Thread(this::reportProgress, "stress-worker-progress");
+                        progress.setDaemon(true);
+                        progress.start();
+                    }
+                    case LoadProtocol.STOP -> {
+                        tester.stopStressTest();
+                        if (progress != null) {
+                            progress.interrupt();
+                        }
+                        send(LoadProtocol.RESULT, LoadProtocol.encode(result()));
+                        System.out.println("🏁 [" + name + "] Result sent: " + tester.getTotalQueries() + " queries");
+                        return true;
+                    }
+                    case LoadProtocol.ERROR -> {
+                        System.err.println("❌ [" + name + "] Coordinator refused the worker: " +
+                                new String(frame.payload(), StandardCharsets.UTF_8));
+                        return false;
+                    }
+                    default -> throw new IOException("unexpected frame type " + frame.type());
+                }
+            }
+        } catch (EOFException e) {
+            System.err.println("⚠ [" + name + "] Coordinator went away, stopping");
+            ok = false;
+        } catch (IOException e) {
+            System.err.println("⚠ [" + name + "] Coordinator link failed: " + e.getMessage());
+            ok = false;
+        } finally {
+            if (progress != null) {
+                progress.interrupt();
+            }
+            if (tester.isRunning()) {
+                tester.stopStressTest();
+            }
+        }
+        return ok;
+    }
+
+    // The same settings the configuration endpoint applies; the load and session profile are applied at start
+    private String apply(DatabaseConfig plan) {
+        try {
+            tester.setWorkloadProfile(plan.getWorkload());
+            tester.setLoadPlan(plan.getLoadPlan());
+            tester.setBulkWriteProfile(plan.getBulkWrite());
+            tester.setAdaptiveConcurrency(plan.getAdaptiveConcurrency());
+            tester.setContentionProfile(plan.getContention());
+            tester.setStreamingProfile(plan.getStreaming());
+            tester.setReplayProfile(plan.getReplay());
+            tester.setChurnProfile(plan.getChurn());
+            return null;
+        } catch (IllegalArgumentException e) {
+            return "invalid plan: " + e.getMessage();
+        }
+    }
+
+    private void reportProgress() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(PROGRESS_MILLIS);
+                boolean running = tester.isRunning();
+                send(LoadProtocol.PROGRESS, LoadProtocol.encode(new LoadProtocol.Progress(tester.getTotalQueries(),
+                        tester.getMetrics().errorCount(), running)));
+                if (!running) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("⚠ [" + name + "] Progress report failed: " + e.getMessage());
+        }
+    }
+
+    private LoadProtocol.Result result() throws IOException {
+        StressMetrics metrics = tester.getMetrics();
+        return new LoadProtocol.Result(tester.getTotalQueries(), metrics.errorCount(), metrics.totals(),
+                mapper.writeValueAsBytes(tester.getLoadReport()));
+    }
+
+    private void error(String message) throws IOException {
+        System.err.println("❌ [" + name + "] " + message);
+        send(LoadProtocol.ERROR, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void send(byte type, byte[] payload) throws IOException {
+        synchronized (sendLock) {
+            LoadProtocol.write(out, type, payload);
+        }
+    }
+
+    // The coordinator may still be starting, so retry for a while
+    private Socket connect() {
+        long deadline = System.currentTimeMillis() + CONNECT_RETRY_MILLIS;
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), 5000);
+                return socket;
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // nothing to release
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    return null;
+                }
+                try {
+                    Thread.sleep(250);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "localhost";
+        }
+    }
+}
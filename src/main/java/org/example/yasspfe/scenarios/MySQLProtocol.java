@@ -0,0 +1,511 @@
+package org.example.yasspfe.scenarios;
+
+import javax.crypto.Cipher;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * MySQL client/server protocol building blocks: packet framing, length-encoded values,
+ * OK/ERR/EOF and handshake payloads, and the password scrambles used during authentication.
+ */
+public final class MySQLProtocol {
+
+    public static final int MAX_PAYLOAD = 0xFFFFFF;
+
+    // Command bytes
+    public static final int COM_QUIT = 0x01;
+    public static final int COM_INIT_DB = 0x02;
+    public static final int COM_QUERY = 0x03;
+    public static final int COM_FIELD_LIST = 0x04;
+    public static final int COM_STATISTICS = 0x09;
+    public static final int COM_PING = 0x0E;
+    public static final int COM_CHANGE_USER = 0x11;
+    public static final int COM_STMT_PREPARE = 0x16;
+    public static final int COM_STMT_EXECUTE = 0x17;
+    public static final int COM_STMT_SEND_LONG_DATA = 0x18;
+    public static final int COM_STMT_CLOSE = 0x19;
+    public static final int COM_STMT_RESET = 0x1A;
+    public static final int COM_SET_OPTION = 0x1B;
+    public static final int COM_STMT_FETCH = 0x1C;
+    public static final int COM_RESET_CONNECTION = 0x1F;
+
+    // Capability flags
+    public static final int CLIENT_LONG_PASSWORD = 0x00000001;
+    public static final int CLIENT_FOUND_ROWS = 0x00000002;
+    public static final int CLIENT_LONG_FLAG = 0x00000004;
+    public static final int CLIENT_CONNECT_WITH_DB = 0x00000008;
+    public static final int CLIENT_PROTOCOL_41 = 0x00000200;
+    public static final int CLIENT_SSL = 0x00000800;
+    public static final int CLIENT_TRANSACTIONS = 0x00002000;
+    public static final int CLIENT_SECURE_CONNECTION = 0x00008000;
+    public static final int CLIENT_MULTI_STATEMENTS = 0x00010000;
+    public static final int CLIENT_MULTI_RESULTS = 0x00020000;
+    public static final int CLIENT_PLUGIN_AUTH = 0x00080000;
+    public static final int CLIENT_CONNECT_ATTRS = 0x00100000;
+    public static final int CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA = 0x00200000;
+    public static final int CLIENT_DEPRECATE_EOF = 0x01000000;
+
+    /**
+     * Capabilities spoken by the in-repo server side: protocol 4.1 with EOF packets,
+     * no TLS, no compression and no session tracking.
+     */
+    public static final int SERVER_CAPABILITIES = CLIENT_LONG_PASSWORD | CLIENT_FOUND_ROWS | CLIENT_LONG_FLAG
+            | CLIENT_CONNECT_WITH_DB | CLIENT_PROTOCOL_41 | CLIENT_TRANSACTIONS | CLIENT_SECURE_CONNECTION
+            | CLIENT_MULTI_STATEMENTS | CLIENT_MULTI_RESULTS | CLIENT_PLUGIN_AUTH | CLIENT_CONNECT_ATTRS
+            | CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA;
+
+    // Server status flags
+    public static final int SERVER_STATUS_IN_TRANS = 0x0001;
+    public static final int SERVER_STATUS_AUTOCOMMIT = 0x0002;
+    public static final int SERVER_MORE_RESULTS_EXISTS = 0x0008;
+    public static final int SERVER_STATUS_CURSOR_EXISTS = 0x0040;
+
+    public static final int UTF8MB4_GENERAL_CI = 45;
+    public static final int UTF8MB4_0900_AI_CI = 255;
+    public static final int MYSQL_TYPE_VAR_STRING = 0xFD;
+
+    public static final String NATIVE_PASSWORD = "mysql_native_password";
+    public static final String CACHING_SHA2_PASSWORD = "caching_sha2_password";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private MySQLProtocol() {
+    }
+
+    // ---- Framing ----
+
+    public static int payloadLength(byte[] header) {
+        return (header[0] & 0xFF) | ((header[1] & 0xFF) << 8) | ((header[2] & 0xFF) << 16);
+    }
+
+    /**
+     * Frames a payload, splitting it into 16MB chunks with consecutive sequence ids when needed.
+     */
+    public static byte[] packet(int sequenceId, byte[] payload) {
+        if (payload.length < MAX_PAYLOAD) {
+            byte[] packet = new byte[4 + payload.length];
+            writeHeader(packet, 0, payload.length, sequenceId);
+            System.arraycopy(payload, 0, packet, 4, payload.length);
+            return packet;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + 8);
+        int offset = 0;
+        int seq = sequenceId;
+        while (true) {
+            int chunk = Math.min(MAX_PAYLOAD, payload.length - offset);
+            byte[] header = new byte[4];
+            writeHeader(header, 0, chunk, seq++);
+            out.writeBytes(header);
+            out.write(payload, offset, chunk);
+            offset += chunk;
+            if (chunk < MAX_PAYLOAD) break;
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeHeader(byte[] target, int offset, int length, int sequenceId) {
+        target[offset] = (byte) (length & 0xFF);
+        target[offset + 1] = (byte) ((length >> 8) & 0xFF);
+        target[offset + 2] = (byte) ((length >> 16) & 0xFF);
+        target[offset + 3] = (byte) sequenceId;
+    }
+
+    // ---- Length-encoded values ----
+
+    public static void writeLenencInt(ByteArrayOutputStream out, long value) {
+        if (value < 251) {
+            out.write((int) value);
+        } else if (value < 0x10000) {
+            out.write(0xFC);
+            writeIntLE(out, value, 2);
+        } else if (value < 0x1000000) {
+            out.write(0xFD);
+            writeIntLE(out, value, 3);
+        } else {
+            out.write(0xFE);
+            writeIntLE(out, value, 8);
+        }
+    }
+
+    public static void writeLenencString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            out.write(0xFB);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLenencInt(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    public static void writeIntLE(ByteArrayOutputStream out, long value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            out.write((int) (value >> (8 * i)) & 0xFF);
+        }
+    }
+
+    public static void writeNullTerminated(ByteArrayOutputStream out, String value) {
+        out.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        out.write(0);
+    }
+
+    /**
+     * Reads a length-encoded integer at {@code pos[0]} and advances it.
+     */
+    public static long readLenencInt(byte[] payload, int[] pos) {
+        int first = payload[pos[0]++] & 0xFF;
+        if (first < 0xFB) return first;
+        int bytes = switch (first) {
+            case 0xFC -> 2;
+            case 0xFD -> 3;
+            case 0xFE -> 8;
+            default -> 0; // 0xFB is NULL
+        };
+        long value = readIntLE(payload, pos[0], bytes);
+        pos[0] += bytes;
+        return value;
+    }
+
+    public static long readIntLE(byte[] payload, int offset, int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value |= (long) (payload[offset + i] & 0xFF) << (8 * i);
+        }
+        return value;
+    }
+
+    private static String readNullTerminated(byte[] payload, int[] pos) {
+        int start = pos[0];
+        int end = start;
+        while (end < payload.length && payload[end] != 0) end++;
+        pos[0] = Math.min(end + 1, payload.length);
+        return new String(payload, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    // ---- Generic response payloads ----
+
+    public static byte[] okPayload(long affectedRows, long lastInsertId, int status, int warnings) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        out.write(0x00);
+        writeLenencInt(out, affectedRows);
+        writeLenencInt(out, lastInsertId);
+        writeIntLE(out, status, 2);
+        writeIntLE(out, warnings, 2);
+        return out.toByteArray();
+    }
+
+    public static byte[] errPayload(int code, String sqlState, String message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + message.length());
+        out.write(0xFF);
+        writeIntLE(out, code, 2);
+        out.write('#');
+        out.write(sqlState.getBytes(StandardCharsets.US_ASCII), 0, 5);
+        out.writeBytes(message.getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    public static byte[] eofPayload(int status) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(5);
+        out.write(0xFE);
+        writeIntLE(out, 0, 2);
+        writeIntLE(out, status, 2);
+        return out.toByteArray();
+    }
+
+    public static byte[] columnDefinitionPayload(String schema, String table, String name, int length) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        writeLenencString(out, "def");
+        writeLenencString(out, schema);
+        writeLenencString(out, table);
+        writeLenencString(out, table);
+        writeLenencString(out, name);
+        writeLenencString(out, name);
+        out.write(0x0C);
+        writeIntLE(out, UTF8MB4_0900_AI_CI, 2);
+        writeIntLE(out, length, 4);
+        out.write(MYSQL_TYPE_VAR_STRING);
+        writeIntLE(out, 0, 2); // flags
+        out.write(0);         // decimals
+        writeIntLE(out, 0, 2); // filler
+        return out.toByteArray();
+    }
+
+    public static boolean isOk(byte[] payload) {
+        return payload.length >= 7 && (payload[0] & 0xFF) == 0x00;
+    }
+
+    public static boolean isErr(byte[] payload) {
+        return payload.length > 0 && (payload[0] & 0xFF) == 0xFF;
+    }
+
+    public static boolean isEof(byte[] payload) {
+        return payload.length > 0 && payload.length < 9 && (payload[0] & 0xFF) == 0xFE;
+    }
+
+    /**
+     * Server status flags carried by the OK or EOF payload starting at {@code offset}, or -1 for other packets.
+     * Understands the OK packet with an 0xFE header that replaces EOF under CLIENT_DEPRECATE_EOF.
+     */
+    public static int statusFlags(byte[] packet, int offset) {
+        if (packet.length <= offset) return -1;
+        int type = packet[offset] & 0xFF;
+        int length = packet.length - offset;
+        if (type == 0xFE && length < 7) {
+            return length >= 5 ? (int) readIntLE(packet, offset + 3, 2) : 0;
+        }
+        if ((type == 0x00 || type == 0xFE) && length >= 7 && length < MAX_PAYLOAD) {
+            int[] pos = {offset + 1};
+            readLenencInt(packet, pos);
+            readLenencInt(packet, pos);
+            return pos[0] + 2 <= packet.length ? (int) readIntLE(packet, pos[0], 2) : 0;
+        }
+        return -1;
+    }
+
+    public static int errorCode(byte[] payload) {
+        return isErr(payload) && payload.length >= 3 ? (int) readIntLE(payload, 1, 2) : 0;
+    }
+
+    public static String errorMessage(byte[] payload) {
+        if (!isErr(payload)) return "";
+        int start = payload.length > 3 && payload[3] == '#' ? 9 : 3;
+        return start < payload.length ? new String(payload, start, payload.length - start, StandardCharsets.UTF_8) : "";
+    }
+
+    // ---- Handshake ----
+
+    /**
+     * 20 random printable bytes, as used by MySQL for the auth plugin data.
+     */
+    public static byte[] newScramble() {
+        byte[] scramble = new byte[20];
+        for (int i = 0; i < scramble.length; i++) {
+            scramble[i] = (byte) (33 + RANDOM.nextInt(94));
+        }
+        return scramble;
+    }
+
+    public static byte[] handshakeV10Payload(long connectionId, String serverVersion, byte[] scramble,
+                                             int capabilities, int charset, int status, String authPlugin) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(96);
+        out.write(10);
+        writeNullTerminated(out, serverVersion);
+        writeIntLE(out, connectionId, 4);
+        out.write(scramble, 0, 8);
+        out.write(0);
+        writeIntLE(out, capabilities & 0xFFFF, 2);
+        out.write(charset);
+        writeIntLE(out, status, 2);
+        writeIntLE(out, (capabilities >>> 16) & 0xFFFF, 2);
+        out.write(scramble.length + 1);
+        out.writeBytes(new byte[10]);
+        out.write(scramble, 8, scramble.length - 8);
+        out.write(0);
+        writeNullTerminated(out, authPlugin);
+        return out.toByteArray();
+    }
+
+    public static byte[] authSwitchRequestPayload(String plugin, byte[] scramble) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        out.write(0xFE);
+        writeNullTerminated(out, plugin);
+        out.writeBytes(scramble);
+        out.write(0);
+        return out.toByteArray();
+    }
+
+    /**
+     * Fields of the server greeting a client needs to authenticate.
+     */
+    public static final class Handshake {
+        public int protocolVersion;
+        public String serverVersion;
+        public long connectionId;
+        public byte[] scramble;
+        public int capabilities;
+        public int charset;
+        public int status;
+        public String authPlugin;
+    }
+
+    public static Handshake parseHandshake(byte[] payload) {
+        Handshake hs = new Handshake();
+        int[] pos = {0};
+        hs.protocolVersion = payload[pos[0]++] & 0xFF;
+        hs.serverVersion = readNullTerminated(payload, pos);
+        hs.connectionId = readIntLE(payload, pos[0], 4);
+        pos[0] += 4;
+        ByteArrayOutputStream scramble = new ByteArrayOutputStream(21);
+        scramble.write(payload, pos[0], 8);
+        pos[0] += 9;
+        hs.capabilities = (int) readIntLE(payload, pos[0], 2);
+        pos[0] += 2;
+        if (pos[0] < payload.length) {
+            hs.charset = payload[pos[0]++] & 0xFF;
+            hs.status = (int) readIntLE(payload, pos[0], 2);
+            pos[0] += 2;
+            hs.capabilities |= (int) readIntLE(payload, pos[0], 2) << 16;
+            pos[0] += 2;
+            int authDataLength = payload[pos[0]++] & 0xFF;
+            pos[0] += 10;
+            if ((hs.capabilities & CLIENT_SECURE_CONNECTION) != 0) {
+                int part2 = Math.max(13, authDataLength - 8);
+                // The second part is NUL terminated; the terminator is not scramble data
+                scramble.write(payload, pos[0], part2 - 1);
+                pos[0] += part2;
+            }
+            if ((hs.capabilities & CLIENT_PLUGIN_AUTH) != 0 && pos[0] < payload.length) {
+                hs.authPlugin = readNullTerminated(payload, pos);
+            }
+        }
+        hs.scramble = scramble.toByteArray();
+        return hs;
+    }
+
+    /**
+     * Fields of a HandshakeResponse41 sent by a client.
+     */
+    public static final class HandshakeResponse {
+        public int capabilities;
+        public int maxPacketSize;
+        public int charset;
+        public String user;
+        public byte[] authResponse;
+        public String database;
+        public String authPlugin;
+    }
+
+    public static HandshakeResponse parseHandshakeResponse(byte[] payload) {
+        HandshakeResponse response = new HandshakeResponse();
+        int[] pos = {0};
+        response.capabilities = (int) readIntLE(payload, 0, 4);
+        response.maxPacketSize = (int) readIntLE(payload, 4, 4);
+        response.charset = payload[8] & 0xFF;
+        pos[0] = 32;
+        response.user = readNullTerminated(payload, pos);
+        int authLength;
+        if ((response.capabilities & CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA) != 0) {
+            authLength = (int) readLenencInt(payload, pos);
+        } else if ((response.capabilities & CLIENT_SECURE_CONNECTION) != 0) {
+            authLength = payload[pos[0]++] & 0xFF;
+        } else {
+            int start = pos[0];
+            readNullTerminated(payload, pos);
+            authLength = pos[0] - start - 1;
+            pos[0] = start;
+        }
+        response.authResponse = new byte[Math.max(0, authLength)];
+        System.arraycopy(payload, pos[0], response.authResponse, 0, response.authResponse.length);
+        pos[0] += response.authResponse.length;
+        if ((response.capabilities & CLIENT_SECURE_CONNECTION) == 0 && (response.capabilities & CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA) == 0) {
+            pos[0]++;
+        }
+        if ((response.capabilities & CLIENT_CONNECT_WITH_DB) != 0 && pos[0] < payload.length) {
+            response.database = readNullTerminated(payload, pos);
+        }
+        if ((response.capabilities & CLIENT_PLUGIN_AUTH) != 0 && pos[0] < payload.length) {
+            response.authPlugin = readNullTerminated(payload, pos);
+        }
+        return response;
+    }
+
+    public static byte[] handshakeResponsePayload(int capabilities, int charset, String user, byte[] authResponse,
+                                                  String database, String authPlugin) {
+        int caps = capabilities;
+        if (database != null && !database.isEmpty()) {
+            caps |= CLIENT_CONNECT_WITH_DB;
+        } else {
+            caps &= ~CLIENT_CONNECT_WITH_DB;
+        }
+        caps &= ~CLIENT_CONNECT_ATTRS;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(96);
+        writeIntLE(out, caps, 4);
+        writeIntLE(out, MAX_PAYLOAD, 4);
+        out.write(charset);
+        out.writeBytes(new byte[23]);
+        writeNullTerminated(out, user);
+        writeLenencInt(out, authResponse.length);
+        out.writeBytes(authResponse);
+        if ((caps & CLIENT_CONNECT_WITH_DB) != 0) {
+            writeNullTerminated(out, database);
+        }
+        writeNullTerminated(out, authPlugin);
+        return out.toByteArray();
+    }
+
+    // ---- Password scrambles ----
+
+    /**
+     * mysql_native_password: SHA1(password) XOR SHA1(scramble + SHA1(SHA1(password))).
+     */
+    public static byte[] nativePasswordToken(String password, byte[] scramble) {
+        if (password == null || password.isEmpty()) return new byte[0];
+        MessageDigest sha1 = digest("SHA-1");
+        byte[] stage1 = sha1.digest(password.getBytes(StandardCharsets.UTF_8));
+        byte[] stage2 = sha1.digest(stage1);
+        sha1.update(scramble, 0, Math.min(20, scramble.length));
+        sha1.update(stage2);
+        byte[] token = sha1.digest();
+        for (int i = 0; i < token.length; i++) {
+            token[i] ^= stage1[i];
+        }
+        return token;
+    }
+
+    /**
+     * caching_sha2_password fast path: SHA256(password) XOR SHA256(SHA256(SHA256(password)) + scramble).
+     */
+    public static byte[] cachingSha2Token(String password, byte[] scramble) {
+        if (password == null || password.isEmpty()) return new byte[0];
+        MessageDigest sha256 = digest("SHA-256");
+        byte[] stage1 = sha256.digest(password.getBytes(StandardCharsets.UTF_8));
+        byte[] stage2 = sha256.digest(stage1);
+        sha256.update(stage2);
+        sha256.update(scramble, 0, Math.min(20, scramble.length));
+        byte[] token = sha256.digest();
+        for (int i = 0; i < token.length; i++) {
+            token[i] ^= stage1[i];
+        }
+        return token;
+    }
+
+    /**
+     * caching_sha2_password full authentication without TLS: the NUL terminated password XORed with the
+     * scramble, encrypted with the server's RSA public key (PEM, as returned for a public key request).
+     */
+    public static byte[] cachingSha2RsaPassword(String password, byte[] scramble, String publicKeyPem) {
+        byte[] plain = ((password == null ? "" : password) + "\0").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < plain.length; i++) {
+            plain[i] ^= scramble[i % scramble.length];
+        }
+        try {
+            String base64 = publicKeyPem.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+            PublicKey key = KeyFactory.getInstance("RSA")
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+            Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-1AndMGF1Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+            return cipher.doFinal(plain);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Cannot encrypt password with the server public key", e);
+        }
+    }
+
+    public static boolean verifyNativePassword(String password, byte[] scramble, byte[] token) {
+        return MessageDigest.isEqual(nativePasswordToken(password, scramble), token);
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+}
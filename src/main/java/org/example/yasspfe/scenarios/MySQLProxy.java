@@ -1,14 +1,27 @@
 package org.example.yasspfe.scenarios;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.*;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class MySQLProxy {
+    private static final Logger logger = LoggerFactory.getLogger(MySQLProxy.class);
     private static final String DB_URL = "jdbc:mysql://localhost:3306/proxybase";
     private static final String DB_USER = "root";
     private static final String DB_PASSWORD = "root";
@@ -20,16 +33,127 @@ public class MySQLProxy {
     private static final LatencyInjector latencyInjector = new LatencyInjector();
     private static final PacketLossInjector packetLossInjector = new PacketLossInjector(0.1); // 10% loss rate
 
-    private static String targetHost = "localhost"; // Default value
-    private static int targetPort = 3306;
+    private static volatile String targetHost = "localhost"; // Default value
+    private static volatile int targetPort = 3306;
     private static boolean frontendConfigured = false; // Flag to track if frontend config is set
 
+    // Transaction pooling: clients share authenticated backend connections (-Dproxy.pooling=true)
+    private static volatile boolean poolingEnabled = Boolean.getBoolean("proxy.pooling");
+    private static volatile BackendPool backendPool;
+
+    // Hot swap of the target: session drain, background health probe and reconnect metrics
+    private static final TargetSwitchover switchover = new TargetSwitchover();
+    private static final int PROBE_TIMEOUT_MS = Integer.getInteger("proxy.health.timeoutMs", 1000);
+    private static final long PROBE_INTERVAL_MS = Long.getLong("proxy.health.intervalMs", 2000);
+    private static final String PROBE_USER = System.getProperty("proxy.health.user", DB_USER);
+    private static final String PROBE_PASSWORD = System.getProperty("proxy.health.password", DB_PASSWORD);
+    private static volatile TargetHealthProbe healthProbe = newHealthProbe(targetHost, targetPort);
+    private static ScheduledExecutorService healthProbeScheduler;
+
+    // Backend response times per statement type and digest, plus the slow-query ring
+    private static final QueryTimings queryTimings = new QueryTimings();
+
+    // Proxied queries written to a file for the stress tester to replay, when started
+    private static final QueryCapture queryCapture = new QueryCapture();
+
+    // Connection limits and accept-rate limiting, configured with proxy.admission.* system properties
+    private static final AdmissionController admission = AdmissionController.fromProperties("mysql-proxy", "proxy.admission");
+
+    static {
+        admission.bind(MySQLProxy::startSession, MySQLProxy::rejectClient);
+    }
+
     public static void setTargetConnectionInfo(String host, int port) {
         targetHost = host;
         targetPort = port;
+        if (backendPool != null) {
+            backendPool.retarget(host, port);
+        }
         System.out.println("[MySQLProxy] Target connection info set to " + host + ":" + port);
     }
 
+    /**
+     * Hot-swaps the target: new sessions go to {@code host:port} immediately and sessions on the previous
+     * target are drained at transaction boundaries. Refused if the new target fails a health probe.
+     */
+    public static synchronized boolean switchTarget(String host, int port) {
+        if (host.equals(targetHost) && port == targetPort) {
+            return true;
+        }
+        TargetHealthProbe candidate = newHealthProbe(host, port);
+        TargetHealthProbe.Result probe = candidate.run(PROBE_TIMEOUT_MS);
+        if (!probe.reachable()) {
+            candidate.close();
+            System.err.println("Error: Cannot connect to database at " + host + ":" + port + ": " + probe.error());
+            return false;
+        }
+        String previousHost = targetHost;
+        int previousPort = targetPort;
+        setTargetConnectionInfo(host, port);
+        replaceHealthProbe(candidate);
+        switchover.begin(previousHost, previousPort, host, port, probe.latencyMillis());
+        return true;
+    }
+
+    /**
+     * Probes the current target every {@code proxy.health.intervalMs} (default 2000) with COM_PING on a
+     * connection logged in as {@code proxy.health.user} / {@code proxy.health.password} (default: the
+     * proxy's own account).
+     */
+    public static synchronized void startHealthProbe() {
+        if (healthProbeScheduler != null) return;
+        healthProbeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "target-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthProbeScheduler.scheduleWithFixedDelay(() -> {
+            currentHealthProbe().run(PROBE_TIMEOUT_MS);
+        }, 0, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * One login, COM_PING and COM_QUIT against {@code host:port} with the probe account.
+     */
+    public static TargetHealthProbe.Result probeTarget(String host, int port) {
+        return TargetHealthProbe.probe(host, port, PROBE_USER, PROBE_PASSWORD, PROBE_TIMEOUT_MS);
+    }
+
+    private static TargetHealthProbe newHealthProbe(String host, int port) {
+        return new TargetHealthProbe(host, port, PROBE_USER, PROBE_PASSWORD);
+    }
+
+    // The probe of the current target, replacing the one of a previous target
+    private static synchronized TargetHealthProbe currentHealthProbe() {
+        TargetHealthProbe probe = healthProbe;
+        if (!probe.isTarget(targetHost, targetPort)) {
+            probe = newHealthProbe(targetHost, targetPort);
+            replaceHealthProbe(probe);
+        }
+        return probe;
+    }
+
+    private static void replaceHealthProbe(TargetHealthProbe probe) {
+        TargetHealthProbe previous = healthProbe;
+        healthProbe = probe;
+        if (previous != probe) {
+            previous.close();
+        }
+    }
+
+    public static Map<String, Object> getTargetStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("host", targetHost);
+        status.put("port", targetPort);
+        status.put("health", healthProbe.snapshot());
+        status.putAll(switchover.snapshot());
+        return status;
+    }
+
+    static TargetSwitchover getSwitchover() {
+        return switchover;
+    }
+
     public static String getTargetHost() {
         return targetHost;
     }
@@ -42,6 +166,20 @@ public class MySQLProxy {
         return stressTester;
     }
 
+    /**
+     * Names of the chaos scenarios enabled as of the last scenario refresh, sorted.
+     */
+    public static List<String> getActiveScenarios() {
+        synchronized (scenarios) {
+            List<String> active = new ArrayList<>();
+            scenarios.forEach((name, enabled) -> {
+                if (Boolean.TRUE.equals(enabled)) active.add(name);
+            });
+            Collections.sort(active);
+            return active;
+        }
+    }
+
     // Method to set connection info for the stress tester
     public static void setStressTesterConnectionInfo(String jdbcUrl, String username, String password) {
         if (stressTester != null) {
@@ -59,6 +197,29 @@ public class MySQLProxy {
         return frontendConfigured;
     }
 
+    public static void setPoolingEnabled(boolean enabled) {
+        poolingEnabled = enabled;
+        System.out.println("[MySQLProxy] Transaction pooling " + (enabled ? "enabled" : "disabled"));
+    }
+
+    public static boolean isPoolingEnabled() {
+        return poolingEnabled;
+    }
+
+    /**
+     * The shared backend pool, created on first use. Null until pooling has served a client.
+     */
+    public static BackendPool getBackendPool() {
+        return backendPool;
+    }
+
+    private static synchronized BackendPool backendPool() {
+        if (backendPool == null) {
+            backendPool = new BackendPool();
+        }
+        return backendPool;
+    }
+
     public static void main(String[] args) throws IOException {
         setStressTesterConnectionInfo(DB_URL, DB_USER, DB_PASSWORD);
         updateScenariosOnce();
@@ -78,36 +239,110 @@ public class MySQLProxy {
             }
         }).start();
 
-        ServerSocket proxyServer = new ServerSocket(3301);
-        System.out.println("MySQL Proxy started on port 3301");
+        startHealthProbe();
 
-        while (true) {
-            Socket clientSocket = proxyServer.accept();
-            System.out.println("New client connected: " + clientSocket.getRemoteSocketAddress());
+        // proxy.acceptors / proxy.backlog: several SO_REUSEPORT acceptors spread connection storms across cores
+        ProxySockets.listen("mysql-proxy", "proxy", 3301, MySQLProxy::serve);
+    }
+
+    /**
+     * Accepts clients until the server socket is closed, relaying each one on its own threads. In pooling
+     * mode the proxy terminates the client handshake itself and runs each client as a {@link PooledSession}.
+     */
+    public static void serve(ServerSocket proxyServer) {
+        while (!proxyServer.isClosed()) {
+            try {
+                admission.submit(ProxySockets.tune(proxyServer.accept()));
+            } catch (IOException e) {
+                if (!proxyServer.isClosed()) {
+                    System.err.println("[MySQLProxy] Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void startSession(AdmissionController.Permit permit) {
+        Socket clientSocket = permit.socket();
+        Runnable session = poolingEnabled ? new PooledSession(clientSocket, backendPool()) : () -> handleClient(clientSocket);
+        new Thread(() -> {
+            try {
+                session.run();
+            } finally {
+                permit.release();
+            }
+        }).start();
+    }
+
+    /**
+     * Turns a client away before the handshake: MySQL clients accept an ERR packet in place of the
+     * server greeting and report it as "Too many connections".
+     */
+    private static void rejectClient(Socket clientSocket, String reason) throws IOException {
+        String message = switch (reason) {
+            case AdmissionController.RATE_LIMITED -> "Too many connections: proxy connection rate limit reached";
+            case AdmissionController.CLIENT_LIMIT -> "Too many connections from this host";
+            case AdmissionController.QUEUE_TIMEOUT -> "Too many connections: timed out waiting for a proxy slot";
+            default -> "Too many connections";
+        };
+        OutputStream out = clientSocket.getOutputStream();
+        out.write(MySQLProtocol.packet(0, MySQLProtocol.errPayload(1040, "08004", message)));
+        out.flush();
+    }
 
-            Socket mysqlSocket = new Socket(targetHost, targetPort);
-            System.out.println("Connected to target database at " + targetHost + ":" + targetPort);
+    public static QueryTimings getQueryTimings() {
+        return queryTimings;
+    }
+
+    public static QueryCapture getQueryCapture() {
+        return queryCapture;
+    }
+
+    public static Map<String, Object> getAdmissionStats() {
+        return admission.snapshot();
+    }
+
+    private static void handleClient(Socket clientSocket) {
+        ProxyLog.CONNECTIONS.info("New client connected: {}", clientSocket.getRemoteSocketAddress());
+        Socket mysqlSocket = null;
+        String host = targetHost;
+        int port = targetPort;
+        RelaySession session = null;
+        long connectStart = System.nanoTime();
+        try {
+            mysqlSocket = ProxySockets.connect(host, port);
+            switchover.recordBackendConnect(host, port, System.nanoTime() - connectStart, true);
+            ProxyLog.CONNECTIONS.info("Connected to target database at {}:{}", host, port);
 
             AtomicReference<ConnectionState> state = new AtomicReference<>(new ConnectionState());
+            Socket backend = mysqlSocket;
+            session = new RelaySession(clientSocket, backend, host, port, state.get());
+            switchover.register(session);
 
-            Thread clientToServer = new Thread(() -> forwardClientToServer(clientSocket, mysqlSocket, state));
-            Thread serverToClient = new Thread(() -> forwardServerToClient(mysqlSocket, clientSocket, state));
+            Thread clientToServer = new Thread(() -> forwardClientToServer(clientSocket, backend, state));
+            Thread serverToClient = new Thread(() -> forwardServerToClient(backend, clientSocket, state));
             clientToServer.start();
             serverToClient.start();
 
-            try {
-                clientToServer.join();
-                serverToClient.join();
-            } catch (InterruptedException e) {
-                System.err.println("Error in thread execution: " + e.getMessage());
-            } finally {
-                closeSockets(clientSocket, mysqlSocket);
+            clientToServer.join();
+            serverToClient.join();
+        } catch (IOException e) {
+            if (mysqlSocket == null) {
+                switchover.recordBackendConnect(host, port, System.nanoTime() - connectStart, false);
+            }
+            System.err.println("[MySQLProxy] Cannot reach target database at " + host + ":" + port + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            System.err.println("Error in thread execution: " + e.getMessage());
+            Thread.currentThread().interrupt();
+        } finally {
+            if (session != null) {
+                switchover.unregister(session);
             }
+            closeSockets(clientSocket, mysqlSocket);
         }
     }
 
     private static void updateTargetConnectionInfo() {
-        System.out.println("Fetching target database connection info...");
+        logger.debug("Fetching target database connection info...");
         try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
              Statement stmt = conn.createStatement()) {
 
@@ -117,14 +352,9 @@ public class MySQLProxy {
                 String host = rs.getString("host");
                 int port = rs.getInt("port");
 
-                // Check if host or port has changed and if so, update connection
+                // Check if host or port has changed and if so, hot-swap once the new target answers a probe
                 if (!host.equals(targetHost) || port != targetPort) {
-                    // Check if the new host and port are reachable before updating
-                    if (!isDatabaseReachable(host, port)) {
-                        System.err.println("Error: Cannot connect to database at " + host + ":" + port);
-                        return; // Don't proceed if database is unreachable
-                    }
-                    setTargetConnectionInfo(host, port);
+                    switchTarget(host, port);
                 }
             }
         } catch (SQLException e) {
@@ -132,17 +362,6 @@ public class MySQLProxy {
         }
     }
 
-    private static boolean isDatabaseReachable(String host, int port) {
-        String jdbcUrl = "jdbc:mysql://" + host + ":" + port;
-        try (Connection conn = DriverManager.getConnection(jdbcUrl, DB_USER, DB_PASSWORD)) {
-            // If connection is established, database is reachable
-            return true;
-        } catch (SQLException e) {
-            System.err.println("Error connecting to database: " + e.getMessage());
-            return false;
-        }
-    }
-
     private static void updateScenariosOnce() {
         if (stressTester == null) {
             stressTester = new DatabaseStressTester(); // Ensure it's not null
@@ -154,12 +373,13 @@ public class MySQLProxy {
             return;  // Exit early if the connection is not valid
         }
 
-        System.out.println("Fetching scenario settings from the database...");
+        logger.debug("Fetching scenario settings from the database...");
         try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
              Statement stmt = conn.createStatement()) {
             ResultSet rs = stmt.executeQuery("SELECT name, enabled FROM scenarios");
 
             synchronized (scenarios) {
+                Map<String, Boolean> previous = new HashMap<>(scenarios);
                 scenarios.clear();
                 while (rs.next()) {
                     String scenarioName = rs.getString("name");
@@ -180,8 +400,12 @@ public class MySQLProxy {
                                 "b'1'".equalsIgnoreCase((String) enabledValue);
                     }
 
-                    // Log scenario name and enabled state
-                    System.out.println("Fetched scenario: " + scenarioName + " is " + (isEnabled ? "enabled" : "disabled"));
+                    // Only changes are worth a line at INFO; this runs every few seconds
+                    if (!Boolean.valueOf(isEnabled).equals(previous.get(scenarioName))) {
+                        logger.info("Scenario {} is now {}", scenarioName, isEnabled ? "enabled" : "disabled");
+                    } else {
+                        logger.debug("Fetched scenario: {} is {}", scenarioName, isEnabled ? "enabled" : "disabled");
+                    }
                     scenarios.put(scenarioName, isEnabled);
                 }
             }
@@ -189,36 +413,34 @@ public class MySQLProxy {
             // Update injector states based on scenario settings
             boolean blackholeEnabled = scenarios.getOrDefault("query_blackhole", false);
             queryBlackholeInjector.setEnabled(blackholeEnabled);
-            System.out.println("🛑 [Query Blackhole] Scenario enabled: " + blackholeEnabled);
+            logger.debug("🛑 [Query Blackhole] Scenario enabled: {}", blackholeEnabled);
 
             boolean killEnabled = scenarios.getOrDefault("connection_kill", false);
             connectionKillInjector.setEnabled(killEnabled);
-            System.out.println("💣 [Connection Kill] Scenario enabled: " + killEnabled);
+            logger.debug("💣 [Connection Kill] Scenario enabled: {}", killEnabled);
 
             boolean diskFaultEnabled = scenarios.getOrDefault("disk_fault_injection", false);
             diskFaultInjector.setEnabled(diskFaultEnabled);
-            System.out.println("🗃️ [Disk Fault] Scenario enabled: " + diskFaultEnabled);
+            logger.debug("🗃️ [Disk Fault] Scenario enabled: {}", diskFaultEnabled);
 
             boolean packetLossEnabled = scenarios.getOrDefault("packet_loss", false);
             packetLossInjector.setEnabled(packetLossEnabled);
-            System.out.println("🔥 [Packet Loss] Scenario enabled: " + packetLossEnabled);
+            logger.debug("🔥 [Packet Loss] Scenario enabled: {}", packetLossEnabled);
 
             boolean latencyEnabled = scenarios.getOrDefault("latency_injection", false);
             latencyInjector.setEnabled(latencyEnabled);
-            System.out.println("⏱️ [Latency Injection] Scenario enabled: " + latencyEnabled);
+            logger.debug("⏱️ [Latency Injection] Scenario enabled: {}", latencyEnabled);
 
             // Handle stress testing
             boolean stressTestingEnabled = scenarios.getOrDefault("stress_testing", false);
 
-            System.out.println("💥 [Stress Test] Status check:");
-            System.out.println("💥 [Stress Test] Scenario enabled in DB: " + stressTestingEnabled);
-            System.out.println("💥 [Stress Test] Frontend configured: " + isFrontendConfigured());
-            System.out.println("💥 [Stress Test] Currently running: " + stressTester.isRunning());
-
-            if (stressTestingEnabled) {
-                System.out.println("💥 [Stress Test] JDBC URL: " + stressTester.getJdbcUrl());
-                System.out.println("💥 [Stress Test] Username: " + stressTester.getUsername());
-                System.out.println("💥 [Stress Test] Password set: " + (stressTester.getPassword() != null));
+            if (logger.isDebugEnabled()) {
+                logger.debug("💥 [Stress Test] Status check: enabled in DB {}, frontend configured {}, running {}",
+                        stressTestingEnabled, isFrontendConfigured(), stressTester.isRunning());
+                if (stressTestingEnabled) {
+                    logger.debug("💥 [Stress Test] JDBC URL: {}, username: {}, password set: {}", stressTester.getJdbcUrl(),
+                            stressTester.getUsername(), stressTester.getPassword() != null);
+                }
             }
 
             if (!stressTestingEnabled && stressTester.isRunning()) {
@@ -234,13 +456,13 @@ public class MySQLProxy {
         }
     }
 
+    // The health probe's last result while it is fresh, so this does not open a connection of its own every tick
     private static boolean isDatabaseConnected() {
-        try (Connection conn = DriverManager.getConnection("jdbc:mysql://" + targetHost + ":" + targetPort + "/proxybase", DB_USER, DB_PASSWORD)) {
-            return conn != null && !conn.isClosed();
-        } catch (SQLException e) {
-            System.err.println("[MySQLProxy] Connection failed: " + e.getMessage());
-            return false;
+        TargetHealthProbe.Result result = currentHealthProbe().current(PROBE_TIMEOUT_MS, 2 * PROBE_INTERVAL_MS);
+        if (!result.reachable()) {
+            System.err.println("[MySQLProxy] Connection failed: " + result.error());
         }
+        return result.reachable();
     }
 
     private static void forwardClientToServer(Socket clientSocket, Socket mysqlSocket, AtomicReference<ConnectionState> state) {
@@ -251,46 +473,30 @@ public class MySQLProxy {
                 byte[] packet = readPacket(clientIn);
                 if (packet == null) break;
 
-                if (isScenarioEnabled("packet_loss") && packetLossInjector.shouldSuppressResponseAfterDb()) {
-                    System.out.println("🔥 [Packet Loss] Suppressing server->client response (after DB)");
+                if (shouldDropClientPacket()) {
                     continue;
                 }
 
 
                 ConnectionState currentState = state.get();
+                if (!currentState.beginCommand(packet)) {
+                    break; // drained by a target switchover
+                }
+                String query = null;
                 if (currentState.isHandshakeComplete() && isComQuery(packet)) {
-                    String query = extractQuery(packet);
-                    if (query != null) {
-                        String queryType = getQueryType(query);
-                        currentState.setCurrentQueryType(queryType);
-                        currentState.setLastQuery(query); // Store for later use
-                        System.out.println("Detected query: " + query + " (Type: " + queryType + ")");
-
-                        if (isScenarioEnabled("latency_injection")) {
-                            latencyInjector.injectLatencyBeforeQuery(query);
-                        }
-
-                        if (isScenarioEnabled("connection_kill") && connectionKillInjector.shouldKill(query)) {
-                            System.out.println("💣 [Connection Kill] Killing connection for query: " + query);
-                            connectionKillInjector.killConnection(clientSocket);
-                            return;
-                        }
-
-                        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-                            queryBlackholeInjector.updateLastQuery(query, conn);
-                        } catch (SQLException e) {
-                            System.err.println("[QueryBlackhole] DB logging failed: " + e.getMessage());
-                        }
-
-                        // ❌ Remove diskFaultInjector.shouldBlockQuery() from here!
+                    query = extractQuery(packet);
+                    if (query != null && !applyQueryScenarios(query, currentState, clientSocket)) {
+                        return;
                     }
                 }
 
+                // The clock starts before the write: the response may arrive before write() returns
+                currentState.startTiming(query);
                 mysqlOut.write(packet);
                 mysqlOut.flush();
             }
         } catch (IOException e) {
-            System.err.println("Client to server error: " + e.getMessage());
+            ProxyLog.CONNECTIONS.warn("Client to server error: {}", e.getMessage());
         }
     }
 
@@ -307,48 +513,108 @@ public class MySQLProxy {
                 ConnectionState currentState = state.get();
 
                 if (!currentState.isHandshakeComplete() && isOkPacket(packet)) {
-                    currentState.setHandshakeComplete(true);
-                    System.out.println("[MySQLProxy] Handshake complete for a connection.");
-                    attemptStartStressTest();
+                    onHandshakeComplete(currentState);
+                } else {
+                    currentState.onServerPacket(packet);
                 }
 
-                // ✅ Disk fault injection happens here AFTER the query has been executed by the DB
-                if (isScenarioEnabled("disk_fault_injection")) {
-                    String lastQuery = currentState.getLastQuery();
-                    boolean dbExecutionSuccess = isOkPacket(packet); // MySQL OK packet
-
-                    if (diskFaultInjector.shouldInjectError(lastQuery, dbExecutionSuccess)) {
-                        System.out.println("🗃️ [Disk Fault] Injecting fake disk error AFTER DB execution.");
-                        clientOut.write(diskFaultInjector.fakeDiskErrorPacket());
-                        clientOut.flush();
-                        continue; // skip sending real response
-                    }
-                }
-
-                if (isScenarioEnabled("query_blackhole") && queryBlackholeInjector.shouldDropResponse()) {
-                    System.out.println("🛑 [Query Blackhole] Dropping server->client response packet.");
+                byte[] response = applyResponseScenarios(packet, currentState);
+                if (response == null) {
                     continue;
                 }
 
-                // Handle post-DB packet loss (simulate response being lost AFTER DB processed query)
-                if (isScenarioEnabled("packet_loss") && packetLossInjector.shouldSuppressResponseAfterDb()) {
-                    System.out.println("🔥 [Packet Loss] Suppressing server->client response (after DB)");
-                    continue;
-                }
+                clientOut.write(response);
+                clientOut.flush();
+            }
+        } catch (IOException e) {
+            ProxyLog.CONNECTIONS.warn("Server to client error: {}", e.getMessage());
+        }
+    }
 
+    static void onHandshakeComplete(ConnectionState currentState) {
+        currentState.setHandshakeComplete(true);
+        ProxyLog.CONNECTIONS.info("[MySQLProxy] Handshake complete for a connection.");
+        attemptStartStressTest();
+    }
 
+    static boolean shouldDropClientPacket() {
+        if (isScenarioEnabled("packet_loss") && packetLossInjector.shouldSuppressResponseAfterDb()) {
+            ProxyLog.FAULTS.info("🔥 [Packet Loss] Suppressing server->client response (after DB)");
+            return true;
+        }
+        return false;
+    }
 
-                if (!isScenarioEnabled("stress_testing") && stressTester.isRunning()) {
-                    System.out.println("💥 [Stress Test] Stopping test as scenario is disabled");
-                    stressTester.stopStressTest();
-                }
+    /**
+     * Query-side scenarios for a COM_QUERY. Returns false when the client connection was killed.
+     */
+    static boolean applyQueryScenarios(String query, ConnectionState currentState, Socket clientSocket) {
+        queryCapture.record(currentState.getId(), query);
+        String queryType = getQueryType(query);
+        currentState.setCurrentQueryType(queryType);
+        currentState.setLastQuery(query); // Store for later use
+        ProxyLog.QUERIES.info("Detected query: {} (Type: {})", query, queryType);
+
+        if (isScenarioEnabled("latency_injection")) {
+            latencyInjector.injectLatencyBeforeQuery(query);
+        }
 
-                clientOut.write(packet);
-                clientOut.flush();
+        if (isScenarioEnabled("connection_kill") && connectionKillInjector.shouldKill(query)) {
+            ProxyLog.FAULTS.info("💣 [Connection Kill] Killing connection for query: {}", query);
+            connectionKillInjector.killConnection(clientSocket);
+            return false;
+        }
+
+        // Only open a control-DB connection when the blackhole log is actually written
+        if (isScenarioEnabled("query_blackhole")) {
+            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+                queryBlackholeInjector.updateLastQuery(query, conn);
+            } catch (SQLException e) {
+                System.err.println("[QueryBlackhole] DB logging failed: " + e.getMessage());
             }
-        } catch (IOException e) {
-            System.err.println("Server to client error: " + e.getMessage());
+        } else {
+            queryBlackholeInjector.updateLastQuery(query, null);
         }
+
+        // ❌ Remove diskFaultInjector.shouldBlockQuery() from here!
+        return true;
+    }
+
+    /**
+     * Response-side scenarios for one server packet. Returns what to send to the client: the packet
+     * itself, an injected error packet, or null when the packet is dropped.
+     */
+    static byte[] applyResponseScenarios(byte[] packet, ConnectionState currentState) {
+        // ✅ Disk fault injection happens here AFTER the query has been executed by the DB
+        if (isScenarioEnabled("disk_fault_injection")) {
+            String lastQuery = currentState.getLastQuery();
+            boolean dbExecutionSuccess = isOkPacket(packet); // MySQL OK packet
+
+            if (diskFaultInjector.shouldInjectError(lastQuery, dbExecutionSuccess)) {
+                ProxyLog.FAULTS.info("🗃️ [Disk Fault] Injecting fake disk error AFTER DB execution.");
+                return diskFaultInjector.fakeDiskErrorPacket(); // skip sending real response
+            }
+        }
+
+        if (isScenarioEnabled("query_blackhole") && queryBlackholeInjector.shouldDropResponse()) {
+            ProxyLog.FAULTS.info("🛑 [Query Blackhole] Dropping server->client response packet.");
+            return null;
+        }
+
+        // Handle post-DB packet loss (simulate response being lost AFTER DB processed query)
+        if (isScenarioEnabled("packet_loss") && packetLossInjector.shouldSuppressResponseAfterDb()) {
+            ProxyLog.FAULTS.info("🔥 [Packet Loss] Suppressing server->client response (after DB)");
+            return null;
+        }
+
+
+
+        if (!isScenarioEnabled("stress_testing") && stressTester.isRunning()) {
+            System.out.println("💥 [Stress Test] Stopping test as scenario is disabled");
+            stressTester.stopStressTest();
+        }
+
+        return packet;
     }
 
 
@@ -358,7 +624,11 @@ public class MySQLProxy {
             boolean started = stressTester.startStressTest();
             System.out.println("💥 [Stress Test] Start attempt result: " + started);
         } else {
-            System.out.println("[MySQLProxy] Conditions not met to start stress test - Scenario: " + isScenarioEnabled("stress_testing") + ", Configured: " + isFrontendConfigured() + ", Running: " + stressTester.isRunning());
+            // Runs on every client handshake, so only visible at DEBUG
+            if (logger.isDebugEnabled()) {
+                logger.debug("[MySQLProxy] Conditions not met to start stress test - Scenario: {}, Configured: {}, Running: {}",
+                        isScenarioEnabled("stress_testing"), isFrontendConfigured(), stressTester.isRunning());
+            }
         }
     }
 
@@ -368,7 +638,7 @@ public class MySQLProxy {
         }
     }
 
-    private static byte[] readPacket(InputStream in) throws IOException {
+    static byte[] readPacket(InputStream in) throws IOException {
         DataInputStream din = new DataInputStream(in);
         ByteArrayOutputStream completePacket = new ByteArrayOutputStream();
 
@@ -395,19 +665,19 @@ public class MySQLProxy {
         return completePacket.toByteArray();
     }
 
-    private static boolean isComQuery(byte[] packet) {
+    static boolean isComQuery(byte[] packet) {
         return packet.length > 4 && packet[4] == 0x03;
     }
 
-    private static String extractQuery(byte[] packet) {
+    static String extractQuery(byte[] packet) {
         return new String(packet, 5, packet.length - 5, StandardCharsets.UTF_8).trim();
     }
 
-    private static boolean isOkPacket(byte[] packet) {
+    static boolean isOkPacket(byte[] packet) {
         return packet.length > 4 && packet[4] == 0x00;
     }
 
-    private static String getQueryType(String query) {
+    static String getQueryType(String query) {
         String upperQuery = query.toUpperCase().trim();
         if (upperQuery.startsWith("SELECT") || upperQuery.startsWith("SHOW") || upperQuery.startsWith("DESCRIBE")) {
             return "DQL";
@@ -435,11 +705,62 @@ public class MySQLProxy {
         }
     }
 
+    /**
+     * A passthrough client and its backend socket, as seen by the target switchover.
+     */
+    private static final class RelaySession implements TargetSwitchover.Session {
+        private final Socket clientSocket;
+        private final Socket mysqlSocket;
+        private final String host;
+        private final int port;
+        private final ConnectionState state;
+
+        RelaySession(Socket clientSocket, Socket mysqlSocket, String host, int port, ConnectionState state) {
+            this.clientSocket = clientSocket;
+            this.mysqlSocket = mysqlSocket;
+            this.host = host;
+            this.port = port;
+            this.state = state;
+        }
+
+        @Override
+        public boolean isOnPreviousTarget(String host, int port) {
+            return !(this.port == port && this.host.equals(host));
+        }
+
+        @Override
+        public boolean closeAtTransactionBoundary() {
+            if (!state.closeIfBetweenTransactions()) return false;
+            close();
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closeSockets(clientSocket, mysqlSocket);
+        }
+    }
+
     public static class ConnectionState {
+        private static final AtomicLong NEXT_ID = new AtomicLong();
+
+        private final long id = NEXT_ID.incrementAndGet();
         private String currentQueryType;
         private String lastQuery;
         private boolean addDelay;
         private boolean handshakeComplete = false;
+        private final ResponseTracker tracker = new ResponseTracker();
+        private int clientCapabilities;
+        private int serverCapabilities;
+        private boolean closing;
+        private boolean awaitingSend;
+        private boolean timing;
+        private long sentAt;
+        private String timedQuery;
+
+        public long getId() {
+            return id;
+        }
 
         public synchronized String getCurrentQueryType() {
             return currentQueryType;
@@ -464,6 +785,62 @@ public class MySQLProxy {
 
         public synchronized void setHandshakeComplete(boolean complete) {
             this.handshakeComplete = complete;
+            tracker.setDeprecateEof((clientCapabilities & serverCapabilities & MySQLProtocol.CLIENT_DEPRECATE_EOF) != 0);
+        }
+
+        /**
+         * Called for every client packet before it is forwarded. Returns false once the session has
+         * been closed by a drain, in which case the packet must not reach the server.
+         */
+        public synchronized boolean beginCommand(byte[] packet) {
+            if (closing) return false;
+            if (!handshakeComplete) {
+                if (clientCapabilities == 0 && packet.length >= 8) {
+                    clientCapabilities = (int) MySQLProtocol.readIntLE(packet, 4, 4);
+                }
+            } else if (tracker.isComplete() && packet.length > 4) {
+                awaitingSend = tracker.begin(packet[4] & 0xFF);
+            }
+            return true;
+        }
+
+        /**
+         * Starts the response clock for the command {@link #beginCommand} just saw, after the scenarios ran
+         * and right before it goes to the server. {@code query} is the statement text for COM_QUERY and null
+         * for other commands.
+         */
+        public synchronized void startTiming(String query) {
+            if (awaitingSend) {
+                awaitingSend = false;
+                timing = true;
+                timedQuery = query;
+                sentAt = System.nanoTime();
+            }
+        }
+
+        public synchronized void onServerPacket(byte[] packet) {
+            if (!handshakeComplete) {
+                if (serverCapabilities == 0 && packet.length > 4 && packet[4] == 10) {
+                    serverCapabilities = MySQLProtocol.parseHandshake(Arrays.copyOfRange(packet, 4, packet.length)).capabilities;
+                }
+                return;
+            }
+            if (tracker.onServerPacket(packet) && timing) {
+                timing = false;
+                queryTimings.record(tracker.getCommand(), timedQuery, System.nanoTime() - sentAt,
+                        tracker.getRows(), tracker.isError() ? tracker.getErrorCode() : 0);
+                timedQuery = null;
+            }
+        }
+
+        /**
+         * Marks the session as closing if no command is in flight and no transaction is open.
+         */
+        public synchronized boolean closeIfBetweenTransactions() {
+            if (handshakeComplete && tracker.isComplete() && !tracker.isInTransaction()) {
+                closing = true;
+            }
+            return closing;
         }
 
         public synchronized String getLastQuery() {
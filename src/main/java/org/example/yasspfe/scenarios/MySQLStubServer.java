@@ -0,0 +1,728 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lightweight MySQL wire-protocol server used as a stand-in backend for proxy benchmarks and tests.
+ * It completes the handshake with mysql_native_password and answers COM_QUERY with synthetic
+ * result sets, OK or ERR packets. All connections are served by a few NIO selector loops.
+ * <p>
+ * Defaults (row count, row width, column count, delay) apply to every result set. A single
+ * statement can override them with a block comment whose text is {@code stub: rows=500, width=256, delay=5},
+ * or ask for an ERR packet with {@code stub: err=1213}. {@code LOAD DATA LOCAL INFILE} asks the client for the
+ * file, counts the lines it sends and reports them as affected rows.
+ */
+public class MySQLStubServer implements AutoCloseable {
+
+    private static final String SERVER_VERSION = "8.0.36-stub";
+    private static final Pattern HINT = Pattern.compile("/\\*\\s*stub:([^*]*)\\*/", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LEADING_COMMENTS = Pattern.compile("^(\\s*/\\*.*?\\*/)*\\s*", Pattern.DOTALL);
+    private static final Pattern SYSTEM_VARIABLE = Pattern.compile(
+            "@@(?:session\\.|global\\.|local\\.)?([a-z_]+)(?:\\s+AS\\s+`?([a-z_]+)`?)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AUTOCOMMIT = Pattern.compile("autocommit\\s*=\\s*(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Map<String, String> SYSTEM_VARIABLES = new HashMap<>();
+
+    static {
+        SYSTEM_VARIABLES.put("auto_increment_increment", "1");
+        SYSTEM_VARIABLES.put("character_set_client", "utf8mb4");
+        SYSTEM_VARIABLES.put("character_set_connection", "utf8mb4");
+        SYSTEM_VARIABLES.put("character_set_results", "utf8mb4");
+        SYSTEM_VARIABLES.put("character_set_server", "utf8mb4");
+        SYSTEM_VARIABLES.put("collation_server", "utf8mb4_0900_ai_ci");
+        SYSTEM_VARIABLES.put("collation_connection", "utf8mb4_0900_ai_ci");
+        SYSTEM_VARIABLES.put("init_connect", "");
+        SYSTEM_VARIABLES.put("interactive_timeout", "28800");
+        SYSTEM_VARIABLES.put("license", "GPL");
+        SYSTEM_VARIABLES.put("lower_case_table_names", "0");
+        SYSTEM_VARIABLES.put("max_allowed_packet", "67108864");
+        SYSTEM_VARIABLES.put("net_write_timeout", "60");
+        SYSTEM_VARIABLES.put("performance_schema", "0");
+        SYSTEM_VARIABLES.put("sql_mode", "ONLY_FULL_GROUP_BY,STRICT_TRANS_TABLES,NO_ENGINE_SUBSTITUTION");
+        SYSTEM_VARIABLES.put("system_time_zone", "UTC");
+        SYSTEM_VARIABLES.put("time_zone", "SYSTEM");
+        SYSTEM_VARIABLES.put("transaction_isolation", "REPEATABLE-READ");
+        SYSTEM_VARIABLES.put("tx_isolation", "REPEATABLE-READ");
+        SYSTEM_VARIABLES.put("transaction_read_only", "0");
+        SYSTEM_VARIABLES.put("wait_timeout", "28800");
+        SYSTEM_VARIABLES.put("version", SERVER_VERSION);
+        SYSTEM_VARIABLES.put("version_comment", "MySQL protocol stub");
+    }
+
+    private int port;
+    private String user = "root";
+    private String password = "root";
+    private int rows = 10;
+    private int rowWidth = 64;
+    private int columns = 4;
+    private long delayMillis = 0;
+    private int ioThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private ServerSocketChannel serverChannel;
+    private IoLoop[] loops;
+    private ScheduledExecutorService delayScheduler;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicLong connectionIds = new AtomicLong();
+    private final AtomicLong connectionsAccepted = new AtomicLong();
+    private final AtomicLong queriesServed = new AtomicLong();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final Map<String, byte[]> resultSetCache = new ConcurrentHashMap<>();
+    private volatile Consumer<String> queryListener;
+
+    public MySQLStubServer(int port) {
+        this.port = port;
+    }
+
+    public void setCredentials(String user, String password) {
+        this.user = user;
+        this.password = password;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    public void setRowWidth(int rowWidth) {
+        this.rowWidth = rowWidth;
+    }
+
+    public void setColumns(int columns) {
+        this.columns = columns;
+    }
+
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = Math.max(1, ioThreads);
+    }
+
+    /**
+     * Hands the text of every COM_QUERY to {@code listener}, on the connection's selector thread; null stops it.
+     */
+    public void setQueryListener(Consumer<String> listener) {
+        this.queryListener = listener;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public long getConnectionsAccepted() {
+        return connectionsAccepted.get();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getQueriesServed() {
+        return queriesServed.get();
+    }
+
+    /**
+     * Binds the listener and starts the selector loops.
+     *
+     * @return the bound port, useful when constructed with port 0
+     */
+    public synchronized int start() throws IOException {
+        if (serverChannel != null) return port;
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(port), 4096);
+        serverChannel.configureBlocking(false);
+        port = serverChannel.socket().getLocalPort();
+
+        delayScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mysql-stub-delay");
+            t.setDaemon(true);
+            return t;
+        });
+
+        loops = new IoLoop[ioThreads];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(i);
+        }
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (IoLoop loop : loops) {
+            loop.thread.start();
+        }
+
+        System.out.println("[MySQLStubServer] Listening on port " + port + " with " + loops.length + " I/O threads");
+        return port;
+    }
+
+    public synchronized void stop() {
+        if (serverChannel == null) return;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("[MySQLStubServer] Error closing listener: " + e.getMessage());
+        }
+        for (IoLoop loop : loops) {
+            loop.shutdown();
+        }
+        delayScheduler.shutdownNow();
+        serverChannel = null;
+        System.out.println("[MySQLStubServer] Stopped after " + connectionsAccepted.get() + " connections, "
+                + queriesServed.get() + " queries");
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            connectionsAccepted.incrementAndGet();
+            IoLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+            SocketChannel accepted = channel;
+            loop.execute(() -> loop.register(accepted));
+        }
+    }
+
+    private byte[] resultSet(int rowCount, int width, int columnCount, int status) {
+        String key = rowCount + ":" + width + ":" + columnCount + ":" + status;
+        return resultSetCache.computeIfAbsent(key, k -> buildResultSet(rowCount, width, columnCount, status));
+    }
+
+    private static byte[] buildResultSet(int rowCount, int width, int columnCount, int status) {
+        int cellWidth = Math.max(1, width / columnCount);
+        StringBuilder cell = new StringBuilder(cellWidth);
+        for (int i = 0; i < cellWidth; i++) {
+            cell.append((char) ('a' + i % 26));
+        }
+        String value = cell.toString();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + columnCount * 48 + rowCount * (width + 8));
+        int seq = 1;
+        ByteArrayOutputStream count = new ByteArrayOutputStream(1);
+        MySQLProtocol.writeLenencInt(count, columnCount);
+        out.writeBytes(MySQLProtocol.packet(seq++, count.toByteArray()));
+        for (int c = 1; c <= columnCount; c++) {
+            out.writeBytes(MySQLProtocol.packet(seq++ & 0xFF,
+                    MySQLProtocol.columnDefinitionPayload("stub", "synthetic", "c" + c, cellWidth * 4)));
+        }
+        out.writeBytes(MySQLProtocol.packet(seq++ & 0xFF, MySQLProtocol.eofPayload(status)));
+        ByteArrayOutputStream row = new ByteArrayOutputStream(width + columnCount * 3);
+        for (int c = 0; c < columnCount; c++) {
+            MySQLProtocol.writeLenencString(row, value);
+        }
+        byte[] rowPayload = row.toByteArray();
+        for (int r = 0; r < rowCount; r++) {
+            out.writeBytes(MySQLProtocol.packet(seq++ & 0xFF, rowPayload));
+        }
+        out.writeBytes(MySQLProtocol.packet(seq & 0xFF, MySQLProtocol.eofPayload(status)));
+        return out.toByteArray();
+    }
+
+    private static byte[] systemVariables(String sql, int status) {
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        Matcher m = SYSTEM_VARIABLE.matcher(sql);
+        while (m.find()) {
+            String variable = m.group(1).toLowerCase(Locale.ROOT);
+            names.add(m.group(2) != null ? m.group(2) : m.group(0));
+            values.add(SYSTEM_VARIABLES.get(variable));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        int seq = 1;
+        ByteArrayOutputStream count = new ByteArrayOutputStream(1);
+        MySQLProtocol.writeLenencInt(count, names.size());
+        out.writeBytes(MySQLProtocol.packet(seq++, count.toByteArray()));
+        for (String name : names) {
+            out.writeBytes(MySQLProtocol.packet(seq++, MySQLProtocol.columnDefinitionPayload("", "", name, 1024)));
+        }
+        out.writeBytes(MySQLProtocol.packet(seq++, MySQLProtocol.eofPayload(status)));
+        ByteArrayOutputStream row = new ByteArrayOutputStream(256);
+        for (String value : values) {
+            MySQLProtocol.writeLenencString(row, value);
+        }
+        out.writeBytes(MySQLProtocol.packet(seq++, row.toByteArray()));
+        out.writeBytes(MySQLProtocol.packet(seq, MySQLProtocol.eofPayload(status)));
+        return out.toByteArray();
+    }
+
+    private static String sqlStateFor(int code) {
+        return switch (code) {
+            case 1045 -> "28000";
+            case 1062 -> "23000";
+            case 1146 -> "42S02";
+            case 1213 -> "40001";
+            case 1040 -> "08004";
+            default -> "HY000";
+        };
+    }
+
+    /**
+     * One selector thread serving a share of the connections.
+     */
+    private final class IoLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        volatile boolean running = true;
+
+        IoLoop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "mysql-stub-io-" + index);
+            thread.setDaemon(true);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(SocketChannel channel) {
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                StubConnection connection = new StubConnection(channel, key, this);
+                key.attach(connection);
+                openConnections.incrementAndGet();
+                connection.sendHandshake();
+            } catch (IOException e) {
+                System.err.println("[MySQLStubServer] Error registering connection: " + e.getMessage());
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // already failing
+                }
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+            try {
+                thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(1000);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        try {
+                            task.run();
+                        } catch (RuntimeException e) {
+                            System.err.println("[MySQLStubServer] Task failed: " + e);
+                        }
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) continue;
+                        try {
+                            if (key.isAcceptable()) {
+                                accept();
+                                continue;
+                            }
+                            StubConnection connection = (StubConnection) key.attachment();
+                            if (key.isReadable()) connection.onReadable();
+                            if (key.isValid() && key.isWritable()) connection.onWritable();
+                        } catch (IOException e) {
+                            Object attachment = key.attachment();
+                            if (attachment instanceof StubConnection connection) {
+                                connection.close();
+                            }
+                        } catch (RuntimeException e) {
+                            // A malformed packet or hint: fail that client only, not the whole loop
+                            Object attachment = key.attachment();
+                            if (attachment instanceof StubConnection connection) {
+                                connection.fail(e);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    System.err.println("[MySQLStubServer] I/O loop failed: " + e.getMessage());
+                }
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof StubConnection connection) {
+                        connection.close();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // shutting down
+                }
+            }
+        }
+    }
+
+    private static final int STATE_AUTH = 0;
+    private static final int STATE_AUTH_SWITCH = 1;
+    private static final int STATE_COMMAND = 2;
+    private static final int STATE_LOCAL_INFILE = 3;
+
+    /**
+     * Protocol state for a single client connection. Only touched from its selector thread.
+     */
+    private final class StubConnection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final IoLoop loop;
+        final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+        final byte[] scramble = MySQLProtocol.newScramble();
+        ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+        ByteArrayOutputStream multiFrame;
+        int state = STATE_AUTH;
+        int lastSequenceId;
+        long infileLines;
+        String clientUser;
+        boolean autocommit = true;
+        boolean inTransaction;
+        boolean closeAfterFlush;
+        boolean closed;
+
+        StubConnection(SocketChannel channel, SelectionKey key, IoLoop loop) {
+            this.channel = channel;
+            this.key = key;
+            this.loop = loop;
+        }
+
+        int status() {
+            return (autocommit ? MySQLProtocol.SERVER_STATUS_AUTOCOMMIT : 0)
+                    | (inTransaction ? MySQLProtocol.SERVER_STATUS_IN_TRANS : 0);
+        }
+
+        void sendHandshake() throws IOException {
+            send(MySQLProtocol.packet(0, MySQLProtocol.handshakeV10Payload(connectionIds.incrementAndGet(),
+                    SERVER_VERSION, scramble, MySQLProtocol.SERVER_CAPABILITIES, MySQLProtocol.UTF8MB4_0900_AI_CI,
+                    MySQLProtocol.SERVER_STATUS_AUTOCOMMIT, MySQLProtocol.NATIVE_PASSWORD)));
+        }
+
+        void onReadable() throws IOException {
+            if (closeAfterFlush) return;
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= 4) {
+                int start = readBuffer.position();
+                int length = (readBuffer.get(start) & 0xFF) | ((readBuffer.get(start + 1) & 0xFF) << 8)
+                        | ((readBuffer.get(start + 2) & 0xFF) << 16);
+                int sequenceId = readBuffer.get(start + 3) & 0xFF;
+                if (readBuffer.remaining() < 4 + length) {
+                    if (readBuffer.capacity() < 4 + length) {
+                        ByteBuffer larger = ByteBuffer.allocate(4 + length);
+                        larger.put(readBuffer);
+                        readBuffer = larger;
+                        return;
+                    }
+                    break;
+                }
+                byte[] payload = new byte[length];
+                readBuffer.position(start + 4);
+                readBuffer.get(payload);
+                onFrame(sequenceId, payload, length == MySQLProtocol.MAX_PAYLOAD);
+                if (closed) return;
+            }
+            readBuffer.compact();
+        }
+
+        void onFrame(int sequenceId, byte[] payload, boolean continued) throws IOException {
+            lastSequenceId = sequenceId;
+            if (continued || multiFrame != null) {
+                if (multiFrame == null) multiFrame = new ByteArrayOutputStream(payload.length * 2);
+                multiFrame.writeBytes(payload);
+                if (continued) return;
+                payload = multiFrame.toByteArray();
+                multiFrame = null;
+            }
+            switch (state) {
+                case STATE_AUTH -> onHandshakeResponse(sequenceId, payload);
+                case STATE_AUTH_SWITCH -> authenticate(sequenceId, payload);
+                case STATE_LOCAL_INFILE -> onInfileData(sequenceId, payload);
+                default -> onCommand(payload);
+            }
+        }
+
+        void onHandshakeResponse(int sequenceId, byte[] payload) throws IOException {
+            MySQLProtocol.HandshakeResponse response = MySQLProtocol.parseHandshakeResponse(payload);
+            clientUser = response.user;
+            if (response.authPlugin != null && !MySQLProtocol.NATIVE_PASSWORD.equals(response.authPlugin)) {
+                state = STATE_AUTH_SWITCH;
+                send(MySQLProtocol.packet(sequenceId + 1,
+                        MySQLProtocol.authSwitchRequestPayload(MySQLProtocol.NATIVE_PASSWORD, scramble)));
+                return;
+            }
+            authenticate(sequenceId, response.authResponse);
+        }
+
+        void authenticate(int sequenceId, byte[] token) throws IOException {
+            boolean userMatches = user.equals(clientUser);
+            boolean passwordMatches = (password == null || password.isEmpty())
+                    ? token.length == 0
+                    : MySQLProtocol.verifyNativePassword(password, scramble, token);
+            if (userMatches && passwordMatches) {
+                state = STATE_COMMAND;
+                send(MySQLProtocol.packet(sequenceId + 1, MySQLProtocol.okPayload(0, 0, status(), 0)));
+            } else {
+                closeAfterFlush = true;
+                send(MySQLProtocol.packet(sequenceId + 1, MySQLProtocol.errPayload(1045, "28000",
+                        "Access denied for user '" + clientUser + "'")));
+            }
+        }
+
+        void onCommand(byte[] payload) throws IOException {
+            if (payload.length == 0) return;
+            int command = payload[0] & 0xFF;
+            switch (command) {
+                case MySQLProtocol.COM_QUIT -> close();
+                case MySQLProtocol.COM_PING, MySQLProtocol.COM_INIT_DB, MySQLProtocol.COM_RESET_CONNECTION -> {
+                    if (command == MySQLProtocol.COM_RESET_CONNECTION) {
+                        autocommit = true;
+                        inTransaction = false;
+                    }
+                    send(MySQLProtocol.packet(1, MySQLProtocol.okPayload(0, 0, status(), 0)));
+                }
+                case MySQLProtocol.COM_SET_OPTION -> send(MySQLProtocol.packet(1, MySQLProtocol.eofPayload(status())));
+                case MySQLProtocol.COM_QUERY -> onQuery(new String(payload, 1, payload.length - 1, StandardCharsets.UTF_8));
+                case MySQLProtocol.COM_STMT_CLOSE -> { } // no response
+                case MySQLProtocol.COM_STMT_PREPARE -> send(MySQLProtocol.packet(1,
+                        MySQLProtocol.errPayload(1295, "HY000", "Prepared statements are not supported by the stub")));
+                default -> send(MySQLProtocol.packet(1,
+                        MySQLProtocol.errPayload(1047, "08S01", "Unknown command " + command)));
+            }
+        }
+
+        void onQuery(String sql) throws IOException {
+            queriesServed.incrementAndGet();
+            Consumer<String> listener = queryListener;
+            if (listener != null) listener.accept(sql);
+            int rowCount = rows;
+            int width = rowWidth;
+            int columnCount = columns;
+            long delay = delayMillis;
+            int error = 0;
+
+            Matcher hint = HINT.matcher(sql);
+            if (hint.find()) {
+                for (String option : hint.group(1).split(",")) {
+                    String[] kv = option.trim().split("=", 2);
+                    if (kv.length != 2) continue;
+                    int value = Integer.parseInt(kv[1].trim());
+                    switch (kv[0].trim().toLowerCase(Locale.ROOT)) {
+                        case "rows" -> rowCount = value;
+                        case "width" -> width = value;
+                        case "columns" -> columnCount = Math.max(1, value);
+                        case "delay" -> delay = value;
+                        case "err" -> error = value;
+                        default -> { }
+                    }
+                }
+            }
+
+            byte[] response;
+            if (error != 0) {
+                response = MySQLProtocol.packet(1, MySQLProtocol.errPayload(error, sqlStateFor(error),
+                        "Stub error " + error));
+            } else {
+                String statement = LEADING_COMMENTS.matcher(sql).replaceFirst("");
+                int end = 0;
+                while (end < statement.length() && Character.isLetter(statement.charAt(end))) end++;
+                String keyword = statement.substring(0, end).toUpperCase(Locale.ROOT);
+                response = switch (keyword) {
+                    case "SELECT" -> statement.contains("@@") && !statement.toUpperCase(Locale.ROOT).contains(" FROM ")
+                            ? systemVariables(statement, status())
+                            : resultSet(rowCount, width, columnCount, status());
+                    case "SHOW", "DESCRIBE", "DESC", "EXPLAIN", "WITH", "TABLE", "VALUES" ->
+                            resultSet(rowCount, width, columnCount, status());
+                    case "LOAD" -> statement.toUpperCase(Locale.ROOT).contains(" LOCAL INFILE")
+                            ? requestLocalInfile()
+                            : ok(keyword, statement);
+                    default -> ok(keyword, statement);
+                };
+            }
+
+            if (delay > 0) {
+                byte[] delayed = response;
+                delayScheduler.schedule(() -> loop.execute(() -> {
+                    try {
+                        send(delayed);
+                    } catch (IOException e) {
+                        close();
+                    }
+                }), delay, TimeUnit.MILLISECONDS);
+            } else {
+                send(response);
+            }
+        }
+
+        // The client answers with the file's contents and an empty packet after the last of them
+        byte[] requestLocalInfile() {
+            state = STATE_LOCAL_INFILE;
+            infileLines = 0;
+            byte[] name = "stub.tsv".getBytes(StandardCharsets.UTF_8);
+            byte[] payload = new byte[1 + name.length];
+            payload[0] = (byte) 0xFB;
+            System.arraycopy(name, 0, payload, 1, name.length);
+            return MySQLProtocol.packet(1, payload);
+        }
+
+        void onInfileData(int sequenceId, byte[] payload) throws IOException {
+            if (payload.length > 0) {
+                for (byte b : payload) {
+                    if (b == '\n') infileLines++;
+                }
+                return;
+            }
+            state = STATE_COMMAND;
+            if (!autocommit) inTransaction = true;
+            send(MySQLProtocol.packet(sequenceId + 1, MySQLProtocol.okPayload(infileLines, 0, status(), 0)));
+        }
+
+        byte[] ok(String keyword, String statement) {
+            long affected = 0;
+            switch (keyword) {
+                case "BEGIN", "START" -> inTransaction = true;
+                case "COMMIT", "ROLLBACK" -> inTransaction = false;
+                case "SET" -> {
+                    Matcher m = AUTOCOMMIT.matcher(statement);
+                    if (m.find()) {
+                        String value = m.group(1).toUpperCase(Locale.ROOT);
+                        autocommit = !(value.equals("0") || value.equals("OFF") || value.equals("FALSE"));
+                        if (autocommit) inTransaction = false;
+                    }
+                }
+                case "INSERT", "UPDATE", "DELETE", "REPLACE" -> {
+                    affected = 1;
+                    if (!autocommit) inTransaction = true;
+                }
+                default -> { }
+            }
+            return MySQLProtocol.packet(1, MySQLProtocol.okPayload(affected, 0, status(), 0));
+        }
+
+        void send(byte[] bytes) throws IOException {
+            if (closed) return;
+            writeQueue.add(ByteBuffer.wrap(bytes));
+            onWritable();
+        }
+
+        void onWritable() throws IOException {
+            while (!writeQueue.isEmpty()) {
+                ByteBuffer head = writeQueue.peek();
+                channel.write(head);
+                if (head.hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writeQueue.poll();
+            }
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+            if (closeAfterFlush) close();
+        }
+
+        /**
+         * Answers a packet the stub could not handle with an ERR packet and closes the connection after it.
+         */
+        void fail(RuntimeException e) {
+            if (closed) return;
+            multiFrame = null;
+            closeAfterFlush = true;
+            try {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                send(MySQLProtocol.packet(lastSequenceId + 1, MySQLProtocol.errPayload(1835, "HY000",
+                        "Malformed packet: " + e)));
+            } catch (IOException | RuntimeException ignored) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            openConnections.decrementAndGet();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // connection is going away regardless
+            }
+        }
+    }
+
+    /**
+     * Standalone entry point: {@code MySQLStubServer [port] [rows=N] [width=N] [columns=N] [delay=ms]
+     * [user=name] [password=secret] [threads=N]}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 3307;
+        List<String[]> options = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.contains("=")) {
+                options.add(arg.split("=", 2));
+            } else {
+                port = Integer.parseInt(arg);
+            }
+        }
+        MySQLStubServer server = new MySQLStubServer(port);
+        String user = "root";
+        String password = "root";
+        for (String[] option : options) {
+            switch (option[0]) {
+                case "rows" -> server.setRows(Integer.parseInt(option[1]));
+                case "width" -> server.setRowWidth(Integer.parseInt(option[1]));
+                case "columns" -> server.setColumns(Integer.parseInt(option[1]));
+                case "delay" -> server.setDelayMillis(Long.parseLong(option[1]));
+                case "threads" -> server.setIoThreads(Integer.parseInt(option[1]));
+                case "user" -> user = option[1];
+                case "password" -> password = option[1];
+                default -> System.err.println("[MySQLStubServer] Ignoring unknown option " + option[0]);
+            }
+        }
+        server.setCredentials(user, password);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+}
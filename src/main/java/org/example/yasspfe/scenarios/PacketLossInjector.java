@@ -43,7 +43,7 @@ public class PacketLossInjector {
 
         if (suppress) {
             responsesSuppressed.incrementAndGet();
-            System.out.println("🔍 [DB Resilience Test] Simulating packet loss AFTER DB execution (suppressing response)");
+            ProxyLog.FAULTS.info("🔍 [DB Resilience Test] Simulating packet loss AFTER DB execution (suppressing response)");
         }
 
         return suppress;
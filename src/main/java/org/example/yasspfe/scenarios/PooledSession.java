@@ -0,0 +1,409 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One client connection in the proxy's transaction pooling mode. The proxy completes the client
+ * handshake itself, then borrows a backend from the {@link BackendPool} for each statement and gives
+ * it back as soon as the server reports no open transaction. Session state is followed so a borrowed
+ * backend can be brought in line with the client:
+ * <ul>
+ *     <li>{@code USE} / COM_INIT_DB switch the pool key to the new schema;</li>
+ *     <li>plain {@code SET [SESSION] var = value} and {@code SET NAMES} are recorded and replayed on
+ *     the next backend that differs;</li>
+ *     <li>state that cannot be replayed (prepared statements, user variables, temporary tables, locks,
+ *     multi-statements) pins the backend to the client until it disconnects, after which the backend
+ *     is cleaned with COM_RESET_CONNECTION before going back to the pool.</li>
+ * </ul>
+ */
+class PooledSession implements Runnable, TargetSwitchover.Session {
+
+    private static final AtomicLong CONNECTION_IDS = new AtomicLong();
+    private static final Pattern LEADING_COMMENTS = Pattern.compile("^(\\s*/\\*.*?\\*/)*\\s*", Pattern.DOTALL);
+    private static final Pattern USE_SCHEMA = Pattern.compile("^USE\\s+`?([^`;\\s]+)`?\\s*;?\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PINNING_STATEMENT = Pattern.compile(
+            "^(PREPARE|LOCK\\s+TABLES?|CREATE\\s+TEMPORARY|HANDLER|XA)\\b|GET_LOCK\\s*\\(|SQL_CALC_FOUND_ROWS|:=",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern SESSION_PREFIX = Pattern.compile("^(SESSION\\s+|LOCAL\\s+|@@SESSION\\.|@@LOCAL\\.|@@)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final Socket clientSocket;
+    private final BackendPool pool;
+    private final ResponseTracker tracker = new ResponseTracker();
+    private final MySQLProxy.ConnectionState state = new MySQLProxy.ConnectionState();
+    private final Map<String, String> variables = new LinkedHashMap<>();
+    private InputStream clientIn;
+    private OutputStream clientOut;
+    private BackendPool.Key key;
+    private volatile BackendConnection backend;
+    private String pinReason;
+
+    PooledSession(Socket clientSocket, BackendPool pool) {
+        this.clientSocket = clientSocket;
+        this.pool = pool;
+    }
+
+    @Override
+    public void run() {
+        ProxyLog.CONNECTIONS.info("New pooled client connected: {}", clientSocket.getRemoteSocketAddress());
+        MySQLProxy.getSwitchover().register(this);
+        try {
+            clientIn = new BufferedInputStream(clientSocket.getInputStream(), 16 * 1024);
+            clientOut = new BufferedOutputStream(clientSocket.getOutputStream(), 16 * 1024);
+            if (authenticate()) {
+                MySQLProxy.onHandshakeComplete(state);
+                commandLoop();
+            }
+        } catch (IOException e) {
+            ProxyLog.CONNECTIONS.warn("[PooledSession] Session ended: {}", e.getMessage());
+        } finally {
+            MySQLProxy.getSwitchover().unregister(this);
+            if (backend != null) {
+                // Whatever the client left behind (open transaction, pinned state) must not leak to the next one
+                pool.release(backend, pinReason != null || tracker.isInTransaction() || !tracker.isComplete());
+                backend = null;
+            }
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+                ProxyLog.CONNECTIONS.warn("[PooledSession] Error closing socket: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean authenticate() throws IOException {
+        byte[] scramble = MySQLProtocol.newScramble();
+        sendToClient(MySQLProtocol.packet(0, MySQLProtocol.handshakeV10Payload(CONNECTION_IDS.incrementAndGet(),
+                pool.getServerVersion(), scramble, MySQLProtocol.SERVER_CAPABILITIES, MySQLProtocol.UTF8MB4_0900_AI_CI,
+                MySQLProtocol.SERVER_STATUS_AUTOCOMMIT, MySQLProtocol.NATIVE_PASSWORD)));
+
+        byte[] packet = MySQLProxy.readPacket(clientIn);
+        if (packet == null) return false;
+        MySQLProtocol.HandshakeResponse response = MySQLProtocol.parseHandshakeResponse(payload(packet));
+        int sequenceId = (packet[3] & 0xFF) + 1;
+        byte[] token = response.authResponse;
+
+        if (response.authPlugin != null && !MySQLProtocol.NATIVE_PASSWORD.equals(response.authPlugin)) {
+            sendToClient(MySQLProtocol.packet(sequenceId,
+                    MySQLProtocol.authSwitchRequestPayload(MySQLProtocol.NATIVE_PASSWORD, scramble)));
+            packet = MySQLProxy.readPacket(clientIn);
+            if (packet == null) return false;
+            token = payload(packet);
+            sequenceId = (packet[3] & 0xFF) + 1;
+        }
+
+        String password = pool.passwordFor(response.user);
+        boolean valid = password != null && (password.isEmpty()
+                ? token.length == 0
+                : MySQLProtocol.verifyNativePassword(password, scramble, token));
+        if (!valid) {
+            sendError(sequenceId, 1045, "28000", "Access denied for user '" + response.user + "'");
+            return false;
+        }
+
+        key = new BackendPool.Key(response.user, response.database == null ? "" : response.database,
+                response.charset, response.capabilities & BackendPool.KEY_CAPABILITIES);
+        try {
+            // Keep the backend for the first statement; connectors send their setup queries right away
+            backend = borrowBackend();
+        } catch (IOException e) {
+            sendError(sequenceId, 2003, "HY000", "Proxy cannot reach the database: " + e.getMessage());
+            return false;
+        }
+        sendToClient(MySQLProtocol.packet(sequenceId,
+                MySQLProtocol.okPayload(0, 0, MySQLProtocol.SERVER_STATUS_AUTOCOMMIT, 0)));
+        return true;
+    }
+
+    private void commandLoop() throws IOException {
+        while (true) {
+            byte[] packet = MySQLProxy.readPacket(clientIn);
+            if (packet == null || packet.length <= 4) return;
+            int command = packet[4] & 0xFF;
+            if (command == MySQLProtocol.COM_QUIT) return;
+
+            if (MySQLProxy.shouldDropClientPacket()) {
+                continue;
+            }
+            if (command == MySQLProtocol.COM_CHANGE_USER) {
+                sendError(1, 1235, "42000", "COM_CHANGE_USER is not supported by the pooling proxy");
+                continue;
+            }
+            synchronized (this) {
+                if (clientSocket.isClosed()) return;
+                if (!execute(packet, command)) return;
+            }
+        }
+    }
+
+    /**
+     * Runs one client command against a borrowed backend. Returns false when the client was killed.
+     */
+    private boolean execute(byte[] packet, int command) throws IOException {
+        String schemaChange = null;
+        Map<String, String> assignments = null;
+        String query = null;
+        if (command == MySQLProtocol.COM_QUERY) {
+            query = MySQLProxy.extractQuery(packet);
+            if (!MySQLProxy.applyQueryScenarios(query, state, clientSocket)) {
+                return false;
+            }
+            String statement = LEADING_COMMENTS.matcher(query).replaceFirst("");
+            Matcher use = USE_SCHEMA.matcher(statement);
+            if (use.matches()) {
+                schemaChange = use.group(1);
+            } else if (isMultiStatement(statement)) {
+                pin("multi-statement query");
+            } else if (statement.regionMatches(true, 0, "SET", 0, 3)
+                    && (statement.length() == 3 || Character.isWhitespace(statement.charAt(3)))) {
+                assignments = new LinkedHashMap<>();
+                String reason = parseSet(statement, assignments);
+                if (reason != null) pin(reason);
+            } else if (PINNING_STATEMENT.matcher(statement).find()) {
+                pin("session-bound statement");
+            }
+        } else if (command == MySQLProtocol.COM_INIT_DB) {
+            schemaChange = new String(packet, 5, packet.length - 5, StandardCharsets.UTF_8);
+        } else if (command == MySQLProtocol.COM_STMT_PREPARE) {
+            pin("prepared statement");
+        }
+
+        if (backend == null) {
+            try {
+                backend = borrowBackend();
+            } catch (IOException e) {
+                ProxyLog.CONNECTIONS.warn("[PooledSession] {}", e.getMessage());
+                sendError(1, 1040, "08004", "Proxy backend unavailable: " + e.getMessage());
+                return true;
+            }
+        }
+
+        try {
+            long sentAt = System.nanoTime();
+            backend.send(packet);
+            if (tracker.begin(command)) {
+                relayResponse();
+                MySQLProxy.getQueryTimings().record(command, query, System.nanoTime() - sentAt,
+                        tracker.getRows(), tracker.isError() ? tracker.getErrorCode() : 0);
+            }
+        } catch (IOException e) {
+            backend.markBroken();
+            throw e;
+        }
+
+        if (!tracker.isError()) {
+            if (schemaChange != null) {
+                key = new BackendPool.Key(key.user(), schemaChange, key.charset(), key.capabilities());
+                backend.setSchema(schemaChange);
+            }
+            if (assignments != null) {
+                variables.putAll(assignments);
+                backend.getVariables().putAll(assignments);
+            }
+        }
+
+        // Transaction boundary: hand the backend back unless the session is bound to it
+        if (pinReason == null && !tracker.isInTransaction()) {
+            pool.release(backend, false);
+            backend = null;
+        }
+        // Flushed last, so the backend is already back in the pool when the client sees the result
+        clientOut.flush();
+        return true;
+    }
+
+    @Override
+    public boolean isOnPreviousTarget(String host, int port) {
+        BackendConnection current = backend;
+        return current != null && !current.isTarget(host, port);
+    }
+
+    /**
+     * Unpinned sessions only hold a backend inside a transaction and move to the new target on their own;
+     * pinned ones are closed between transactions. Never runs while a command is in flight.
+     */
+    @Override
+    public synchronized boolean closeAtTransactionBoundary() {
+        if (pinReason == null || tracker.isInTransaction() || !tracker.isComplete()) return false;
+        close();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            ProxyLog.CONNECTIONS.warn("[PooledSession] Error closing socket: {}", e.getMessage());
+        }
+    }
+
+    private void relayResponse() throws IOException {
+        while (true) {
+            byte[] packet = backend.readPacket();
+            boolean complete = tracker.onServerPacket(packet);
+            byte[] response = MySQLProxy.applyResponseScenarios(packet, state);
+            if (response != null) {
+                clientOut.write(response);
+            }
+            if (complete) break;
+            if (tracker.isAwaitingClientData()) {
+                clientOut.flush();
+                relayLocalInfile();
+            }
+        }
+    }
+
+    private void relayLocalInfile() throws IOException {
+        while (true) {
+            byte[] data = MySQLProxy.readPacket(clientIn);
+            if (data == null) throw new IOException("Client closed during LOCAL INFILE upload");
+            backend.send(data);
+            if (data.length == 4) return; // empty packet ends the upload
+        }
+    }
+
+    private BackendConnection borrowBackend() throws IOException {
+        BackendConnection connection = pool.acquire(key, MySQLProxy.getTargetHost(), MySQLProxy.getTargetPort());
+        try {
+            restoreVariables(connection);
+            return connection;
+        } catch (IOException e) {
+            connection.markBroken();
+            pool.release(connection, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Brings the backend's session variables in line with this client: a reset when it carries
+     * variables the client never set, then one SET with every assignment that differs.
+     */
+    private void restoreVariables(BackendConnection connection) throws IOException {
+        Map<String, String> applied = connection.getVariables();
+        if (applied.equals(variables)) return;
+        if (!variables.keySet().containsAll(applied.keySet()) && !connection.reset()) {
+            throw new IOException("Cannot reset backend connection " + connection.getConnectionId());
+        }
+        StringJoiner set = new StringJoiner(", ", "SET ", "");
+        for (Map.Entry<String, String> entry : variables.entrySet()) {
+            if (!entry.getValue().equals(applied.get(entry.getKey()))) {
+                set.add(entry.getValue());
+            }
+        }
+        if (set.length() > 4) {
+            byte[] error = connection.execute(MySQLProtocol.COM_QUERY, set.toString());
+            if (error != null) {
+                throw new IOException("Cannot restore session variables: " + MySQLProtocol.errorMessage(error));
+            }
+        }
+        applied.clear();
+        applied.putAll(variables);
+    }
+
+    private void pin(String reason) {
+        if (pinReason == null) {
+            pinReason = reason;
+            ProxyLog.CONNECTIONS.info("[PooledSession] Pinning backend to client {}: {}", clientSocket.getRemoteSocketAddress(), reason);
+        }
+    }
+
+    /**
+     * Splits a SET statement into replayable session assignments keyed by variable name. Returns the
+     * reason to pin the session when the statement sets state that cannot be replayed, else null.
+     * Global and persisted assignments are server-wide and not recorded.
+     */
+    static String parseSet(String statement, Map<String, String> assignments) {
+        String body = statement.substring(3).trim();
+        if (body.endsWith(";")) body = body.substring(0, body.length() - 1).trim();
+        for (String clause : splitTopLevel(body)) {
+            String upper = clause.toUpperCase(Locale.ROOT);
+            if (upper.startsWith("GLOBAL ") || upper.startsWith("PERSIST") || upper.startsWith("@@GLOBAL.")
+                    || upper.startsWith("@@PERSIST")) {
+                continue;
+            }
+            if (upper.startsWith("NAMES ") || upper.startsWith("CHARACTER SET ") || upper.startsWith("CHARSET ")) {
+                assignments.put("names", clause);
+                continue;
+            }
+            String assignment = SESSION_PREFIX.matcher(clause).replaceFirst("");
+            if (assignment.startsWith("@")) {
+                return "user variable";
+            }
+            int equals = assignment.indexOf('=');
+            if (equals <= 0) {
+                // SET TRANSACTION, SET ROLE, SET PASSWORD FOR ... and friends
+                return "SET " + upper.split("\\s+")[0];
+            }
+            String name = assignment.substring(0, equals).replace(":", "").replace("`", "").trim().toLowerCase(Locale.ROOT);
+            String value = assignment.substring(equals + 1).trim();
+            if (name.equals("password")) {
+                continue;
+            }
+            if (value.contains("(")) {
+                return "SET with expression";
+            }
+            assignments.put(name, name + "=" + value);
+        }
+        return null;
+    }
+
+    private static List<String> splitTopLevel(String body) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') i++;
+                else if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(body.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        parts.add(body.substring(start).trim());
+        return parts;
+    }
+
+    private static boolean isMultiStatement(String statement) {
+        int semicolon = statement.indexOf(';');
+        return semicolon >= 0 && !statement.substring(semicolon + 1).isBlank();
+    }
+
+    private void sendError(int sequenceId, int code, String sqlState, String message) throws IOException {
+        sendToClient(MySQLProtocol.packet(sequenceId, MySQLProtocol.errPayload(code, sqlState, message)));
+    }
+
+    private void sendToClient(byte[] packet) throws IOException {
+        clientOut.write(packet);
+        clientOut.flush();
+    }
+
+    private static byte[] payload(byte[] packet) {
+        return Arrays.copyOfRange(packet, 4, packet.length);
+    }
+}
@@ -0,0 +1,293 @@
+package org.example.yasspfe.scenarios;
+
+import org.example.yasspfe.entities.WorkloadProfile;
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+import org.example.yasspfe.scenarios.TableMetadata.Column;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link WorkloadProfile} bound to the tables of a stress test run. Each table's key space is its single
+ * column primary key: for integer keys with few gaps the range MIN..MAX (rows inserted during the run extend
+ * it), for other keys, and integer keys spread thinly over their range (snowflake or hashed ids), a sample of up
+ * to {@code stress.workload.keySample} (default 100000) existing keys, so lookups find rows. Tables without a
+ * single-column primary key are left out.
+ * <p>
+ * Reads are point lookups by primary key, scans read a primary key range, updates write {@code rowSize}
+ * bytes into one non-key column, inserts write a full row and read-modify-writes read a row and then
+ * update it. Statements are prepared once per session through its {@link StatementCache}.
+ */
+public class ProfileWorkload {
+
+    private static final int KEY_SAMPLE = Integer.getInteger("stress.workload.keySample", 100_000);
+
+    private final WorkloadProfile profile;
+    private final Operation[] operations;
+    private final double[] cumulativeWeights;
+    private final List<Table> tables = new ArrayList<>();
+
+    private ProfileWorkload(WorkloadProfile profile) {
+        this.profile = profile;
+        this.operations = new Operation[]{Operation.READ, Operation.UPDATE, Operation.INSERT, Operation.SCAN,
+                Operation.READ_MODIFY_WRITE};
+        double[] weights = {profile.getReadWeight(), profile.getUpdateWeight(), profile.getInsertWeight(),
+                profile.getScanWeight(), profile.getReadModifyWriteWeight()};
+        double total = 0;
+        for (double weight : weights) total += weight;
+        cumulativeWeights = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i] / total;
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    /**
+     * Reads the key space of every table the profile can run against.
+     */
+    public static ProfileWorkload prepare(WorkloadProfile profile, DataSource dataSource,
+                                          Map<String, TableMetadata> metadata) throws SQLException {
+        ProfileWorkload workload = new ProfileWorkload(profile);
+        try (Connection connection = dataSource.getConnection()) {
+            for (TableMetadata table : metadata.values()) {
+                Column key = table.getPrimaryKey();
+                if (key == null) {
+                    System.err.println("⚠ Table " + table.getTable() + " has no single-column primary key, left out of workload " + profile.getName());
+                    continue;
+                }
+                if (profile.concurrencyFor(table.getTable()) == 0) {
+                    continue;
+                }
+                workload.tables.add(new Table(connection, table, key, profile));
+            }
+        }
+        return workload;
+    }
+
+    public WorkloadProfile getProfile() {
+        return profile;
+    }
+
+    public Collection<Table> getTables() {
+        return tables;
+    }
+
+    public Operation nextOperation(Random random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < cumulativeWeights.length - 1; i++) {
+            if (r < cumulativeWeights[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+
+    public static final class Table {
+        private final TableMetadata metadata;
+        private final Column key;
+        private final boolean integralKey;
+        // Keys are drawn from MIN..MAX rather than from sampledKeys
+        private final boolean keyRange;
+        private final int rowSize;
+        private final int maxScanLength;
+        private final KeyGenerator keys;
+
+        private final long minKey;
+        private final AtomicLong maxKey = new AtomicLong();
+        private final List<Object> sampledKeys = new ArrayList<>();
+
+        private final Column updateColumn;
+        private final List<Column> insertColumns = new ArrayList<>();
+        private final String readSql;
+        private final String scanSql;
+        private final String updateSql;
+        private final String insertSql;
+
+        private Table(Connection connection, TableMetadata metadata, Column key, WorkloadProfile profile) throws SQLException {
+            this.metadata = metadata;
+            this.key = key;
+            this.integralKey = key.isIntegral();
+            this.rowSize = profile.getRowSize();
+            this.maxScanLength = profile.getMaxScanLength();
+
+            String table = TableMetadata.quote(metadata.getTable());
+            String keyName = TableMetadata.quote(key.getName());
+            long itemCount;
+            try (Statement statement = connection.createStatement()) {
+                boolean empty = false;
+                if (integralKey) {
+                    try (ResultSet rs = statement.executeQuery("SELECT MIN(" + keyName + "), MAX(" + keyName + ") FROM " + table)) {
+                        rs.next();
+                        empty = rs.getObject(1) == null;
+                        minKey = empty ? 1 : rs.getLong(1);
+                        maxKey.set(empty ? 0 : rs.getLong(2));
+                    }
+                } else {
+                    minKey = 0;
+                }
+                if (!empty) {
+                    try (ResultSet rs = statement.executeQuery("SELECT " + keyName + " FROM " + table +
+                            (integralKey ? " ORDER BY " + keyName : "") + " LIMIT " + KEY_SAMPLE)) {
+                        while (rs.next()) {
+                            sampledKeys.add(rs.getObject(1));
+                        }
+                    }
+                }
+                keyRange = integralKey && dense(minKey, maxKey.get(), sampledKeys);
+                if (keyRange) {
+                    sampledKeys.clear();
+                    itemCount = maxKey.get() - minKey + 1;
+                } else {
+                    itemCount = sampledKeys.size();
+                }
+            }
+            this.keys = new KeyGenerator(profile.getKeyDistribution(), itemCount,
+                    profile.getHotsetFraction(), profile.getHotOpnFraction());
+
+            Column update = null;
+            for (Column column : metadata.getColumns()) {
+                if (column.isIndexed() || column.isAutoIncrement()) continue;
+                if (update == null || (column.isText() && !update.isText())) update = column;
+            }
+            this.updateColumn = update;
+            for (Column column : metadata.getColumns()) {
+                if (column.isAutoIncrement()) continue;
+                if (column.isPrimaryKey() || column.isText() || (!column.isNullable() && !column.hasDefault())) {
+                    insertColumns.add(column);
+                }
+            }
+
+            readSql = "SELECT * FROM " + table + " WHERE " + keyName + " = ?";
+            scanSql = "SELECT * FROM " + table + " WHERE " + keyName + " >= ? ORDER BY " + keyName + " LIMIT ?";
+            updateSql = updateColumn == null
+                    ? "UPDATE " + table + " SET " + keyName + " = " + keyName + " WHERE " + keyName + " = ?"
+                    : "UPDATE " + table + " SET " + TableMetadata.quote(updateColumn.getName()) + " = ? WHERE " + keyName + " = ?";
+            StringBuilder columns = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            for (Column column : insertColumns) {
+                if (columns.length() > 0) {
+                    columns.append(", ");
+                    placeholders.append(", ");
+                }
+                columns.append(TableMetadata.quote(column.getName()));
+                placeholders.append('?');
+            }
+            insertSql = insertColumns.isEmpty()
+                    ? "INSERT INTO " + table + " () VALUES ()"
+                    : "INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")";
+        }
+
+        public String getName() {
+            return metadata.getTable();
+        }
+
+        /**
+         * Whether most of the integer keys from {@code minKey} to {@code maxKey} exist, judging by the first keys
+         * of the table in key order; an empty table counts as dense so that inserted rows are reached.
+         */
+        static boolean dense(long minKey, long maxKey, List<Object> firstKeys) {
+            if (firstKeys.isEmpty()) return true;
+            long range = maxKey - minKey + 1;
+            long span = ((Number) firstKeys.get(firstKeys.size() - 1)).longValue() - minKey + 1;
+            // A range wider than a long holds is as sparse as it gets
+            return range > 0 && span > 0 && firstKeys.size() * 2L >= span;
+        }
+
+        public void execute(StatementCache statements, Operation operation, Random random) throws SQLException {
+            switch (operation) {
+                case READ:
+                    read(statements, nextKey(random));
+                    break;
+                case UPDATE:
+                    update(statements, nextKey(random), random);
+                    break;
+                case INSERT:
+                    insert(statements, random);
+                    break;
+                case SCAN:
+                    scan(statements, nextKey(random), 1 + random.nextInt(maxScanLength));
+                    break;
+                case READ_MODIFY_WRITE:
+                    Object key = nextKey(random);
+                    read(statements, key);
+                    update(statements, key, random);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not a workload operation: " + operation);
+            }
+        }
+
+        private Object nextKey(Random random) {
+            if (keyRange) {
+                long count = maxKey.get() - minKey + 1;
+                return minKey + keys.next(random, count);
+            }
+            if (sampledKeys.isEmpty()) {
+                return RowGenerator.text(random, 16);
+            }
+            return sampledKeys.get((int) keys.next(random, sampledKeys.size()));
+        }
+
+        private void read(StatementCache statements, Object keyValue) throws SQLException {
+            PreparedStatement statement = statements.prepare(readSql);
+            statement.setObject(1, keyValue);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) { /* Read all results */ }
+            }
+        }
+
+        private void scan(StatementCache statements, Object start, int length) throws SQLException {
+            PreparedStatement statement = statements.prepare(scanSql);
+            statement.setObject(1, start);
+            statement.setInt(2, length);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) { /* Read all results */ }
+            }
+        }
+
+        private void update(StatementCache statements, Object keyValue, Random random) throws SQLException {
+            PreparedStatement statement = statements.prepare(updateSql);
+            int index = 1;
+            if (updateColumn != null) {
+                statement.setObject(index++, RowGenerator.value(updateColumn, random, rowSize));
+            }
+            statement.setObject(index, keyValue);
+            statement.executeUpdate();
+        }
+
+        private void insert(StatementCache statements, Random random) throws SQLException {
+            boolean generated = key.isAutoIncrement();
+            PreparedStatement statement = generated ? statements.prepareReturningKeys(insertSql) : statements.prepare(insertSql);
+            for (int i = 0; i < insertColumns.size(); i++) {
+                Column column = insertColumns.get(i);
+                Object value = column == key && integralKey ? maxKey.incrementAndGet() : RowGenerator.value(column, random, rowSize);
+                statement.setObject(i + 1, value);
+            }
+            statement.executeUpdate();
+            if (generated && integralKey) {
+                try (ResultSet rs = statement.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        long id = rs.getLong(1);
+                        maxKey.accumulateAndGet(id, Math::max);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        List<String> names = new ArrayList<>();
+        for (Table table : tables) names.add(table.getName());
+        return profile.getName() + " on " + names;
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.yasspfe.scenarios;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A log channel for the proxies' hot paths: per query, per connection and per injected fault. Messages go
+ * through SLF4J (logback's asynchronous console appender, see logback.xml) instead of System.out, whose
+ * shared lock and blocking console writes used to dominate proxy latency under load.
+ * <p>
+ * Each channel can be switched off, sampled (only every n-th message is logged) and rate limited (at most n
+ * messages per second; the number dropped is logged once the second is over). Defaults come from
+ * {@code proxy.log.<channel>.enabled}, {@code .sampleEvery} and {@code .maxPerSecond}, and can be changed at
+ * runtime through {@code /api/proxy/logging}. Checks are lock free and messages use SLF4J placeholders, so a
+ * suppressed message costs a few atomic operations and no allocation.
+ */
+public final class ProxyLog {
+
+    public static final ProxyLog QUERIES = new ProxyLog("query", true, 1, 50);
+    public static final ProxyLog CONNECTIONS = new ProxyLog("connection", true, 1, 100);
+    public static final ProxyLog FAULTS = new ProxyLog("fault", true, 1, 50);
+
+    private static final List<ProxyLog> CHANNELS = List.of(QUERIES, CONNECTIONS, FAULTS);
+
+    private final String name;
+    private final Logger logger;
+    private volatile boolean enabled;
+    private volatile int sampleEvery;
+    private volatile int maxPerSecond;
+
+    private final AtomicLong seen = new AtomicLong();
+    private final AtomicLong logged = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong windowSecond = new AtomicLong();
+    private final AtomicLong windowCount = new AtomicLong();
+    private final AtomicLong windowDropped = new AtomicLong();
+
+    private ProxyLog(String name, boolean enabled, int sampleEvery, int maxPerSecond) {
+        this.name = name;
+        this.logger = LoggerFactory.getLogger("org.example.yasspfe.proxy." + name);
+        String prefix = "proxy.log." + name;
+        this.enabled = Boolean.parseBoolean(System.getProperty(prefix + ".enabled", String.valueOf(enabled)));
+        this.sampleEvery = Math.max(1, Integer.getInteger(prefix + ".sampleEvery", sampleEvery));
+        this.maxPerSecond = Integer.getInteger(prefix + ".maxPerSecond", maxPerSecond);
+    }
+
+    public static ProxyLog channel(String name) {
+        for (ProxyLog channel : CHANNELS) {
+            if (channel.name.equals(name)) return channel;
+        }
+        return null;
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> channels = new LinkedHashMap<>();
+        for (ProxyLog channel : CHANNELS) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", channel.enabled);
+            stats.put("sampleEvery", channel.sampleEvery);
+            stats.put("maxPerSecond", channel.maxPerSecond);
+            stats.put("logger", channel.logger.getName());
+            stats.put("logged", channel.logged.get());
+            stats.put("sampledOut", channel.sampledOut.get());
+            stats.put("rateLimited", channel.rateLimited.get());
+            channels.put(channel.name, stats);
+        }
+        return channels;
+    }
+
+    /**
+     * Updates the channel's settings; null leaves a setting unchanged. A rate of 0 or less means no limit.
+     */
+    public void configure(Boolean enabled, Integer sampleEvery, Integer maxPerSecond) {
+        if (enabled != null) this.enabled = enabled;
+        if (sampleEvery != null) this.sampleEvery = Math.max(1, sampleEvery);
+        if (maxPerSecond != null) this.maxPerSecond = maxPerSecond;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Decides whether the next message of this channel is written. Callers that build message arguments
+     * should check this first; the logging methods below check it themselves.
+     */
+    public boolean shouldLog() {
+        if (!enabled) {
+            return false;
+        }
+        int every = sampleEvery;
+        if (every > 1 && seen.incrementAndGet() % every != 0) {
+            sampledOut.incrementAndGet();
+            return false;
+        }
+        int limit = maxPerSecond;
+        if (limit > 0) {
+            long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+            long current = windowSecond.get();
+            if (second != current && windowSecond.compareAndSet(current, second)) {
+                windowCount.set(0);
+                long dropped = windowDropped.getAndSet(0);
+                if (dropped > 0) {
+                    logger.info("{} {} message(s) dropped by the rate limit of {}/s", dropped, name, limit);
+                }
+            }
+            if (windowCount.incrementAndGet() > limit) {
+                rateLimited.incrementAndGet();
+                windowDropped.incrementAndGet();
+                return false;
+            }
+        }
+        logged.incrementAndGet();
+        return true;
+    }
+
+    public void info(String message) {
+        if (shouldLog()) logger.info(message);
+    }
+
+    public void info(String format, Object argument) {
+        if (shouldLog()) logger.info(format, argument);
+    }
+
+    public void info(String format, Object first, Object second) {
+        if (shouldLog()) logger.info(format, first, second);
+    }
+
+    // The varargs forms allocate their argument array even when the message is dropped
+    public void info(String format, Object... arguments) {
+        if (shouldLog()) logger.info(format, arguments);
+    }
+
+    public void warn(String format, Object argument) {
+        if (shouldLog()) logger.warn(format, argument);
+    }
+
+    public void warn(String format, Object first, Object second) {
+        if (shouldLog()) logger.warn(format, first, second);
+    }
+
+    public void warn(String format, Object... arguments) {
+        if (shouldLog()) logger.warn(format, arguments);
+    }
+}
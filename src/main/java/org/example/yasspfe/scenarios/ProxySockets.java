@@ -0,0 +1,106 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.util.function.Consumer;
+
+/**
+ * Listening and socket tuning shared by the MySQL and application proxies.
+ * <p>
+ * {@link #listen} binds {@code <prefix>.acceptors} server sockets (default 1) to the same port with
+ * SO_REUSEPORT, each with its own accept thread, so the kernel spreads new connections across them instead
+ * of every connection queueing behind one accept loop. The accept backlog is {@code <prefix>.backlog}
+ * (default 1024; the kernel caps it at net.core.somaxconn). Where SO_REUSEPORT is not available the proxy
+ * falls back to a single acceptor.
+ * <p>
+ * {@link #tune} is applied to every client and backend socket: TCP_NODELAY ({@code proxy.tcpNoDelay},
+ * default true), because the proxies write each MySQL packet or relayed chunk as it arrives and Nagle's
+ * algorithm would hold small writes back until the peer's delayed ACK, and SO_KEEPALIVE
+ * ({@code proxy.keepAlive}, default true), so connections to vanished peers are eventually noticed.
+ */
+public final class ProxySockets {
+
+    private static final boolean TCP_NO_DELAY = Boolean.parseBoolean(System.getProperty("proxy.tcpNoDelay", "true"));
+    private static final boolean KEEP_ALIVE = Boolean.parseBoolean(System.getProperty("proxy.keepAlive", "true"));
+
+    private ProxySockets() {
+    }
+
+    /**
+     * Applies TCP_NODELAY and SO_KEEPALIVE to a client or backend socket.
+     */
+    public static Socket tune(Socket socket) {
+        try {
+            socket.setTcpNoDelay(TCP_NO_DELAY);
+            socket.setKeepAlive(KEEP_ALIVE);
+        } catch (SocketException e) {
+            // The peer may already be gone; the relay will notice on its first read or write
+        }
+        return socket;
+    }
+
+    /**
+     * Opens a tuned connection to a backend.
+     */
+    public static Socket connect(String host, int port) throws IOException {
+        Socket socket = tune(new Socket());
+        try {
+            socket.connect(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    /**
+     * Binds the configured number of acceptors on {@code port} and runs {@code serve} for each of them, one
+     * per thread. The last acceptor runs on the calling thread, so this returns once its socket is closed.
+     */
+    public static void listen(String name, String prefix, int port, Consumer<ServerSocket> serve) throws IOException {
+        int acceptors = Math.max(1, Integer.getInteger(prefix + ".acceptors", 1));
+        int backlog = Integer.getInteger(prefix + ".backlog", 1024);
+        boolean reusePort = acceptors > 1 && supportsReusePort();
+        if (acceptors > 1 && !reusePort) {
+            System.err.println("[ProxySockets] SO_REUSEPORT is not supported here; " + name + " uses a single acceptor");
+            acceptors = 1;
+        }
+
+        ServerSocket[] sockets = new ServerSocket[acceptors];
+        try {
+            for (int i = 0; i < acceptors; i++) {
+                sockets[i] = new ServerSocket();
+                sockets[i].setReuseAddress(true);
+                if (reusePort) {
+                    sockets[i].setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                sockets[i].bind(new InetSocketAddress(port), backlog);
+            }
+        } catch (IOException e) {
+            for (ServerSocket socket : sockets) {
+                if (socket != null) socket.close();
+            }
+            throw e;
+        }
+        System.out.println("[ProxySockets] " + name + " listening on port " + port + " with " + acceptors
+                + " acceptor(s), backlog " + backlog);
+
+        for (int i = 0; i < acceptors - 1; i++) {
+            ServerSocket socket = sockets[i];
+            new Thread(() -> serve.accept(socket), name + "-acceptor-" + i).start();
+        }
+        serve.accept(sockets[acceptors - 1]);
+    }
+
+    private static boolean supportsReusePort() {
+        try (ServerSocket probe = new ServerSocket()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -70,7 +70,7 @@ public class QueryBlackholeInjector {
 
         if (shouldDrop) {
             queriesBlackholed.incrementAndGet();
-            System.out.println("🔍 [DB Resilience Test] Blackholing database query response to test recovery");
+            ProxyLog.FAULTS.info("🔍 [DB Resilience Test] Blackholing database query response to test recovery");
         }
 
         return shouldDrop;
@@ -85,7 +85,7 @@ public class QueryBlackholeInjector {
             stmt.setString(2, type);
             stmt.setBoolean(3, blackholed);
             stmt.executeUpdate();
-            System.out.println("[DB Resilience Test] Logged " + (blackholed ? "blackholed " : "") + type + " query.");
+            ProxyLog.FAULTS.info("[DB Resilience Test] Logged {}{} query.", blackholed ? "blackholed " : "", type);
         } catch (SQLException e) {
             System.err.println("❌ [DB Resilience Test] Error logging to DB: " + e.getMessage());
         }
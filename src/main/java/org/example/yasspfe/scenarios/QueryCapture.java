@@ -0,0 +1,178 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes every COM_QUERY the MySQL proxy sees to a capture file, for the stress tester to replay (see
+ * {@link ReplayProfile.Source#CAPTURE}). One line per query: the time in microseconds since the epoch, the
+ * proxy's id of the client connection and the statement, separated by tabs, with backslash, tab and line
+ * breaks escaped.
+ * <p>
+ * The proxy thread only offers the query to a queue of {@code proxy.capture.queueSize} (default 65536)
+ * entries; a writer thread formats and writes them. When the queue is full the query is dropped and counted
+ * rather than slowing the proxy down.
+ */
+public class QueryCapture {
+
+    private static final int QUEUE_SIZE = Integer.getInteger("proxy.capture.queueSize", 65_536);
+    private static final int DRAIN_BATCH = 1024;
+
+    private record Captured(long micros, long session, String query) {}
+
+    private final BlockingQueue<Captured> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private volatile boolean enabled;
+    private volatile Path path;
+    private volatile String error;
+    private Thread writer;
+    // Capture times are the start's wall clock plus the monotonic time since, in microseconds
+    private volatile long startEpochMicros;
+    private volatile long startNanos;
+
+    /**
+     * Starts capturing to {@code path}, appending to it if it exists.
+     */
+    public synchronized void start(Path path) throws IOException {
+        stop();
+        Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.path = path;
+        this.error = null;
+        captured.set(0);
+        dropped.set(0);
+        written.set(0);
+        startEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        startNanos = System.nanoTime();
+        enabled = true;
+        writer = new Thread(() -> writeUntilStopped(out), "proxy-capture");
+        writer.setDaemon(true);
+        writer.start();
+        System.out.println("[QueryCapture] Capturing proxied queries to " + path);
+    }
+
+    /**
+     * Stops capturing once the queries already queued are written.
+     */
+    public synchronized void stop() {
+        if (writer == null) {
+            return;
+        }
+        enabled = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        System.out.println("[QueryCapture] Capture stopped: " + written.get() + " queries written, " + dropped.get() + " dropped");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Called by the proxy for every COM_QUERY; does nothing unless a capture is running.
+     */
+    public void record(long session, String query) {
+        if (!enabled || query == null) {
+            return;
+        }
+        long micros = startEpochMicros + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        if (queue.offer(new Captured(micros, session, query))) {
+            captured.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeUntilStopped(Writer out) {
+        List<Captured> batch = new ArrayList<>(DRAIN_BATCH);
+        try (BufferedWriter lines = new BufferedWriter(out)) {
+            while (enabled || !queue.isEmpty()) {
+                Captured first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    lines.flush();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, DRAIN_BATCH - 1);
+                for (Captured entry : batch) {
+                    lines.write(format(entry.micros, String.valueOf(entry.session), entry.query));
+                    lines.newLine();
+                }
+                written.addAndGet(batch.size());
+                batch.clear();
+            }
+        } catch (IOException e) {
+            error = e.getMessage();
+            enabled = false;
+            System.err.println("[QueryCapture] Capture to " + path + " failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("path", path != null ? path.toString() : null);
+        snapshot.put("captured", captured.get());
+        snapshot.put("written", written.get());
+        snapshot.put("dropped", dropped.get());
+        snapshot.put("queued", queue.size());
+        snapshot.put("error", error);
+        return snapshot;
+    }
+
+    /**
+     * One line of a capture file, without the line break.
+     */
+    static String format(long micros, String session, String query) {
+        StringBuilder line = new StringBuilder(query.length() + 32);
+        line.append(micros).append('\t').append(session).append('\t');
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            switch (c) {
+                case '\\' -> line.append("\\\\");
+                case '\t' -> line.append("\\t");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                default -> line.append(c);
+            }
+        }
+        return line.toString();
+    }
+
+    static String unescape(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder query = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                query.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                query.append(c);
+            }
+        }
+        return query.toString();
+    }
+}
@@ -0,0 +1,344 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A captured workload, read one entry at a time so a log of any size is replayed without loading it (see
+ * {@link ReplayProfile} for the sources). Times are microseconds on the log's own clock; only the differences
+ * between them matter.
+ */
+public abstract class QueryLog implements Closeable {
+
+    /**
+     * One logged statement. {@code session} is the log's connection id, or null when the source has none;
+     * {@code sql} is null for an entry that only says the session ended.
+     */
+    public record Entry(long micros, String session, String sql) {}
+
+    /**
+     * The next entry, or null at the end of the log.
+     */
+    public abstract Entry next() throws IOException;
+
+    /**
+     * Opens the profile's log. The blackhole log is read from {@code jdbcUrl} over a connection of its own.
+     */
+    public static QueryLog open(ReplayProfile profile, String jdbcUrl, String username, String password) throws IOException {
+        if (profile.getSource() == ReplayProfile.Source.BLACKHOLE_LOG) {
+            try {
+                return new BlackholeLog(DriverManager.getConnection(jdbcUrl, username, password));
+            } catch (SQLException e) {
+                throw new IOException("Cannot read chaos_blackhole_log: " + e.getMessage(), e);
+            }
+        }
+        Path path = Path.of(profile.getPath());
+        InputStream in = Files.newInputStream(path);
+        if (path.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        return switch (profile.getSource()) {
+            case GENERAL_LOG -> new GeneralLog(reader);
+            case SLOW_LOG -> new SlowLog(reader);
+            default -> new Capture(reader);
+        };
+    }
+
+    // The lines a server writes at the top of its log files when it starts
+    static boolean isServerBanner(String line) {
+        return line.contains(", Version: ") || line.startsWith("Tcp port: ") || line.startsWith("Time                 Id Command");
+    }
+
+    // ISO timestamps (log_timestamps UTC or SYSTEM) and the yyMMdd H:mm:ss of MySQL 5.6 and older
+    private static final DateTimeFormatter OLD_TIME = DateTimeFormatter.ofPattern("yyMMdd H:mm:ss");
+
+    static long parseMicros(String time) {
+        String text = time.trim();
+        try {
+            if (text.endsWith("Z")) {
+                return micros(Instant.parse(text));
+            }
+            if (text.indexOf('T') > 0) {
+                int zone = Math.max(text.lastIndexOf('+'), text.lastIndexOf('-'));
+                if (zone > text.indexOf('T')) {
+                    return micros(OffsetDateTime.parse(text).toInstant());
+                }
+                return micros(LocalDateTime.parse(text).toInstant(ZoneOffset.UTC));
+            }
+            return micros(LocalDateTime.parse(text.replaceAll(" +", " "), OLD_TIME).toInstant(ZoneOffset.UTC));
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static long micros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    /**
+     * A general query log: "time TAB id command TAB argument", where the time is left out (the line starts with
+     * a tab) when it has not changed, and a statement may go on over the lines that follow.
+     */
+    static final class GeneralLog extends QueryLog {
+        private static final Pattern ENTRY = Pattern.compile("\\s*(\\d+) ([A-Za-z]+(?: [A-Za-z]+)?)(?:\\t(.*))?");
+
+        private final BufferedReader reader;
+        private long time = -1;
+        // The entry being read, which the next line may continue
+        private long pendingTime;
+        private String pendingSession;
+        private String pendingCommand;
+        private StringBuilder pendingArgument;
+
+        GeneralLog(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (isServerBanner(line)) {
+                    Entry entry = takePending();
+                    if (entry != null) return entry;
+                    continue;
+                }
+                Matcher matcher = null;
+                long lineTime = time;
+                int tab = line.indexOf('\t');
+                if (tab == 0) {
+                    matcher = ENTRY.matcher(line.substring(indexOfNonTab(line)));
+                } else if (tab > 0) {
+                    lineTime = parseMicros(line.substring(0, tab));
+                    if (lineTime >= 0) {
+                        matcher = ENTRY.matcher(line.substring(tab + 1));
+                    }
+                }
+                if (matcher == null || !matcher.matches()) {
+                    // A statement that goes on over several lines
+                    if (pendingArgument != null) {
+                        pendingArgument.append('\n').append(line);
+                    }
+                    continue;
+                }
+                time = lineTime;
+                Entry entry = takePending();
+                pendingTime = lineTime;
+                pendingSession = matcher.group(1);
+                pendingCommand = matcher.group(2);
+                pendingArgument = new StringBuilder(matcher.group(3) != null ? matcher.group(3) : "");
+                if (entry != null) return entry;
+            }
+            return takePending();
+        }
+
+        private static int indexOfNonTab(String line) {
+            int i = 0;
+            while (i < line.length() && line.charAt(i) == '\t') i++;
+            return i;
+        }
+
+        // The pending entry if it is one to replay (a statement or the end of a session), null otherwise
+        private Entry takePending() {
+            if (pendingArgument == null) {
+                return null;
+            }
+            String command = pendingCommand;
+            String argument = pendingArgument.toString();
+            pendingArgument = null;
+            if (command.equals("Query") || command.equals("Execute")) {
+                return argument.isBlank() ? null : new Entry(pendingTime, pendingSession, argument);
+            }
+            if (command.equals("Quit")) {
+                return new Entry(pendingTime, pendingSession, null);
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * A slow query log: "# Time", "# User@Host ... Id" and "# Query_time" comments, then the statement up to
+     * a line ending in ';'. Each statement is placed at its start, the logged time minus its Query_time.
+     */
+    static final class SlowLog extends QueryLog {
+        private static final Pattern ID = Pattern.compile("Id:\\s*(\\d+)");
+        private static final Pattern QUERY_TIME = Pattern.compile("# Query_time:\\s*([\\d.]+)");
+        private static final Pattern SET_TIMESTAMP = Pattern.compile("(?i)SET timestamp=(\\d+);");
+        private static final Pattern USE = Pattern.compile("(?i)use [^;\\s]+;");
+
+        private final BufferedReader reader;
+        private long time = -1;
+        private long timestampMicros = -1;
+        private String session;
+        private long queryMicros;
+        private final StringBuilder statement = new StringBuilder();
+
+        SlowLog(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (statement.length() == 0) {
+                    if (isServerBanner(line)) {
+                        continue;
+                    }
+                    if (line.startsWith("# Time:")) {
+                        time = parseMicros(line.substring("# Time:".length()));
+                        timestampMicros = -1;
+                        continue;
+                    }
+                    if (line.startsWith("# User@Host:")) {
+                        Matcher id = ID.matcher(line);
+                        session = id.find() ? id.group(1) : null;
+                        continue;
+                    }
+                    Matcher queryTime = QUERY_TIME.matcher(line);
+                    if (queryTime.lookingAt()) {
+                        queryMicros = (long) (Double.parseDouble(queryTime.group(1)) * 1_000_000);
+                        continue;
+                    }
+                    if (line.startsWith("#") || line.isBlank()) {
+                        continue;
+                    }
+                    Matcher timestamp = SET_TIMESTAMP.matcher(line.trim());
+                    if (timestamp.matches()) {
+                        timestampMicros = Long.parseLong(timestamp.group(1)) * 1_000_000;
+                        continue;
+                    }
+                    if (USE.matcher(line.trim()).matches()) {
+                        continue;
+                    }
+                } else {
+                    statement.append('\n');
+                }
+                statement.append(line);
+                String trimmed = line.stripTrailing();
+                if (trimmed.endsWith(";")) {
+                    String sql = statement.toString().stripTrailing();
+                    statement.setLength(0);
+                    long end = time >= 0 ? time : timestampMicros;
+                    return new Entry(Math.max(0, end - queryMicros), session, sql.substring(0, sql.length() - 1));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * A capture file written by {@link QueryCapture}.
+     */
+    static final class Capture extends QueryLog {
+        private final BufferedReader reader;
+
+        Capture(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int first = line.indexOf('\t');
+                int second = first < 0 ? -1 : line.indexOf('\t', first + 1);
+                if (second < 0) {
+                    continue;
+                }
+                try {
+                    long micros = Long.parseLong(line.substring(0, first));
+                    return new Entry(micros, line.substring(first + 1, second), QueryCapture.unescape(line.substring(second + 1)));
+                } catch (NumberFormatException e) {
+                    // Not a capture line
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * The chaos_blackhole_log table, streamed in timestamp order (the MySQL driver streams a result set with a
+     * fetch size of Integer.MIN_VALUE instead of reading it whole).
+     */
+    static final class BlackholeLog extends QueryLog {
+        private final Connection connection;
+        private final Statement statement;
+        private final ResultSet rows;
+
+        BlackholeLog(Connection connection) throws SQLException {
+            this.connection = connection;
+            try {
+                statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(Integer.MIN_VALUE);
+                rows = statement.executeQuery("SELECT query_text, timestamp FROM chaos_blackhole_log ORDER BY timestamp");
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            try {
+                while (rows.next()) {
+                    String sql = rows.getString(1);
+                    Timestamp timestamp = rows.getTimestamp(2);
+                    if (sql != null && !sql.isBlank() && timestamp != null) {
+                        return new Entry(micros(timestamp.toInstant()), null, sql);
+                    }
+                }
+                return null;
+            } catch (SQLException e) {
+                throw new IOException("Reading chaos_blackhole_log failed: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+    }
+}
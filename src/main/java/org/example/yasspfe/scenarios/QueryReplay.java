@@ -0,0 +1,322 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Replays a captured workload (see {@link QueryLog}) over the sessions of a stress test run.
+ * <p>
+ * A dispatcher reads the log one entry at a time and hands each statement to the replay session its logged
+ * session was assigned to (round-robin, the first time the session shows up), so the statements of a logged
+ * session run in their order on one connection and different logged sessions run side by side. Each statement
+ * is due at its logged offset from the first one, divided by the speed; a replay session waits for that time,
+ * or starts at once when it is behind, and the lag is measured. When there are more logged sessions than replay
+ * sessions some share one, so give the run at least as many sessions as the log has concurrent connections.
+ * <p>
+ * Each replay session has a queue of {@code queueSize} statements; when it is full the dispatcher waits, so
+ * memory stays bounded whatever the size of the log.
+ */
+public class QueryReplay {
+
+    public interface LogSource {
+        QueryLog open() throws IOException;
+    }
+
+    private static final Task END = new Task(0, null);
+    // Longest a replay session parks before checking whether the test stopped
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final Set<String> WRITES = Set.of("INSERT", "UPDATE", "DELETE", "REPLACE", "CREATE", "ALTER",
+            "DROP", "TRUNCATE", "RENAME", "LOAD", "CALL", "GRANT", "REVOKE", "LOCK", "OPTIMIZE", "ANALYZE");
+
+    private record Task(long dueNanos, String sql) {}
+
+    private final ReplayProfile profile;
+    private final int sessions;
+    private final AtomicInteger totalQueries;
+    private final BlockingQueue<Task>[] queues;
+    private final CountDownLatch finished;
+
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong loops = new AtomicLong();
+    private final AtomicLong sessionsSeen = new AtomicLong();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    // How late statements started, in microseconds
+    private final Recorder lag = new Recorder(3);
+    private final Histogram lagTotal = new Histogram(3);
+    private volatile double logSeconds;
+    private volatile long startNanos;
+    private volatile String state = "starting";
+
+    @SuppressWarnings("unchecked")
+    public QueryReplay(ReplayProfile profile, int sessions, AtomicInteger totalQueries) {
+        this.profile = profile;
+        this.sessions = sessions;
+        this.totalQueries = totalQueries;
+        this.queues = new BlockingQueue[sessions];
+        for (int i = 0; i < sessions; i++) {
+            queues[i] = new ArrayBlockingQueue<>(profile.getQueueSize());
+        }
+        this.finished = new CountDownLatch(sessions);
+    }
+
+    public ReplayProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Reads {@code first}, then (when looping) the log again from {@code source}, until the end or until the test
+     * stops; then waits for the sessions to run what they were handed and calls {@code done}.
+     */
+    public void dispatch(QueryLog first, LogSource source, BooleanSupplier running, Runnable done) {
+        Thread.currentThread().setName("stress-replay");
+        QueryLog log = first;
+        try {
+            startNanos = System.nanoTime();
+            state = "replaying";
+            while (log != null && running.getAsBoolean()) {
+                try (QueryLog current = log) {
+                    dispatchLog(current, running);
+                }
+                log = null;
+                if (profile.isLoop() && running.getAsBoolean()) {
+                    loops.incrementAndGet();
+                    log = source.open();
+                }
+            }
+            for (BlockingQueue<Task> queue : queues) {
+                if (!offer(queue, END, running)) break;
+            }
+            while (!finished.await(100, TimeUnit.MILLISECONDS) && running.getAsBoolean()) {
+                // Sessions are running the last statements they were handed
+            }
+            state = running.getAsBoolean() ? "completed" : "stopped";
+        } catch (IOException e) {
+            state = "failed: " + e.getMessage();
+            System.err.println("❌ Query replay failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = "stopped";
+        }
+        System.out.println("🔁 Query replay " + state + ": " + summary());
+        done.run();
+    }
+
+    private void dispatchLog(QueryLog log, BooleanSupplier running) throws IOException, InterruptedException {
+        Map<String, Integer> assigned = new HashMap<>();
+        int nextSession = 0;
+        long firstMicros = -1;
+        long loopStart = System.nanoTime();
+        double speed = profile.getSpeed();
+        QueryLog.Entry entry;
+        while (running.getAsBoolean() && (entry = log.next()) != null) {
+            if (entry.sql() == null) {
+                if (assigned.remove(entry.session()) != null) {
+                    activeSessions.decrementAndGet();
+                }
+                continue;
+            }
+            read.incrementAndGet();
+            if (profile.isReadOnly() && WRITES.contains(firstKeyword(entry.sql()))) {
+                skipped.incrementAndGet();
+                continue;
+            }
+            if (firstMicros < 0) {
+                firstMicros = entry.micros();
+            }
+            long offsetMicros = Math.max(0, entry.micros() - firstMicros);
+            logSeconds = offsetMicros / 1e6;
+            // At speed 0 a statement is due when it is read, so the lag is the time it queued
+            long due = speed > 0 ? loopStart + (long) (TimeUnit.MICROSECONDS.toNanos(offsetMicros) / speed) : System.nanoTime();
+
+            int session;
+            if (entry.session() == null) {
+                session = nextSession++ % sessions;
+            } else {
+                Integer index = assigned.get(entry.session());
+                if (index == null) {
+                    index = nextSession++ % sessions;
+                    assigned.put(entry.session(), index);
+                    sessionsSeen.incrementAndGet();
+                    activeSessions.incrementAndGet();
+                }
+                session = index;
+            }
+            if (!offer(queues[session], new Task(due, entry.sql()), running)) {
+                return;
+            }
+        }
+        activeSessions.addAndGet(-assigned.size());
+    }
+
+    // Waits for room in the queue; false if the test stopped first
+    private static boolean offer(BlockingQueue<Task> queue, Task task, BooleanSupplier running) throws InterruptedException {
+        while (running.getAsBoolean()) {
+            if (queue.offer(task, 100, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replay session {@code index}: runs the statements handed to it, each at its due time, until the end of the
+     * log or until the test stops.
+     */
+    public void runSession(int index, StressSessions.Session session, StressMetrics.Worker recorder, BooleanSupplier running) {
+        session.start();
+        BlockingQueue<Task> queue = queues[index];
+        try (session) {
+            while (running.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+                session.pause();
+                Task task = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+                if (task == END) {
+                    break;
+                }
+                long wait;
+                while ((wait = task.dueNanos - System.nanoTime()) > 0 && running.getAsBoolean()) {
+                    LockSupport.parkNanos(Math.min(wait, MAX_PARK_NANOS));
+                }
+                session.resume();
+                if (!running.getAsBoolean()) {
+                    break;
+                }
+
+                long began = System.nanoTime();
+                lag.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(began - task.dueNanos)));
+                Operation operation = operationOf(task.sql);
+                try {
+                    StatementCache statements = session.acquire();
+                    try (Statement statement = statements.getConnection().createStatement()) {
+                        execute(statement, task.sql);
+                    } finally {
+                        session.release();
+                    }
+                    recorder.record(operation, null, System.nanoTime() - began);
+                    session.progress();
+                    replayed.incrementAndGet();
+                    totalQueries.incrementAndGet();
+                } catch (SQLException e) {
+                    recorder.error(operation, null, e);
+                    if (running.getAsBoolean() && errors.incrementAndGet() % 1000 == 1) {
+                        System.err.println("⚠ SQL Error replaying " + abbreviate(task.sql) + " (" + errors.get() + " errors): " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("⚠ Error in replay session " + session.getName() + ": " + e.getMessage());
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    // Runs the statement and reads every row it returns, as the application did
+    private static void execute(Statement statement, String sql) throws SQLException {
+        boolean results = statement.execute(sql);
+        while (true) {
+            if (results) {
+                try (ResultSet rows = statement.getResultSet()) {
+                    while (rows.next()) {
+                        // Rows are read, not kept
+                    }
+                }
+            } else if (statement.getUpdateCount() == -1) {
+                return;
+            }
+            results = statement.getMoreResults();
+        }
+    }
+
+    static String firstKeyword(String sql) {
+        int i = 0;
+        int length = sql.length();
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c) || c == '(') {
+                i++;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (sql.startsWith("--", i) || c == '#') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else {
+                break;
+            }
+        }
+        int start = i;
+        while (i < length && Character.isLetter(sql.charAt(i))) i++;
+        return sql.substring(start, i).toUpperCase(Locale.ROOT);
+    }
+
+    static Operation operationOf(String sql) {
+        return switch (firstKeyword(sql)) {
+            case "SELECT", "WITH" -> Operation.REPLAY_SELECT;
+            case "INSERT", "REPLACE" -> Operation.REPLAY_INSERT;
+            case "UPDATE" -> Operation.REPLAY_UPDATE;
+            case "DELETE" -> Operation.REPLAY_DELETE;
+            default -> Operation.REPLAY_OTHER;
+        };
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= 80 ? sql : sql.substring(0, 77) + "...";
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("state", state);
+        report.put("profile", profile);
+        report.put("sessions", sessions);
+        report.put("read", read.get());
+        report.put("replayed", replayed.get());
+        report.put("skipped", skipped.get());
+        report.put("errors", errors.get());
+        report.put("loops", loops.get());
+        report.put("loggedSessions", sessionsSeen.get());
+        report.put("activeLoggedSessions", activeSessions.get());
+        report.put("logSeconds", logSeconds);
+        long started = startNanos;
+        report.put("elapsedSeconds", started == 0 ? 0.0 : (System.nanoTime() - started) / 1e9);
+        synchronized (lagTotal) {
+            lagTotal.add(lag.getIntervalHistogram());
+            report.put("lagP50Millis", lagTotal.getValueAtPercentile(50) / 1000.0);
+            report.put("lagP99Millis", lagTotal.getValueAtPercentile(99) / 1000.0);
+            report.put("lagMaxMillis", lagTotal.getMaxValue() / 1000.0);
+        }
+        return report;
+    }
+
+    public String summary() {
+        Map<String, Object> report = report();
+        return report.get("replayed") + " replayed, " + report.get("skipped") + " skipped, " + report.get("errors") +
+                " errors | log at " + String.format("%.1f", logSeconds) + "s | " + report.get("activeLoggedSessions") +
+                " logged sessions open | lag p99=" + report.get("lagP99Millis") + "ms";
+    }
+}
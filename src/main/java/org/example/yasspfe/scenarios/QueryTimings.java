@@ -0,0 +1,362 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Backend response times of proxied commands, measured from the moment a command is written to the
+ * backend until its terminal packet (OK, ERR or the last EOF) comes back. Times are kept per statement
+ * type and per query digest (the statement with literals replaced by {@code ?}), and commands slower than
+ * {@code proxy.slowQuery.thresholdMs} (default 1000) go into a ring of the last
+ * {@code proxy.slowQuery.capacity} (default 256) slow queries.
+ * <p>
+ * Recording is allocation free: the histograms are created up front (digest histograms when a digest is
+ * first seen), and digests are hashed while scanning the query text instead of building a normalized copy.
+ * Only slow queries and new digests allocate.
+ */
+public class QueryTimings {
+
+    /**
+     * Statement types, by first keyword for COM_QUERY and by command for everything else.
+     */
+    public enum Type {
+        SELECT, INSERT, UPDATE, DELETE, REPLACE, DDL, TCL, SET, SHOW, CALL, OTHER_QUERY,
+        STMT_PREPARE, STMT_EXECUTE, STMT_FETCH, INIT_DB, PING, OTHER_COMMAND
+    }
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int DIGEST_SLOTS = Integer.getInteger("proxy.queryDigests.maxSize", 512);
+    private static final int MAX_SLOW_QUERY_LENGTH = 2048;
+
+    private final Histogram[] byType = new Histogram[Type.values().length];
+    private final AtomicLongArray errorsByType = new AtomicLongArray(Type.values().length);
+
+    // Open addressing on the digest hash; a slot holds its histogram once its hash is claimed
+    private final int digestMask;
+    private final AtomicLongArray digestHashes;
+    private final AtomicReferenceArray<Digest> digests;
+    private final Digest overflow = new Digest(0, "(other digests)", Type.OTHER_QUERY);
+
+    private final SlowQuery[] slowRing;
+    private int slowNext;
+    private long slowCount;
+    private volatile long slowThresholdNanos;
+
+    private static final class Digest {
+        final long hash;
+        final String text;
+        final Type type;
+        final Histogram histogram = new ConcurrentHistogram(HIGHEST_MICROS, 2);
+        final AtomicLong errors = new AtomicLong();
+
+        Digest(long hash, String text, Type type) {
+            this.hash = hash;
+            this.text = text;
+            this.type = type;
+        }
+    }
+
+    private static final class SlowQuery {
+        long finishedAt;
+        long micros;
+        Type type;
+        String query;
+        long rows;
+        int errorCode;
+    }
+
+    public QueryTimings() {
+        for (int i = 0; i < byType.length; i++) {
+            byType[i] = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+        }
+        int slots = Integer.highestOneBit(Math.max(16, DIGEST_SLOTS - 1) << 1);
+        digestMask = slots - 1;
+        digestHashes = new AtomicLongArray(slots);
+        digests = new AtomicReferenceArray<>(slots);
+        slowRing = new SlowQuery[Math.max(1, Integer.getInteger("proxy.slowQuery.capacity", 256))];
+        for (int i = 0; i < slowRing.length; i++) {
+            slowRing[i] = new SlowQuery();
+        }
+        setSlowThresholdMillis(Long.getLong("proxy.slowQuery.thresholdMs", 1000));
+    }
+
+    public void setSlowThresholdMillis(long millis) {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    /**
+     * Records one completed command. {@code query} is the statement text for COM_QUERY and null otherwise.
+     */
+    public void record(int command, String query, long nanos, long rows, int errorCode) {
+        Type type = query != null ? classify(query) : commandType(command);
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1), HIGHEST_MICROS);
+        byType[type.ordinal()].recordValue(micros);
+        if (errorCode != 0) {
+            errorsByType.incrementAndGet(type.ordinal());
+        }
+        if (query != null) {
+            Digest digest = digestFor(query, type);
+            digest.histogram.recordValue(micros);
+            if (errorCode != 0) digest.errors.incrementAndGet();
+        }
+        if (nanos >= slowThresholdNanos) {
+            recordSlow(type, query, micros, rows, errorCode);
+        }
+        if (LatencyInjector.isRecording()) {
+            LatencyInjector.recordExecutionTime(query, nanos);
+        }
+    }
+
+    private synchronized void recordSlow(Type type, String query, long micros, long rows, int errorCode) {
+        SlowQuery entry = slowRing[slowNext];
+        slowNext = (slowNext + 1) % slowRing.length;
+        slowCount++;
+        entry.finishedAt = System.currentTimeMillis();
+        entry.micros = micros;
+        entry.type = type;
+        entry.query = query == null || query.length() <= MAX_SLOW_QUERY_LENGTH ? query : query.substring(0, MAX_SLOW_QUERY_LENGTH) + "...";
+        entry.rows = rows;
+        entry.errorCode = errorCode;
+    }
+
+    private Digest digestFor(String query, Type type) {
+        long hash = digest(query, null);
+        int slot = (int) (hash ^ (hash >>> 32)) & digestMask;
+        for (int probe = 0; probe < 8; probe++, slot = (slot + 1) & digestMask) {
+            long current = digestHashes.get(slot);
+            if (current == 0 && digestHashes.compareAndSet(slot, 0, hash)) {
+                StringBuilder text = new StringBuilder(Math.min(query.length(), 256));
+                digest(query, text);
+                Digest digest = new Digest(hash, text.toString(), type);
+                digests.set(slot, digest);
+                return digest;
+            }
+            if (digestHashes.get(slot) == hash) {
+                Digest digest = digests.get(slot);
+                // Null only while another thread is still creating the slot
+                return digest != null ? digest : overflow;
+            }
+        }
+        return overflow;
+    }
+
+    /**
+     * Hashes the statement with literals, comments and whitespace runs normalized away, appending the
+     * normalized text to {@code out} when it is not null. Never returns 0.
+     */
+    static long digest(String query, StringBuilder out) {
+        long hash = 0xcbf29ce484222325L;
+        int length = query.length();
+        boolean pendingSpace = false;
+        boolean started = false;
+        char previous = ' ';
+        for (int i = 0; i < length; i++) {
+            char c = query.charAt(i);
+            char normalized;
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            } else if (c == '/' && i + 1 < length && query.charAt(i + 1) == '*') {
+                int end = query.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 1;
+                pendingSpace = started;
+                continue;
+            } else if (c == '#' || (c == '-' && i + 2 < length && query.charAt(i + 1) == '-'
+                    && Character.isWhitespace(query.charAt(i + 2)))) {
+                int end = query.indexOf('\n', i);
+                i = end < 0 ? length : end;
+                pendingSpace = started;
+                continue;
+            } else if (c == '\'' || c == '"') {
+                // String literal, honouring backslash escapes and doubled quotes
+                int j = i + 1;
+                while (j < length) {
+                    char d = query.charAt(j);
+                    if (d == '\\') {
+                        j += 2;
+                    } else if (d == c && j + 1 < length && query.charAt(j + 1) == c) {
+                        j += 2;
+                    } else if (d == c) {
+                        break;
+                    } else {
+                        j++;
+                    }
+                }
+                i = j;
+                normalized = '?';
+            } else if (Character.isDigit(c) && !Character.isLetterOrDigit(previous) && previous != '_' && previous != '`') {
+                int j = i + 1;
+                while (j < length && (Character.isLetterOrDigit(query.charAt(j)) || query.charAt(j) == '.')) j++;
+                i = j - 1;
+                normalized = '?';
+            } else {
+                normalized = Character.toLowerCase(c);
+            }
+            if (pendingSpace) {
+                hash = (hash ^ ' ') * 0x100000001b3L;
+                if (out != null) out.append(' ');
+                pendingSpace = false;
+            }
+            hash = (hash ^ normalized) * 0x100000001b3L;
+            if (out != null) out.append(normalized);
+            previous = normalized;
+            started = true;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    static Type classify(String query) {
+        int length = query.length();
+        int start = 0;
+        while (start < length) {
+            char c = query.charAt(start);
+            if (Character.isWhitespace(c) || c == '(') {
+                start++;
+            } else if (c == '/' && start + 1 < length && query.charAt(start + 1) == '*') {
+                int end = query.indexOf("*/", start + 2);
+                start = end < 0 ? length : end + 2;
+            } else {
+                break;
+            }
+        }
+        int end = start;
+        while (end < length && Character.isLetter(query.charAt(end))) end++;
+        int word = end - start;
+        if (keyword(query, start, word, "SELECT") || keyword(query, start, word, "WITH")) return Type.SELECT;
+        if (keyword(query, start, word, "INSERT")) return Type.INSERT;
+        if (keyword(query, start, word, "UPDATE")) return Type.UPDATE;
+        if (keyword(query, start, word, "DELETE")) return Type.DELETE;
+        if (keyword(query, start, word, "REPLACE")) return Type.REPLACE;
+        if (keyword(query, start, word, "CREATE") || keyword(query, start, word, "ALTER")
+                || keyword(query, start, word, "DROP") || keyword(query, start, word, "TRUNCATE")
+                || keyword(query, start, word, "RENAME")) return Type.DDL;
+        if (keyword(query, start, word, "BEGIN") || keyword(query, start, word, "START")
+                || keyword(query, start, word, "COMMIT") || keyword(query, start, word, "ROLLBACK")
+                || keyword(query, start, word, "SAVEPOINT") || keyword(query, start, word, "RELEASE")) return Type.TCL;
+        if (keyword(query, start, word, "SET")) return Type.SET;
+        if (keyword(query, start, word, "SHOW") || keyword(query, start, word, "DESCRIBE")
+                || keyword(query, start, word, "DESC") || keyword(query, start, word, "EXPLAIN")) return Type.SHOW;
+        if (keyword(query, start, word, "CALL")) return Type.CALL;
+        return Type.OTHER_QUERY;
+    }
+
+    private static boolean keyword(String query, int start, int length, String keyword) {
+        return length == keyword.length() && query.regionMatches(true, start, keyword, 0, length);
+    }
+
+    static Type commandType(int command) {
+        return switch (command) {
+            case MySQLProtocol.COM_STMT_PREPARE -> Type.STMT_PREPARE;
+            case MySQLProtocol.COM_STMT_EXECUTE -> Type.STMT_EXECUTE;
+            case MySQLProtocol.COM_STMT_FETCH -> Type.STMT_FETCH;
+            case MySQLProtocol.COM_INIT_DB -> Type.INIT_DB;
+            case MySQLProtocol.COM_PING -> Type.PING;
+            default -> Type.OTHER_COMMAND;
+        };
+    }
+
+    /**
+     * Per-type distributions and the {@code limit} digests with the most total time.
+     */
+    public Map<String, Object> snapshot(int limit) {
+        Map<String, Object> types = new LinkedHashMap<>();
+        for (Type type : Type.values()) {
+            Histogram histogram = byType[type.ordinal()];
+            if (histogram.getTotalCount() > 0) {
+                types.put(type.name(), summarize(histogram.copy(), errorsByType.get(type.ordinal())));
+            }
+        }
+
+        List<Digest> all = new ArrayList<>();
+        for (int i = 0; i < digests.length(); i++) {
+            Digest digest = digests.get(i);
+            if (digest != null && digest.histogram.getTotalCount() > 0) all.add(digest);
+        }
+        if (overflow.histogram.getTotalCount() > 0) all.add(overflow);
+        all.sort(Comparator.comparingDouble((Digest d) -> d.histogram.getMean() * d.histogram.getTotalCount()).reversed());
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (Digest digest : all.subList(0, Math.min(limit, all.size()))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("digest", digest.text);
+            entry.put("type", digest.type.name());
+            Histogram copy = digest.histogram.copy();
+            entry.put("totalMillis", copy.getMean() * copy.getTotalCount() / 1000.0);
+            entry.putAll(summarize(copy, digest.errors.get()));
+            top.add(entry);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("slowThresholdMillis", getSlowThresholdMillis());
+        synchronized (this) {
+            stats.put("slowQueries", slowCount);
+        }
+        stats.put("digests", all.size());
+        stats.put("byType", types);
+        stats.put("topDigests", top);
+        return stats;
+    }
+
+    private static Map<String, Object> summarize(Histogram histogram, long errors) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("meanMillis", histogram.getMean() / 1000.0);
+        summary.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p95Millis", histogram.getValueAtPercentile(95) / 1000.0);
+        summary.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("maxMillis", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    /**
+     * The slow-query ring, newest first.
+     */
+    public synchronized List<Map<String, Object>> slowQueries() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        int size = (int) Math.min(slowCount, slowRing.length);
+        for (int i = 1; i <= size; i++) {
+            SlowQuery entry = slowRing[(slowNext - i + slowRing.length) % slowRing.length];
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("finishedAt", entry.finishedAt);
+            map.put("millis", entry.micros / 1000.0);
+            map.put("type", entry.type.name());
+            map.put("query", entry.query);
+            map.put("rows", entry.rows);
+            map.put("errorCode", entry.errorCode);
+            result.add(map);
+        }
+        return result;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < byType.length; i++) {
+            byType[i].reset();
+            errorsByType.set(i, 0);
+        }
+        for (int i = 0; i < digests.length(); i++) {
+            Digest digest = digests.get(i);
+            if (digest != null) {
+                digest.histogram.reset();
+                digest.errors.set(0);
+            }
+        }
+        overflow.histogram.reset();
+        overflow.errors.set(0);
+        slowCount = 0;
+        slowNext = 0;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.yasspfe.scenarios;
+
+import java.util.Locale;
+
+/**
+ * Settings of a query-log replay (see {@link QueryReplay}): where the captured queries come from and how
+ * fast they are played back.
+ * <ul>
+ *     <li>GENERAL_LOG: a MySQL general query log file (Query and Execute entries);</li>
+ *     <li>SLOW_LOG: a MySQL slow query log file, each query placed at its start (time minus Query_time);</li>
+ *     <li>CAPTURE: a capture file written by the MySQL proxy (see {@link QueryCapture});</li>
+ *     <li>BLACKHOLE_LOG: the chaos_blackhole_log table of the stress test database, one-second timing and no
+ *     session ids.</li>
+ * </ul>
+ * Files ending in .gz are read compressed. A {@code speed} of 2 replays twice as fast as captured, 0 as fast
+ * as the sessions can go. With {@code readOnly} only statements that do not write are replayed.
+ */
+public class ReplayProfile {
+
+    public enum Source { GENERAL_LOG, SLOW_LOG, CAPTURE, BLACKHOLE_LOG }
+
+    private Source source;
+    private String path;
+    private double speed = 1.0;
+    private boolean loop;
+    private boolean readOnly;
+    private int queueSize = 1000;
+    private boolean stopWhenDone = true;
+
+    /**
+     * Returns what is wrong with the settings, or null if they can run.
+     */
+    public String validate() {
+        if (source == null) return "source must be one of GENERAL_LOG, SLOW_LOG, CAPTURE, BLACKHOLE_LOG";
+        if (source != Source.BLACKHOLE_LOG && (path == null || path.isBlank())) return "path must be set for " + source;
+        if (speed < 0) return "speed must not be negative";
+        if (queueSize <= 0) return "queueSize must be positive";
+        return null;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source == null || source.isBlank() ? null : Source.valueOf(source.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    public boolean isLoop() {
+        return loop;
+    }
+
+    public void setLoop(boolean loop) {
+        this.loop = loop;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public boolean isStopWhenDone() {
+        return stopWhenDone;
+    }
+
+    public void setStopWhenDone(boolean stopWhenDone) {
+        this.stopWhenDone = stopWhenDone;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayProfile{source=" + source + ", path=" + path + ", speed=" + speed + ", loop=" + loop +
+                ", readOnly=" + readOnly + '}';
+    }
+}
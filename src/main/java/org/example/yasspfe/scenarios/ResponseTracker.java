@@ -0,0 +1,181 @@
+package org.example.yasspfe.scenarios;
+
+/**
+ * Follows the server's response to one client command, packet by packet, so the proxy knows
+ * where the response ends and which status flags the server reported at the end of it.
+ * Handles both the classic protocol with EOF packets, which is what the pooling proxy negotiates,
+ * and CLIENT_DEPRECATE_EOF, which passthrough clients and servers usually agree on.
+ */
+public final class ResponseTracker {
+
+    private enum Phase { IDLE, FIRST, COLUMNS, ROWS, PREPARE_DEFINITIONS, UNTIL_EOF, SINGLE, LOCAL_INFILE }
+
+    private Phase phase = Phase.IDLE;
+    private int command = -1;
+    private int status = MySQLProtocol.SERVER_STATUS_AUTOCOMMIT;
+    private boolean deprecateEof;
+    private int pendingEofs;
+    private long columnsRemaining;
+    private int errorCode;
+    private boolean error;
+    private long rows;
+
+    /**
+     * Whether the connection negotiated CLIENT_DEPRECATE_EOF: no EOF after column definitions and an
+     * OK packet with an 0xFE header at the end of each result set.
+     */
+    public void setDeprecateEof(boolean deprecateEof) {
+        this.deprecateEof = deprecateEof;
+    }
+
+    /**
+     * Starts tracking the response to {@code command}. Returns false for commands the server never answers.
+     */
+    public boolean begin(int command) {
+        this.command = command;
+        this.error = false;
+        this.errorCode = 0;
+        this.rows = 0;
+        phase = switch (command) {
+            case MySQLProtocol.COM_QUIT, MySQLProtocol.COM_STMT_CLOSE, MySQLProtocol.COM_STMT_SEND_LONG_DATA -> Phase.IDLE;
+            case MySQLProtocol.COM_QUERY, MySQLProtocol.COM_STMT_EXECUTE, MySQLProtocol.COM_STMT_PREPARE -> Phase.FIRST;
+            case MySQLProtocol.COM_STMT_FETCH -> Phase.ROWS;
+            case MySQLProtocol.COM_FIELD_LIST -> Phase.UNTIL_EOF;
+            default -> Phase.SINGLE;
+        };
+        return phase != Phase.IDLE;
+    }
+
+    /**
+     * Feeds one server packet (header included). Returns true once the response is complete.
+     */
+    public boolean onServerPacket(byte[] packet) {
+        if (packet.length <= 4) {
+            return phase == Phase.IDLE;
+        }
+        int type = packet[4] & 0xFF;
+        boolean eof = type == 0xFE && (deprecateEof ? packet.length - 4 < MySQLProtocol.MAX_PAYLOAD : packet.length - 4 < 9);
+
+        switch (phase) {
+            case FIRST -> {
+                if (type == 0xFF) {
+                    onError(packet);
+                } else if (type == 0x00 && command == MySQLProtocol.COM_STMT_PREPARE) {
+                    int columns = (int) MySQLProtocol.readIntLE(packet, 9, 2);
+                    int params = (int) MySQLProtocol.readIntLE(packet, 11, 2);
+                    // With DEPRECATE_EOF there is no EOF after each block, so count the definitions instead
+                    pendingEofs = deprecateEof ? columns + params : (columns > 0 ? 1 : 0) + (params > 0 ? 1 : 0);
+                    phase = pendingEofs > 0 ? Phase.PREPARE_DEFINITIONS : Phase.IDLE;
+                } else if (type == 0x00) {
+                    endOfResult(MySQLProtocol.statusFlags(packet, 4));
+                } else if (type == 0xFB) {
+                    phase = Phase.LOCAL_INFILE;
+                } else {
+                    int[] pos = {4};
+                    columnsRemaining = MySQLProtocol.readLenencInt(packet, pos);
+                    phase = Phase.COLUMNS;
+                }
+            }
+            case COLUMNS -> {
+                if (deprecateEof && type != 0xFF) {
+                    if (--columnsRemaining <= 0) phase = Phase.ROWS;
+                } else if (eof) {
+                    int flags = MySQLProtocol.statusFlags(packet, 4);
+                    status = flags;
+                    // A server-side cursor sends its rows later, in answer to COM_STMT_FETCH
+                    phase = (flags & MySQLProtocol.SERVER_STATUS_CURSOR_EXISTS) != 0 ? Phase.IDLE : Phase.ROWS;
+                } else if (type == 0xFF) {
+                    onError(packet);
+                }
+            }
+            case ROWS -> {
+                if (eof) {
+                    endOfResult(MySQLProtocol.statusFlags(packet, 4));
+                } else if (type == 0xFF) {
+                    onError(packet);
+                } else {
+                    rows++;
+                }
+            }
+            case PREPARE_DEFINITIONS -> {
+                if ((deprecateEof || eof) && --pendingEofs == 0) {
+                    phase = Phase.IDLE;
+                }
+            }
+            case UNTIL_EOF -> {
+                if (eof) {
+                    status = MySQLProtocol.statusFlags(packet, 4);
+                    phase = Phase.IDLE;
+                } else if (type == 0xFF) {
+                    onError(packet);
+                }
+            }
+            case SINGLE -> {
+                if (type == 0xFF) {
+                    onError(packet);
+                } else {
+                    int flags = MySQLProtocol.statusFlags(packet, 4);
+                    if (flags >= 0) status = flags;
+                    phase = Phase.IDLE;
+                }
+            }
+            case LOCAL_INFILE -> {
+                // The server answers the uploaded file with a regular OK or ERR
+                phase = Phase.FIRST;
+                return onServerPacket(packet);
+            }
+            default -> {
+            }
+        }
+        return phase == Phase.IDLE;
+    }
+
+    private void endOfResult(int flags) {
+        if (flags >= 0) status = flags;
+        phase = (status & MySQLProtocol.SERVER_MORE_RESULTS_EXISTS) != 0 ? Phase.FIRST : Phase.IDLE;
+    }
+
+    private void onError(byte[] packet) {
+        error = true;
+        errorCode = (int) MySQLProtocol.readIntLE(packet, 5, 2);
+        // An ERR ends the whole response; it does not change the transaction state reported earlier
+        status &= ~MySQLProtocol.SERVER_MORE_RESULTS_EXISTS;
+        phase = Phase.IDLE;
+    }
+
+    public boolean isComplete() {
+        return phase == Phase.IDLE;
+    }
+
+    /**
+     * True after the server asked for a LOCAL INFILE upload; the client's data packets must be relayed
+     * up to and including the empty terminating packet before the server sends anything else.
+     */
+    public boolean isAwaitingClientData() {
+        return phase == Phase.LOCAL_INFILE;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isInTransaction() {
+        return (status & MySQLProtocol.SERVER_STATUS_IN_TRANS) != 0;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getCommand() {
+        return command;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.yasspfe.scenarios;
+
+import org.example.yasspfe.scenarios.TableMetadata.Column;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Synthetic column values for the rows the stress tester writes, matching each column's MySQL type: text of up
+ * to {@code rowSize} characters (capped by the declared length), numbers in the type's range, the current
+ * date and time for temporal types, the first value of an enum or set, small JSON documents and random bytes.
+ */
+public final class RowGenerator {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private RowGenerator() {
+    }
+
+    public static Object value(Column column, Random random, int rowSize) {
+        String type = column.getType();
+        if (column.isText()) {
+            int length = column.getLength() > 0 ? Math.min(rowSize, column.getLength())
+                    : type.startsWith("tinytext") ? Math.min(rowSize, 255) : rowSize;
+            return text(random, length);
+        }
+        if (type.startsWith("tinyint(1)") || type.startsWith("bit")) return random.nextInt(2);
+        if (type.startsWith("tinyint")) return random.nextInt(100);
+        if (type.startsWith("smallint")) return random.nextInt(30_000);
+        if (type.startsWith("mediumint") || type.startsWith("int")) return random.nextInt(1_000_000);
+        if (type.startsWith("bigint")) return (long) random.nextInt(Integer.MAX_VALUE);
+        if (type.startsWith("decimal") || type.startsWith("numeric") || type.startsWith("float")
+                || type.startsWith("double") || type.startsWith("real")) {
+            return random.nextInt(100_000) / 100.0;
+        }
+        if (type.startsWith("datetime") || type.startsWith("timestamp")) return new Timestamp(System.currentTimeMillis());
+        if (type.startsWith("date")) return java.sql.Date.valueOf(LocalDate.now());
+        if (type.startsWith("time")) return new Time(System.currentTimeMillis());
+        if (type.startsWith("year")) return LocalDate.now().getYear();
+        if (type.startsWith("enum") || type.startsWith("set")) {
+            int start = type.indexOf('\'');
+            int end = type.indexOf('\'', start + 1);
+            // The type is lower-cased; enum and set values compare case-insensitively under the usual collations
+            return start >= 0 && end > start ? type.substring(start + 1, end) : null;
+        }
+        if (type.startsWith("json")) return "{\"v\":\"" + text(random, Math.max(1, rowSize - 8)) + "\"}";
+        if (type.contains("binary") || type.contains("blob")) {
+            byte[] bytes = new byte[column.getLength() > 0 ? Math.min(rowSize, column.getLength()) : rowSize];
+            random.nextBytes(bytes);
+            return bytes;
+        }
+        return text(random, Math.min(rowSize, 16));
+    }
+
+    public static String text(Random random, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(text);
+    }
+}
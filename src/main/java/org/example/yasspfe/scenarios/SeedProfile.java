@@ -0,0 +1,100 @@
+package org.example.yasspfe.scenarios;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a data seeding run (see {@link DataSeeder}): how many rows each table should end up with, how
+ * wide the generated text is, how many tables load at once and how many rows go into each LOAD DATA
+ * statement (each one is its own transaction). With {@code topUp} a table that already holds rows only gets
+ * the difference, going by the server's row estimate, so seeding again after a stop carries on.
+ */
+public class SeedProfile {
+
+    private long rowsPerTable = 1_000_000;
+    private Map<String, Long> tableRows = new LinkedHashMap<>();
+    private int rowSize = 100;
+    private int loaders = 4;
+    private int rowsPerLoad = 100_000;
+    private boolean topUp = true;
+
+    /**
+     * Returns what is wrong with the settings, or null if they can run.
+     */
+    public String validate() {
+        if (rowsPerTable < 0) return "rowsPerTable must not be negative";
+        if (tableRows != null) {
+            for (Map.Entry<String, Long> entry : tableRows.entrySet()) {
+                if (entry.getValue() == null || entry.getValue() < 0) {
+                    return "rows of table " + entry.getKey() + " must not be negative";
+                }
+            }
+        }
+        if (rowSize <= 0) return "rowSize must be positive";
+        if (loaders <= 0) return "loaders must be positive";
+        if (rowsPerLoad <= 0) return "rowsPerLoad must be positive";
+        return null;
+    }
+
+    /**
+     * The number of rows {@code table} should hold: its entry in {@code tableRows}, or {@code rowsPerTable}.
+     */
+    public long rowsFor(String table) {
+        Long rows = tableRows != null ? tableRows.get(table) : null;
+        return rows != null ? rows : rowsPerTable;
+    }
+
+    public long getRowsPerTable() {
+        return rowsPerTable;
+    }
+
+    public void setRowsPerTable(long rowsPerTable) {
+        this.rowsPerTable = rowsPerTable;
+    }
+
+    public Map<String, Long> getTableRows() {
+        return tableRows;
+    }
+
+    public void setTableRows(Map<String, Long> tableRows) {
+        this.tableRows = tableRows;
+    }
+
+    public int getRowSize() {
+        return rowSize;
+    }
+
+    public void setRowSize(int rowSize) {
+        this.rowSize = rowSize;
+    }
+
+    public int getLoaders() {
+        return loaders;
+    }
+
+    public void setLoaders(int loaders) {
+        this.loaders = loaders;
+    }
+
+    public int getRowsPerLoad() {
+        return rowsPerLoad;
+    }
+
+    public void setRowsPerLoad(int rowsPerLoad) {
+        this.rowsPerLoad = rowsPerLoad;
+    }
+
+    public boolean isTopUp() {
+        return topUp;
+    }
+
+    public void setTopUp(boolean topUp) {
+        this.topUp = topUp;
+    }
+
+    @Override
+    public String toString() {
+        return "SeedProfile{rowsPerTable=" + rowsPerTable + ", tableRows=" + tableRows + ", rowSize=" + rowSize +
+                ", loaders=" + loaders + ", rowsPerLoad=" + rowsPerLoad + ", topUp=" + topUp + '}';
+    }
+}
@@ -0,0 +1,382 @@
+package org.example.yasspfe.scenarios;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * Samples the server during a stress test run, on a connection of its own outside the pool, so the server side
+ * can be read next to the client-side metrics: every interval it reads SHOW GLOBAL STATUS, a few counters of
+ * information_schema.INNODB_METRICS and the statement digests that ran since the last sample, and keeps the
+ * change over the interval (rates per second for counters, the current value for gauges) with the client's
+ * query rate over the same interval.
+ * <p>
+ * Only digests whose LAST_SEEN is after the previous sample are sent back and compared. The server still scans
+ * events_statements_summary_by_digest for them (LAST_SEEN has no index), but the table is in memory and bounded
+ * by performance_schema_digests_size; the whole table is read once, at the start, as the baseline. Without
+ * performance_schema or INNODB_METRICS those parts are left out.
+ * <p>
+ * When a sample fails, the sampler reconnects for the next one; while the server stays out of reach it waits
+ * twice as long before each attempt, up to a minute, and picks up again once it answers.
+ */
+public class ServerStatusSampler {
+
+    // Intervals kept for the report
+    private static final int HISTORY = Integer.getInteger("stress.serverStatus.history", 720);
+    // Longest wait between attempts to reach the server again
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    // Digests listed per interval and for the run
+    private static final int TOP_DIGESTS = 10;
+    private static final int DIGEST_TEXT_LENGTH = 200;
+    // Prefix of INNODB_METRICS counters among the status values
+    static final String INNODB_METRIC = "innodb_metrics.";
+    private static final List<String> INNODB_METRICS = List.of("lock_deadlocks", "lock_timeouts", "lock_row_lock_waits",
+            "trx_rollbacks", "log_waits", "buffer_pool_wait_free", "adaptive_hash_searches", "adaptive_hash_searches_btree");
+    private static final String DIGESTS = "SELECT DIGEST, DIGEST_TEXT, COUNT_STAR, SUM_TIMER_WAIT, SUM_ROWS_EXAMINED, " +
+            "SUM_ROWS_SENT, SUM_CREATED_TMP_DISK_TABLES FROM performance_schema.events_statements_summary_by_digest";
+
+    // A digest's cumulative counters; timer in picoseconds
+    private record DigestCounters(long count, long timerWait, long rowsExamined, long rowsSent, long tmpDiskTables) {
+
+        DigestCounters minus(DigestCounters other) {
+            return new DigestCounters(Math.max(0, count - other.count), Math.max(0, timerWait - other.timerWait),
+                    Math.max(0, rowsExamined - other.rowsExamined), Math.max(0, rowsSent - other.rowsSent),
+                    Math.max(0, tmpDiskTables - other.tmpDiskTables));
+        }
+    }
+
+    private static final class Digest {
+        private final String text;
+        private final DigestCounters baseline;
+        private DigestCounters latest;
+
+        private Digest(String text, DigestCounters baseline) {
+            this.text = text;
+            this.baseline = baseline;
+            this.latest = baseline;
+        }
+    }
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final long intervalMillis;
+    private final IntSupplier clientQueries;
+
+    private final Deque<Map<String, Object>> intervals = new ArrayDeque<>();
+    private Map<String, Long> first;
+    private long firstNanos;
+    private Map<String, Long> previous;
+    private long previousNanos;
+    private int previousQueries;
+    private final Map<String, Digest> digests = new HashMap<>();
+    private Map<String, DigestCounters> digestBaseline;
+    private Timestamp digestsSince;
+    private volatile String state = "starting";
+    private volatile String digestState;
+
+    public ServerStatusSampler(String jdbcUrl, String username, String password, long intervalMillis, IntSupplier clientQueries) {
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.intervalMillis = intervalMillis;
+        this.clientQueries = clientQueries;
+    }
+
+    /**
+     * Samples every interval until the test stops, then once more for the last, shorter interval.
+     */
+    public void run(BooleanSupplier running) {
+        Thread.currentThread().setName("stress-server-status");
+        Connection connection = null;
+        long backoffMillis = intervalMillis;
+        try {
+            while (true) {
+                long waitMillis = intervalMillis;
+                try {
+                    if (connection == null) {
+                        connection = DriverManager.getConnection(jdbcUrl, username, password);
+                    }
+                    sample(connection);
+                    state = "sampling every " + intervalMillis + "ms";
+                    backoffMillis = intervalMillis;
+                } catch (SQLException e) {
+                    // Reconnect for a later sample, waiting longer each time the server stays out of reach
+                    if (backoffMillis == intervalMillis) {
+                        System.err.println("⚠ Server status sampling failed, retrying: " + e.getMessage());
+                    }
+                    close(connection);
+                    connection = null;
+                    waitMillis = backoffMillis;
+                    backoffMillis = Math.min(backoffMillis * 2, Math.max(intervalMillis, MAX_BACKOFF_MILLIS));
+                    state = "failed, retrying in " + waitMillis + "ms: " + e.getMessage();
+                }
+                if (!running.getAsBoolean()) {
+                    break;
+                }
+                long wake = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+                while (running.getAsBoolean() && System.nanoTime() < wake) {
+                    Thread.sleep(Math.min(100, waitMillis));
+                }
+            }
+            state = "stopped";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = "stopped";
+        } finally {
+            close(connection);
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // The connection is dropped either way
+        }
+    }
+
+    private void sample(Connection connection) throws SQLException {
+        long now = System.nanoTime();
+        int queries = clientQueries.getAsInt();
+        Map<String, Long> status = readStatus(connection);
+        List<Map<String, Object>> topDigests = readDigests(connection);
+        synchronized (this) {
+            if (first == null) {
+                first = status;
+                firstNanos = now;
+            } else {
+                double seconds = (now - previousNanos) / 1e9;
+                Map<String, Object> interval = new LinkedHashMap<>();
+                interval.put("time", System.currentTimeMillis());
+                interval.put("seconds", seconds);
+                interval.put("clientQps", seconds > 0 ? (queries - previousQueries) / seconds : 0.0);
+                interval.putAll(delta(previous, status, seconds));
+                if (topDigests != null) {
+                    interval.put("topDigests", topDigests);
+                }
+                intervals.addLast(interval);
+                if (intervals.size() > HISTORY) {
+                    intervals.removeFirst();
+                }
+            }
+            previous = status;
+            previousNanos = now;
+            previousQueries = queries;
+        }
+    }
+
+    private Map<String, Long> readStatus(Connection connection) throws SQLException {
+        Map<String, Long> status = new HashMap<>();
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rows = statement.executeQuery("SHOW GLOBAL STATUS")) {
+                while (rows.next()) {
+                    putNumber(status, rows.getString(1), rows.getString(2));
+                }
+            }
+            try (ResultSet rows = statement.executeQuery("SELECT NAME, COUNT FROM information_schema.INNODB_METRICS " +
+                    "WHERE NAME IN ('" + String.join("', '", INNODB_METRICS) + "')")) {
+                while (rows.next()) {
+                    putNumber(status, INNODB_METRIC + rows.getString(1), rows.getString(2));
+                }
+            } catch (SQLException e) {
+                // MariaDB and old servers; the status variables still cover most of it
+            }
+        }
+        return status;
+    }
+
+    private static void putNumber(Map<String, Long> status, String name, String value) {
+        if (value == null) return;
+        try {
+            status.put(name, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // Not a counter (ON/OFF, versions, ...)
+        }
+    }
+
+    /**
+     * The change between two samples taken {@code seconds} apart.
+     */
+    static Map<String, Object> delta(Map<String, Long> before, Map<String, Long> after, double seconds) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("questionsPerSecond", rate(before, after, "Questions", seconds));
+        delta.put("threadsRunning", after.getOrDefault("Threads_running", 0L));
+        delta.put("threadsConnected", after.getOrDefault("Threads_connected", 0L));
+        delta.put("rowsReadPerSecond", rate(before, after, "Innodb_rows_read", seconds));
+        delta.put("rowsInsertedPerSecond", rate(before, after, "Innodb_rows_inserted", seconds));
+        delta.put("rowsUpdatedPerSecond", rate(before, after, "Innodb_rows_updated", seconds));
+        delta.put("rowsDeletedPerSecond", rate(before, after, "Innodb_rows_deleted", seconds));
+
+        long requests = change(before, after, "Innodb_buffer_pool_read_requests");
+        long diskReads = change(before, after, "Innodb_buffer_pool_reads");
+        delta.put("bufferPoolReadRequestsPerSecond", seconds > 0 ? requests / seconds : 0.0);
+        delta.put("bufferPoolDiskReadsPerSecond", seconds > 0 ? diskReads / seconds : 0.0);
+        delta.put("bufferPoolHitRatio", requests > 0 ? 1.0 - (double) diskReads / requests : 1.0);
+
+        long tmpTables = change(before, after, "Created_tmp_tables");
+        long tmpDiskTables = change(before, after, "Created_tmp_disk_tables");
+        delta.put("tmpTablesPerSecond", seconds > 0 ? tmpTables / seconds : 0.0);
+        delta.put("tmpDiskTablesPerSecond", seconds > 0 ? tmpDiskTables / seconds : 0.0);
+        delta.put("tmpDiskTableRatio", tmpTables > 0 ? (double) tmpDiskTables / tmpTables : 0.0);
+
+        delta.put("rowLockWaits", change(before, after, "Innodb_row_lock_waits"));
+        delta.put("rowLockTimeMillis", change(before, after, "Innodb_row_lock_time"));
+        delta.put("deadlocks", change(before, after, INNODB_METRIC + "lock_deadlocks"));
+        delta.put("lockWaitTimeouts", change(before, after, INNODB_METRIC + "lock_timeouts"));
+        delta.put("slowQueries", change(before, after, "Slow_queries"));
+        delta.put("selectFullJoins", change(before, after, "Select_full_join"));
+        delta.put("sortMergePasses", change(before, after, "Sort_merge_passes"));
+        delta.put("bytesReceivedPerSecond", rate(before, after, "Bytes_received", seconds));
+        delta.put("bytesSentPerSecond", rate(before, after, "Bytes_sent", seconds));
+        return delta;
+    }
+
+    // A counter's change, 0 when it is missing or went back (FLUSH STATUS)
+    private static long change(Map<String, Long> before, Map<String, Long> after, String name) {
+        Long was = before.get(name);
+        Long is = after.get(name);
+        return was == null || is == null ? 0 : Math.max(0, is - was);
+    }
+
+    private static double rate(Map<String, Long> before, Map<String, Long> after, String name, double seconds) {
+        return seconds > 0 ? change(before, after, name) / seconds : 0.0;
+    }
+
+    // The digests that ran since the last sample, busiest first; null without performance_schema
+    private List<Map<String, Object>> readDigests(Connection connection) {
+        if (digestState != null && digestState.startsWith("unavailable")) {
+            return null;
+        }
+        try {
+            Timestamp now;
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT NOW(6)")) {
+                rs.next();
+                now = rs.getTimestamp(1);
+            }
+            if (digestBaseline == null) {
+                digestBaseline = new HashMap<>();
+                try (Statement statement = connection.createStatement();
+                     ResultSet rows = statement.executeQuery(DIGESTS)) {
+                    while (rows.next()) {
+                        String digest = rows.getString(1);
+                        if (digest != null) digestBaseline.put(digest, counters(rows));
+                    }
+                }
+                digestsSince = now;
+                digestState = "reading events_statements_summary_by_digest";
+                return null;
+            }
+
+            List<Map<String, Object>> interval = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(DIGESTS + " WHERE LAST_SEEN >= ?")) {
+                statement.setTimestamp(1, digestsSince);
+                try (ResultSet rows = statement.executeQuery()) {
+                    synchronized (this) {
+                        while (rows.next()) {
+                            String key = rows.getString(1);
+                            if (key == null) continue;
+                            DigestCounters current = counters(rows);
+                            Digest digest = digests.get(key);
+                            if (digest == null) {
+                                digest = new Digest(abbreviate(rows.getString(2)),
+                                        digestBaseline.getOrDefault(key, new DigestCounters(0, 0, 0, 0, 0)));
+                                digests.put(key, digest);
+                            }
+                            DigestCounters change = current.minus(digest.latest);
+                            digest.latest = current;
+                            if (change.count() > 0) {
+                                interval.add(digestEntry(digest.text, change));
+                            }
+                        }
+                    }
+                }
+            }
+            digestsSince = now;
+            return top(interval);
+        } catch (SQLException e) {
+            digestState = "unavailable: " + e.getMessage();
+            return null;
+        }
+    }
+
+    private static DigestCounters counters(ResultSet rows) throws SQLException {
+        return new DigestCounters(rows.getLong(3), rows.getLong(4), rows.getLong(5), rows.getLong(6), rows.getLong(7));
+    }
+
+    private static String abbreviate(String text) {
+        if (text == null) return "";
+        return text.length() <= DIGEST_TEXT_LENGTH ? text : text.substring(0, DIGEST_TEXT_LENGTH - 3) + "...";
+    }
+
+    private static Map<String, Object> digestEntry(String text, DigestCounters counters) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("digest", text);
+        entry.put("count", counters.count());
+        // Timers are in picoseconds
+        entry.put("totalMillis", counters.timerWait() / 1e9);
+        entry.put("meanMillis", counters.count() > 0 ? counters.timerWait() / 1e9 / counters.count() : 0.0);
+        entry.put("rowsExamined", counters.rowsExamined());
+        entry.put("rowsSent", counters.rowsSent());
+        entry.put("tmpDiskTables", counters.tmpDiskTables());
+        return entry;
+    }
+
+    private static List<Map<String, Object>> top(List<Map<String, Object>> entries) {
+        entries.sort((a, b) -> Double.compare((double) b.get("totalMillis"), (double) a.get("totalMillis")));
+        return new ArrayList<>(entries.subList(0, Math.min(TOP_DIGESTS, entries.size())));
+    }
+
+    public synchronized Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("state", state);
+        report.put("intervalMillis", intervalMillis);
+        if (digestState != null) {
+            report.put("digests", digestState);
+        }
+        if (first != null && previous != null && first != previous) {
+            report.put("run", delta(first, previous, (previousNanos - firstNanos) / 1e9));
+        }
+        List<Map<String, Object>> runDigests = new ArrayList<>();
+        for (Digest digest : digests.values()) {
+            DigestCounters change = digest.latest.minus(digest.baseline);
+            if (change.count() > 0) {
+                runDigests.add(digestEntry(digest.text, change));
+            }
+        }
+        report.put("topDigests", top(runDigests));
+        report.put("intervals", new ArrayList<>(intervals));
+        return report;
+    }
+
+    /**
+     * One line for the monitor: the last interval.
+     */
+    public synchronized String summary() {
+        Map<String, Object> last = intervals.peekLast();
+        if (last == null) {
+            return state;
+        }
+        return String.format("%.0f questions/s (client %.0f qps) | threads running %s | rows read %.0f/s | " +
+                        "buffer pool hit %.4f | tmp disk tables %.1f/s | row lock waits %s | deadlocks %s",
+                (double) last.get("questionsPerSecond"), (double) last.get("clientQps"), last.get("threadsRunning"),
+                (double) last.get("rowsReadPerSecond"), (double) last.get("bufferPoolHitRatio"),
+                (double) last.get("tmpDiskTablesPerSecond"), last.get("rowLockWaits"), last.get("deadlocks"));
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.yasspfe.scenarios;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The prepared statements of one connection. Each distinct SQL text is prepared on first use and re-executed
+ * with new parameters after that, so the server parses it once per connection (the pool sets
+ * useServerPrepStmts). Not thread safe: a cache belongs to whoever holds the connection.
+ * <p>
+ * A session that keeps its connection keeps its cache. Sessions that borrow a connection per operation get the
+ * cache of the pooled connection underneath the pool's handle ({@link #forPhysical}): statements are prepared
+ * on that connection, so they outlive the handle, and the next borrower of the connection finds them
+ * prepared. {@link #getConnection} is the handle of the current borrow, for transactions.
+ */
+public final class StatementCache implements AutoCloseable {
+
+    private final Connection physical;
+    private Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final Map<String, PreparedStatement> returningKeys = new HashMap<>();
+
+    public StatementCache(Connection connection) {
+        this.physical = connection;
+        this.connection = connection;
+    }
+
+    private StatementCache(Connection physical, Connection handle) {
+        this.physical = physical;
+        this.connection = handle;
+    }
+
+    /**
+     * The cache of the connection underneath {@code handle}, from {@code caches} or new, set to run on
+     * {@code handle}. Caches of connections the pool has closed since are dropped.
+     */
+    static StatementCache forPhysical(Map<Connection, StatementCache> caches, Connection handle) throws SQLException {
+        Connection physical = handle.isWrapperFor(Connection.class) ? handle.unwrap(Connection.class) : handle;
+        synchronized (caches) {
+            StatementCache cache = caches.get(physical);
+            if (cache == null) {
+                caches.values().removeIf(StatementCache::isPhysicalClosed);
+                cache = new StatementCache(physical, handle);
+                caches.put(physical, cache);
+            }
+            cache.connection = handle;
+            return cache;
+        }
+    }
+
+    private boolean isPhysicalClosed() {
+        try {
+            return physical.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = physical.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    public PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+        PreparedStatement statement = returningKeys.get(sql);
+        if (statement == null) {
+            statement = physical.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            returningKeys.put(sql, statement);
+        }
+        return statement;
+    }
+
+    public int size() {
+        return statements.size() + returningKeys.size();
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement statement : statements.values()) closeQuietly(statement);
+        for (PreparedStatement statement : returningKeys.values()) closeQuietly(statement);
+        statements.clear();
+        returningKeys.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The connection is going away with it
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.yasspfe.scenarios;
+
+import java.util.Locale;
+
+/**
+ * Settings of the large-result read workload (see {@link StreamingWorkload}): sessions scan whole tables, or
+ * {@code table} only, or run {@code query}, and read every row as it arrives. {@code fetchMode} is how the
+ * driver fetches the result:
+ * <ul>
+ *     <li>stream: {@code fetchSize=Integer.MIN_VALUE}, the server sends the whole result and the driver reads
+ *     it off the socket row by row;</li>
+ *     <li>cursor: {@code useCursorFetch=true}, the server keeps the result in a cursor and the driver fetches
+ *     {@code fetchSize} rows at a time.</li>
+ * </ul>
+ * {@code maxRows} caps each scan with a LIMIT (0 reads everything). {@code proxyAddress} (host:port, e.g.
+ * 127.0.0.1:3301) sends the run's connections through MySQLProxy instead of straight to the database.
+ */
+public class StreamingProfile {
+
+    public enum FetchMode { STREAM, CURSOR }
+
+    private String table;
+    private String query;
+    private String fetchMode = "stream";
+    private int fetchSize = 1000;
+    private long maxRows;
+    private int sessions = 4;
+    private String proxyAddress;
+
+    /**
+     * Returns what is wrong with the settings, or null if they can run.
+     */
+    public String validate() {
+        try {
+            getMode();
+        } catch (IllegalArgumentException e) {
+            return "fetchMode must be stream or cursor";
+        }
+        if (fetchSize <= 0) return "fetchSize must be positive";
+        if (maxRows < 0) return "maxRows must not be negative";
+        if (sessions <= 0) return "sessions must be positive";
+        if (query != null && !query.isBlank() && !query.trim().toUpperCase(Locale.ROOT).startsWith("SELECT")) {
+            return "query must be a SELECT";
+        }
+        if (proxyAddress != null && !proxyAddress.isBlank() && !proxyAddress.matches("[^:/]+:\\d{1,5}")) {
+            return "proxyAddress must be host:port";
+        }
+        return null;
+    }
+
+    public FetchMode getMode() {
+        return FetchMode.valueOf(fetchMode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public boolean isViaProxy() {
+        return proxyAddress != null && !proxyAddress.isBlank();
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getFetchMode() {
+        return fetchMode;
+    }
+
+    public void setFetchMode(String fetchMode) {
+        this.fetchMode = fetchMode != null ? fetchMode : "stream";
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public long getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(long maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(int sessions) {
+        this.sessions = sessions;
+    }
+
+    public String getProxyAddress() {
+        return proxyAddress;
+    }
+
+    public void setProxyAddress(String proxyAddress) {
+        this.proxyAddress = proxyAddress;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamingProfile{table=" + table + ", query=" + query + ", fetchMode=" + fetchMode + ", fetchSize=" + fetchSize +
+                ", maxRows=" + maxRows + ", sessions=" + sessions + ", proxyAddress=" + proxyAddress + '}';
+    }
+}
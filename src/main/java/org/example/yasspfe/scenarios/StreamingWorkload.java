@@ -0,0 +1,287 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A {@link StreamingProfile} bound to the tables of a stress test run: sessions run large scans and read every
+ * column of every row as raw bytes, counting them and dropping them, so nothing is materialized beyond the
+ * driver's own buffer. This exercises what the LIMITed reads of the other workloads never do: the server
+ * sending a long result, the network (and MySQLProxy, when the run goes through it) carrying it, and the
+ * client draining it, the way reporting and ETL jobs do.
+ * <p>
+ * Time to first row (the query's execution and the first packet of rows) and the time of the whole scan are
+ * recorded as operations; rows and bytes are counted per source. A scan still going when the test stops is
+ * cancelled rather than drained.
+ */
+public class StreamingWorkload {
+
+    // How often, in rows, a scan checks that the test is still running
+    private static final int CHECK_EVERY_ROWS = 4096;
+
+    // One table or the profile's query, and what was read from it
+    static final class Scan {
+        private final String name;
+        private final String sql;
+        private final LongAdder scans = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        Scan(String name, String sql) {
+            this.name = name;
+            this.sql = sql;
+        }
+
+        String getSql() {
+            return sql;
+        }
+    }
+
+    private final StreamingProfile profile;
+    private final List<Scan> scans;
+    private final AtomicInteger totalQueries;
+    private final AtomicInteger nextScan = new AtomicInteger();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Recorder firstRows = new Recorder(3);
+    private final Histogram firstRowTotal = new Histogram(3);
+    private final long startNanos = System.nanoTime();
+    private volatile long lastActivityNanos = startNanos;
+
+    // Monitor interval, see summary()
+    private long summaryRows;
+    private long summaryBytes;
+    private long summaryNanos = startNanos;
+
+    StreamingWorkload(StreamingProfile profile, List<Scan> scans, AtomicInteger totalQueries) {
+        this.profile = profile;
+        this.scans = List.copyOf(scans);
+        this.totalQueries = totalQueries;
+    }
+
+    /**
+     * Builds the scans: the profile's query, its table, or every table; null, with the reason printed, if
+     * there is nothing to scan.
+     */
+    public static StreamingWorkload prepare(StreamingProfile profile, Map<String, TableMetadata> metadata, AtomicInteger totalQueries) {
+        String limit = profile.getMaxRows() > 0 ? " LIMIT " + profile.getMaxRows() : "";
+        List<Scan> scans = new ArrayList<>();
+        if (profile.getQuery() != null && !profile.getQuery().isBlank()) {
+            scans.add(new Scan("query", profile.getQuery().trim()));
+        } else {
+            for (TableMetadata table : metadata.values()) {
+                if (profile.getTable() != null && !profile.getTable().equals(table.getTable())) continue;
+                scans.add(new Scan(table.getTable(), "SELECT * FROM " + TableMetadata.quote(table.getTable()) + limit));
+            }
+        }
+        if (scans.isEmpty()) {
+            System.err.println("❌ Streaming reads found no " + (profile.getTable() != null ? "table " + profile.getTable() : "table") + " to scan");
+            return null;
+        }
+        return new StreamingWorkload(profile, scans, totalQueries);
+    }
+
+    /**
+     * The JDBC URL with its host and port replaced by {@code address}, to reach the database through the proxy.
+     */
+    static String route(String jdbcUrl, String address) {
+        int scheme = jdbcUrl.indexOf("://");
+        if (scheme < 0) {
+            throw new IllegalArgumentException("Not a MySQL JDBC URL: " + jdbcUrl);
+        }
+        String rest = jdbcUrl.substring(scheme + 3);
+        int slash = rest.indexOf('/');
+        int question = rest.indexOf('?');
+        int hostsEnd = slash >= 0 ? slash : question >= 0 ? question : rest.length();
+        int at = rest.substring(0, hostsEnd).lastIndexOf('@');
+        return jdbcUrl.substring(0, scheme + 3) + rest.substring(0, at + 1) + address + rest.substring(hostsEnd);
+    }
+
+    public StreamingProfile getProfile() {
+        return profile;
+    }
+
+    List<Scan> getScans() {
+        return scans;
+    }
+
+    /**
+     * One streaming session: scans, taking the sources in turn, until the test stops.
+     */
+    public void runSession(StressSessions.Session session, StressMetrics.Worker recorder, BooleanSupplier running) {
+        session.start();
+        long failures = 0;
+        try (session) {
+            while (running.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+                Scan scan = scans.get(Math.floorMod(nextScan.getAndIncrement(), scans.size()));
+                try {
+                    StatementCache statements = session.acquire();
+                    try {
+                        scan(statements.getConnection(), scan, recorder, running);
+                    } finally {
+                        session.release();
+                    }
+                    session.progress();
+                } catch (SQLException e) {
+                    errors.increment();
+                    recorder.error(Operation.STREAM_SCAN, scan.name, e);
+                    if (running.getAsBoolean() && failures++ % 100 == 0) {
+                        System.err.println("⚠ SQL Error streaming " + scan.name + " (" + failures + " errors): " + e.getMessage());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("⚠ Error in streaming session " + session.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // Runs one scan to the end, or until the test stops
+    private void scan(Connection connection, Scan scan, StressMetrics.Worker recorder, BooleanSupplier running) throws SQLException {
+        long began = System.nanoTime();
+        long scanRows = 0;
+        long scanBytes = 0;
+        boolean stopped = false;
+        Statement statement = profile.getMode() == StreamingProfile.FetchMode.CURSOR
+                ? connection.prepareStatement(scan.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+                : connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(profile.getMode() == StreamingProfile.FetchMode.CURSOR ? profile.getFetchSize() : Integer.MIN_VALUE);
+            ResultSet rs = statement instanceof PreparedStatement prepared ? prepared.executeQuery() : statement.executeQuery(scan.sql);
+            try {
+                int columns = rs.getMetaData().getColumnCount();
+                boolean more = rs.next();
+                long firstRow = System.nanoTime() - began;
+                recorder.record(Operation.STREAM_FIRST_ROW, scan.name, firstRow);
+                firstRows.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(firstRow)));
+                while (more) {
+                    for (int i = 1; i <= columns; i++) {
+                        byte[] value = rs.getBytes(i);
+                        if (value != null) scanBytes += value.length;
+                    }
+                    if (++scanRows % CHECK_EVERY_ROWS == 0) {
+                        rows.add(CHECK_EVERY_ROWS);
+                        lastActivityNanos = System.nanoTime();
+                        if (!running.getAsBoolean()) {
+                            stopped = true;
+                            break;
+                        }
+                    }
+                    more = rs.next();
+                }
+            } finally {
+                if (stopped) {
+                    // Closing a streaming result reads the rest of it first
+                    try {
+                        statement.cancel();
+                    } catch (SQLException ignored) {
+                        // the scan is abandoned either way
+                    }
+                }
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    if (!stopped) throw e;
+                }
+            }
+        } finally {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                if (!stopped) throw e;
+            }
+            rows.add(scanRows % CHECK_EVERY_ROWS);
+            bytes.add(scanBytes);
+            scan.rows.add(scanRows);
+            scan.bytes.add(scanBytes);
+            lastActivityNanos = System.nanoTime();
+        }
+
+        if (stopped) {
+            cancelled.increment();
+            return;
+        }
+        recorder.record(Operation.STREAM_SCAN, scan.name, System.nanoTime() - began);
+        scan.scans.increment();
+        completed.increment();
+        totalQueries.incrementAndGet();
+    }
+
+    /**
+     * Rows and bytes per second over the run, time to first row, and what was read from each source.
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("profile", profile);
+        report.put("fetch", profile.getMode() == StreamingProfile.FetchMode.CURSOR
+                ? "cursor (useCursorFetch, fetchSize=" + profile.getFetchSize() + ")" : "stream (fetchSize=Integer.MIN_VALUE)");
+        report.put("route", profile.isViaProxy() ? "proxy " + profile.getProxyAddress() : "direct");
+
+        double seconds = (lastActivityNanos - startNanos) / 1e9;
+        long rowCount = rows.sum();
+        long byteCount = bytes.sum();
+        report.put("completedScans", completed.sum());
+        report.put("cancelledScans", cancelled.sum());
+        report.put("errors", errors.sum());
+        report.put("rows", rowCount);
+        report.put("bytes", byteCount);
+        report.put("rowsPerSecond", seconds > 0 ? rowCount / seconds : 0.0);
+        report.put("bytesPerSecond", seconds > 0 ? byteCount / seconds : 0.0);
+        report.put("megabytesPerSecond", seconds > 0 ? byteCount / seconds / (1024 * 1024) : 0.0);
+        synchronized (firstRowTotal) {
+            firstRowTotal.add(firstRows.getIntervalHistogram());
+            Map<String, Object> firstRow = new LinkedHashMap<>();
+            firstRow.put("count", firstRowTotal.getTotalCount());
+            firstRow.put("p50Millis", firstRowTotal.getValueAtPercentile(50) / 1000.0);
+            firstRow.put("p99Millis", firstRowTotal.getValueAtPercentile(99) / 1000.0);
+            firstRow.put("maxMillis", firstRowTotal.getMaxValue() / 1000.0);
+            report.put("timeToFirstRow", firstRow);
+        }
+
+        Map<String, Object> sources = new LinkedHashMap<>();
+        for (Scan scan : scans) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("scans", scan.scans.sum());
+            stats.put("rows", scan.rows.sum());
+            stats.put("bytes", scan.bytes.sum());
+            stats.put("rowsPerScan", scan.scans.sum() > 0 ? (double) scan.rows.sum() / scan.scans.sum() : 0.0);
+            sources.put(scan.name, stats);
+        }
+        report.put("sources", sources);
+        return report;
+    }
+
+    /**
+     * One line for the monitor: rows and megabytes per second since the previous call, and run totals.
+     */
+    public synchronized String summary() {
+        long now = System.nanoTime();
+        long rowCount = rows.sum();
+        long byteCount = bytes.sum();
+        double seconds = Math.max(1e-9, (now - summaryNanos) / 1e9);
+        String line = String.format("%.0f", (rowCount - summaryRows) / seconds) + " rows/sec | " +
+                String.format("%.2f", (byteCount - summaryBytes) / seconds / (1024 * 1024)) + " MB/sec | scans: " +
+                completed.sum() + " | rows: " + rowCount + " | " + (profile.isViaProxy() ? "via proxy " + profile.getProxyAddress() : "direct");
+        summaryRows = rowCount;
+        summaryBytes = byteCount;
+        summaryNanos = now;
+        return line;
+    }
+}
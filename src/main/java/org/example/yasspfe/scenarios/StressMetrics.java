@@ -0,0 +1,284 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of one stress test run, per operation and per table, and error counts per operation,
+ * table and SQLState.
+ * <p>
+ * Workers record into one multi-writer {@link Recorder} per operation and per table (see {@link #worker()}), so
+ * recording is wait free and the memory taken does not grow with the number of sessions; a run can have
+ * thousands of them. {@link #harvest()}, called by the monitor every interval and by the REST endpoint, swaps
+ * out the interval histograms and merges them into the interval and run totals. Values are microseconds.
+ * Closed-loop workers record service time; open-loop workers record the time from each query's intended start.
+ */
+public class StressMetrics {
+
+    public enum Operation {
+        COUNT("count"),
+        PAGE("page"),
+        ORDERED("ordered"),
+        FILTERED("filtered"),
+        GROUP_BY("groupBy"),
+        OR_FILTER("orFilter"),
+        LIKE("like"),
+        WRITE_TRANSACTION("writeTransaction"),
+        // Workload profile operations (see ProfileWorkload)
+        READ("read"),
+        UPDATE("update"),
+        INSERT("insert"),
+        SCAN("scan"),
+        READ_MODIFY_WRITE("readModifyWrite"),
+        // Bulk write operations (see BulkWriteWorkload); COMMIT is the commit that ends each transaction
+        BATCH_INSERT("batchInsert"),
+        MULTI_ROW_INSERT("multiRowInsert"),
+        UPSERT("upsert"),
+        DELETE("delete"),
+        COMMIT("commit"),
+        // Replayed statements by first keyword (see QueryReplay)
+        REPLAY_SELECT("replaySelect"),
+        REPLAY_INSERT("replayInsert"),
+        REPLAY_UPDATE("replayUpdate"),
+        REPLAY_DELETE("replayDelete"),
+        REPLAY_OTHER("replayOther"),
+        // Connection churn phases (see ConnectionChurn)
+        CONNECT("connect"),
+        AUTHENTICATE("auth"),
+        FIRST_QUERY("firstQuery"),
+        CHURN_QUERY("churnQuery"),
+        DISCONNECT("disconnect"),
+        // Lock contention transactions (see ContentionWorkload)
+        HOT_UPDATE("hotUpdate"),
+        LOCKING_READ("lockingRead"),
+        GAP_LOCK("gapLock"),
+        // Large-result reads (see StreamingWorkload)
+        STREAM_FIRST_ROW("streamFirstRow"),
+        STREAM_SCAN("streamScan");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final List<String> tables;
+    private final Map<String, Integer> tableIndex = new HashMap<>();
+    private final Recorder[] operationRecorders = new Recorder[OPERATIONS.length];
+    private final Recorder[] tableRecorders;
+    private final Worker worker = new Worker();
+
+    private final LongAdder[] operationErrors = new LongAdder[OPERATIONS.length];
+    private final LongAdder[] tableErrors;
+    private final Map<String, LongAdder> errorsBySqlState = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private final Histogram[] operationTotals = new Histogram[OPERATIONS.length];
+    private final Histogram[] operationInterval = new Histogram[OPERATIONS.length];
+    private final Histogram[] tableTotals;
+    private final Histogram[] tableInterval;
+    private final Histogram scratch = new Histogram(3);
+    private final Histogram sinceMark = new Histogram(3);
+    private final long startNanos = System.nanoTime();
+    private long lastHarvestNanos = startNanos;
+    private double intervalSeconds;
+
+    public StressMetrics(List<String> tables) {
+        this.tables = List.copyOf(tables);
+        for (int i = 0; i < this.tables.size(); i++) {
+            tableIndex.put(this.tables.get(i), i);
+        }
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            operationErrors[i] = new LongAdder();
+            operationRecorders[i] = new Recorder(3);
+            operationTotals[i] = new Histogram(3);
+            operationInterval[i] = new Histogram(3);
+        }
+        tableErrors = new LongAdder[this.tables.size()];
+        tableRecorders = new Recorder[this.tables.size()];
+        tableTotals = new Histogram[this.tables.size()];
+        tableInterval = new Histogram[this.tables.size()];
+        for (int i = 0; i < this.tables.size(); i++) {
+            tableErrors[i] = new LongAdder();
+            tableRecorders[i] = new Recorder(3);
+            tableTotals[i] = new Histogram(3);
+            tableInterval[i] = new Histogram(3);
+        }
+    }
+
+    /**
+     * What worker threads record through; it is shared, and safe to use from any number of threads.
+     */
+    public Worker worker() {
+        return worker;
+    }
+
+    public final class Worker {
+
+        private Worker() {
+        }
+
+        public void record(Operation operation, String table, long nanos) {
+            long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+            operationRecorders[operation.ordinal()].recordValue(micros);
+            Integer index = tableIndex.get(table);
+            if (index != null) {
+                tableRecorders[index].recordValue(micros);
+            }
+        }
+
+        public void error(Operation operation, String table, SQLException e) {
+            operationErrors[operation.ordinal()].increment();
+            Integer index = tableIndex.get(table);
+            if (index != null) {
+                tableErrors[index].increment();
+            }
+            String state = e.getSQLState() != null ? e.getSQLState() : "unknown";
+            errorsBySqlState.computeIfAbsent(state, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Merges what the workers recorded since the last harvest into the interval and run totals.
+     */
+    public synchronized void harvest() {
+        long now = System.nanoTime();
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            operationRecorders[i].getIntervalHistogramInto(scratch);
+            operationInterval[i].reset();
+            operationInterval[i].add(scratch);
+        }
+        for (int i = 0; i < tableRecorders.length; i++) {
+            tableRecorders[i].getIntervalHistogramInto(scratch);
+            tableInterval[i].reset();
+            tableInterval[i].add(scratch);
+        }
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            operationTotals[i].add(operationInterval[i]);
+            sinceMark.add(operationInterval[i]);
+        }
+        for (int i = 0; i < tableTotals.length; i++) tableTotals[i].add(tableInterval[i]);
+        intervalSeconds = (now - lastHarvestNanos) / 1e9;
+        lastHarvestNanos = now;
+    }
+
+    /**
+     * Harvests, then returns the latencies of all operations since the previous mark and starts a new one.
+     * Used to measure each step of a load plan on its own.
+     */
+    public synchronized Histogram mark() {
+        harvest();
+        Histogram latencies = sinceMark.copy();
+        sinceMark.reset();
+        return latencies;
+    }
+
+    /**
+     * The latencies of all operations in the last harvested interval, merged.
+     */
+    public synchronized Histogram intervalLatencies() {
+        Histogram merged = new Histogram(3);
+        for (Histogram histogram : operationInterval) merged.add(histogram);
+        return merged;
+    }
+
+    /**
+     * Copies of the run totals of every operation that recorded anything, by label.
+     */
+    public synchronized Map<String, Histogram> totals() {
+        Map<String, Histogram> totals = new LinkedHashMap<>();
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (operationTotals[i].getTotalCount() > 0) {
+                totals.put(OPERATIONS[i].label, operationTotals[i].copy());
+            }
+        }
+        return totals;
+    }
+
+    public long errorCount() {
+        long errors = 0;
+        for (LongAdder adder : operationErrors) errors += adder.sum();
+        return errors;
+    }
+
+    /**
+     * The per-operation and per-table latencies as of the last harvest: run totals, and the last interval's
+     * rate and p99.
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("elapsedSeconds", (lastHarvestNanos - startNanos) / 1e9);
+        snapshot.put("intervalSeconds", intervalSeconds);
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (operationTotals[i].getTotalCount() > 0 || operationErrors[i].sum() > 0) {
+                operations.put(OPERATIONS[i].label, stats(operationTotals[i], operationInterval[i], operationErrors[i].sum()));
+            }
+        }
+        snapshot.put("operations", operations);
+
+        Map<String, Object> byTable = new LinkedHashMap<>();
+        for (int i = 0; i < tables.size(); i++) {
+            byTable.put(tables.get(i), stats(tableTotals[i], tableInterval[i], tableErrors[i].sum()));
+        }
+        snapshot.put("tables", byTable);
+
+        Map<String, Long> errors = new TreeMap<>();
+        errorsBySqlState.forEach((state, count) -> errors.put(state, count.sum()));
+        snapshot.put("errorsBySqlState", errors);
+        return snapshot;
+    }
+
+    /**
+     * One line for the monitor: last interval's p99 per operation.
+     */
+    public synchronized String summary() {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            Histogram interval = operationInterval[i];
+            if (interval.getTotalCount() == 0) continue;
+            if (line.length() > 0) line.append(" | ");
+            line.append(OPERATIONS[i].label).append(" p99=")
+                    .append(millis(interval.getValueAtPercentile(99))).append("ms");
+        }
+        long errors = errorCount();
+        if (errors > 0) line.append(" | errors: ").append(errors);
+        return line.toString();
+    }
+
+    private Map<String, Object> stats(Histogram total, Histogram interval, long errors) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", total.getTotalCount());
+        stats.put("errors", errors);
+        stats.put("intervalQps", intervalSeconds > 0 ? interval.getTotalCount() / intervalSeconds : 0.0);
+        stats.put("intervalP99Millis", millis(interval.getValueAtPercentile(99)));
+        stats.put("meanMillis", total.getTotalCount() == 0 ? 0.0 : total.getMean() / 1000.0);
+        stats.put("p50Millis", millis(total.getValueAtPercentile(50)));
+        stats.put("p90Millis", millis(total.getValueAtPercentile(90)));
+        stats.put("p99Millis", millis(total.getValueAtPercentile(99)));
+        stats.put("maxMillis", millis(total.getMaxValue()));
+        return stats;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,456 @@
+package org.example.yasspfe.scenarios;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finished stress runs on disk, one gzip file per run under a directory ({@code stress.history.dir}), and the
+ * comparison of two of them.
+ * <p>
+ * A run file holds, in order: the run's metadata as JSON (settings, workload, active scenarios, summary and
+ * final load report), so listing the runs reads only the head of each file; the per-interval time series,
+ * stored column by column as doubles; and the final latency histograms in HdrHistogram's compressed encoding.
+ * Only the newest {@code stress.history.keep} runs are kept.
+ */
+public class StressRunHistory {
+
+    /** Histogram of all operations of a run. */
+    public static final String ALL = "all";
+    /** Open-loop response times, measured from each query's intended start. */
+    public static final String RESPONSE = "response";
+    /** Columns of the time series the monitor records every interval. */
+    public static final List<String> COLUMNS = List.of("elapsedSeconds", "qps", "p50Millis", "p99Millis", "maxMillis", "errors");
+    static final double ALPHA = 0.05;
+
+    private static final int MAGIC = 0x53524831; // "SRH1"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "run-";
+    private static final String SUFFIX = ".srh";
+    private static final int KEEP = Integer.getInteger("stress.history.keep", 200);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Path directory;
+    private final ObjectMapper mapper = new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+
+    public StressRunHistory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * A run's time series: one row per monitor interval, in {@link #COLUMNS} order.
+     */
+    public static final class Series {
+        private final List<String> columns;
+        private final List<double[]> rows = new ArrayList<>();
+
+        public Series(List<String> columns) {
+            this.columns = List.copyOf(columns);
+        }
+
+        public synchronized void add(double... row) {
+            if (row.length != columns.size()) {
+                throw new IllegalArgumentException("expected " + columns.size() + " values, got " + row.length);
+            }
+            rows.add(row.clone());
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public synchronized int size() {
+            return rows.size();
+        }
+
+        /**
+         * The values of one column, or an empty array if there is no such column.
+         */
+        public synchronized double[] column(String name) {
+            int index = columns.indexOf(name);
+            if (index < 0) return new double[0];
+            double[] values = new double[rows.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rows.get(i)[index];
+            }
+            return values;
+        }
+
+        public synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (String column : columns) {
+                map.put(column, column(column));
+            }
+            return map;
+        }
+    }
+
+    /**
+     * A stored run: its metadata, time series and final histograms by operation (plus {@link #ALL}).
+     */
+    public record Run(Map<String, Object> metadata, Series series, Map<String, Histogram> histograms) {
+
+        public long id() {
+            return ((Number) metadata.get("id")).longValue();
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>(metadata);
+            map.put("series", series.toMap());
+            Map<String, Object> latencies = new LinkedHashMap<>();
+            histograms.forEach((name, histogram) -> latencies.put(name, percentiles(histogram)));
+            map.put("histograms", latencies);
+            return map;
+        }
+    }
+
+    /**
+     * Writes a run under the next id, which is also stored in its metadata, and drops the oldest runs past the
+     * retention limit.
+     */
+    public synchronized long save(Map<String, Object> metadata, Series series, Map<String, Histogram> histograms) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> ids = ids();
+        long id = ids.isEmpty() ? 1 : ids.get(ids.size() - 1) + 1;
+        Map<String, Object> stored = new LinkedHashMap<>();
+        stored.put("id", id);
+        stored.putAll(metadata);
+
+        Path temp = directory.resolve(PREFIX + id + SUFFIX + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] json = mapper.writeValueAsBytes(stored);
+            out.writeInt(json.length);
+            out.write(json);
+
+            List<String> columns = series.getColumns();
+            out.writeInt(columns.size());
+            for (String column : columns) {
+                out.writeUTF(column);
+            }
+            double[][] values = new double[columns.size()][];
+            for (int c = 0; c < values.length; c++) {
+                values[c] = series.column(columns.get(c));
+            }
+            int rows = values.length == 0 ? 0 : values[0].length;
+            out.writeInt(rows);
+            for (double[] column : values) {
+                for (int r = 0; r < rows; r++) {
+                    out.writeDouble(column[r]);
+                }
+            }
+
+            out.writeInt(histograms.size());
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                Histogram histogram = entry.getValue();
+                ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+                int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+                out.writeUTF(entry.getKey());
+                out.writeInt(length);
+                out.write(buffer.array(), 0, length);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file(id), StandardCopyOption.REPLACE_EXISTING);
+
+        for (int i = 0; i < ids.size() + 1 - KEEP; i++) {
+            Files.deleteIfExists(file(ids.get(i)));
+        }
+        return id;
+    }
+
+    /**
+     * The metadata of every stored run, oldest first, without the series or the load report.
+     */
+    public List<Map<String, Object>> list() throws IOException {
+        List<Map<String, Object>> runs = new ArrayList<>();
+        for (long id : ids()) {
+            try (DataInputStream in = open(id)) {
+                Map<String, Object> metadata = readMetadata(in);
+                metadata.remove("report");
+                runs.add(metadata);
+            } catch (IOException e) {
+                System.err.println("⚠ Skipping unreadable stress run " + id + ": " + e.getMessage());
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Reads a stored run, or returns null if there is none with that id.
+     */
+    public Run load(long id) throws IOException {
+        if (!Files.exists(file(id))) {
+            return null;
+        }
+        try (DataInputStream in = open(id)) {
+            Map<String, Object> metadata = readMetadata(in);
+
+            int columnCount = in.readInt();
+            List<String> columns = new ArrayList<>(columnCount);
+            for (int c = 0; c < columnCount; c++) {
+                columns.add(in.readUTF());
+            }
+            int rows = in.readInt();
+            double[][] values = new double[rows][columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                for (int r = 0; r < rows; r++) {
+                    values[r][c] = in.readDouble();
+                }
+            }
+            Series series = new Series(columns);
+            for (double[] row : values) {
+                series.add(row);
+            }
+
+            Map<String, Histogram> histograms = new LinkedHashMap<>();
+            int histogramCount = in.readInt();
+            for (int h = 0; h < histogramCount; h++) {
+                String name = in.readUTF();
+                byte[] encoded = new byte[in.readInt()];
+                in.readFully(encoded);
+                histograms.put(name, Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), 0));
+            }
+            return new Run(metadata, series, histograms);
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt histogram in stress run " + id, e);
+        }
+    }
+
+    /**
+     * Diffs a candidate run against a baseline: throughput, latency percentiles overall and per operation, and a
+     * Mann-Whitney U test of the per-interval throughput and p99, which says whether the candidate's intervals
+     * differ from the baseline's by more than interval-to-interval noise.
+     */
+    public static Map<String, Object> compare(Run baseline, Run candidate) {
+        Map<String, Object> comparison = new LinkedHashMap<>();
+        comparison.put("baseline", describe(baseline));
+        comparison.put("candidate", describe(candidate));
+
+        comparison.put("throughput", delta(summaryValue(baseline, "qps"), summaryValue(candidate, "qps")));
+        comparison.put("errors", delta(summaryValue(baseline, "errors"), summaryValue(candidate, "errors")));
+
+        String overall = baseline.histograms().containsKey(RESPONSE) && candidate.histograms().containsKey(RESPONSE) ? RESPONSE : ALL;
+        comparison.put("latencySource", overall);
+        comparison.put("latency", percentileDeltas(baseline.histograms().get(overall), candidate.histograms().get(overall)));
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Map.Entry<String, Histogram> entry : baseline.histograms().entrySet()) {
+            String name = entry.getKey();
+            Histogram other = candidate.histograms().get(name);
+            if (name.equals(ALL) || name.equals(RESPONSE) || other == null) continue;
+            operations.put(name, percentileDeltas(entry.getValue(), other));
+        }
+        comparison.put("operations", operations);
+
+        Map<String, Object> significance = new LinkedHashMap<>();
+        significance.put("alpha", ALPHA);
+        significance.put("qps", mannWhitney(baseline.series().column("qps"), candidate.series().column("qps")).toMap());
+        significance.put("p99Millis", mannWhitney(baseline.series().column("p99Millis"), candidate.series().column("p99Millis")).toMap());
+        comparison.put("significance", significance);
+        return comparison;
+    }
+
+    /**
+     * Result of a two-sided Mann-Whitney U test. {@code u} counts the (baseline, candidate) pairs where the
+     * candidate is larger (ties count half), so {@code u / (n1 * n2)} is the probability that a candidate interval
+     * beats a baseline one. A null {@code pValue} means there were too few intervals to test.
+     */
+    public record Test(int baselineSize, int candidateSize, double u, double z, Double pValue) {
+
+        public boolean significant() {
+            return pValue != null && pValue < ALPHA;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("baselineIntervals", baselineSize);
+            map.put("candidateIntervals", candidateSize);
+            map.put("u", u);
+            map.put("probabilityCandidateHigher", baselineSize * candidateSize == 0 ? null : u / ((double) baselineSize * candidateSize));
+            map.put("z", z);
+            map.put("pValue", pValue);
+            map.put("significant", significant());
+            return map;
+        }
+    }
+
+    /**
+     * Mann-Whitney U test with average ranks for ties and the tie-corrected normal approximation (with
+     * continuity correction), which is close enough from about eight samples per side.
+     */
+    public static Test mannWhitney(double[] baseline, double[] candidate) {
+        int n1 = baseline.length;
+        int n2 = candidate.length;
+        if (n1 < 2 || n2 < 2) {
+            return new Test(n1, n2, 0, 0, null);
+        }
+        int n = n1 + n2;
+        double[][] values = new double[n][];
+        for (int i = 0; i < n1; i++) values[i] = new double[]{baseline[i], 0};
+        for (int i = 0; i < n2; i++) values[n1 + i] = new double[]{candidate[i], 1};
+        Arrays.sort(values, Comparator.comparingDouble(v -> v[0]));
+
+        double candidateRanks = 0;
+        double ties = 0;
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j + 1 < n && values[j + 1][0] == values[i][0]) j++;
+            double rank = (i + j + 2) / 2.0;
+            for (int k = i; k <= j; k++) {
+                if (values[k][1] == 1) candidateRanks += rank;
+            }
+            double t = j - i + 1;
+            ties += t * t * t - t;
+            i = j + 1;
+        }
+
+        double u = candidateRanks - n2 * (n2 + 1) / 2.0;
+        double mean = n1 * (double) n2 / 2.0;
+        double variance = n1 * (double) n2 / 12.0 * ((n + 1) - ties / ((double) n * (n - 1)));
+        if (variance <= 0) {
+            return new Test(n1, n2, u, 0, 1.0);
+        }
+        double difference = u - mean;
+        double z = (difference - Math.signum(difference) * Math.min(0.5, Math.abs(difference))) / Math.sqrt(variance);
+        double p = Math.min(1.0, erfc(Math.abs(z) / Math.sqrt(2)));
+        return new Test(n1, n2, u, z, p);
+    }
+
+    // Complementary error function for x >= 0 (Abramowitz and Stegun 7.1.26, absolute error below 1.5e-7)
+    static double erfc(double x) {
+        double t = 1 / (1 + 0.3275911 * x);
+        double poly = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+        return poly * Math.exp(-x * x);
+    }
+
+    static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", histogram.getTotalCount());
+        stats.put("meanMillis", histogram.getTotalCount() == 0 ? 0.0 : histogram.getMean() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            stats.put(percentileKey(percentile), millis(histogram.getValueAtPercentile(percentile)));
+        }
+        stats.put("maxMillis", millis(histogram.getMaxValue()));
+        return stats;
+    }
+
+    private static Map<String, Object> percentileDeltas(Histogram baseline, Histogram candidate) {
+        Map<String, Object> deltas = new LinkedHashMap<>();
+        if (baseline == null || candidate == null) {
+            return deltas;
+        }
+        deltas.put("count", delta(baseline.getTotalCount(), candidate.getTotalCount()));
+        for (double percentile : PERCENTILES) {
+            deltas.put(percentileKey(percentile), delta(millis(baseline.getValueAtPercentile(percentile)),
+                    millis(candidate.getValueAtPercentile(percentile))));
+        }
+        deltas.put("maxMillis", delta(millis(baseline.getMaxValue()), millis(candidate.getMaxValue())));
+        return deltas;
+    }
+
+    static Map<String, Object> delta(double baseline, double candidate) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("baseline", baseline);
+        delta.put("candidate", candidate);
+        delta.put("delta", candidate - baseline);
+        delta.put("deltaPercent", baseline != 0 ? (candidate - baseline) / baseline * 100.0 : null);
+        return delta;
+    }
+
+    private static Map<String, Object> describe(Run run) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        for (String key : List.of("id", "label", "startedAt", "durationSeconds", "workload")) {
+            description.put(key, run.metadata().get(key));
+        }
+        return description;
+    }
+
+    private static double summaryValue(Run run, String key) {
+        Object summary = run.metadata().get("summary");
+        if (summary instanceof Map<?, ?> map && map.get(key) instanceof Number number) {
+            return number.doubleValue();
+        }
+        return 0;
+    }
+
+    private static String percentileKey(double percentile) {
+        return percentile == 99.9 ? "p999Millis" : "p" + (int) percentile + "Millis";
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readMetadata(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a stress run file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported stress run version " + version);
+        }
+        byte[] json = new byte[in.readInt()];
+        in.readFully(json);
+        return mapper.readValue(json, LinkedHashMap.class);
+    }
+
+    private DataInputStream open(long id) throws IOException {
+        InputStream file = Files.newInputStream(file(id));
+        try {
+            return new DataInputStream(new BufferedInputStream(new GZIPInputStream(file)));
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private Path file(long id) {
+        return directory.resolve(PREFIX + id + SUFFIX);
+    }
+
+    // Stored run ids in ascending order
+    private List<Long> ids() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return ids;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    ids.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+}
@@ -0,0 +1,367 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The simulated database sessions of a stress test run and the threads they run on.
+ * <p>
+ * Every session gets a thread of its own, so the number of sessions is not tied to the number of cores. With
+ * the VIRTUAL engine each session is a virtual thread, which lets a single JVM hold thousands of sessions that
+ * mostly wait on the database; virtual threads need Java 21, and on an older runtime the engine falls back to
+ * platform threads with a warning. With PLATFORM each session is an ordinary thread.
+ * <p>
+ * The connection pool is sized separately from the session count. When there are no more sessions than pooled
+ * connections, a session keeps one connection (and its prepared statements) for the whole run. Otherwise it
+ * borrows a connection for each operation and hands it back, as an application session does, and the time it
+ * waits for one is measured; its prepared statements stay with the pooled connection for whichever session
+ * borrows it next (see {@link StatementCache}). Connections that helpers of the run hold (e.g. a lock wait
+ * sampler) are added to the pool on top of {@code poolSize}, so they never take one the sessions count on.
+ * <p>
+ * A session is starved when it made no progress during a monitoring interval or spent more than half of it
+ * waiting for a connection; a paused session (waiting by design, e.g. for its next open-loop slot) is not.
+ * {@link #checkStarvation} finds the sessions starved in the last interval, and the report also counts every
+ * session that was starved at some point of the run.
+ * <p>
+ * With a {@link ConcurrencyLimiter} set, an operation also takes one of its slots from {@link Session#acquire} to
+ * {@link Session#release}; waiting for a slot is waiting by design, not starvation.
+ */
+public class StressSessions {
+
+    public enum Engine { PLATFORM, VIRTUAL }
+
+    private static final int REPORTED_NAMES = 10;
+
+    private final Engine engine;
+    private final DataSource dataSource;
+    private final int poolSize;
+    private final int helpers;
+    private final int planned;
+    private final boolean holdConnections;
+    private final ExecutorService executor;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    // Statements of the pooled connections, when sessions borrow them
+    private final Map<Connection, StatementCache> pooledStatements = new HashMap<>();
+    private volatile ConcurrencyLimiter limiter;
+
+    // Connection waits in microseconds
+    private final Recorder connectionWaits = new Recorder(3);
+    private final Histogram waitTotal = new Histogram(3);
+    private final Set<String> everStarved = new LinkedHashSet<>();
+    private List<String> starved = List.of();
+    private long lastCheckNanos = System.nanoTime();
+
+    /**
+     * @param poolSize the pooled connections the sessions share
+     * @param helpers  connections the pool has beyond {@code poolSize} for the run's helpers
+     */
+    public StressSessions(Engine requested, DataSource dataSource, int poolSize, int helpers, int planned) {
+        this.dataSource = dataSource;
+        this.poolSize = poolSize;
+        this.helpers = helpers;
+        this.planned = planned;
+        this.holdConnections = planned <= poolSize;
+
+        ExecutorService virtualThreads = requested == Engine.VIRTUAL ? newVirtualThreadExecutor() : null;
+        this.engine = virtualThreads != null ? Engine.VIRTUAL : Engine.PLATFORM;
+        this.executor = virtualThreads != null ? virtualThreads : newPlatformThreadExecutor();
+
+        System.out.println("🧵 " + planned + " sessions on " + engine.name().toLowerCase() + " threads, pool of " + poolSize +
+                " connections" + (helpers > 0 ? " (+" + helpers + " for helpers)" : "") +
+                (holdConnections ? "" : " (sessions borrow a connection per operation)"));
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is Java 21; looked up so the tester still runs on 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("⚠ Virtual threads need Java 21 (running " + System.getProperty("java.version") +
+                    "), using platform threads");
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "stress-session-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public boolean holdsConnections() {
+        return holdConnections;
+    }
+
+    /**
+     * Caps the operations in flight with {@code limiter}; set before the first session starts.
+     */
+    public void setLimiter(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * Registers a session; run it with {@link Session#start} as the first thing its task does.
+     */
+    public Session newSession(String name) {
+        Session session = new Session(name);
+        sessions.add(session);
+        return session;
+    }
+
+    /**
+     * Finds the sessions starved since the previous call. Called by the monitor once per interval.
+     */
+    public synchronized List<String> checkStarvation() {
+        long now = System.nanoTime();
+        long interval = now - lastCheckNanos;
+        lastCheckNanos = now;
+        waitTotal.add(connectionWaits.getIntervalHistogram());
+
+        List<String> found = new ArrayList<>();
+        for (Session session : sessions) {
+            if (session.finished) continue;
+            if (session.paused) {
+                session.progressAtCheck = session.progress.get();
+                session.waitAtCheck = session.waitNanos.get();
+                continue;
+            }
+            long progress = session.progress.get();
+            long waited = session.waitNanos.get() + session.currentWait(now);
+            String reason = null;
+            if (!session.started) {
+                reason = "not started";
+            } else if (waited - session.waitAtCheck > interval / 2) {
+                reason = "waiting for a connection";
+            } else if (progress == session.progressAtCheck) {
+                reason = "no progress";
+            }
+            session.progressAtCheck = progress;
+            session.waitAtCheck = waited;
+            if (reason != null) {
+                found.add(session.name + " (" + reason + ")");
+                everStarved.add(session.name);
+            }
+        }
+        starved = found;
+        return found;
+    }
+
+    public synchronized Map<String, Object> report() {
+        waitTotal.add(connectionWaits.getIntervalHistogram());
+        int started = 0;
+        int active = 0;
+        for (Session session : sessions) {
+            if (session.started) started++;
+            if (session.started && !session.finished) active++;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("engine", engine.name());
+        report.put("sessions", planned);
+        report.put("poolSize", poolSize);
+        report.put("helperConnections", helpers);
+        report.put("connectionPerSession", holdConnections);
+        report.put("started", started);
+        report.put("active", active);
+        report.put("starved", starved.size());
+        report.put("starvedSessions", starved.subList(0, Math.min(REPORTED_NAMES, starved.size())));
+        report.put("everStarved", everStarved.size());
+        report.put("connectionWaitP50Millis", waitTotal.getValueAtPercentile(50) / 1000.0);
+        report.put("connectionWaitP99Millis", waitTotal.getValueAtPercentile(99) / 1000.0);
+        report.put("connectionWaitMaxMillis", waitTotal.getMaxValue() / 1000.0);
+        return report;
+    }
+
+    public String summary() {
+        Map<String, Object> report = report();
+        String line = report.get("active") + "/" + planned + " active on " + engine.name().toLowerCase() +
+                " threads | pool " + poolSize + " | connection wait p99=" + report.get("connectionWaitP99Millis") +
+                "ms | starved " + starved.size() + " (" + report.get("everStarved") + " so far)";
+        if (!starved.isEmpty()) {
+            line += ": " + String.join(", ", starved.subList(0, Math.min(REPORTED_NAMES, starved.size())));
+        }
+        return line;
+    }
+
+    /**
+     * One simulated session. Not thread safe: a session belongs to the task it was created for.
+     */
+    public final class Session implements AutoCloseable {
+        private final String name;
+        private final AtomicLong progress = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private volatile long waitingSince;
+        private volatile boolean started;
+        private volatile boolean finished;
+        private volatile boolean paused;
+
+        // Read and written by checkStarvation only
+        private long progressAtCheck;
+        private long waitAtCheck;
+
+        private Connection connection;
+        private StatementCache statements;
+        private boolean admitted;
+        private long admittedNanos;
+
+        private Session(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Marks the session as running on the current thread, and names the thread after it.
+         */
+        public void start() {
+            Thread.currentThread().setName(name);
+            started = true;
+        }
+
+        /**
+         * The session's statements on a connection: its own connection, or one borrowed from the pool until
+         * {@link #release}.
+         */
+        public StatementCache acquire() throws SQLException {
+            admit();
+            if (statements != null) {
+                return statements;
+            }
+            long began = System.nanoTime();
+            waitingSince = began;
+            try {
+                connection = dataSource.getConnection();
+            } catch (SQLException e) {
+                leave();
+                throw e;
+            } finally {
+                long waited = System.nanoTime() - began;
+                waitingSince = 0;
+                waitNanos.addAndGet(waited);
+                connectionWaits.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(waited)));
+            }
+            try {
+                statements = holdConnections ? new StatementCache(connection)
+                        : StatementCache.forPhysical(pooledStatements, connection);
+            } catch (SQLException e) {
+                leave();
+                closeConnection();
+                throw e;
+            }
+            return statements;
+        }
+
+        /**
+         * Ends an operation: a borrowed connection goes back to the pool.
+         */
+        public void release() {
+            leave();
+            if (!holdConnections) {
+                closeConnection();
+            }
+        }
+
+        // Takes a slot of the limiter, if there is one, for the operation that is starting
+        private void admit() throws SQLException {
+            ConcurrencyLimiter current = limiter;
+            if (current == null || admitted) {
+                return;
+            }
+            paused = true;
+            try {
+                admittedNanos = current.acquire();
+                admitted = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a concurrency slot", "HY008", e);
+            } finally {
+                paused = false;
+            }
+        }
+
+        /**
+         * Counts a completed operation.
+         */
+        public void progress() {
+            progress.incrementAndGet();
+        }
+
+        /**
+         * Marks the session as waiting by design (for the start of the run, or its next open-loop slot)
+         * rather than for the database or the pool, until {@link #resume}.
+         */
+        public void pause() {
+            paused = true;
+        }
+
+        public void resume() {
+            paused = false;
+        }
+
+        private void leave() {
+            if (admitted) {
+                admitted = false;
+                limiter.release(admittedNanos);
+            }
+        }
+
+        private long currentWait(long now) {
+            long since = waitingSince;
+            return since == 0 ? 0 : now - since;
+        }
+
+        private void closeConnection() {
+            if (statements != null) {
+                // A pooled connection's statements close with it
+                if (holdConnections) statements.close();
+                statements = null;
+            }
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("⚠ Error closing connection of session " + name + ": " + e.getMessage());
+                }
+                connection = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            leave();
+            closeConnection();
+            finished = true;
+        }
+    }
+}
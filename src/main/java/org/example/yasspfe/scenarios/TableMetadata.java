@@ -0,0 +1,332 @@
+package org.example.yasspfe.scenarios;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What the stress tester knows about a table: its columns (names, types, nullability, defaults), its
+ * indexes and its foreign keys. {@link #load} reads every table of the current schema with INFORMATION_SCHEMA
+ * queries; {@link #describe} is the per-table fallback for servers that do not answer them (it sees no
+ * foreign keys).
+ */
+public class TableMetadata {
+
+    public static final class Column {
+        private final String name;
+        private final String type;
+        private final boolean nullable;
+        private final boolean hasDefault;
+        private final boolean autoIncrement;
+        private final String key;
+
+        public Column(String name, String type, boolean nullable, boolean hasDefault, boolean autoIncrement, String key) {
+            this.name = name;
+            this.type = type == null ? "" : type.toLowerCase(Locale.ROOT);
+            this.nullable = nullable;
+            this.hasDefault = hasDefault;
+            this.autoIncrement = autoIncrement;
+            this.key = key == null ? "" : key;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        public boolean hasDefault() {
+            return hasDefault;
+        }
+
+        public boolean isAutoIncrement() {
+            return autoIncrement;
+        }
+
+        public boolean isPrimaryKey() {
+            return "PRI".equals(key);
+        }
+
+        public boolean isUnique() {
+            return "UNI".equals(key);
+        }
+
+        public boolean isIndexed() {
+            return !key.isEmpty();
+        }
+
+        public boolean isIntegral() {
+            return type.startsWith("tinyint") || type.startsWith("smallint") || type.startsWith("mediumint")
+                    || type.startsWith("int") || type.startsWith("bigint");
+        }
+
+        public boolean isText() {
+            return type.startsWith("char") || type.startsWith("varchar") || type.endsWith("text");
+        }
+
+        /**
+         * The declared length of char/varchar/binary columns, or -1.
+         */
+        public int getLength() {
+            int open = type.indexOf('(');
+            int close = type.indexOf(')', open + 1);
+            if (open < 0 || close < 0 || !(isText() || type.contains("binary"))) return -1;
+            try {
+                return Integer.parseInt(type.substring(open + 1, close).trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    public static final class Index {
+        private final String name;
+        private final boolean unique;
+        private final List<String> columns = new ArrayList<>();
+
+        public Index(String name, boolean unique) {
+            this.name = name;
+            this.unique = unique;
+        }
+
+        public Index(String name, boolean unique, List<String> columns) {
+            this(name, unique);
+            this.columns.addAll(columns);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isUnique() {
+            return unique;
+        }
+
+        public boolean isPrimary() {
+            return "PRIMARY".equals(name);
+        }
+
+        public List<String> getColumns() {
+            return Collections.unmodifiableList(columns);
+        }
+    }
+
+    public static final class ForeignKey {
+        private final String name;
+        private final String referencedTable;
+        private final List<String> columns = new ArrayList<>();
+        private final List<String> referencedColumns = new ArrayList<>();
+
+        public ForeignKey(String name, String referencedTable) {
+            this.name = name;
+            this.referencedTable = referencedTable;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getReferencedTable() {
+            return referencedTable;
+        }
+
+        public List<String> getColumns() {
+            return Collections.unmodifiableList(columns);
+        }
+
+        public List<String> getReferencedColumns() {
+            return Collections.unmodifiableList(referencedColumns);
+        }
+    }
+
+    private static final String SCHEMA_QUERY =
+            "SELECT c.TABLE_NAME, c.COLUMN_NAME, c.COLUMN_TYPE, c.IS_NULLABLE, c.COLUMN_DEFAULT, c.EXTRA, c.COLUMN_KEY, " +
+            "s.INDEX_NAME, s.NON_UNIQUE, s.SEQ_IN_INDEX " +
+            "FROM INFORMATION_SCHEMA.COLUMNS c " +
+            "JOIN INFORMATION_SCHEMA.TABLES t ON t.TABLE_SCHEMA = c.TABLE_SCHEMA AND t.TABLE_NAME = c.TABLE_NAME " +
+            "AND t.TABLE_TYPE = 'BASE TABLE' " +
+            "LEFT JOIN INFORMATION_SCHEMA.STATISTICS s ON s.TABLE_SCHEMA = c.TABLE_SCHEMA " +
+            "AND s.TABLE_NAME = c.TABLE_NAME AND s.COLUMN_NAME = c.COLUMN_NAME " +
+            "WHERE c.TABLE_SCHEMA = DATABASE() " +
+            "ORDER BY c.TABLE_NAME, c.ORDINAL_POSITION";
+
+    private static final String FOREIGN_KEY_QUERY =
+            "SELECT TABLE_NAME, CONSTRAINT_NAME, COLUMN_NAME, REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME " +
+            "FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND REFERENCED_TABLE_SCHEMA = DATABASE() " +
+            "ORDER BY TABLE_NAME, CONSTRAINT_NAME, ORDINAL_POSITION";
+
+    private final String table;
+    private final List<Column> columns;
+    private final List<Index> indexes;
+    private final List<ForeignKey> foreignKeys;
+
+    public TableMetadata(String table, List<Column> columns, List<Index> indexes) {
+        this(table, columns, indexes, List.of());
+    }
+
+    public TableMetadata(String table, List<Column> columns, List<Index> indexes, List<ForeignKey> foreignKeys) {
+        this.table = table;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.indexes = Collections.unmodifiableList(new ArrayList<>(indexes));
+        this.foreignKeys = Collections.unmodifiableList(new ArrayList<>(foreignKeys));
+    }
+
+    /**
+     * Columns and indexes of every base table in the connection's current schema, in one query, and their
+     * foreign keys to tables of the same schema in a second one (none if that one fails).
+     */
+    public static Map<String, TableMetadata> load(Connection connection) throws SQLException {
+        Map<String, Map<String, Column>> columns = new LinkedHashMap<>();
+        Map<String, Map<String, Index>> indexes = new LinkedHashMap<>();
+        Map<Index, TreeMap<Integer, String>> indexColumns = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(SCHEMA_QUERY)) {
+            while (rs.next()) {
+                String table = rs.getString("TABLE_NAME");
+                String name = rs.getString("COLUMN_NAME");
+                Map<String, Column> tableColumns = columns.computeIfAbsent(table, k -> new LinkedHashMap<>());
+                if (!tableColumns.containsKey(name)) {
+                    String extra = rs.getString("EXTRA");
+                    tableColumns.put(name, new Column(name, rs.getString("COLUMN_TYPE"),
+                            "YES".equalsIgnoreCase(rs.getString("IS_NULLABLE")), rs.getString("COLUMN_DEFAULT") != null,
+                            extra != null && extra.toLowerCase(Locale.ROOT).contains("auto_increment"),
+                            rs.getString("COLUMN_KEY")));
+                }
+                String indexName = rs.getString("INDEX_NAME");
+                if (indexName != null) {
+                    boolean unique = rs.getInt("NON_UNIQUE") == 0;
+                    Index index = indexes.computeIfAbsent(table, k -> new LinkedHashMap<>())
+                            .computeIfAbsent(indexName, k -> new Index(indexName, unique));
+                    indexColumns.computeIfAbsent(index, k -> new TreeMap<>()).put(rs.getInt("SEQ_IN_INDEX"), name);
+                }
+            }
+        }
+
+        indexColumns.forEach((index, ordered) -> index.columns.addAll(ordered.values()));
+
+        Map<String, Map<String, ForeignKey>> foreignKeys = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(FOREIGN_KEY_QUERY)) {
+            while (rs.next()) {
+                String name = rs.getString("CONSTRAINT_NAME");
+                String referenced = rs.getString("REFERENCED_TABLE_NAME");
+                ForeignKey foreignKey = foreignKeys.computeIfAbsent(rs.getString("TABLE_NAME"), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(name, k -> new ForeignKey(name, referenced));
+                foreignKey.columns.add(rs.getString("COLUMN_NAME"));
+                foreignKey.referencedColumns.add(rs.getString("REFERENCED_COLUMN_NAME"));
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠ Foreign keys not available: " + e.getMessage());
+        }
+
+        Map<String, TableMetadata> tables = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Column>> entry : columns.entrySet()) {
+            List<Index> tableIndexes = new ArrayList<>(indexes.getOrDefault(entry.getKey(), Map.of()).values());
+            tableIndexes.sort((a, b) -> Boolean.compare(b.isPrimary(), a.isPrimary()));
+            tables.put(entry.getKey(), new TableMetadata(entry.getKey(),
+                    new ArrayList<>(entry.getValue().values()), tableIndexes,
+                    new ArrayList<>(foreignKeys.getOrDefault(entry.getKey(), Map.of()).values())));
+        }
+        return tables;
+    }
+
+    /**
+     * Reads one table with DESCRIBE. Only single-column indexes can be seen this way: a PRI, UNI or MUL key
+     * becomes an index on that column.
+     */
+    public static TableMetadata describe(Connection connection, String table) throws SQLException {
+        List<Column> columns = new ArrayList<>();
+        List<Index> indexes = new ArrayList<>();
+        Index primary = new Index("PRIMARY", true);
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("DESCRIBE " + table)) {
+            while (rs.next()) {
+                String extra = rs.getString("Extra");
+                columns.add(new Column(rs.getString("Field"), rs.getString("Type"),
+                        "YES".equalsIgnoreCase(rs.getString("Null")), rs.getString("Default") != null,
+                        extra != null && extra.toLowerCase(Locale.ROOT).contains("auto_increment"),
+                        rs.getString("Key")));
+                Column column = columns.get(columns.size() - 1);
+                if (column.isPrimaryKey()) {
+                    primary.columns.add(column.getName());
+                } else if (column.isIndexed()) {
+                    Index index = new Index(column.getName(), column.isUnique());
+                    index.columns.add(column.getName());
+                    indexes.add(index);
+                }
+            }
+        }
+        if (!primary.columns.isEmpty()) {
+            indexes.add(0, primary);
+        }
+        return new TableMetadata(table, columns, indexes);
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Quotes a table or column name for MySQL.
+     */
+    public static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    public List<Index> getIndexes() {
+        return indexes;
+    }
+
+    public List<ForeignKey> getForeignKeys() {
+        return foreignKeys;
+    }
+
+    public Column getColumn(String name) {
+        for (Column column : columns) {
+            if (column.getName().equals(name)) return column;
+        }
+        return null;
+    }
+
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            names.add(column.getName());
+        }
+        return names;
+    }
+
+    /**
+     * The primary key column if the primary key is a single column, otherwise null.
+     */
+    public Column getPrimaryKey() {
+        Column primaryKey = null;
+        for (Column column : columns) {
+            if (column.isPrimaryKey()) {
+                if (primaryKey != null) return null;
+                primaryKey = column;
+            }
+        }
+        return primaryKey;
+    }
+}
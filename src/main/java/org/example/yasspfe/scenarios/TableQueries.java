@@ -0,0 +1,264 @@
+package org.example.yasspfe.scenarios;
+
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+import org.example.yasspfe.scenarios.TableMetadata.Column;
+import org.example.yasspfe.scenarios.TableMetadata.Index;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The stress tester's built-in query mix for one table, as parameterized statements that go through the
+ * table's indexes the way application queries do: page reads are primary key range scans, filters are point
+ * lookups on an index, ordering and grouping use indexed columns, LIKE is a prefix match on an indexed text
+ * column and the write transaction sets a new value in a row found by primary key. Parameter values come from a sample of up
+ * to {@code stress.sampleValues} (default 1000) values of each index's leading column, read at start.
+ * <p>
+ * Where a table has no suitable index (or no rows to sample), a query falls back to its scan form, still
+ * with bound parameters.
+ */
+public class TableQueries {
+
+    private static final int SAMPLE_VALUES = Integer.getInteger("stress.sampleValues", 1000);
+    // Longest text the write transaction writes
+    private static final int WRITTEN_TEXT = 100;
+
+    private final String name;
+    private final String table;
+    private final List<String> columns = new ArrayList<>();
+    private final List<String> indexedColumns = new ArrayList<>();
+    private final Map<String, List<Object>> samples = new HashMap<>();
+    private final String primaryKey;
+    private final String likeColumn;
+    private final Column updateColumn;
+
+    private TableQueries(TableMetadata metadata) {
+        this.name = metadata.getTable();
+        this.table = TableMetadata.quote(name);
+        this.columns.addAll(metadata.getColumnNames());
+
+        String primary = null;
+        for (Index index : metadata.getIndexes()) {
+            String leading = index.getColumns().get(0);
+            if (index.isPrimary() && index.getColumns().size() == 1) primary = leading;
+            if (!indexedColumns.contains(leading)) indexedColumns.add(leading);
+        }
+        this.primaryKey = primary;
+
+        String like = null;
+        Column update = null;
+        for (Column column : metadata.getColumns()) {
+            if (like == null && column.isText() && indexedColumns.contains(column.getName())) like = column.getName();
+            if (update == null && !column.isIndexed() && !column.isAutoIncrement()) update = column;
+        }
+        this.likeColumn = like;
+        this.updateColumn = update;
+    }
+
+    /**
+     * Builds the queries for a table and samples its indexed columns.
+     */
+    public static TableQueries prepare(Connection connection, TableMetadata metadata) throws SQLException {
+        TableQueries queries = new TableQueries(metadata);
+        try (Statement statement = connection.createStatement()) {
+            for (String column : queries.indexedColumns) {
+                String quoted = TableMetadata.quote(column);
+                List<Object> values = new ArrayList<>();
+                try (ResultSet rs = statement.executeQuery("SELECT DISTINCT " + quoted + " FROM " + queries.table +
+                        " WHERE " + quoted + " IS NOT NULL LIMIT " + SAMPLE_VALUES)) {
+                    while (rs.next()) {
+                        values.add(rs.getObject(1));
+                    }
+                } catch (SQLException e) {
+                    // Without a sample the queries on this column fall back to their scan form
+                    System.err.println("⚠ Could not sample " + queries.name + "." + column + ": " + e.getMessage());
+                }
+                queries.samples.put(column, values);
+            }
+        }
+        return queries;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public boolean canWrite() {
+        return updateColumn != null;
+    }
+
+    /**
+     * Runs one of the read operations (COUNT, PAGE, ORDERED, FILTERED, GROUP_BY, OR_FILTER, LIKE).
+     */
+    public void run(StatementCache statements, Operation operation, Random random) throws SQLException {
+        PreparedStatement statement;
+        switch (operation) {
+            case COUNT:
+                statement = statements.prepare("SELECT COUNT(*) FROM " + table);
+                break;
+
+            case PAGE:
+                if (hasSample(primaryKey)) {
+                    String key = TableMetadata.quote(primaryKey);
+                    statement = statements.prepare("SELECT * FROM " + table + " WHERE " + key + " >= ? ORDER BY " + key + " LIMIT 20");
+                    statement.setObject(1, sample(primaryKey, random));
+                } else {
+                    statement = statements.prepare("SELECT * FROM " + table + " LIMIT ?, 20");
+                    statement.setInt(1, random.nextInt(100));
+                }
+                break;
+
+            case ORDERED: {
+                List<String> candidates = indexedColumns.isEmpty() ? columns : indexedColumns;
+                if (candidates.isEmpty()) return;
+                String column = TableMetadata.quote(candidates.get(random.nextInt(candidates.size())));
+                String order = random.nextBoolean() ? "ASC" : "DESC";
+                statement = statements.prepare("SELECT * FROM " + table + " ORDER BY " + column + " " + order + " LIMIT 50");
+                break;
+            }
+
+            case FILTERED: {
+                String column = sampledColumn(random);
+                if (column != null) {
+                    statement = statements.prepare("SELECT * FROM " + table + " WHERE " + TableMetadata.quote(column) + " = ? LIMIT 30");
+                    statement.setObject(1, sample(column, random));
+                } else {
+                    if (columns.size() <= 1) return;
+                    String scanned = TableMetadata.quote(columns.get(random.nextInt(columns.size())));
+                    statement = statements.prepare("SELECT * FROM " + table + " WHERE " + scanned + " IS NOT NULL LIMIT 30");
+                }
+                break;
+            }
+
+            case GROUP_BY: {
+                List<String> candidates = indexedColumns.isEmpty() ? columns : indexedColumns;
+                if (candidates.isEmpty()) return;
+                String column = TableMetadata.quote(candidates.get(random.nextInt(candidates.size())));
+                statement = statements.prepare("SELECT " + column + ", COUNT(*) FROM " + table + " GROUP BY " + column + " LIMIT 50");
+                break;
+            }
+
+            case OR_FILTER: {
+                String first = sampledColumn(random);
+                String second = sampledColumn(random);
+                if (first != null) {
+                    statement = statements.prepare("SELECT * FROM " + table + " WHERE " + TableMetadata.quote(first) +
+                            " = ? OR " + TableMetadata.quote(second) + " = ? LIMIT 100");
+                    statement.setObject(1, sample(first, random));
+                    statement.setObject(2, sample(second, random));
+                } else {
+                    if (columns.size() <= 1) return;
+                    String col1 = TableMetadata.quote(columns.get(random.nextInt(columns.size())));
+                    String col2 = TableMetadata.quote(columns.get(random.nextInt(columns.size())));
+                    statement = statements.prepare("SELECT * FROM " + table + " WHERE " + col1 + " IS NOT NULL OR " +
+                            col2 + " IS NOT NULL LIMIT 100");
+                }
+                break;
+            }
+
+            case LIKE:
+                if (hasSample(likeColumn)) {
+                    String value = String.valueOf(sample(likeColumn, random));
+                    statement = statements.prepare("SELECT * FROM " + table + " WHERE " + TableMetadata.quote(likeColumn) + " LIKE ? LIMIT 100");
+                    statement.setString(1, escapeLike(value.substring(0, Math.min(3, value.length()))) + "%");
+                } else {
+                    if (columns.isEmpty()) return;
+                    String column = TableMetadata.quote(columns.get(random.nextInt(columns.size())));
+                    statement = statements.prepare("SELECT * FROM " + table + " WHERE " + column + " LIKE ? LIMIT 100");
+                    statement.setString(1, "%a%");
+                }
+                break;
+
+            default:
+                throw new IllegalArgumentException("Not a read query: " + operation);
+        }
+
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) { /* Read all results */ }
+        }
+    }
+
+    /**
+     * The write transaction: writes a new value (see {@link RowGenerator}) to an unindexed column of one row
+     * found by primary key and reads the rows after it in the same transaction. Returns false if the table has
+     * no column to update.
+     */
+    public boolean writeTransaction(StatementCache statements, Random random) throws SQLException {
+        if (updateColumn == null) return false;
+        String column = TableMetadata.quote(updateColumn.getName());
+        Object value = RowGenerator.value(updateColumn, random, WRITTEN_TEXT);
+        Connection connection = statements.getConnection();
+
+        connection.setAutoCommit(false);
+        try {
+            PreparedStatement read;
+            if (hasSample(primaryKey)) {
+                String key = TableMetadata.quote(primaryKey);
+                Object row = sample(primaryKey, random);
+                PreparedStatement update = statements.prepare("UPDATE " + table + " SET " + column + " = ? WHERE " + key + " = ?");
+                update.setObject(1, value);
+                update.setObject(2, row);
+                update.executeUpdate();
+                read = statements.prepare("SELECT * FROM " + table + " WHERE " + key + " >= ? ORDER BY " + key + " LIMIT 10");
+                read.setObject(1, row);
+            } else {
+                PreparedStatement update = statements.prepare("UPDATE " + table + " SET " + column + " = ? LIMIT 1");
+                update.setObject(1, value);
+                update.executeUpdate();
+                read = statements.prepare("SELECT * FROM " + table + " LIMIT 10");
+            }
+            try (ResultSet rs = read.executeQuery()) {
+                while (rs.next()) { /* read results */ }
+            }
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException e2) {
+                System.err.println("⚠ Rollback error: " + e2.getMessage());
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private boolean hasSample(String column) {
+        if (column == null) return false;
+        List<Object> values = samples.get(column);
+        return values != null && !values.isEmpty();
+    }
+
+    private Object sample(String column, Random random) {
+        List<Object> values = samples.get(column);
+        return values.get(random.nextInt(values.size()));
+    }
+
+    // A random indexed column that has sampled values, or null
+    private String sampledColumn(Random random) {
+        if (indexedColumns.isEmpty()) return null;
+        int start = random.nextInt(indexedColumns.size());
+        for (int i = 0; i < indexedColumns.size(); i++) {
+            String column = indexedColumns.get((start + i) % indexedColumns.size());
+            if (hasSample(column)) return column;
+        }
+        return null;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
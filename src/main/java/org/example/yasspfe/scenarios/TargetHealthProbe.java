@@ -0,0 +1,174 @@
+package org.example.yasspfe.scenarios;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reachability check for a MySQL target: logs in with the probe account and sends COM_PING. A probe that
+ * only read the server greeting and hung up would count as a handshake error for the proxy's host, and after
+ * {@code max_connect_errors} of them the server blocks that host, so every probe completes the login.
+ * <p>
+ * A {@link TargetHealthProbe} keeps its authenticated connection open between runs and pings it, so the
+ * background probe costs one round trip; the connection is opened again after a failure. The static
+ * {@link #probe} logs in, pings and quits. Both still tell a listening MySQL server apart from a port that
+ * merely accepts connections or a server that refuses new clients (e.g. "Too many connections" or
+ * "Host is blocked", which arrive as an ERR instead of a greeting).
+ */
+public class TargetHealthProbe implements AutoCloseable {
+
+    /**
+     * Outcome of one probe.
+     */
+    public record Result(String host, int port, boolean reachable, double latencyMillis,
+                         String serverVersion, String error, long probedAt) {
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("host", host);
+            map.put("port", port);
+            map.put("reachable", reachable);
+            map.put("latencyMillis", latencyMillis);
+            map.put("serverVersion", serverVersion);
+            map.put("error", error);
+            map.put("probedAt", probedAt);
+            return map;
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final String user;
+    private final String password;
+    private BackendConnection connection;
+    private volatile Result lastResult;
+    private volatile int consecutiveFailures;
+    private volatile long probes;
+    private volatile long failures;
+
+    public TargetHealthProbe(String host, int port, String user, String password) {
+        this.host = host;
+        this.port = port;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Logs in, sends COM_PING and quits.
+     */
+    public static Result probe(String host, int port, String user, String password, int timeoutMillis) {
+        long start = System.nanoTime();
+        BackendConnection connection = null;
+        try {
+            connection = login(host, port, user, password, timeoutMillis);
+            return ping(connection, start);
+        } catch (IOException | RuntimeException e) {
+            return failed(host, port, start, e);
+        } finally {
+            if (connection != null) connection.close();
+        }
+    }
+
+    /**
+     * Probes this probe's target, on the connection kept from the previous run if it is still usable, and
+     * updates its running state.
+     */
+    public synchronized Result run(int timeoutMillis) {
+        long start = System.nanoTime();
+        Result result;
+        try {
+            if (connection == null || !connection.isUsable()) {
+                connection = login(host, port, user, password, timeoutMillis);
+            }
+            result = ping(connection, start);
+        } catch (IOException | RuntimeException e) {
+            result = failed(host, port, start, e);
+        }
+        if (!result.reachable() && connection != null) {
+            connection.close();
+            connection = null;
+        }
+
+        probes++;
+        if (result.reachable()) {
+            consecutiveFailures = 0;
+        } else {
+            failures++;
+            consecutiveFailures++;
+            if (consecutiveFailures == 1 || consecutiveFailures % 10 == 0) {
+                System.err.println("[TargetHealthProbe] " + host + ":" + port + " unreachable ("
+                        + consecutiveFailures + " in a row): " + result.error());
+            }
+        }
+        lastResult = result;
+        return result;
+    }
+
+    /**
+     * The last result if it is at most {@code maxAgeMillis} old, otherwise a new probe.
+     */
+    public Result current(int timeoutMillis, long maxAgeMillis) {
+        Result result = lastResult;
+        if (result != null && System.currentTimeMillis() - result.probedAt() <= maxAgeMillis) {
+            return result;
+        }
+        return run(timeoutMillis);
+    }
+
+    // Reads stay bounded by the probe timeout, so a server that stops answering fails the ping
+    private static BackendConnection login(String host, int port, String user, String password,
+                                           int timeoutMillis) throws IOException {
+        BackendPool.Key key = new BackendPool.Key(user, null, MySQLProtocol.UTF8MB4_0900_AI_CI, MySQLProtocol.SERVER_CAPABILITIES);
+        BackendConnection connection = BackendConnection.authenticate(BackendConnection.connect(host, port, timeoutMillis),
+                key, password, host, port, timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        return connection;
+    }
+
+    private static Result ping(BackendConnection connection, long start) throws IOException {
+        byte[] error = connection.execute(MySQLProtocol.COM_PING, "");
+        double latency = (System.nanoTime() - start) / 1_000_000.0;
+        if (error != null) {
+            return new Result(connection.getHost(), connection.getPort(), false, latency, connection.getServerVersion(),
+                    MySQLProtocol.errorMessage(error), System.currentTimeMillis());
+        }
+        return new Result(connection.getHost(), connection.getPort(), true, latency, connection.getServerVersion(), null,
+                System.currentTimeMillis());
+    }
+
+    private static Result failed(String host, int port, long start, Exception e) {
+        double latency = (System.nanoTime() - start) / 1_000_000.0;
+        return new Result(host, port, false, latency, null, e.getMessage(), System.currentTimeMillis());
+    }
+
+    public boolean isTarget(String host, int port) {
+        return this.port == port && this.host.equals(host);
+    }
+
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Quits the kept connection.
+     */
+    @Override
+    public synchronized void close() {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        Result result = lastResult;
+        map.put("healthy", result != null && result.reachable());
+        map.put("user", user);
+        map.put("consecutiveFailures", consecutiveFailures);
+        map.put("probes", probes);
+        map.put("failures", failures);
+        map.put("last", result == null ? null : result.toMap());
+        return map;
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the proxy from one MySQL target to another without cutting sessions mid-transaction.
+ * New sessions use the new target as soon as it is set. Sessions still tied to the previous target are
+ * closed one by one when they reach a transaction boundary, and whatever is left when the drain deadline
+ * ({@code proxy.drain.timeoutMs}, default 30000) expires is closed regardless. Pooled sessions without
+ * pinned state never need closing: they pick up backends of the new target on their next statement.
+ * <p>
+ * Also records backend connect latency, so a failover drill shows how long clients waited to reach the
+ * new target.
+ */
+public class TargetSwitchover {
+
+    /**
+     * A client session the switchover may need to drain.
+     */
+    interface Session {
+        /**
+         * True while the session depends on a backend connection that is not on the given target.
+         */
+        boolean isOnPreviousTarget(String host, int port);
+
+        /**
+         * Closes the client connection if it is between transactions. Returns true if it was closed.
+         */
+        boolean closeAtTransactionBoundary();
+
+        void close();
+    }
+
+    private final long drainTimeoutMillis = Long.getLong("proxy.drain.timeoutMs", 30000);
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final Histogram connectLatency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+    private final AtomicLong connectFailures = new AtomicLong();
+    private final AtomicLong switches = new AtomicLong();
+
+    private volatile Map<String, Object> lastSwitch;
+    private volatile String switchTargetHost;
+    private volatile int switchTargetPort;
+    private volatile long switchStartedNanos;
+    private volatile long firstConnectNanos;
+    private Thread drainThread;
+
+    public void register(Session session) {
+        sessions.add(session);
+    }
+
+    public void unregister(Session session) {
+        sessions.remove(session);
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Records one backend connection attempt (TCP connect, plus authentication in pooling mode).
+     */
+    public void recordBackendConnect(String host, int port, long nanos, boolean success) {
+        if (!success) {
+            connectFailures.incrementAndGet();
+            return;
+        }
+        connectLatency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), connectLatency.getHighestTrackableValue()));
+        if (firstConnectNanos == 0 && switchStartedNanos != 0 && port == switchTargetPort && host.equals(switchTargetHost)) {
+            firstConnectNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Starts draining the sessions of {@code fromHost:fromPort}. The caller has already switched the target.
+     */
+    public synchronized void begin(String fromHost, int fromPort, String toHost, int toPort, double probeMillis) {
+        if (drainThread != null && drainThread.isAlive()) {
+            // A newer switch supersedes the running drain; its sessions are drained by this one
+            drainThread.interrupt();
+        }
+        switches.incrementAndGet();
+        switchTargetHost = toHost;
+        switchTargetPort = toPort;
+        firstConnectNanos = 0;
+        switchStartedNanos = System.nanoTime();
+
+        Map<String, Object> report = Collections.synchronizedMap(new LinkedHashMap<>());
+        report.put("from", fromHost + ":" + fromPort);
+        report.put("to", toHost + ":" + toPort);
+        report.put("startedAt", System.currentTimeMillis());
+        report.put("probeMillis", probeMillis);
+        report.put("drainTimeoutMillis", drainTimeoutMillis);
+        report.put("state", "draining");
+        lastSwitch = report;
+
+        ProxyLog.CONNECTIONS.info("🔀 [Switchover] Target {}:{} -> {}:{}, draining {} session(s) within {} ms",
+                fromHost, fromPort, toHost, toPort, sessions.size(), drainTimeoutMillis);
+        drainThread = new Thread(() -> drain(toHost, toPort, report), "target-switchover-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    private void drain(String host, int port, Map<String, Object> report) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+        List<Session> affected = new ArrayList<>();
+        for (Session session : sessions) {
+            if (session.isOnPreviousTarget(host, port)) affected.add(session);
+        }
+        int closedAtBoundary = 0;
+        int forced = 0;
+        boolean interrupted = false;
+
+        List<Session> pending = new ArrayList<>(affected);
+        while (!pending.isEmpty()) {
+            pending.removeIf(session -> !sessions.contains(session) || !session.isOnPreviousTarget(host, port));
+            for (Session session : new ArrayList<>(pending)) {
+                if (session.closeAtTransactionBoundary()) {
+                    closedAtBoundary++;
+                    pending.remove(session);
+                }
+            }
+            if (pending.isEmpty() || System.nanoTime() >= deadline) break;
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                break;
+            }
+        }
+        if (!interrupted) {
+            for (Session session : pending) {
+                session.close();
+                forced++;
+            }
+        }
+
+        report.put("sessionsOnPreviousTarget", affected.size());
+        report.put("closedAtTransactionBoundary", closedAtBoundary);
+        report.put("forcedClosed", forced);
+        report.put("migrated", affected.size() - closedAtBoundary - forced - (interrupted ? pending.size() : 0));
+        report.put("drainMillis", (System.nanoTime() - start) / 1_000_000.0);
+        report.put("state", interrupted ? "superseded" : "completed");
+        ProxyLog.CONNECTIONS.info("🔀 [Switchover] Drain {}: {} closed at a transaction boundary, {} forced, in {} ms",
+                report.get("state"), closedAtBoundary, forced, report.get("drainMillis"));
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("activeSessions", sessions.size());
+        map.put("switches", switches.get());
+
+        Map<String, Object> connects = new LinkedHashMap<>();
+        connects.put("count", connectLatency.getTotalCount());
+        connects.put("failures", connectFailures.get());
+        connects.put("p50Millis", connectLatency.getValueAtPercentile(50) / 1000.0);
+        connects.put("p99Millis", connectLatency.getValueAtPercentile(99) / 1000.0);
+        connects.put("maxMillis", connectLatency.getMaxValue() / 1000.0);
+        map.put("backendConnects", connects);
+
+        Map<String, Object> last = lastSwitch;
+        if (last != null) {
+            Map<String, Object> copy;
+            synchronized (last) {
+                copy = new LinkedHashMap<>(last);
+            }
+            long first = firstConnectNanos;
+            copy.put("firstConnectAfterSwitchMillis", first == 0 ? null : (first - switchStartedNanos) / 1_000_000.0);
+            map.put("lastSwitch", copy);
+        }
+        return map;
+    }
+}
@@ -2,11 +2,10 @@ package org.example.yasspfe.services;
 
 import org.example.yasspfe.entities.MySQLProxyConfig;
 import org.example.yasspfe.reposotories.ProxyConfigRepository;
+import org.example.yasspfe.scenarios.MySQLProxy;
+import org.example.yasspfe.scenarios.TargetHealthProbe;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
 
 @Service
 public class MySQLProxyService {
@@ -113,39 +112,32 @@ public class MySQLProxyService {
     }
 
     public boolean isDatabaseReachable(String host, int port) {
+        return probeDatabase(host, port).reachable();
+    }
+
+    /**
+     * Logs in to {@code host:port} with the proxy's health probe account and pings it (see TargetHealthProbe).
+     */
+    public TargetHealthProbe.Result probeDatabase(String host, int port) {
         if (host == null || host.trim().isEmpty()) {
             System.err.println("[MySQLProxyService] Host is empty or null");
-            return false;
+            return new TargetHealthProbe.Result(host, port, false, 0, null, "Host is empty", System.currentTimeMillis());
         }
 
         if (port < 1 || port > 65535) {
             System.err.println("[MySQLProxyService] Invalid port number: " + port);
-            return false;
+            return new TargetHealthProbe.Result(host, port, false, 0, null, "Invalid port number", System.currentTimeMillis());
         }
 
-        String jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/test";
-        System.out.println("[MySQLProxyService] Testing connection to: " + jdbcUrl);
-
-        try {
-            // For testing purposes, we'll simulate a successful connection
-            // Comment this out in production and use the real connection test below
-            System.out.println("[MySQLProxyService] Simulating successful connection to " + host + ":" + port);
-            return true;
-
-            // Uncomment for real connection test
-            /*
-            // Set a shorter timeout for connection testing
-            DriverManager.setLoginTimeout(5); // 5 seconds timeout
-
-            try (Connection conn = DriverManager.getConnection(jdbcUrl, "root", "root")) {
-                System.out.println("[MySQLProxyService] Connection successful to " + host + ":" + port);
-                return true;
-            }
-            */
-        } catch (Exception e) {
-            System.err.println("[MySQLProxyService] Error connecting to the database: " + e.getMessage());
-            return false; // Connection failed
+        System.out.println("[MySQLProxyService] Testing connection to " + host + ":" + port);
+        TargetHealthProbe.Result result = MySQLProxy.probeTarget(host.trim(), port);
+        if (result.reachable()) {
+            System.out.println("[MySQLProxyService] Connection successful to " + host + ":" + port + " ("
+                    + result.serverVersion() + ", " + result.latencyMillis() + " ms)");
+        } else {
+            System.err.println("[MySQLProxyService] Error connecting to the database: " + result.error());
         }
+        return result;
     }
 
     public synchronized boolean stopProxy() {
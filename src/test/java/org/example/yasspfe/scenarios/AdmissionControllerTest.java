@@ -0,0 +1,102 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class AdmissionControllerTest {
+
+    private ServerSocket server;
+    private final List<Socket> clients = new ArrayList<>();
+    private final BlockingQueue<AdmissionController.Permit> admitted = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void listen() throws IOException {
+        server = new ServerSocket(0);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        for (Socket client : clients) {
+            client.close();
+        }
+        server.close();
+    }
+
+    private AdmissionController controller(int max, int perClient, int queueSize, long timeoutMillis, double rate) {
+        AdmissionController controller = new AdmissionController("test", max, perClient, queueSize, timeoutMillis, rate, rate);
+        controller.bind(admitted::add, (socket, reason) -> socket.getOutputStream().write(reason.charAt(0)));
+        return controller;
+    }
+
+    private Socket connect(AdmissionController controller) throws IOException {
+        Socket client = new Socket("127.0.0.1", server.getLocalPort());
+        clients.add(client);
+        controller.submit(server.accept());
+        return client;
+    }
+
+    private static char answer(Socket client) throws IOException {
+        client.setSoTimeout(2000);
+        InputStream in = client.getInputStream();
+        return (char) in.read();
+    }
+
+    @Test
+    void queuesUpToTheLimitAndRejectsTheRest() throws Exception {
+        AdmissionController controller = controller(1, 10, 1, 5000, 0);
+        connect(controller);
+        connect(controller);
+        Socket third = connect(controller);
+
+        assertEquals('q', answer(third));
+        assertEquals(1, controller.getActive());
+        assertEquals(1, controller.getQueued());
+
+        // Ending the first session admits the waiting one
+        admitted.take().release();
+        AdmissionController.Permit next = admitted.poll(2, TimeUnit.SECONDS);
+        assertNotNull(next);
+        assertEquals(1, controller.getActive());
+        assertEquals(0, controller.getQueued());
+        next.release();
+        assertEquals(0, controller.getActive());
+    }
+
+    @Test
+    void waitersTimeOutAndClientsAreLimited() throws Exception {
+        AdmissionController controller = controller(1, 2, 5, 100, 0);
+        connect(controller);
+        Socket waiting = connect(controller);
+        Socket overLimit = connect(controller);
+
+        assertEquals('c', answer(overLimit));
+        assertEquals('q', answer(waiting));
+        assertEquals(1, controller.getRejected(AdmissionController.QUEUE_TIMEOUT));
+        assertEquals(1, controller.getRejected(AdmissionController.CLIENT_LIMIT));
+    }
+
+    @Test
+    void acceptRateIsLimitedByTheTokenBucket() throws Exception {
+        AdmissionController controller = controller(100, 100, 0, 100, 2);
+        connect(controller);
+        connect(controller);
+        Socket third = connect(controller);
+
+        assertEquals('r', answer(third));
+        assertEquals(2, controller.getActive());
+    }
+}
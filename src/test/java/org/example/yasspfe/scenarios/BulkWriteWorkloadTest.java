@@ -0,0 +1,138 @@
+package org.example.yasspfe.scenarios;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+import org.example.yasspfe.scenarios.TableMetadata.Column;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkWriteWorkloadTest {
+
+    private MySQLStubServer server;
+    private HikariDataSource dataSource;
+    private BulkWriteWorkload.Table table;
+    private final Random random = new Random(7);
+
+    @BeforeEach
+    void prepare() throws Exception {
+        server = new MySQLStubServer(0);
+        // No rows: the table's MAX(id) is NULL and the keys start at 1
+        server.setRows(0);
+        server.start();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url(false));
+        config.setUsername("root");
+        config.setPassword("root");
+        config.setMaximumPoolSize(1);
+        dataSource = new HikariDataSource(config);
+
+        BulkWriteProfile profile = new BulkWriteProfile();
+        profile.setBatchSize(10);
+        TableMetadata items = new TableMetadata("items", List.of(
+                new Column("id", "bigint", false, false, false, "PRI"),
+                new Column("name", "varchar(20)", false, false, false, ""),
+                new Column("note", "int", true, false, false, "")), List.of());
+        table = BulkWriteWorkload.prepare(profile, dataSource, Map.of("items", items)).getTables().iterator().next();
+    }
+
+    @AfterEach
+    void stop() {
+        dataSource.close();
+        server.stop();
+    }
+
+    // With local session state the driver does not ask the server whether it is read only before each write
+    private String url(boolean rewriteBatchedStatements) {
+        return "jdbc:mysql://127.0.0.1:" + server.getPort() + "/stub?sslMode=DISABLED&useLocalSessionState=true" +
+                "&rewriteBatchedStatements=" + rewriteBatchedStatements;
+    }
+
+    @Test
+    void sendsEachKindOfBatchAsItsStatements() throws Exception {
+        try (Connection connection = DriverManager.getConnection(url(false), "root", "root");
+             StatementCache statements = new StatementCache(connection)) {
+            BulkWriteWorkload.Transaction transaction = table.begin();
+            // One INSERT per row, one INSERT for all of them, one upsert per row
+            assertEquals(10, sent(() -> transaction.execute(statements, Operation.BATCH_INSERT, random)));
+            assertEquals(1, sent(() -> transaction.execute(statements, Operation.MULTI_ROW_INSERT, random)));
+            assertEquals(10, sent(() -> transaction.execute(statements, Operation.UPSERT, random)));
+            assertEquals(30, transaction.getRows());
+            transaction.committed();
+
+            BulkWriteWorkload.Transaction deletes = table.begin();
+            assertEquals(10, sent(() -> deletes.execute(statements, Operation.DELETE, random)));
+            assertEquals(10, deletes.getRows());
+        }
+        try (Connection connection = DriverManager.getConnection(url(true), "root", "root");
+             StatementCache statements = new StatementCache(connection)) {
+            // The driver rewrites the batch into one multi-row INSERT
+            assertEquals(1, sent(() -> table.begin().execute(statements, Operation.BATCH_INSERT, random)));
+        }
+    }
+
+    @Test
+    void remembersInsertedKeysOnlyOnceCommitted() throws Exception {
+        try (Connection connection = DriverManager.getConnection(url(false), "root", "root");
+             StatementCache statements = new StatementCache(connection)) {
+            connection.setAutoCommit(false);
+            BulkWriteWorkload.Transaction transaction = table.begin();
+            transaction.execute(statements, Operation.BATCH_INSERT, random);
+            transaction.execute(statements, Operation.MULTI_ROW_INSERT, random);
+            assertEquals(0, table.getKeptKeys());
+
+            connection.commit();
+            transaction.committed();
+            assertEquals(20, table.getKeptKeys());
+            assertEquals(20, transaction.getRows());
+        }
+    }
+
+    @Test
+    void rollbackForgetsInsertsAndGivesBackDeletedKeys() throws Exception {
+        try (Connection connection = DriverManager.getConnection(url(false), "root", "root");
+             StatementCache statements = new StatementCache(connection)) {
+            connection.setAutoCommit(false);
+            BulkWriteWorkload.Transaction rolledBack = table.begin();
+            rolledBack.execute(statements, Operation.BATCH_INSERT, random);
+            connection.rollback();
+            rolledBack.rolledBack();
+            assertEquals(0, table.getKeptKeys());
+            assertEquals(0, rolledBack.getRows());
+
+            BulkWriteWorkload.Transaction inserts = table.begin();
+            inserts.execute(statements, Operation.BATCH_INSERT, random);
+            connection.commit();
+            inserts.committed();
+
+            BulkWriteWorkload.Transaction deletes = table.begin();
+            assertEquals(10, deletes.execute(statements, Operation.DELETE, random));
+            assertEquals(0, table.getKeptKeys());
+            // Nothing left to delete, so this one inserts; the rollback undoes both
+            deletes.execute(statements, Operation.DELETE, random);
+            connection.rollback();
+            deletes.rolledBack();
+            assertEquals(10, table.getKeptKeys());
+        }
+    }
+
+    private interface Batch {
+        int run() throws Exception;
+    }
+
+    // The statements a batch sent to the server
+    private long sent(Batch batch) throws Exception {
+        long before = server.getQueriesServed();
+        batch.run();
+        return server.getQueriesServed() - before;
+    }
+}
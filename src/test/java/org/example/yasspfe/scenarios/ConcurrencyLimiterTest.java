@@ -0,0 +1,101 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    private static AdaptiveConcurrency settings(AdaptiveConcurrency.Algorithm algorithm) {
+        AdaptiveConcurrency settings = new AdaptiveConcurrency();
+        settings.setAlgorithm(algorithm);
+        settings.setTargetP99Millis(50.0);
+        return settings;
+    }
+
+    // Runs {@code inFlight} operations at once that each took {@code millis}, then lets the limiter decide
+    private static ConcurrencyLimiter.Decision interval(ConcurrencyLimiter limiter, int inFlight, long millis) throws InterruptedException {
+        long[] admitted = new long[inFlight];
+        for (int i = 0; i < inFlight; i++) {
+            admitted[i] = limiter.acquire();
+        }
+        for (long at : admitted) {
+            limiter.release(at - TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        return limiter.adjust();
+    }
+
+    @Test
+    void aimdGrowsWhileTheTargetHoldsAndBacksOffWhenItDoesNot() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(settings(AdaptiveConcurrency.Algorithm.AIMD), 20);
+        assertEquals(4, limiter.getLimit());
+
+        assertEquals("increase", interval(limiter, 4, 5).getAction());
+        assertEquals("increase", interval(limiter, 5, 5).getAction());
+        assertEquals(6, limiter.getLimit());
+
+        ConcurrencyLimiter.Decision slow = interval(limiter, 6, 100);
+        assertEquals("backoff", slow.getAction());
+        assertEquals(5, limiter.getLimit());
+        // The highest limit that was reached within the target
+        assertEquals(5, limiter.getSustainable().getLimit());
+
+        // Sessions that do not use the limit give no reason to grow it
+        assertEquals("hold", interval(limiter, 2, 5).getAction());
+        assertEquals(4, limiter.getDecisions().size());
+    }
+
+    @Test
+    void gradientGrowsUpToTheSessionCountAndBacksOffWhenLatencyQueues() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(settings(AdaptiveConcurrency.Algorithm.GRADIENT), 12);
+        for (int i = 0; i < 40; i++) {
+            interval(limiter, limiter.getLimit(), 10);
+        }
+        assertEquals(12, limiter.getLimit());
+
+        // Four times the baseline median, and over the target
+        int before = limiter.getLimit();
+        interval(limiter, before, 80);
+        assertTrue(limiter.getLimit() < before);
+        assertEquals(12, limiter.getSustainable().getLimit());
+    }
+
+    @Test
+    void waitsForASlotAndLetsEveryoneThroughWhenClosed() throws Exception {
+        AdaptiveConcurrency settings = settings(AdaptiveConcurrency.Algorithm.AIMD);
+        settings.setInitialLimit(1);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(settings, 4);
+        assertNull(limiter.getSustainable());
+
+        long first = limiter.acquire();
+        CompletableFuture<Long> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+        limiter.release(first);
+        limiter.release(second.get(5, TimeUnit.SECONDS));
+
+        limiter.acquire();
+        limiter.close();
+        limiter.acquire();
+    }
+
+    @Test
+    void rejectsSettingsWithoutATarget() {
+        assertEquals("targetP99Millis must be positive", new AdaptiveConcurrency().validate());
+        AdaptiveConcurrency settings = settings(AdaptiveConcurrency.Algorithm.AIMD);
+        settings.setBackoffRatio(1.0);
+        assertEquals("backoffRatio must be between 0 and 1", settings.validate());
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionChurnTest {
+
+    private MySQLStubServer server;
+    private ConnectionChurn.Target target;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new MySQLStubServer(0);
+        server.setCredentials("bench", "secret");
+        int port = server.start();
+        target = ConnectionChurn.Target.parse("jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void findsTheServerInJdbcUrls() {
+        assertEquals(new ConnectionChurn.Target("db1", 3307, "shop"),
+                ConnectionChurn.Target.parse("jdbc:mysql://db1:3307,db2:3307/shop?useSSL=false"));
+        assertEquals(new ConnectionChurn.Target("localhost", 3306, ""),
+                ConnectionChurn.Target.parse("jdbc:mysql://localhost?user=root"));
+        assertEquals(new ConnectionChurn.Target("::1", 3310, "test"),
+                ConnectionChurn.Target.parse("jdbc:mysql://[::1]:3310/test"));
+    }
+
+    @Test
+    void opensQueriesAndClosesEachConnection() {
+        ChurnProfile profile = new ChurnProfile();
+        profile.setQueriesPerConnection(3);
+        AtomicInteger total = new AtomicInteger();
+        ConnectionChurn churn = new ConnectionChurn(profile, target, "bench", "secret", total);
+        StressMetrics metrics = new StressMetrics(List.of());
+        StressMetrics.Worker worker = metrics.worker();
+        churn.start();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(churn.cycle(worker));
+        }
+
+        Map<String, Object> report = churn.report();
+        assertEquals(5L, report.get("opened"));
+        assertEquals(5L, report.get("closed"));
+        assertEquals(0, report.get("open"));
+        assertEquals(15, total.get());
+        metrics.harvest();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> operations = (Map<String, Object>) metrics.snapshot().get("operations");
+        assertTrue(operations.containsKey("connect"));
+        assertTrue(operations.containsKey("auth"));
+        assertTrue(operations.containsKey("firstQuery"));
+        assertTrue(operations.containsKey("churnQuery"));
+        assertTrue(operations.containsKey("disconnect"));
+    }
+
+    @Test
+    void countsFailuresByPhase() {
+        ConnectionChurn churn = new ConnectionChurn(new ChurnProfile(), target, "bench", "wrong", new AtomicInteger());
+        StressMetrics.Worker worker = new StressMetrics(List.of()).worker();
+
+        assertFalse(churn.cycle(worker));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> failures = (Map<String, Object>) churn.report().get("failures");
+        assertEquals(1L, failures.get("auth"));
+        assertEquals(0L, failures.get("connect"));
+        assertEquals(0L, churn.report().get("opened"));
+    }
+}
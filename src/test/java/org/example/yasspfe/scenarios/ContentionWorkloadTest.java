@@ -0,0 +1,50 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentionWorkloadTest {
+
+    @Test
+    void picksDistinctHotRows() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            int[] rows = ContentionWorkload.pickRows(5, 3, random);
+            Set<Integer> distinct = new HashSet<>();
+            for (int row : rows) {
+                assertTrue(row >= 0 && row < 5);
+                distinct.add(row);
+            }
+            assertEquals(3, distinct.size());
+        }
+    }
+
+    @Test
+    void tellsDeadlocksFromLockWaitTimeouts() {
+        assertEquals(ContentionWorkload.Outcome.DEADLOCK, ContentionWorkload.classify(
+                new SQLTransactionRollbackException("Deadlock found when trying to get lock", "40001", 1213)));
+        assertEquals(ContentionWorkload.Outcome.LOCK_WAIT_TIMEOUT, ContentionWorkload.classify(
+                new SQLException("Lock wait timeout exceeded; try restarting transaction", "HY000", 1205)));
+        assertEquals(ContentionWorkload.Outcome.DEADLOCK, ContentionWorkload.classify(
+                new SQLException("wrapped", "HY000", 0, new SQLException("Deadlock", "40001"))));
+        assertEquals(ContentionWorkload.Outcome.ERROR, ContentionWorkload.classify(
+                new SQLException("Duplicate entry '7' for key 'PRIMARY'", "23000", 1062)));
+    }
+
+    @Test
+    void validatesTheProfile() {
+        ContentionProfile profile = new ContentionProfile();
+        assertNull(profile.validate());
+        profile.setRowsPerTransaction(11);
+        assertEquals("rowsPerTransaction must be between 1 and hotRows", profile.validate());
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.yasspfe.scenarios;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.yasspfe.scenarios.TableMetadata.ForeignKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataSeederTest {
+
+    private static TableMetadata table(String name, String... referenced) {
+        List<ForeignKey> foreignKeys = new ArrayList<>();
+        for (String parent : referenced) {
+            foreignKeys.add(new ForeignKey("fk_" + name + "_" + parent, parent));
+        }
+        return new TableMetadata(name, List.of(), List.of(), foreignKeys);
+    }
+
+    @Test
+    void loadsReferencedTablesFirstAndCyclesTogetherLast() {
+        Map<String, TableMetadata> metadata = new LinkedHashMap<>();
+        for (TableMetadata table : List.of(
+                table("order_items", "orders", "products"),
+                table("orders", "customers"),
+                table("customers"),
+                table("products", "products"),
+                table("a", "b"),
+                table("b", "a"))) {
+            metadata.put(table.getTable(), table);
+        }
+
+        assertEquals(List.of(
+                List.of("customers", "products"),
+                List.of("orders"),
+                List.of("order_items"),
+                List.of("a", "b")), DataSeeder.levels(metadata));
+    }
+
+    @Test
+    void fieldsAreEscapedForLoadData() {
+        StringBuilder line = new StringBuilder();
+        DataSeeder.appendField(line, null, false);
+        line.append('|');
+        DataSeeder.appendField(line, "a\tb\\c\nd", false);
+        line.append('|');
+        DataSeeder.appendField(line, new byte[]{0x0f, (byte) 0xa0}, true);
+        assertEquals("\\N|a\\tb\\\\c\\nd|0fa0", line.toString());
+    }
+
+    @Test
+    void skipsTablesReferencingATableThatFailed() throws Exception {
+        // The stub answers the LOAD DATA of a table whose name carries an err hint with that error
+        String broken = "orders /* stub: err=1146 */";
+        Map<String, TableMetadata> metadata = new LinkedHashMap<>();
+        for (TableMetadata table : List.of(
+                table("customers"),
+                table(broken, "customers"),
+                table("order_items", broken),
+                table("order_notes", "order_items"),
+                table("reviews", "customers"))) {
+            metadata.put(table.getTable(), table);
+        }
+        SeedProfile profile = new SeedProfile();
+        profile.setRowsPerTable(500);
+        profile.setRowsPerLoad(200);
+        profile.setTopUp(false);
+
+        try (MySQLStubServer server = new MySQLStubServer(0)) {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl("jdbc:mysql://127.0.0.1:" + server.start() + "/stub");
+            config.setUsername("root");
+            config.setPassword("root");
+            config.setMaximumPoolSize(3);
+            config.addDataSourceProperty("allowLoadLocalInfile", "true");
+            try (HikariDataSource dataSource = new HikariDataSource(config)) {
+                DataSeeder seeder = new DataSeeder(profile, dataSource, metadata);
+                seeder.run();
+
+                Map<String, Object> report = seeder.report();
+                assertEquals("completedWithErrors", report.get("state"));
+                assertEquals(3L, report.get("failedTables"));
+                assertEquals(1000L, report.get("rowsLoaded"));
+                Map<String, String> states = new LinkedHashMap<>();
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> tables = (List<Map<String, Object>>) report.get("tables");
+                for (Map<String, Object> table : tables) {
+                    states.put((String) table.get("table"), (String) table.get("state"));
+                }
+                assertEquals("loaded", states.get("customers"));
+                assertEquals("loaded", states.get("reviews"));
+                assertTrue(states.get(broken).startsWith("failed: "), states.get(broken));
+                assertEquals("skipped: " + broken + " failed", states.get("order_items"));
+                assertEquals("skipped: order_items failed", states.get("order_notes"));
+            }
+        }
+    }
+}
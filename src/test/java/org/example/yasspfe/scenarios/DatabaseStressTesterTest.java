@@ -0,0 +1,240 @@
+package org.example.yasspfe.scenarios;
+
+import org.example.yasspfe.entities.DatabaseConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseStressTesterTest {
+
+    @TempDir
+    Path historyDirectory;
+    private StressRunHistory history;
+
+    @BeforeEach
+    void prepare() {
+        history = new StressRunHistory(historyDirectory);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void openLoopHoldsTheTargetRateAndMeasuresFromTheIntendedStart() throws Exception {
+        try (MySQLStubServer stub = new MySQLStubServer(0)) {
+            stub.setRows(1);
+            stub.setDelayMillis(20);
+            int port = stub.start();
+
+            DatabaseStressTester tester = new DatabaseStressTester(history);
+            DatabaseConfig config = new DatabaseConfig("jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED", "root", "root");
+            config.setLoadMode("open");
+            config.setTargetQps(100);
+            try {
+                assertTrue(tester.startStressTest(config));
+                // The schedule starts once every worker has its connection
+                long deadline = System.currentTimeMillis() + 15000;
+                while ((Long) tester.getLoadReport().get("scheduled") == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(50);
+                }
+                Thread.sleep(2000);
+            } finally {
+                tester.stopStressTest();
+            }
+
+            Map<String, Object> report = tester.getLoadReport();
+            assertEquals("OPEN", report.get("loadMode"));
+            assertEquals(100, report.get("targetQps"));
+            assertEquals(1, history.list().size());
+            double achieved = (Double) report.get("achievedQps");
+            assertTrue(achieved > 70 && achieved < 130, "achieved " + achieved + " qps");
+
+            Map<String, Object> response = (Map<String, Object>) report.get("responseTime");
+            Map<String, Object> service = (Map<String, Object>) report.get("serviceTime");
+            // The stub's DESCRIBE has no Field column, so only the count and page queries reach it
+            assertTrue((Double) service.get("p99Millis") >= 20);
+            assertTrue((Double) response.get("p99Millis") >= (Double) service.get("p99Millis"));
+
+            Map<String, Object> stats = tester.getOperationStats();
+            Map<String, Object> operations = (Map<String, Object>) stats.get("operations");
+            Map<String, Object> counts = (Map<String, Object>) operations.get("count");
+            assertTrue((Long) counts.get("count") > 0);
+            assertTrue((Double) counts.get("p50Millis") >= 20);
+            Map<String, Object> tables = (Map<String, Object>) stats.get("tables");
+            assertEquals(1, tables.size());
+            assertTrue(((Map<String, Object>) stats.get("errorsBySqlState")).isEmpty());
+        }
+    }
+
+    @Test
+    void aRunKeepsTheSettingsItStartedWith() throws Exception {
+        try (MySQLStubServer stub = new MySQLStubServer(0)) {
+            stub.setRows(1);
+            int port = stub.start();
+
+            DatabaseStressTester tester = new DatabaseStressTester(history);
+            DatabaseConfig config = new DatabaseConfig("jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED", "root", "root");
+            config.setLoadMode("open");
+            config.setTargetQps(50);
+            config.setSessions(2);
+            config.setPoolSize(8);
+            assertTrue(tester.configure(config, null));
+
+            DatabaseConfig closed = new DatabaseConfig(config.getJdbcUrl(), "root", "root");
+            closed.setLoadMode("closed");
+            try {
+                assertTrue(tester.startStressTest(config));
+                assertFalse(tester.configure(closed, null));
+                assertThrows(IllegalStateException.class, () -> tester.setLoadProfile("closed", 500));
+                // Starting again while it runs changes nothing either
+                assertTrue(tester.startStressTest(closed));
+                assertEquals(DatabaseStressTester.LoadMode.OPEN, tester.getLoadMode());
+            } finally {
+                tester.stopStressTest();
+            }
+
+            // Configuring the next run leaves the report of the last one as it ran; what is left out is reset
+            assertTrue(tester.configure(closed, null));
+            assertEquals("OPEN", tester.getLoadReport().get("loadMode"));
+            assertEquals(50, tester.getLoadReport().get("targetQps"));
+            assertEquals(DatabaseStressTester.LoadMode.CLOSED, tester.getLoadMode());
+            assertEquals(100, tester.getTargetQps());
+            assertNull(tester.getSessionCount());
+            assertEquals(250, tester.getPoolSize());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void moreSessionsThanConnectionsBorrowFromThePool() throws Exception {
+        try (MySQLStubServer stub = new MySQLStubServer(0)) {
+            stub.setRows(1);
+            stub.setDelayMillis(5);
+            int port = stub.start();
+
+            DatabaseStressTester tester = new DatabaseStressTester(history);
+            DatabaseConfig config = new DatabaseConfig("jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED", "root", "root");
+            config.setLoadMode("open");
+            config.setTargetQps(100);
+            config.setEngine("virtual");
+            config.setSessions(100);
+            config.setPoolSize(4);
+            try {
+                assertTrue(tester.startStressTest(config));
+                long deadline = System.currentTimeMillis() + 15000;
+                while ((Long) tester.getLoadReport().get("scheduled") == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(50);
+                }
+                Thread.sleep(2000);
+            } finally {
+                tester.stopStressTest();
+            }
+
+            Map<String, Object> report = tester.getLoadReport();
+            Map<String, Object> sessions = (Map<String, Object>) report.get("sessions");
+            assertEquals(100, sessions.get("sessions"));
+            assertEquals(4, sessions.get("poolSize"));
+            assertEquals(false, sessions.get("connectionPerSession"));
+            assertEquals(100, sessions.get("started"));
+            assertEquals(0, sessions.get("active"));
+            assertTrue((Long) report.get("completed") > 100);
+            assertEquals(0L, report.get("errors"));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void thousandsOfSessionsShareTheLatencyRecorders() throws Exception {
+        try (MySQLStubServer stub = new MySQLStubServer(0)) {
+            stub.setRows(1);
+            int port = stub.start();
+
+            DatabaseStressTester tester = new DatabaseStressTester(history);
+            DatabaseConfig config = new DatabaseConfig("jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED", "root", "root");
+            config.setLoadMode("open");
+            config.setTargetQps(300);
+            config.setEngine("virtual");
+            config.setSessions(3000);
+            config.setPoolSize(8);
+            long heapBefore = usedHeap();
+            long heapDuring;
+            try {
+                assertTrue(tester.startStressTest(config));
+                long deadline = System.currentTimeMillis() + 30000;
+                while ((Long) tester.getLoadReport().get("scheduled") == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(50);
+                }
+                Thread.sleep(2000);
+                heapDuring = usedHeap();
+            } finally {
+                tester.stopStressTest();
+            }
+
+            Map<String, Object> report = tester.getLoadReport();
+            Map<String, Object> sessions = (Map<String, Object>) report.get("sessions");
+            assertEquals(3000, sessions.get("started"));
+            assertEquals(0, sessions.get("helperConnections"));
+            assertTrue((Long) report.get("completed") > 300);
+            assertEquals(0L, report.get("errors"));
+            // A set of recorders per session would take over 1 MB each
+            assertTrue(heapDuring - heapBefore < 256L * 1024 * 1024,
+                    "heap grew by " + (heapDuring - heapBefore) / (1024 * 1024) + " MB");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void loadPlanStepsTheRateUntilP99CrossesTheSlo() throws Exception {
+        try (MySQLStubServer stub = new MySQLStubServer(0)) {
+            stub.setRows(1);
+            stub.setDelayMillis(20);
+            int port = stub.start();
+
+            DatabaseStressTester tester = new DatabaseStressTester(history);
+            DatabaseConfig config = new DatabaseConfig("jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED", "root", "root");
+            config.setLoadMode("open");
+            // 4 sessions on a 20 ms server: queries start queueing at a few hundred per second
+            config.setSessions(4);
+            LoadPlan plan = new LoadPlan(50, 100, 12);
+            plan.setWarmupSeconds(0);
+            plan.setStepSeconds(1);
+            plan.setSloP99Millis(100.0);
+            tester.setLoadPlan(plan);
+            try {
+                assertTrue(tester.startStressTest(config));
+                long deadline = System.currentTimeMillis() + 30000;
+                while (tester.isRunning() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(100);
+                }
+            } finally {
+                tester.stopStressTest();
+            }
+
+            Map<String, Object> report = (Map<String, Object>) tester.getLoadReport().get("plan");
+            List<Map<String, Object>> steps = (List<Map<String, Object>>) report.get("steps");
+            assertEquals("slo", report.get("state"), "steps: " + steps);
+            assertTrue(steps.size() >= 2 && steps.size() < 12, "steps: " + steps);
+            double first = (Double) steps.get(0).get("throughput");
+            assertTrue(first > 35 && first < 65, "first step " + first);
+            assertEquals(false, steps.get(steps.size() - 1).get("withinSlo"));
+
+            Map<String, Object> knee = (Map<String, Object>) report.get("knee");
+            assertEquals(true, knee.get("withinSlo"));
+            assertTrue((Double) knee.get("throughput") > first, "knee " + knee);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.yasspfe.scenarios;
+
+import org.example.yasspfe.entities.WorkloadProfile;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyGeneratorTest {
+
+    private static final int ITEMS = 10_000;
+    private static final int SAMPLES = 200_000;
+
+    private static long[] histogram(KeyGenerator keys, long count) {
+        Random random = new Random(42);
+        long[] hits = new long[(int) count];
+        for (int i = 0; i < SAMPLES; i++) {
+            long index = keys.next(random, count);
+            assertTrue(index >= 0 && index < count);
+            hits[(int) index]++;
+        }
+        return hits;
+    }
+
+    @Test
+    void zipfianConcentratesOperationsOnAFewScatteredKeys() {
+        long[] hits = histogram(new KeyGenerator("zipfian", ITEMS, 0.2, 0.8), ITEMS);
+        long hottest = 0;
+        int hottestIndex = 0;
+        for (int i = 0; i < hits.length; i++) {
+            if (hits[i] > hottest) {
+                hottest = hits[i];
+                hottestIndex = i;
+            }
+        }
+        // Uniform would give each key about 20 hits
+        assertTrue(hottest > SAMPLES / 20, "hottest key got " + hottest);
+        assertTrue(hottestIndex != 0, "hot keys should be scattered, not at the start of the key space");
+    }
+
+    @Test
+    void latestFavoursRecentKeysAndFollowsInserts() {
+        long[] hits = histogram(new KeyGenerator("latest", ITEMS, 0.2, 0.8), ITEMS + 100);
+        assertTrue(hits[ITEMS + 99] > hits[ITEMS / 2] * 100, "the newest key should be the most popular");
+    }
+
+    @Test
+    void hotspotSendsTheConfiguredShareToTheHotSet() {
+        long[] hits = histogram(new KeyGenerator("hotspot", ITEMS, 0.1, 0.9), ITEMS);
+        long hot = 0;
+        for (int i = 0; i < ITEMS / 10; i++) hot += hits[i];
+        assertEquals(0.9, (double) hot / SAMPLES, 0.01);
+    }
+
+    @Test
+    void presetsAreValid() {
+        assertEquals(6, WorkloadProfile.presets().size());
+        for (WorkloadProfile preset : WorkloadProfile.presets()) {
+            assertNull(preset.validate(), preset.getName());
+        }
+        WorkloadProfile custom = WorkloadProfile.preset("ycsb-a");
+        assertNotNull(custom);
+        custom.setTableConcurrency("orders=12, users=2");
+        assertEquals(12, custom.concurrencyFor("orders"));
+        assertEquals(6, custom.concurrencyFor("payments"));
+        custom.setKeyDistribution("gaussian");
+        assertNotNull(custom.validate());
+    }
+
+    @Test
+    void handlesAKeySpaceOfSnowflakeIdsQuickly() {
+        long items = Long.MAX_VALUE / 2;
+        KeyGenerator keys = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> new KeyGenerator("zipfian", items, 0.2, 0.8));
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            long index = keys.next(random, items);
+            assertTrue(index >= 0 && index < items);
+        }
+    }
+
+    @Test
+    void approximatesZetaPastTheExactTerms() {
+        long n = KeyGenerator.ZETA_EXACT_ITEMS * 30;
+        double exact = 0;
+        for (long i = 1; i <= n; i++) {
+            exact += 1 / Math.pow(i, 0.99);
+        }
+        assertEquals(exact, KeyGenerator.zeta(n, 0.99), exact * 1e-9);
+    }
+
+    @Test
+    void drawsSparseIntegerKeysFromTheSample() {
+        List<Object> dense = new ArrayList<>();
+        List<Object> sparse = new ArrayList<>();
+        for (long i = 0; i < 1_000; i++) {
+            dense.add(100 + i + i / 10);
+            sparse.add(1_700_000_000_000_000_000L + i * 4_194_304);
+        }
+        assertTrue(ProfileWorkload.Table.dense(100, 1_199, dense));
+        assertFalse(ProfileWorkload.Table.dense(1_700_000_000_000_000_000L, Long.MAX_VALUE, sparse));
+        assertFalse(ProfileWorkload.Table.dense(Long.MIN_VALUE, Long.MAX_VALUE, List.of(Long.MIN_VALUE)));
+        assertTrue(ProfileWorkload.Table.dense(1, 0, List.of()));
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.yasspfe.scenarios;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.example.yasspfe.entities.DatabaseConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadCoordinatorTest {
+
+    @Test
+    void splitsTotalsBetweenWorkers() {
+        assertEquals(4, LoadProtocol.share(10, 3, 0));
+        assertEquals(3, LoadProtocol.share(10, 3, 1));
+        assertEquals(3, LoadProtocol.share(10, 3, 2));
+        assertEquals(1, LoadProtocol.share(1, 2, 1));
+    }
+
+    @Test
+    void encodesResultsWithTheirHistograms() throws Exception {
+        LoadProtocol.Result result = new LoadProtocol.Result(42, 3, Map.of("read", latencies(500, 10)), new byte[]{1, 2});
+
+        LoadProtocol.Result decoded = LoadProtocol.decodeResult(LoadProtocol.encode(result));
+
+        assertEquals(42L, decoded.queries());
+        assertEquals(3L, decoded.errors());
+        assertEquals(10L, decoded.histograms().get("read").getTotalCount());
+        assertEquals(2, decoded.report().length);
+    }
+
+    @Test
+    void startsWorkersTogetherAndMergesTheirResults() throws Exception {
+        DistributedProfile profile = new DistributedProfile();
+        profile.setLocalWorkers(0);
+        profile.setRemoteWorkers(2);
+        profile.setJoinTimeoutMillis(10_000);
+        DatabaseConfig plan = new DatabaseConfig("jdbc:mysql://127.0.0.1:3306/stub", "bench", "secret");
+        plan.setSessions(5);
+        LoadCoordinator coordinator = new LoadCoordinator(profile, plan);
+        int port = coordinator.start();
+
+        AtomicLong lastReady = new AtomicLong();
+        AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+        CountDownLatch started = new CountDownLatch(2);
+        Thread fast = fakeWorker(port, coordinator.getToken(), "fast", 0, lastReady, firstStart, started);
+        Thread slow = fakeWorker(port, coordinator.getToken(), "slow", 300, lastReady, firstStart, started);
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(firstStart.get() >= lastReady.get());
+        coordinator.stop();
+        fast.join(5000);
+        slow.join(5000);
+
+        Map<String, Object> report = coordinator.report();
+        assertEquals("finished", report.get("state"));
+        assertEquals(200L, report.get("totalQueries"));
+        assertEquals(2L, report.get("errors"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> latency = (Map<String, Object>) report.get("latency");
+        assertEquals(40L, latency.get("count"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> workers = (List<Map<String, Object>>) report.get("workers");
+        assertEquals(2, workers.size());
+        assertEquals(Integer.valueOf(5), plan.getSessions());
+    }
+
+    @Test
+    void turnsAwayWorkersWithoutTheRunToken() throws Exception {
+        DistributedProfile profile = new DistributedProfile();
+        profile.setLocalWorkers(0);
+        profile.setRemoteWorkers(1);
+        profile.setJoinTimeoutMillis(10_000);
+        LoadCoordinator coordinator = new LoadCoordinator(profile,
+                new DatabaseConfig("jdbc:mysql://127.0.0.1:3306/stub", "bench", "secret"));
+        int port = coordinator.start();
+        try {
+            for (Map<String, Object> hello : List.<Map<String, Object>>of(Map.of("name", "stranger", "cores", 2),
+                    Map.of("name", "guesser", "cores", 2, "token", "not-the-token"))) {
+                try (Socket socket = new Socket("127.0.0.1", port)) {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    LoadProtocol.write(new DataOutputStream(socket.getOutputStream()), LoadProtocol.HELLO,
+                            new ObjectMapper().writeValueAsBytes(hello));
+
+                    // Refused without seeing the plan and its credentials
+                    assertEquals(LoadProtocol.ERROR, LoadProtocol.read(in).type());
+                    assertThrows(EOFException.class, () -> LoadProtocol.read(in));
+                }
+            }
+            assertEquals("joining", coordinator.report().get("state"));
+        } finally {
+            coordinator.stop();
+        }
+    }
+
+    @Test
+    void acceptsOnlyHeapStackAndGcJvmOptions() {
+        DistributedProfile profile = new DistributedProfile();
+        profile.setJvmOptions(List.of("-Xmx2g", "-Xms512m", "-Xss512k", "-XX:+UseZGC", "-XX:MaxRAMPercentage=75"));
+        assertNull(profile.validate());
+
+        for (String option : List.of("-XX:OnOutOfMemoryError=sh -c id", "-javaagent:/tmp/agent.jar",
+                "-Dloader.main=Evil", "-cp", "-Xmx2g -jar x.jar")) {
+            profile.setJvmOptions(List.of(option));
+            assertNotNull(profile.validate(), option);
+        }
+    }
+
+    // Joins, gets ready after a delay, then runs 100 queries and returns them when stopped
+    private static Thread fakeWorker(int port, String token, String name, long readyDelayMillis, AtomicLong lastReady,
+                                     AtomicLong firstStart, CountDownLatch started) {
+        Thread thread = new Thread(() -> {
+            try (Socket socket = new Socket("127.0.0.1", port)) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                LoadProtocol.write(out, LoadProtocol.HELLO, new ObjectMapper().writeValueAsBytes(
+                        Map.of("name", name, "cores", 2, "token", token)));
+
+                assertEquals(LoadProtocol.PLAN, LoadProtocol.read(in).type());
+                Thread.sleep(readyDelayMillis);
+                lastReady.accumulateAndGet(System.nanoTime(), Math::max);
+                LoadProtocol.write(out, LoadProtocol.READY);
+
+                assertEquals(LoadProtocol.START, LoadProtocol.read(in).type());
+                firstStart.accumulateAndGet(System.nanoTime(), Math::min);
+                LoadProtocol.write(out, LoadProtocol.PROGRESS, LoadProtocol.encode(new LoadProtocol.Progress(100, 1, true)));
+                started.countDown();
+
+                assertEquals(LoadProtocol.STOP, LoadProtocol.read(in).type());
+                LoadProtocol.write(out, LoadProtocol.RESULT, LoadProtocol.encode(
+                        new LoadProtocol.Result(100, 1, Map.of("read", latencies(1_000, 20)), new byte[0])));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, "fake-worker-" + name);
+        thread.start();
+        return thread;
+    }
+
+    private static Histogram latencies(long micros, int count) {
+        Histogram histogram = new Histogram(3);
+        for (int i = 0; i < count; i++) {
+            histogram.recordValue(micros + i);
+        }
+        return histogram;
+    }
+}
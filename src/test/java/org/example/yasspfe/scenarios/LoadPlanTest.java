@@ -0,0 +1,60 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoadPlanTest {
+
+    private static LoadPlan.StepResult step(int step, int level, double throughput, double p99, LoadPlan plan) {
+        return new LoadPlan.StepResult(step, level, 10, (long) (throughput * 10), 0, throughput, p99 / 2, p99, p99 * 2,
+                plan.getSloP99Millis() == null || p99 <= plan.getSloP99Millis());
+    }
+
+    @Test
+    void stopsWhenP99CrossesTheSloAndTheKneeIsTheLastStepWithinIt() {
+        LoadPlan plan = new LoadPlan(100, 100, 10);
+        plan.setSloP99Millis(50.0);
+        List<LoadPlan.StepResult> results = new ArrayList<>();
+
+        results.add(step(1, 100, 100, 5, plan));
+        assertNull(plan.stopReason(results));
+        results.add(step(2, 200, 198, 12, plan));
+        assertNull(plan.stopReason(results));
+        results.add(step(3, 300, 240, 80, plan));
+        assertEquals("slo", plan.stopReason(results));
+
+        LoadPlan.StepResult knee = plan.knee(results);
+        assertNotNull(knee);
+        assertEquals(200, knee.getLevel());
+    }
+
+    @Test
+    void stopsWhenThroughputPlateausForTheConfiguredSteps() {
+        LoadPlan plan = new LoadPlan(10, 10, 10);
+        List<LoadPlan.StepResult> results = new ArrayList<>();
+
+        results.add(step(1, 10, 500, 5, plan));
+        results.add(step(2, 20, 900, 6, plan));
+        results.add(step(3, 30, 920, 9, plan));
+        // One flat step is not a plateau yet
+        assertNull(plan.stopReason(results));
+        results.add(step(4, 40, 915, 14, plan));
+        assertEquals("plateau", plan.stopReason(results));
+        // 900 is within 5% of the best, so the steps after it only added latency
+        assertEquals(20, plan.knee(results).getLevel());
+    }
+
+    @Test
+    void rejectsPlansWithoutStartOrIncrement() {
+        assertEquals("start must be positive", new LoadPlan().validate());
+        LoadPlan plan = new LoadPlan(10, 0, 5);
+        assertEquals("increment must be positive", plan.validate());
+        assertEquals(50, new LoadPlan(10, 10, 5).maxLevel());
+    }
+}
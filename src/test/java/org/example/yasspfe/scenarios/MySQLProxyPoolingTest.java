@@ -0,0 +1,115 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MySQLProxyPoolingTest {
+
+    private MySQLStubServer stub;
+    private ServerSocket proxySocket;
+    private String url;
+
+    @BeforeEach
+    void startProxy() throws Exception {
+        stub = new MySQLStubServer(0);
+        stub.setRows(2);
+        int stubPort = stub.start();
+
+        MySQLProxy.setTargetConnectionInfo("127.0.0.1", stubPort);
+        MySQLProxy.setPoolingEnabled(true);
+        proxySocket = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> MySQLProxy.serve(proxySocket));
+        acceptor.setDaemon(true);
+        acceptor.start();
+        url = "jdbc:mysql://127.0.0.1:" + proxySocket.getLocalPort() + "/stub?sslMode=DISABLED";
+    }
+
+    @AfterEach
+    void stopProxy() throws Exception {
+        proxySocket.close();
+        MySQLProxy.setPoolingEnabled(false);
+        MySQLProxy.getBackendPool().closeIdleConnectionsNotTargeting("", -1);
+        stub.stop();
+    }
+
+    @Test
+    void shortLivedClientsShareBackendConnections() throws SQLException {
+        long before = stub.getConnectionsAccepted();
+        for (int i = 0; i < 20; i++) {
+            try (Connection conn = DriverManager.getConnection(url, "root", "root");
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM orders")) {
+                int rows = 0;
+                while (rs.next()) rows++;
+                assertEquals(2, rows);
+            }
+        }
+        assertEquals(1, stub.getConnectionsAccepted() - before);
+    }
+
+    @Test
+    void openTransactionKeepsItsBackend() throws SQLException {
+        try (Connection inTransaction = DriverManager.getConnection(url, "root", "root");
+             Connection other = DriverManager.getConnection(url, "root", "root")) {
+            inTransaction.setAutoCommit(false);
+            inTransaction.createStatement().executeUpdate("UPDATE orders SET status = 'PAID' WHERE id = 1");
+
+            Map<String, Object> during = new HashMap<>(MySQLProxy.getBackendPool().snapshot());
+            other.createStatement().executeQuery("SELECT * FROM orders").close();
+            assertEquals(1, during.get("borrowed"));
+
+            inTransaction.commit();
+            assertEquals(0, MySQLProxy.getBackendPool().snapshot().get("borrowed"));
+        }
+    }
+
+    @Test
+    void trackedSessionVariablesDoNotPinTheSession() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, "root", "root");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SET SESSION sql_mode = 'STRICT_ALL_TABLES,NO_ZERO_DATE'");
+            stmt.executeQuery("SELECT * FROM orders").close();
+            assertEquals(0, MySQLProxy.getBackendPool().snapshot().get("borrowed"));
+        }
+        Map<String, String> assignments = new HashMap<>();
+        assertEquals("user variable", PooledSession.parseSet("SET @total = 10", assignments));
+        assertTrue(PooledSession.parseSet("SET NAMES utf8mb4, @@session.autocommit = 0", assignments) == null);
+        assertEquals("autocommit=0", assignments.get("autocommit"));
+    }
+
+    @Test
+    void switchoverMovesPooledClientsToTheNewTarget() throws Exception {
+        try (MySQLStubServer replacement = new MySQLStubServer(0);
+             Connection conn = DriverManager.getConnection(url, "root", "root");
+             Statement stmt = conn.createStatement()) {
+            int replacementPort = replacement.start();
+            stmt.executeQuery("SELECT * FROM orders").close();
+
+            assertTrue(MySQLProxy.switchTarget("127.0.0.1", replacementPort));
+            long served = replacement.getQueriesServed();
+            stmt.executeQuery("SELECT * FROM orders").close();
+            assertTrue(replacement.getQueriesServed() > served);
+            assertEquals(0, MySQLProxy.getBackendPool().snapshot().get("borrowed"));
+        }
+    }
+
+    @Test
+    void rejectsUnknownCredentials() {
+        SQLException e = assertThrows(SQLException.class, () -> DriverManager.getConnection(url, "root", "wrong"));
+        assertEquals(1045, e.getErrorCode());
+    }
+}
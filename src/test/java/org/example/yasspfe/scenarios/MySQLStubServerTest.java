@@ -0,0 +1,128 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MySQLStubServerTest {
+
+    private MySQLStubServer server;
+    private int port;
+    private String url;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new MySQLStubServer(0);
+        server.setCredentials("bench", "secret");
+        server.setRows(3);
+        server.setColumns(2);
+        server.setRowWidth(16);
+        server.setIoThreads(1);
+        int port = server.start();
+        this.port = port;
+        url = "jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void servesSyntheticResultSetsOverJdbc() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, "bench", "secret");
+             Statement stmt = conn.createStatement()) {
+            int rows = 0;
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM orders")) {
+                assertEquals(2, rs.getMetaData().getColumnCount());
+                while (rs.next()) {
+                    assertEquals(8, rs.getString(1).length());
+                    rows++;
+                }
+            }
+            assertEquals(3, rows);
+
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM orders /* stub: rows=50, width=100 */")) {
+                rows = 0;
+                while (rs.next()) rows++;
+            }
+            assertEquals(50, rows);
+            assertEquals(1, stmt.executeUpdate("UPDATE orders SET status = 'PAID' WHERE id = 1"));
+        }
+    }
+
+    @Test
+    void returnsRequestedErrors() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, "bench", "secret");
+             Statement stmt = conn.createStatement()) {
+            SQLException e = assertThrows(SQLException.class,
+                    () -> stmt.executeUpdate("/* stub: err=1213 */ UPDATE orders SET total = 0"));
+            assertEquals(1213, e.getErrorCode());
+            assertEquals("40001", e.getSQLState());
+        }
+    }
+
+    @Test
+    void rejectsWrongPassword() {
+        SQLException e = assertThrows(SQLException.class, () -> DriverManager.getConnection(url, "bench", "wrong"));
+        assertEquals(1045, e.getErrorCode());
+    }
+
+    @Test
+    void failsOnlyTheClientThatSentAMalformedPacket() throws Exception {
+        try (Connection neighbour = DriverManager.getConnection(url, "bench", "secret");
+             Connection conn = DriverManager.getConnection(url, "bench", "secret");
+             Statement stmt = conn.createStatement()) {
+            SQLException e = assertThrows(SQLException.class,
+                    () -> stmt.executeQuery("SELECT * FROM orders /* stub: rows=lots */"));
+            assertEquals(1835, e.getErrorCode());
+
+            // A handshake response cut short
+            try (Socket socket = new Socket("127.0.0.1", port)) {
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                assertNotNull(MySQLProxy.readPacket(in));
+                out.write(MySQLProtocol.packet(1, new byte[]{0x0F, 0x00}));
+                out.flush();
+                byte[] reply = MySQLProxy.readPacket(in);
+                assertNotNull(reply);
+                assertEquals(0xFF, reply[4] & 0xFF);
+            }
+
+            try (Statement other = neighbour.createStatement(); ResultSet rs = other.executeQuery("SELECT * FROM orders")) {
+                int rows = 0;
+                while (rs.next()) rows++;
+                assertEquals(3, rows);
+            }
+        }
+    }
+
+    @Test
+    void doesNotAnswerStatementClose() throws Exception {
+        BackendConnection connection = BackendConnection.open(
+                new BackendPool.Key("bench", "stub", MySQLProtocol.UTF8MB4_0900_AI_CI, MySQLProtocol.SERVER_CAPABILITIES),
+                "secret", "127.0.0.1", port, 2000);
+        try {
+            connection.send(MySQLProtocol.packet(0, new byte[]{MySQLProtocol.COM_STMT_CLOSE, 1, 0, 0, 0}));
+            // The next reply must be the ping's OK, not a reply to COM_STMT_CLOSE
+            assertNull(connection.execute(MySQLProtocol.COM_PING, ""));
+            assertNull(connection.execute(MySQLProtocol.COM_SET_OPTION, "\0\0"));
+        } finally {
+            connection.close();
+        }
+    }
+}
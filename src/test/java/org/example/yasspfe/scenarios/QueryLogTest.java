@@ -0,0 +1,108 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QueryLogTest {
+
+    private static List<QueryLog.Entry> readAll(QueryLog log) throws IOException {
+        List<QueryLog.Entry> entries = new ArrayList<>();
+        QueryLog.Entry entry;
+        while ((entry = log.next()) != null) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static BufferedReader lines(String... lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+
+    @Test
+    void readsGeneralLogStatementsSessionsAndMultiLineQueries() throws IOException {
+        List<QueryLog.Entry> entries = readAll(new QueryLog.GeneralLog(lines(
+                "/usr/sbin/mysqld, Version: 8.0.36 (MySQL Community Server - GPL). started with:",
+                "Tcp port: 3306  Unix socket: /var/run/mysqld/mysqld.sock",
+                "Time                 Id Command    Argument",
+                "2024-03-01T10:00:00.000000Z\t   12 Connect\troot@localhost on shop using TCP/IP",
+                "2024-03-01T10:00:00.250000Z\t   12 Query\tSELECT *",
+                "FROM orders",
+                "WHERE id = 7",
+                "2024-03-01T10:00:00.500000Z\t   13 Query\tUPDATE orders SET state = 'paid' WHERE id = 7",
+                "2024-03-01T10:00:01.000000Z\t   12 Quit\t")));
+
+        assertEquals(3, entries.size());
+        assertEquals("SELECT *\nFROM orders\nWHERE id = 7", entries.get(0).sql());
+        assertEquals("12", entries.get(0).session());
+        assertEquals(250_000, entries.get(1).micros() - entries.get(0).micros());
+        assertEquals("13", entries.get(1).session());
+        // The end of session 12
+        assertEquals("12", entries.get(2).session());
+        assertNull(entries.get(2).sql());
+    }
+
+    @Test
+    void readsTheOldGeneralLogFormatWithSharedTimes() throws IOException {
+        List<QueryLog.Entry> entries = readAll(new QueryLog.GeneralLog(lines(
+                "240301  9:00:00\t    5 Query\tSELECT 1",
+                "\t\t    6 Query\tSELECT 2",
+                "240301  9:00:02\t    5 Init DB\tshop")));
+
+        assertEquals(2, entries.size());
+        assertEquals(entries.get(0).micros(), entries.get(1).micros());
+        assertEquals("6", entries.get(1).session());
+        assertEquals("SELECT 2", entries.get(1).sql());
+    }
+
+    @Test
+    void placesSlowLogQueriesAtTheirStart() throws IOException {
+        List<QueryLog.Entry> entries = readAll(new QueryLog.SlowLog(lines(
+                "# Time: 2024-03-01T10:00:02.000000Z",
+                "# User@Host: app[app] @ localhost []  Id:    21",
+                "# Query_time: 1.500000  Lock_time: 0.000100 Rows_sent: 1  Rows_examined: 100000",
+                "use shop;",
+                "SET timestamp=1709287202;",
+                "SELECT COUNT(*)",
+                "  FROM orders;",
+                "# Time: 2024-03-01T10:00:03.000000Z",
+                "# User@Host: app[app] @ localhost []  Id:    22",
+                "# Query_time: 0.200000  Lock_time: 0.000000 Rows_sent: 0  Rows_examined: 1",
+                "SET timestamp=1709287203;",
+                "DELETE FROM carts WHERE id = 3;")));
+
+        assertEquals(2, entries.size());
+        assertEquals("SELECT COUNT(*)\n  FROM orders", entries.get(0).sql());
+        assertEquals("21", entries.get(0).session());
+        // Started at 10:00:00.5 and 10:00:02.8
+        assertEquals(2_300_000, entries.get(1).micros() - entries.get(0).micros());
+        assertEquals("DELETE FROM carts WHERE id = 3", entries.get(1).sql());
+    }
+
+    @Test
+    void readsBackWhatTheProxyCaptured() throws IOException {
+        String query = "SELECT 'a\tb'\nFROM t WHERE c = '\\\\'";
+        List<QueryLog.Entry> entries = readAll(new QueryLog.Capture(lines(
+                QueryCapture.format(1_000_000, "4", query),
+                QueryCapture.format(1_000_250, "5", "COMMIT"))));
+
+        assertEquals(2, entries.size());
+        assertEquals(query, entries.get(0).sql());
+        assertEquals("5", entries.get(1).session());
+        assertEquals(250, entries.get(1).micros() - entries.get(0).micros());
+    }
+
+    @Test
+    void classifiesStatementsByTheirFirstKeyword() {
+        assertEquals("SELECT", QueryReplay.firstKeyword("/* app */ (select 1)"));
+        assertEquals(StressMetrics.Operation.REPLAY_UPDATE, QueryReplay.operationOf("-- note\nUPDATE t SET a = 1"));
+        assertEquals(StressMetrics.Operation.REPLAY_OTHER, QueryReplay.operationOf("BEGIN"));
+    }
+}
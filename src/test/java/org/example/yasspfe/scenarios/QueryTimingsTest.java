@@ -0,0 +1,66 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryTimingsTest {
+
+    @Test
+    void digestsIgnoreLiteralsCommentsAndWhitespace() {
+        StringBuilder text = new StringBuilder();
+        long hash = QueryTimings.digest("SELECT *  FROM orders /* hint */ WHERE id = 42 AND note = 'it''s'", text);
+        assertEquals("select * from orders where id = ? and note = ?", text.toString());
+        assertEquals(hash, QueryTimings.digest("select * from orders where id = 7 and note = \"x\"", null));
+        assertNotEquals(hash, QueryTimings.digest("SELECT * FROM orders2 WHERE id = 42 AND note = 'x'", null));
+
+        assertEquals(QueryTimings.Type.SELECT, QueryTimings.classify("/* app */ select 1"));
+        assertEquals(QueryTimings.Type.TCL, QueryTimings.classify("START TRANSACTION"));
+        assertEquals(QueryTimings.Type.DDL, QueryTimings.classify("create table t (id int)"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void passthroughProxyTimesQueriesAndKeepsSlowOnes() throws Exception {
+        try (MySQLStubServer stub = new MySQLStubServer(0);
+             ServerSocket proxySocket = new ServerSocket(0)) {
+            stub.setDelayMillis(30);
+            MySQLProxy.setTargetConnectionInfo("127.0.0.1", stub.start());
+            Thread acceptor = new Thread(() -> MySQLProxy.serve(proxySocket));
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            QueryTimings timings = MySQLProxy.getQueryTimings();
+            timings.reset();
+            timings.setSlowThresholdMillis(20);
+            try (Connection conn = DriverManager.getConnection(
+                    "jdbc:mysql://127.0.0.1:" + proxySocket.getLocalPort() + "/stub?sslMode=DISABLED", "root", "root");
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM orders WHERE id = 1")) {
+                while (rs.next()) {
+                    // drain
+                }
+            } finally {
+                timings.setSlowThresholdMillis(1000);
+            }
+
+            Map<String, Object> byType = (Map<String, Object>) timings.snapshot(10).get("byType");
+            Map<String, Object> selects = (Map<String, Object>) byType.get("SELECT");
+            assertTrue((Long) selects.get("count") >= 1);
+            assertTrue((Double) selects.get("maxMillis") >= 30);
+
+            List<Map<String, Object>> slow = timings.slowQueries();
+            assertTrue(slow.stream().anyMatch(entry -> "SELECT * FROM orders WHERE id = 1".equals(entry.get("query"))));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerStatusSamplerTest {
+
+    @Test
+    void turnsCountersIntoRatesAndKeepsGauges() {
+        Map<String, Long> before = Map.of("Questions", 1_000L, "Innodb_rows_read", 50_000L, "Threads_running", 40L,
+                "Innodb_buffer_pool_read_requests", 10_000L, "Innodb_buffer_pool_reads", 100L,
+                "Created_tmp_tables", 10L, "Created_tmp_disk_tables", 2L,
+                ServerStatusSampler.INNODB_METRIC + "lock_deadlocks", 3L);
+        Map<String, Long> after = Map.of("Questions", 3_000L, "Innodb_rows_read", 70_000L, "Threads_running", 4L,
+                "Innodb_buffer_pool_read_requests", 20_000L, "Innodb_buffer_pool_reads", 200L,
+                "Created_tmp_tables", 30L, "Created_tmp_disk_tables", 7L,
+                ServerStatusSampler.INNODB_METRIC + "lock_deadlocks", 5L);
+
+        Map<String, Object> delta = ServerStatusSampler.delta(before, after, 2.0);
+
+        assertEquals(1_000.0, delta.get("questionsPerSecond"));
+        assertEquals(10_000.0, delta.get("rowsReadPerSecond"));
+        assertEquals(4L, delta.get("threadsRunning"));
+        assertEquals(0.99, (double) delta.get("bufferPoolHitRatio"), 1e-9);
+        assertEquals(0.25, (double) delta.get("tmpDiskTableRatio"), 1e-9);
+        assertEquals(2L, delta.get("deadlocks"));
+    }
+
+    @Test
+    void ignoresCountersThatWentBackOrAreMissing() {
+        Map<String, Long> before = Map.of("Questions", 5_000L);
+        Map<String, Long> after = Map.of("Questions", 10L, "Slow_queries", 4L);
+
+        Map<String, Object> delta = ServerStatusSampler.delta(before, after, 1.0);
+
+        assertEquals(0.0, delta.get("questionsPerSecond"));
+        assertEquals(0L, delta.get("slowQueries"));
+        assertEquals(1.0, delta.get("bufferPoolHitRatio"));
+    }
+
+    @Test
+    void keepsTryingUntilTheServerAnswers() throws Exception {
+        MySQLStubServer first = new MySQLStubServer(0);
+        int port = first.start();
+        first.stop();
+
+        ServerStatusSampler sampler = new ServerStatusSampler("jdbc:mysql://127.0.0.1:" + port + "/stub?sslMode=DISABLED",
+                "root", "root", 50, () -> 0);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread thread = new Thread(() -> sampler.run(running::get));
+        thread.start();
+        MySQLStubServer server = new MySQLStubServer(port);
+        try {
+            waitFor(() -> String.valueOf(sampler.report().get("state")).startsWith("failed, retrying"));
+
+            // Still trying after a few failed attempts
+            Thread.sleep(300);
+            server.start();
+            waitFor(() -> String.valueOf(sampler.report().get("state")).startsWith("sampling"));
+        } finally {
+            running.set(false);
+            thread.join(5_000);
+            server.stop();
+        }
+        assertEquals("stopped", sampler.report().get("state"));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.yasspfe.scenarios;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCacheTest {
+
+    private static final String SQL = "SELECT * FROM `orders` WHERE `id` >= ? ORDER BY `id` LIMIT 20";
+
+    private MySQLStubServer server;
+    private HikariDataSource dataSource;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new MySQLStubServer(0);
+        server.setRows(2);
+        server.start();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:mysql://127.0.0.1:" + server.getPort() + "/stub?sslMode=DISABLED");
+        config.setUsername("root");
+        config.setPassword("root");
+        config.setMaximumPoolSize(1);
+        dataSource = new HikariDataSource(config);
+    }
+
+    @AfterEach
+    void stop() {
+        dataSource.close();
+        server.stop();
+    }
+
+    @Test
+    void aSessionHoldingItsConnectionKeepsItsStatements() throws Exception {
+        StressSessions sessions = new StressSessions(StressSessions.Engine.PLATFORM, dataSource, 1, 0, 1);
+        assertTrue(sessions.holdsConnections());
+        try (StressSessions.Session session = sessions.newSession("held")) {
+            StatementCache first = session.acquire();
+            PreparedStatement statement = first.prepare(SQL);
+            session.release();
+
+            StatementCache second = session.acquire();
+            assertSame(first, second);
+            assertSame(statement, second.prepare(SQL));
+            assertEquals(2, rows(second.prepare(SQL)));
+            session.release();
+        }
+    }
+
+    @Test
+    void borrowingSessionsFindTheStatementsOfThePooledConnection() throws Exception {
+        StressSessions sessions = new StressSessions(StressSessions.Engine.PLATFORM, dataSource, 1, 0, 2);
+        assertFalse(sessions.holdsConnections());
+        try (StressSessions.Session first = sessions.newSession("first");
+             StressSessions.Session second = sessions.newSession("second")) {
+            StatementCache statements = first.acquire();
+            PreparedStatement statement = statements.prepare(SQL);
+            assertEquals(2, rows(statement));
+            Connection firstHandle = statements.getConnection();
+            first.release();
+            assertTrue(firstHandle.isClosed());
+
+            // The pool of one hands the same connection to the other session, statements and all
+            StatementCache borrowed = second.acquire();
+            assertSame(statements, borrowed);
+            assertSame(statement, borrowed.prepare(SQL));
+            assertEquals(2, rows(borrowed.prepare(SQL)));
+            assertNotSame(firstHandle, borrowed.getConnection());
+            assertFalse(borrowed.getConnection().isClosed());
+            second.release();
+        }
+        assertEquals(1L, server.getConnectionsAccepted());
+    }
+
+    private static int rows(PreparedStatement statement) throws Exception {
+        statement.setLong(1, 1);
+        int rows = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) rows++;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StreamingWorkloadTest {
+
+    @Test
+    void routesTheUrlThroughTheProxy() {
+        assertEquals("jdbc:mysql://127.0.0.1:3301/shop?useSSL=false",
+                StreamingWorkload.route("jdbc:mysql://db1:3306/shop?useSSL=false", "127.0.0.1:3301"));
+        assertEquals("jdbc:mysql://127.0.0.1:3301",
+                StreamingWorkload.route("jdbc:mysql://db1", "127.0.0.1:3301"));
+        assertEquals("jdbc:mysql://root@127.0.0.1:3301/shop",
+                StreamingWorkload.route("jdbc:mysql://root@db1:3306/shop", "127.0.0.1:3301"));
+    }
+
+    @Test
+    void scansEveryTableOrJustTheOneAsked() {
+        Map<String, TableMetadata> metadata = new LinkedHashMap<>();
+        metadata.put("orders", new TableMetadata("orders", List.of(), List.of()));
+        metadata.put("users", new TableMetadata("users", List.of(), List.of()));
+
+        StreamingProfile profile = new StreamingProfile();
+        profile.setMaxRows(500);
+        StreamingWorkload all = StreamingWorkload.prepare(profile, metadata, new AtomicInteger());
+        assertEquals(2, all.getScans().size());
+        assertEquals("SELECT * FROM `orders` LIMIT 500", all.getScans().get(0).getSql());
+
+        profile.setTable("users");
+        profile.setMaxRows(0);
+        StreamingWorkload one = StreamingWorkload.prepare(profile, metadata, new AtomicInteger());
+        assertEquals(1, one.getScans().size());
+        assertEquals("SELECT * FROM `users`", one.getScans().get(0).getSql());
+
+        profile.setTable("missing");
+        assertNull(StreamingWorkload.prepare(profile, metadata, new AtomicInteger()));
+    }
+
+    @Test
+    void validatesTheProfile() {
+        StreamingProfile profile = new StreamingProfile();
+        assertNull(profile.validate());
+        assertEquals(StreamingProfile.FetchMode.STREAM, profile.getMode());
+
+        profile.setFetchMode("Cursor");
+        assertEquals(StreamingProfile.FetchMode.CURSOR, profile.getMode());
+        profile.setFetchSize(0);
+        assertNotNull(profile.validate());
+        profile.setFetchSize(500);
+
+        profile.setFetchMode("chunked");
+        assertNotNull(profile.validate());
+        profile.setFetchMode("stream");
+
+        profile.setQuery("DELETE FROM orders");
+        assertNotNull(profile.validate());
+        profile.setQuery("select * from orders o join users u on u.id = o.user_id");
+        assertNull(profile.validate());
+
+        profile.setProxyAddress("localhost");
+        assertNotNull(profile.validate());
+        profile.setProxyAddress("localhost:3301");
+        assertNull(profile.validate());
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.yasspfe.scenarios;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StressRunHistoryTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("stress-history");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void storesAndReadsBackRuns() throws IOException {
+        StressRunHistory history = new StressRunHistory(directory);
+        assertEquals(1L, history.save(metadata("before", 100.0), series(100, 2), Map.of(StressRunHistory.ALL, latencies(1_000))));
+        long id = history.save(metadata("after", 80.0), series(80, 3), Map.of(StressRunHistory.ALL, latencies(2_000)));
+        assertEquals(2L, id);
+
+        StressRunHistory.Run run = history.load(id);
+        assertEquals(2L, run.id());
+        assertEquals("after", run.metadata().get("label"));
+        assertEquals(10, run.series().size());
+        assertEquals(79.0, run.series().column("qps")[0]);
+        assertEquals(3.0, run.series().column("p99Millis")[9]);
+        assertEquals(100L, run.histograms().get(StressRunHistory.ALL).getTotalCount());
+
+        List<Map<String, Object>> runs = history.list();
+        assertEquals(2, runs.size());
+        assertEquals("before", runs.get(0).get("label"));
+        assertFalse(runs.get(0).containsKey("report"));
+        assertNull(history.load(3));
+    }
+
+    @Test
+    void comparesThroughputAndLatency() throws IOException {
+        StressRunHistory history = new StressRunHistory(directory);
+        StressRunHistory.Run baseline = history.load(history.save(metadata("before", 100.0), series(100, 2),
+                Map.of(StressRunHistory.ALL, latencies(1_000))));
+        StressRunHistory.Run candidate = history.load(history.save(metadata("after", 80.0), series(80, 3),
+                Map.of(StressRunHistory.ALL, latencies(2_000))));
+
+        Map<String, Object> comparison = StressRunHistory.compare(baseline, candidate);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> throughput = (Map<String, Object>) comparison.get("throughput");
+        assertEquals(-20.0, (double) throughput.get("delta"), 1e-9);
+        assertEquals(-20.0, (double) throughput.get("deltaPercent"), 1e-9);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> qps = (Map<String, Object>) ((Map<String, Object>) comparison.get("significance")).get("qps");
+        assertEquals(true, qps.get("significant"));
+    }
+
+    @Test
+    void separatesShiftedSamplesFromNoise() {
+        double[] low = {1, 2, 3, 4, 5, 6, 7, 8};
+        double[] high = {9, 10, 11, 12, 13, 14, 15, 16};
+        StressRunHistory.Test shifted = StressRunHistory.mannWhitney(low, high);
+        assertEquals(64.0, shifted.u(), 1e-9);
+        assertEquals(0.00094, shifted.pValue(), 1e-4);
+        assertTrue(shifted.significant());
+
+        double[] odd = {1, 3, 5, 7, 9, 11, 13, 15};
+        double[] even = {2, 4, 6, 8, 10, 12, 14, 16};
+        StressRunHistory.Test interleaved = StressRunHistory.mannWhitney(odd, even);
+        assertEquals(36.0, interleaved.u(), 1e-9);
+        assertEquals(0.713, interleaved.pValue(), 1e-3);
+        assertFalse(interleaved.significant());
+
+        assertEquals(1.0, StressRunHistory.mannWhitney(new double[]{5, 5, 5}, new double[]{5, 5}).pValue());
+        assertNull(StressRunHistory.mannWhitney(new double[]{1}, high).pValue());
+    }
+
+    private static Map<String, Object> metadata(String label, double qps) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("qps", qps);
+        summary.put("errors", 0L);
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("label", label);
+        metadata.put("summary", summary);
+        metadata.put("report", new LinkedHashMap<>(Map.of("totalQueries", 1000)));
+        return metadata;
+    }
+
+    // Ten intervals around the given rate, with a steady p99
+    private static StressRunHistory.Series series(double qps, double p99) {
+        StressRunHistory.Series series = new StressRunHistory.Series(StressRunHistory.COLUMNS);
+        for (int i = 0; i < 10; i++) {
+            series.add(5.0 * (i + 1), qps + (i % 3) - 1, p99 / 2, p99, p99 * 2, 0);
+        }
+        return series;
+    }
+
+    private static Histogram latencies(long micros) {
+        Histogram histogram = new Histogram(3);
+        for (int i = 0; i < 100; i++) {
+            histogram.recordValue(micros + i);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.yasspfe.scenarios;
+
+import org.example.yasspfe.scenarios.StressMetrics.Operation;
+import org.example.yasspfe.scenarios.TableMetadata.Column;
+import org.example.yasspfe.scenarios.TableMetadata.Index;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableQueriesTest {
+
+    private static final List<Column> COLUMNS = List.of(
+            new Column("id", "bigint", false, false, false, "PRI"),
+            new Column("customer", "varchar(20)", false, false, false, "MUL"),
+            new Column("note", "varchar(50)", true, false, false, ""));
+    private static final List<Index> INDEXES = List.of(
+            new Index("PRIMARY", true, List.of("id")),
+            new Index("idx_customer", false, List.of("customer")));
+
+    private MySQLStubServer server;
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    private final Random random = new Random(11);
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new MySQLStubServer(0);
+        server.setQueryListener(queries::add);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    private Connection connect() throws Exception {
+        return DriverManager.getConnection("jdbc:mysql://127.0.0.1:" + server.getPort() + "/stub?sslMode=DISABLED",
+                "root", "root");
+    }
+
+    @Test
+    void goesThroughTheIndexesWithSampledValues() throws Exception {
+        try (Connection connection = connect(); StatementCache statements = new StatementCache(connection)) {
+            TableQueries queries = TableQueries.prepare(connection, new TableMetadata("orders", COLUMNS, INDEXES));
+
+            assertRuns(queries, statements, Operation.PAGE, "SELECT \\* FROM `orders` WHERE `id` >= '.*' ORDER BY `id` LIMIT 20");
+            assertRuns(queries, statements, Operation.FILTERED, "SELECT \\* FROM `orders` WHERE `(id|customer)` = '.*' LIMIT 30");
+            assertRuns(queries, statements, Operation.ORDERED, "SELECT \\* FROM `orders` ORDER BY `(id|customer)` (ASC|DESC) LIMIT 50");
+            assertRuns(queries, statements, Operation.LIKE, "SELECT \\* FROM `orders` WHERE `customer` LIKE '.{1,3}%' LIMIT 100");
+
+            assertTrue(queries.writeTransaction(statements, random));
+            assertTrue(this.queries.stream().anyMatch(sql -> sql.matches("UPDATE `orders` SET `note` = '.*' WHERE `id` = '.*'")),
+                    this.queries.toString());
+        }
+    }
+
+    @Test
+    void scansATableWithoutIndexes() throws Exception {
+        List<Column> unindexed = List.of(
+                new Column("id", "bigint", false, false, false, ""),
+                new Column("customer", "varchar(20)", false, false, false, ""));
+        try (Connection connection = connect(); StatementCache statements = new StatementCache(connection)) {
+            TableQueries queries = TableQueries.prepare(connection, new TableMetadata("orders", unindexed, List.of()));
+            // Nothing to sample
+            assertTrue(this.queries.stream().noneMatch(sql -> sql.contains("DISTINCT")), this.queries.toString());
+
+            assertRuns(queries, statements, Operation.PAGE, "SELECT \\* FROM `orders` LIMIT \\d+, 20");
+            assertRuns(queries, statements, Operation.FILTERED, "SELECT \\* FROM `orders` WHERE `(id|customer)` IS NOT NULL LIMIT 30");
+            assertRuns(queries, statements, Operation.LIKE, "SELECT \\* FROM `orders` WHERE `(id|customer)` LIKE '%a%' LIMIT 100");
+
+            assertTrue(queries.writeTransaction(statements, random));
+            assertTrue(this.queries.stream().anyMatch(sql -> sql.matches("UPDATE `orders` SET `id` = \\d+ LIMIT 1")),
+                    this.queries.toString());
+        }
+    }
+
+    @Test
+    void scansWhenTheIndexedColumnsHaveNoRows() throws Exception {
+        server.setRows(0);
+        try (Connection connection = connect(); StatementCache statements = new StatementCache(connection)) {
+            TableQueries queries = TableQueries.prepare(connection, new TableMetadata("orders", COLUMNS, INDEXES));
+
+            assertRuns(queries, statements, Operation.PAGE, "SELECT \\* FROM `orders` LIMIT \\d+, 20");
+            assertRuns(queries, statements, Operation.FILTERED, "SELECT \\* FROM `orders` WHERE `(id|customer|note)` IS NOT NULL LIMIT 30");
+            assertRuns(queries, statements, Operation.LIKE, "SELECT \\* FROM `orders` WHERE `(id|customer|note)` LIKE '%a%' LIMIT 100");
+        }
+    }
+
+    @Test
+    void reusesOneStatementPerQueryShape() throws Exception {
+        try (Connection connection = connect(); StatementCache statements = new StatementCache(connection)) {
+            TableQueries queries = TableQueries.prepare(connection, new TableMetadata("orders", COLUMNS, INDEXES));
+            for (int i = 0; i < 20; i++) {
+                queries.run(statements, Operation.PAGE, random);
+                queries.run(statements, Operation.COUNT, random);
+            }
+            assertEquals(2, statements.size());
+        }
+    }
+
+    private void assertRuns(TableQueries queries, StatementCache statements, Operation operation, String pattern)
+            throws Exception {
+        queries.run(statements, operation, random);
+        String sql = this.queries.get(this.queries.size() - 1);
+        assertTrue(sql.matches(pattern), operation + " ran " + sql);
+    }
+}
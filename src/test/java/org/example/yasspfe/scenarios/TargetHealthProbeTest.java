@@ -0,0 +1,86 @@
+package org.example.yasspfe.scenarios;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TargetHealthProbeTest {
+
+    private MySQLStubServer server;
+    private int port;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new MySQLStubServer(0);
+        server.setCredentials("probe", "secret");
+        port = server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void logsInAndPings() {
+        TargetHealthProbe.Result result = TargetHealthProbe.probe("127.0.0.1", port, "probe", "secret", 2000);
+
+        assertTrue(result.reachable(), result.error());
+        assertEquals("8.0.36-stub", result.serverVersion());
+    }
+
+    @Test
+    void reportsARejectedLogin() {
+        TargetHealthProbe.Result result = TargetHealthProbe.probe("127.0.0.1", port, "probe", "wrong", 2000);
+
+        assertFalse(result.reachable());
+        assertTrue(result.error().contains("Access denied"), result.error());
+    }
+
+    @Test
+    void keepsOneAuthenticatedConnectionBetweenRuns() throws Exception {
+        try (TargetHealthProbe probe = new TargetHealthProbe("127.0.0.1", port, "probe", "secret")) {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(probe.run(2000).reachable());
+            }
+            assertEquals(1L, server.getConnectionsAccepted());
+            assertEquals(1, server.getOpenConnections());
+        }
+        // Closing the probe quits the connection
+        long deadline = System.currentTimeMillis() + 2000;
+        while (server.getOpenConnections() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.getOpenConnections());
+    }
+
+    @Test
+    void reconnectsAfterTheTargetComesBack() throws Exception {
+        try (TargetHealthProbe probe = new TargetHealthProbe("127.0.0.1", port, "probe", "secret")) {
+            assertTrue(probe.run(2000).reachable());
+            server.stop();
+            assertFalse(probe.run(500).reachable());
+
+            server = new MySQLStubServer(port);
+            server.setCredentials("probe", "secret");
+            server.start();
+            assertTrue(probe.run(2000).reachable());
+            assertEquals(1L, server.getConnectionsAccepted());
+        }
+    }
+
+    @Test
+    void failsOnAPortWithoutAServer() throws Exception {
+        int closed;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closed = socket.getLocalPort();
+        }
+        assertFalse(TargetHealthProbe.probe("127.0.0.1", closed, "probe", "secret", 500).reachable());
+    }
+}